@@ -0,0 +1,82 @@
+package net.glowstone;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.util.EnumMap;
+import java.util.logging.Logger;
+import net.glowstone.generator.GlowChunkData;
+import net.glowstone.util.config.ServerConfig;
+import net.glowstone.util.config.WorldConfig;
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+import org.bukkit.World.Environment;
+import org.bukkit.WorldType;
+import org.mockito.Answers;
+import org.mockito.Mockito;
+
+/**
+ * Sets up the static server state that benchmarked code reaches for, without starting a server.
+ */
+public final class BenchmarkServer {
+
+    private static GlowServer server;
+
+    private BenchmarkServer() {
+    }
+
+    /**
+     * Installs a mock {@link GlowServer} with default server and world settings, if one isn't
+     * installed yet.
+     *
+     * @return the mock server
+     */
+    public static synchronized GlowServer install() {
+        if (server != null) {
+            return server;
+        }
+        server = Mockito.mock(GlowServer.class, Answers.RETURNS_SMART_NULLS);
+        when(server.getLogger()).thenReturn(Logger.getLogger("Benchmark"));
+        when(server.doesUseGraphicsCompute()).thenReturn(false);
+        when(server.createChunkData(any(World.class)))
+                .thenAnswer(invocation -> new GlowChunkData(invocation.getArgument(0)));
+        ServerProvider.setMockServer(server);
+        if (Bukkit.getServer() == null) {
+            Bukkit.setServer(server);
+        }
+        try {
+            File configDir = Files.createTempDirectory("glowstone-benchmark").toFile();
+            configDir.deleteOnExit();
+            when(server.getConfig()).thenReturn(new ServerConfig(configDir,
+                    new File(configDir, "glowstone.yml"), new EnumMap<>(ServerConfig.Key.class)));
+            Field worldConfig = GlowServer.class.getDeclaredField("worldConfig");
+            worldConfig.setAccessible(true);
+            worldConfig.set(null, new WorldConfig(configDir, new File(configDir, "worlds.yml")));
+        } catch (Exception e) {
+            throw new IllegalStateException("Unable to set up the world config", e);
+        }
+        return server;
+    }
+
+    /**
+     * Creates a mock overworld with the given seed. Chunks are not backed by any storage.
+     *
+     * @param seed the world seed
+     * @return the mock world
+     */
+    public static GlowWorld mockWorld(long seed) {
+        GlowServer server = install();
+        GlowWorld world = Mockito.mock(GlowWorld.class);
+        when(world.getServer()).thenReturn(server);
+        when(world.getName()).thenReturn("benchmark-" + seed);
+        when(world.getSeed()).thenReturn(seed);
+        when(world.getEnvironment()).thenReturn(Environment.NORMAL);
+        when(world.getWorldType()).thenReturn(WorldType.NORMAL);
+        when(world.getMaxHeight()).thenReturn(256);
+        when(world.getSeaLevel()).thenReturn(64);
+        return world;
+    }
+}
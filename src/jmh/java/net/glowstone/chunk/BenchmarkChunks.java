@@ -0,0 +1,121 @@
+package net.glowstone.chunk;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import net.glowstone.GlowWorld;
+import net.glowstone.util.nbt.CompoundTag;
+import org.bukkit.Material;
+
+/**
+ * Builds chunk fixtures with realistic contents for benchmarks.
+ */
+public final class BenchmarkChunks {
+
+    private static final char STONE = (char) (Material.STONE.getId() << 4);
+    private static final char DIRT = (char) (Material.DIRT.getId() << 4);
+    private static final char GRASS = (char) (Material.GRASS.getId() << 4);
+    private static final char[] ORES = {
+        (char) (Material.COAL_ORE.getId() << 4),
+        (char) (Material.IRON_ORE.getId() << 4),
+        (char) (Material.GRAVEL.getId() << 4),
+        (char) (Material.STONE.getId() << 4 | 1),
+        (char) (Material.STONE.getId() << 4 | 3),
+        (char) (Material.STONE.getId() << 4 | 5),
+    };
+
+    private BenchmarkChunks() {
+    }
+
+    /**
+     * Creates the block states of a section of terrain: stone with scattered ores and stone
+     * variants, or dirt and grass at the surface.
+     *
+     * @param sectionY the section's index in its chunk
+     * @param surfaceSection the index of the section containing the surface
+     * @param random the source of ore placement
+     * @return a {@value ChunkSection#ARRAY_SIZE}-element state array
+     */
+    public static char[] terrainTypes(int sectionY, int surfaceSection, Random random) {
+        char[] types = new char[ChunkSection.ARRAY_SIZE];
+        for (int i = 0; i < types.length; i++) {
+            int y = sectionY << 4 | i >> 8;
+            int surface = (surfaceSection << 4) + 8;
+            if (y > surface) {
+                types[i] = 0;
+            } else if (y == surface) {
+                types[i] = GRASS;
+            } else if (y > surface - 4) {
+                types[i] = DIRT;
+            } else if (random.nextInt(16) == 0) {
+                types[i] = ORES[random.nextInt(ORES.length)];
+            } else {
+                types[i] = STONE;
+            }
+        }
+        return types;
+    }
+
+    /**
+     * Creates a loaded chunk with terrain up to the middle of section 4 (Y=72).
+     *
+     * @param world the world the chunk belongs to
+     * @param x the chunk X coordinate
+     * @param z the chunk Z coordinate
+     * @return the chunk
+     */
+    public static GlowChunk terrainChunk(GlowWorld world, int x, int z) {
+        Random random = new Random(x * 341873128712L + z * 132897987541L);
+        ChunkSection[] sections = new ChunkSection[GlowChunk.SEC_COUNT];
+        for (int y = 0; y <= 4; y++) {
+            sections[y] = new ChunkSection(terrainTypes(y, 4, random));
+        }
+        GlowChunk chunk = new GlowChunk(world, x, z);
+        chunk.initializeSections(sections);
+        chunk.automaticHeightMap();
+        return chunk;
+    }
+
+    /**
+     * Builds the Anvil NBT tree for a chunk, laid out the way
+     * {@link net.glowstone.io.anvil.AnvilChunkIoService} saves it.
+     *
+     * @param chunk a loaded chunk
+     * @return the root tag
+     */
+    public static CompoundTag levelTag(GlowChunk chunk) {
+        CompoundTag levelTags = new CompoundTag();
+        levelTags.putInt("xPos", chunk.getX());
+        levelTags.putInt("zPos", chunk.getZ());
+        levelTags.putLong("LastUpdate", 0);
+        levelTags.putLong("InhabitedTime", 0);
+        levelTags.putBool("TerrainPopulated", true);
+
+        List<CompoundTag> sectionTags = new ArrayList<>();
+        ChunkSection[] sections = chunk.getSections();
+        for (byte i = 0; i < sections.length; ++i) {
+            if (sections[i] != null) {
+                CompoundTag sectionTag = new CompoundTag();
+                sectionTag.putByte("Y", i);
+                sections[i].writeToNbt(sectionTag);
+                sectionTags.add(sectionTag);
+            }
+        }
+        levelTags.putCompoundList("Sections", sectionTags);
+
+        int[] heightMap = new int[GlowChunk.WIDTH * GlowChunk.HEIGHT];
+        for (int i = 0; i < heightMap.length; i++) {
+            heightMap[i] = chunk.getHeight(i & 0xF, i >> 4);
+        }
+        levelTags.putIntArray("HeightMap", heightMap);
+        levelTags.putByteArray("Biomes", new byte[GlowChunk.WIDTH * GlowChunk.HEIGHT]);
+        levelTags.putCompoundList("Entities", Collections.emptyList());
+        levelTags.putCompoundList("TileEntities", Collections.emptyList());
+        levelTags.putCompoundList("TileTicks", Collections.emptyList());
+
+        CompoundTag levelOut = new CompoundTag();
+        levelOut.putCompound("Level", levelTags);
+        return levelOut;
+    }
+}
@@ -0,0 +1,200 @@
+package net.glowstone.chunk;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doCallRealMethod;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import net.glowstone.BenchmarkServer;
+import net.glowstone.GlowWorld;
+import net.glowstone.constants.GameRules;
+import net.glowstone.generator.GlowChunkGenerator;
+import net.glowstone.generator.NetherGenerator;
+import net.glowstone.generator.OverworldGenerator;
+import net.glowstone.generator.SuperflatGenerator;
+import net.glowstone.generator.TheEndGenerator;
+import net.glowstone.util.GameRuleManager;
+import org.bukkit.World.Environment;
+import org.bukkit.Location;
+import org.bukkit.WorldType;
+import org.bukkit.block.Block;
+import org.bukkit.generator.BlockPopulator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Generating chunks as the chunk manager does, biomes and terrain without population or light,
+ * in chunks per second for each built-in generator.
+ *
+ * <p>{@link #populate(Population)} runs the generator's populators on chunks whose 5x5 area was
+ * generated beforehand, in chunks per second. The mock world doesn't generate structures, and a
+ * single populator is picked with {@code -p populator=<simple class name>}, such as
+ * {@code -p populator=SnowPopulator}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ChunkGenerationBenchmark {
+
+    @Param({"overworld", "nether", "the_end", "superflat"})
+    private String generator;
+
+    private GlowWorld world;
+    private GlowChunkGenerator chunkGenerator;
+    private ChunkManager chunkManager;
+    private int next;
+
+    /**
+     * Creates a world of the generator's environment.
+     */
+    @Setup
+    public void setUp() {
+        world = BenchmarkServer.mockWorld(1234L);
+        switch (generator) {
+            case "nether":
+                when(world.getEnvironment()).thenReturn(Environment.NETHER);
+                chunkGenerator = new NetherGenerator();
+                break;
+            case "the_end":
+                when(world.getEnvironment()).thenReturn(Environment.THE_END);
+                chunkGenerator = new TheEndGenerator();
+                break;
+            case "superflat":
+                when(world.getWorldType()).thenReturn(WorldType.FLAT);
+                chunkGenerator = new SuperflatGenerator();
+                break;
+            default:
+                chunkGenerator = new OverworldGenerator();
+                break;
+        }
+        chunkManager = new ChunkManager(world, null, chunkGenerator);
+        when(world.getChunkManager()).thenReturn(chunkManager);
+    }
+
+    /**
+     * Generates the next chunk of a 32x32 area.
+     */
+    @Benchmark
+    public GlowChunk generate() {
+        int chunk = next++ & 1023;
+        GlowChunk glowChunk = new GlowChunk(world, chunk & 31, chunk >> 5);
+        chunkManager.initializeChunk(glowChunk);
+        return glowChunk;
+    }
+
+    /**
+     * Populates the center of the next generated area.
+     */
+    @Benchmark
+    public GlowChunk populate(Population population) {
+        population.chunkManager.runPopulators(population.center);
+        return population.center;
+    }
+
+    /**
+     * Generated 5x5 areas of chunks, whose centers are populated with some of the generator's
+     * populators.
+     */
+    @State(Scope.Thread)
+    public static class Population {
+
+        private static final int AREAS = 8;
+
+        /**
+         * "all", or the simple class name of one of the generator's populators.
+         */
+        @Param({"all"})
+        private String populator;
+
+        private final List<ProtoChunk[]> areas = new ArrayList<>();
+        private final Map<Long, GlowChunk> chunks = new HashMap<>();
+        private GlowWorld world;
+        private ChunkManager chunkManager;
+        private GlowChunk center;
+        private int next;
+
+        /**
+         * Generates the areas and sends the block lookups of the world to their chunks.
+         *
+         * <p>JMH may give this a different instance of the benchmark than the one it measures, so
+         * the world and chunk manager populated are kept here.
+         */
+        @Setup
+        public void setUp(ChunkGenerationBenchmark benchmark) {
+            world = benchmark.world;
+            chunkManager = benchmark.chunkManager;
+            List<BlockPopulator> populators = new ArrayList<>();
+            for (BlockPopulator blockPopulator
+                    : benchmark.chunkGenerator.getDefaultPopulators(world)) {
+                if ("all".equals(populator)
+                        || blockPopulator.getClass().getSimpleName().equals(populator)) {
+                    populators.add(blockPopulator);
+                }
+            }
+            if (populators.isEmpty()) {
+                throw new IllegalArgumentException(
+                        "No populator " + populator + " in " + benchmark.generator);
+            }
+            when(world.getPopulators()).thenReturn(populators);
+            // chunks outside the areas are only read, as empty chunks
+            when(world.getChunkAt(anyInt(), anyInt())).thenAnswer(invocation -> {
+                int x = invocation.getArgument(0);
+                int z = invocation.getArgument(1);
+                GlowChunk chunk = chunks.get(GlowChunk.key(x, z));
+                return chunk == null ? chunkManager.getChunk(x, z) : chunk;
+            });
+            doCallRealMethod().when(world).getChunkAt(any(Block.class));
+            doCallRealMethod().when(world).getBlockAt(anyInt(), anyInt(), anyInt());
+            doCallRealMethod().when(world).getBlockAt(any(Location.class));
+            doCallRealMethod().when(world).getBlockTypeIdAt(anyInt(), anyInt(), anyInt());
+            doCallRealMethod().when(world).getHighestBlockYAt(anyInt(), anyInt());
+            doCallRealMethod().when(world).getHighestBlockAt(anyInt(), anyInt());
+            doCallRealMethod().when(world).getBiome(anyInt(), anyInt());
+            // spawning mobs needs a server
+            GameRuleManager gameRules = new GameRuleManager();
+            gameRules.setValue(GameRules.DO_MOB_SPAWNING, false);
+            when(world.getGameRuleMap()).thenReturn(gameRules);
+
+            for (int i = 0; i < AREAS; i++) {
+                ProtoChunk[] area = new ProtoChunk[25];
+                for (int j = 0; j < area.length; j++) {
+                    area[j] = chunkManager.generateProtoChunk(i * 8 + j / 5 - 2, j % 5 - 2);
+                }
+                areas.add(area);
+            }
+        }
+
+        /**
+         * Creates the chunks of the next area, since populating changes them.
+         */
+        @Setup(Level.Invocation)
+        public void nextArea() {
+            int area = next++ % AREAS;
+            chunks.clear();
+            for (ProtoChunk protoChunk : areas.get(area)) {
+                GlowChunk chunk = new GlowChunk(world, protoChunk.getX(), protoChunk.getZ());
+                protoChunk.snapshot().initialize(chunk);
+                chunks.put(GlowChunk.key(chunk.getX(), chunk.getZ()), chunk);
+            }
+            center = chunks.get(GlowChunk.key(area * 8, 0));
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package net.glowstone.chunk;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import net.glowstone.util.nbt.CompoundTag;
+import org.bukkit.Material;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Block access, palette building and serialization of a single {@link ChunkSection}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChunkSectionBenchmark {
+
+    private static final char PLANKS = (char) (Material.WOOD.getId() << 4);
+
+    private char[] types;
+    private ChunkSection section;
+    private ByteBuf buf;
+
+    /**
+     * Builds a section of underground terrain.
+     */
+    @Setup
+    public void setUp() {
+        types = BenchmarkChunks.terrainTypes(2, 4, new Random(42));
+        section = new ChunkSection(types.clone());
+        buf = Unpooled.buffer(16384);
+    }
+
+    /**
+     * Reads every block of the section.
+     */
+    @Benchmark
+    public int getTypeAll() {
+        int sum = 0;
+        for (int y = 0; y < 16; y++) {
+            for (int z = 0; z < 16; z++) {
+                for (int x = 0; x < 16; x++) {
+                    sum += section.getType(x, y, z);
+                }
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Overwrites one layer of the section with a block already in its palette, then restores it.
+     */
+    @Benchmark
+    public void setTypeLayer() {
+        for (int z = 0; z < 16; z++) {
+            for (int x = 0; x < 16; x++) {
+                section.setType(x, 7, z, PLANKS);
+            }
+        }
+        for (int z = 0; z < 16; z++) {
+            for (int x = 0; x < 16; x++) {
+                section.setType(x, 7, z, types[7 << 8 | z << 4 | x]);
+            }
+        }
+    }
+
+    /**
+     * Builds a section, including its palette, from a state array.
+     */
+    @Benchmark
+    public ChunkSection loadTypeArray() {
+        return new ChunkSection(types.clone());
+    }
+
+    /**
+     * Writes the section in the network format.
+     */
+    @Benchmark
+    public int writeToBuf() {
+        buf.clear();
+        section.writeToBuf(buf, true);
+        return buf.writerIndex();
+    }
+
+    /**
+     * Writes the section in the Anvil format.
+     */
+    @Benchmark
+    public void writeToNbt(Blackhole blackhole) {
+        CompoundTag tag = new CompoundTag();
+        section.writeToNbt(tag);
+        blackhole.consume(tag);
+    }
+
+    /**
+     * Copies the section for a chunk snapshot.
+     */
+    @Benchmark
+    public ChunkSection snapshot() {
+        return section.snapshot();
+    }
+    /**
+     * Compacts the palette of the section, as done before saving it.
+     */
+    @Benchmark
+    public void optimize() {
+        section.optimize();
+    }
+
+    /**
+     * Fills a section of stone with air, block by block.
+     */
+    @Benchmark
+    public ChunkSection fill() {
+        char[] stone = new char[ChunkSection.ARRAY_SIZE];
+        Arrays.fill(stone, (char) (Material.STONE.getId() << 4));
+        ChunkSection filled = new ChunkSection(stone);
+        for (int i = 0; i < ChunkSection.ARRAY_SIZE; i++) {
+            filled.setType(i & 0xf, i >> 8, i >> 4 & 0xf, (char) 0);
+        }
+        return filled;
+    }
+}
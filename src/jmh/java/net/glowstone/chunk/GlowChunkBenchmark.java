@@ -0,0 +1,53 @@
+package net.glowstone.chunk;
+
+import java.util.concurrent.TimeUnit;
+import net.glowstone.BenchmarkServer;
+import net.glowstone.net.message.play.game.ChunkDataMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Building the packet that streams a whole chunk to a client.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GlowChunkBenchmark {
+
+    private GlowChunk chunk;
+
+    @Setup
+    public void setUp() {
+        chunk = BenchmarkChunks.terrainChunk(BenchmarkServer.mockWorld(0), 0, 0);
+    }
+
+    /**
+     * Serializes the chunk and releases the packet buffer again.
+     */
+    @Benchmark
+    public int toMessage() {
+        ChunkDataMessage message = chunk.toMessage(true);
+        int size = message.getData().readableBytes();
+        message.getData().release();
+        return size;
+    }
+
+    /**
+     * Copies the chunk for saving or a plugin.
+     */
+    @Benchmark
+    public GlowChunkSnapshot getChunkSnapshot() {
+        return chunk.getChunkSnapshot();
+    }
+}
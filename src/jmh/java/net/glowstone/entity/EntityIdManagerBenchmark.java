@@ -0,0 +1,64 @@
+package net.glowstone.entity;
+
+import static org.mockito.Mockito.mock;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Entity id churn from several world threads at once: each thread keeps a ring of live entities
+ * and replaces the oldest one per operation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+public class EntityIdManagerBenchmark {
+
+    private static final int LIVE_ENTITIES = 1024;
+
+    @State(Scope.Benchmark)
+    public static class Manager {
+        final EntityIdManager ids = new EntityIdManager();
+    }
+
+    @State(Scope.Thread)
+    public static class Entities {
+        final GlowEntity[] ring = new GlowEntity[LIVE_ENTITIES];
+        int next;
+
+        /**
+         * Fills the ring with entities that hold ids.
+         */
+        @Setup
+        public void setUp(Manager manager) {
+            for (int i = 0; i < ring.length; i++) {
+                ring[i] = mock(GlowEntity.class);
+                manager.ids.allocate(ring[i]);
+            }
+        }
+    }
+
+    /**
+     * Frees one entity's id and allocates a new one for it.
+     */
+    @Benchmark
+    public int replace(Manager manager, Entities entities) {
+        GlowEntity entity = entities.ring[entities.next++ & (LIVE_ENTITIES - 1)];
+        manager.ids.deallocate(entity);
+        entity.entityId = 0;
+        return manager.ids.allocate(entity);
+    }
+}
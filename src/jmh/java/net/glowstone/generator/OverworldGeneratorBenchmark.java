@@ -0,0 +1,74 @@
+package net.glowstone.generator;
+
+import static org.mockito.Mockito.when;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import net.glowstone.BenchmarkServer;
+import net.glowstone.GlowWorld;
+import net.glowstone.chunk.ChunkManager;
+import org.bukkit.block.Biome;
+import org.bukkit.generator.ChunkGenerator.BiomeGrid;
+import org.bukkit.generator.ChunkGenerator.ChunkData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Generating the raw terrain of overworld chunks, without population.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OverworldGeneratorBenchmark {
+
+    private GlowWorld world;
+    private OverworldGenerator generator;
+    private BiomeGrid biomes;
+    private Random random;
+    private int next;
+
+    /**
+     * Creates a world whose chunk manager provides the biome layers the generator reads.
+     */
+    @Setup
+    public void setUp() {
+        world = BenchmarkServer.mockWorld(1234L);
+        generator = new OverworldGenerator();
+        ChunkManager chunkManager = new ChunkManager(world, null, generator);
+        when(world.getChunkManager()).thenReturn(chunkManager);
+        biomes = new PlainsGrid();
+        random = new Random(1234L);
+    }
+
+    /**
+     * Generates the next chunk of a 32x32 area, so the noise caches see new coordinates.
+     */
+    @Benchmark
+    public ChunkData generateChunkData() {
+        int chunk = next++ & 1023;
+        return generator.generateChunkData(world, random, chunk & 31, chunk >> 5, biomes);
+    }
+
+    private static final class PlainsGrid implements BiomeGrid {
+
+        @Override
+        public Biome getBiome(int x, int z) {
+            return Biome.PLAINS;
+        }
+
+        @Override
+        public void setBiome(int x, int z, Biome bio) {
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package net.glowstone.generator.biomegrid;
+
+import java.util.concurrent.TimeUnit;
+import org.bukkit.World.Environment;
+import org.bukkit.WorldType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Evaluating the overworld biome layer stack for one chunk at a time.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapLayerBenchmark {
+
+    private MapLayer[] layers;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        layers = MapLayer.initialize(1234L, Environment.NORMAL, WorldType.NORMAL);
+    }
+
+    /**
+     * Biomes of a whole chunk, as {@code ChunkManager.generateChunk} requests them.
+     */
+    @Benchmark
+    public int[] fullResolution() {
+        int chunk = next++ & 1023;
+        return layers[0].generateValues((chunk & 31) << 4, (chunk >> 5) << 4, 16, 16);
+    }
+
+    /**
+     * Biomes of the 10x10 area around a chunk that terrain generation reads.
+     */
+    @Benchmark
+    public int[] lowerResolution() {
+        int chunk = next++ & 1023;
+        return layers[1].generateValues(((chunk & 31) << 2) - 2, ((chunk >> 5) << 2) - 2, 10, 10);
+    }
+}
@@ -0,0 +1,92 @@
+package net.glowstone.io.anvil;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import net.glowstone.BenchmarkServer;
+import net.glowstone.chunk.BenchmarkChunks;
+import net.glowstone.util.nbt.CompoundTag;
+import net.glowstone.util.nbt.NbtInputStream;
+import net.glowstone.util.nbt.NbtOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Saving and loading a chunk through a {@link RegionFile}, including compression and NBT.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RegionFileBenchmark {
+
+    private File directory;
+    private RegionFile region;
+    private CompoundTag chunkTag;
+    private int next;
+
+    /**
+     * Creates a region file with every chunk slot filled.
+     */
+    @Setup
+    public void setUp() throws IOException {
+        // the server is installed first, since RegionFile reads its config when loaded
+        chunkTag = BenchmarkChunks.levelTag(
+                BenchmarkChunks.terrainChunk(BenchmarkServer.mockWorld(0), 0, 0));
+        directory = Files.createTempDirectory("glowstone-region").toFile();
+        region = new RegionFile(new File(directory, "r.0.0.mca"));
+        for (int i = 0; i < 1024; i++) {
+            write(i);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        region.close();
+        for (File file : directory.listFiles()) {
+            file.delete();
+        }
+        directory.delete();
+    }
+
+    private void write(int slot) throws IOException {
+        DataOutputStream out = region.getChunkDataOutputStream(slot & 31, slot >> 5);
+        try (NbtOutputStream nbt = new NbtOutputStream(out, false)) {
+            nbt.writeTag(chunkTag);
+        }
+    }
+
+    /**
+     * Overwrites one chunk, cycling through the region.
+     */
+    @Benchmark
+    public void writeChunk() throws IOException {
+        write(next++ & 1023);
+    }
+
+    /**
+     * Reads one chunk, cycling through the region.
+     */
+    @Benchmark
+    public CompoundTag readChunk() throws IOException {
+        int slot = next++ & 1023;
+        DataInputStream in = region.getChunkDataInputStream(slot & 31, slot >> 5);
+        try (NbtInputStream nbt = new NbtInputStream(in, false)) {
+            return nbt.readCompound();
+        }
+    }
+}
@@ -0,0 +1,344 @@
+package net.glowstone.loadtest;
+
+import com.flowpowered.network.Message;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.SimpleChannelInboundHandler;
+import it.unimi.dsi.fastutil.ints.Int2LongMap;
+import it.unimi.dsi.fastutil.ints.Int2LongOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import lombok.AccessLevel;
+import lombok.Getter;
+import net.glowstone.GlowServer;
+import net.glowstone.loadtest.BotCodecsHandler.ChunkColumn;
+import net.glowstone.net.message.KickMessage;
+import net.glowstone.net.message.SetCompressionMessage;
+import net.glowstone.net.message.handshake.HandshakeMessage;
+import net.glowstone.net.message.login.EncryptionKeyRequestMessage;
+import net.glowstone.net.message.login.LoginStartMessage;
+import net.glowstone.net.message.login.LoginSuccessMessage;
+import net.glowstone.net.message.play.game.ChatMessage;
+import net.glowstone.net.message.play.game.ClientSettingsMessage;
+import net.glowstone.net.message.play.game.IncomingChatMessage;
+import net.glowstone.net.message.play.game.JoinGameMessage;
+import net.glowstone.net.message.play.game.PingMessage;
+import net.glowstone.net.message.play.game.PositionRotationMessage;
+import net.glowstone.net.message.play.game.TimeMessage;
+import net.glowstone.net.message.play.game.UnloadChunkMessage;
+import net.glowstone.net.message.play.inv.CreativeItemMessage;
+import net.glowstone.net.message.play.player.BlockPlacementMessage;
+import net.glowstone.net.message.play.player.DiggingMessage;
+import net.glowstone.net.message.play.player.PlayerPositionLookMessage;
+import net.glowstone.net.message.play.player.TeleportConfirmMessage;
+import net.glowstone.net.pipeline.CompressionHandler;
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+
+/**
+ * A headless player. It logs in in offline mode, then walks its {@link BotScript} route at 20
+ * updates per second, periodically places and breaks a block next to its route and chats, and
+ * records what it measures in the shared {@link LoadTestMetrics}.
+ *
+ * <p>All methods run on the bot's channel event loop.
+ */
+final class Bot extends SimpleChannelInboundHandler<Object> {
+
+    private static final Logger logger = Logger.getLogger("LoadTest");
+    private static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+    /**
+     * The first hotbar slot, in the numbering of the player inventory window.
+     */
+    private static final int HOTBAR_SLOT = 36;
+    private static final int UP = 1;
+
+    @Getter
+    private final String name;
+    private final LoadTestOptions options;
+    private final LoadTestMetrics metrics;
+    private final BotScript script;
+    @Getter(AccessLevel.PACKAGE)
+    private final BotCodecsHandler codecs = new BotCodecsHandler();
+
+    private ChannelHandlerContext ctx;
+    private ScheduledFuture<?> ticker;
+    private long connectedAt;
+    private long spawnedAt;
+
+    private boolean spawned;
+    private double spawnX;
+    private double spawnY;
+    private double spawnZ;
+    private double x;
+    private double y;
+    private double z;
+    private float yaw;
+    /**
+     * Whether the bot has been counted as failed or kicked.
+     */
+    private boolean counted;
+
+    private final LongSet loadedChunks = new LongOpenHashSet();
+    private int chunkX;
+    private int chunkZ;
+    /**
+     * When the bot joined or last entered a new chunk; chunk latencies are measured from here.
+     */
+    private long chunkRequestedAt;
+
+    private long lastWorldAge = -1;
+    private long lastTimeAt;
+
+    private final Int2LongMap chatSentAt = new Int2LongOpenHashMap();
+    private int chatSequence;
+    private long nextChatAt;
+    private long nextBuildAt;
+    /**
+     * The block placed by the last build action, to be broken on the next tick; or null.
+     */
+    private int[] placedBlock;
+
+    Bot(String name, int index, LoadTestOptions options, LoadTestMetrics metrics) {
+        this.name = name;
+        this.options = options;
+        this.metrics = metrics;
+        script = new BotScript(options.getWalkRadius(), options.getWalkSpeed(), index);
+    }
+
+    /**
+     * Marks the start of the connection attempt, from which join time is measured.
+     */
+    void connecting() {
+        connectedAt = System.nanoTime();
+    }
+
+    /**
+     * Disconnects the bot.
+     */
+    void disconnect() {
+        if (ctx != null) {
+            ctx.executor().execute(() -> ctx.close());
+        }
+    }
+
+    @Override
+    public void channelActive(ChannelHandlerContext ctx) {
+        this.ctx = ctx;
+        send(new HandshakeMessage(GlowServer.PROTOCOL_VERSION, options.getHost(),
+                options.getPort(), 2));
+        codecs.setProtocol(BotProtocol.LOGIN);
+        send(new LoginStartMessage(name));
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) {
+        if (ticker != null) {
+            ticker.cancel(false);
+        }
+        if (!spawned && !counted) {
+            counted = true;
+            metrics.failed.incrementAndGet();
+        }
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+        logger.log(Level.WARNING, name + ": " + cause.getMessage(), cause);
+        ctx.close();
+    }
+
+    @Override
+    protected void channelRead0(ChannelHandlerContext ctx, Object msg) {
+        metrics.packetsReceived.incrementAndGet();
+        if (msg instanceof ChunkColumn) {
+            onChunk((ChunkColumn) msg);
+        } else if (msg instanceof PingMessage) {
+            send((PingMessage) msg);
+        } else if (msg instanceof TimeMessage) {
+            onTime((TimeMessage) msg);
+        } else if (msg instanceof ChatMessage) {
+            onChat((ChatMessage) msg);
+        } else if (msg instanceof UnloadChunkMessage) {
+            UnloadChunkMessage unload = (UnloadChunkMessage) msg;
+            loadedChunks.remove(chunkKey(unload.getChunkX(), unload.getChunkZ()));
+        } else if (msg instanceof PositionRotationMessage) {
+            onTeleport((PositionRotationMessage) msg);
+        } else if (msg instanceof JoinGameMessage) {
+            onJoin((JoinGameMessage) msg);
+        } else if (msg instanceof SetCompressionMessage) {
+            ctx.pipeline().replace("compression", "compression",
+                    new CompressionHandler(((SetCompressionMessage) msg).getThreshold()));
+        } else if (msg instanceof LoginSuccessMessage) {
+            codecs.setProtocol(BotProtocol.PLAY);
+        } else if (msg instanceof KickMessage) {
+            logger.warning(name + " was kicked: " + ((KickMessage) msg).getText().flatten());
+            counted = true;
+            metrics.kicked.incrementAndGet();
+            ctx.close();
+        } else if (msg instanceof EncryptionKeyRequestMessage) {
+            logger.severe("The server is in online mode; bots can only join in offline mode");
+            ctx.close();
+        }
+    }
+
+    private void onJoin(JoinGameMessage message) {
+        long now = System.nanoTime();
+        metrics.join.record(now - connectedAt);
+        metrics.joined.incrementAndGet();
+        chunkRequestedAt = now;
+        send(new ClientSettingsMessage("en_US", options.getViewDistance(), 0, true, 0x7F, 1));
+        if (message.getMode() == 1) {
+            // creative: hold something to place
+            send(new CreativeItemMessage(HOTBAR_SLOT, new ItemStack(Material.DIRT, 64)));
+        }
+    }
+
+    private void onTeleport(PositionRotationMessage message) {
+        // flags mark relative coordinates
+        x = (message.getFlags() & 0x01) != 0 ? x + message.getX() : message.getX();
+        y = (message.getFlags() & 0x02) != 0 ? y + message.getY() : message.getY();
+        z = (message.getFlags() & 0x04) != 0 ? z + message.getZ() : message.getZ();
+        send(new TeleportConfirmMessage(message.getTeleportId()));
+        send(new PlayerPositionLookMessage(true, x, y, z, yaw, 0));
+
+        long now = System.nanoTime();
+        spawnX = x;
+        spawnY = y;
+        spawnZ = z;
+        spawnedAt = now;
+        if (!spawned) {
+            spawned = true;
+            chunkX = (int) Math.floor(x) >> 4;
+            chunkZ = (int) Math.floor(z) >> 4;
+            nextBuildAt = now + seconds(options.getBuildInterval());
+            nextChatAt = now + seconds(options.getChatInterval());
+            ticker = ctx.executor().scheduleAtFixedRate(this::tick, TICK_NANOS, TICK_NANOS,
+                    TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void onChunk(ChunkColumn column) {
+        if (!column.isContinuous() || !loadedChunks.add(chunkKey(column.getX(), column.getZ()))) {
+            return;
+        }
+        metrics.chunksReceived.incrementAndGet();
+        metrics.chunkLatency.record(System.nanoTime() - chunkRequestedAt);
+    }
+
+    private void onTime(TimeMessage message) {
+        long now = System.nanoTime();
+        if (lastWorldAge >= 0 && message.getWorldAge() > lastWorldAge) {
+            metrics.tickTime.record((now - lastTimeAt) / (message.getWorldAge() - lastWorldAge));
+        }
+        lastWorldAge = message.getWorldAge();
+        lastTimeAt = now;
+    }
+
+    private void onChat(ChatMessage message) {
+        if (chatSentAt.isEmpty()) {
+            return;
+        }
+        String text = message.getText().flatten();
+        String prefix = chatPrefix();
+        int index = text.indexOf(prefix);
+        if (index < 0) {
+            return;
+        }
+        try {
+            int sequence = Integer.parseInt(text.substring(index + prefix.length()).trim());
+            if (chatSentAt.containsKey(sequence)) {
+                metrics.chatLatency.record(System.nanoTime() - chatSentAt.remove(sequence));
+            }
+        } catch (NumberFormatException e) {
+            // not one of this bot's messages after all
+        }
+    }
+
+    /**
+     * Advances the bot along its route and performs its scheduled actions.
+     */
+    private void tick() {
+        if (!ctx.channel().isActive()) {
+            return;
+        }
+        long now = System.nanoTime();
+        if (placedBlock != null) {
+            int[] block = placedBlock;
+            placedBlock = null;
+            write(new DiggingMessage(DiggingMessage.START_DIGGING, block[0], block[1], block[2],
+                    UP));
+            write(new DiggingMessage(DiggingMessage.FINISH_DIGGING, block[0], block[1], block[2],
+                    UP));
+            metrics.blocksBroken.incrementAndGet();
+        }
+        walk(now);
+        if (options.getBuildInterval() > 0 && now >= nextBuildAt) {
+            nextBuildAt += seconds(options.getBuildInterval());
+            build();
+        }
+        if (options.getChatInterval() > 0 && now >= nextChatAt) {
+            nextChatAt += seconds(options.getChatInterval());
+            int sequence = ++chatSequence;
+            chatSentAt.put(sequence, now);
+            write(new IncomingChatMessage(chatPrefix() + sequence));
+            metrics.chatsSent.incrementAndGet();
+        }
+        ctx.flush();
+    }
+
+    private void walk(long now) {
+        double[] offset = script.position((now - spawnedAt) / 1e9);
+        x = spawnX + offset[0];
+        y = spawnY;
+        z = spawnZ + offset[1];
+        yaw = (float) offset[2];
+        write(new PlayerPositionLookMessage(true, x, y, z, yaw, 0));
+
+        int newChunkX = (int) Math.floor(x) >> 4;
+        int newChunkZ = (int) Math.floor(z) >> 4;
+        if (newChunkX != chunkX || newChunkZ != chunkZ) {
+            chunkX = newChunkX;
+            chunkZ = newChunkZ;
+            chunkRequestedAt = now;
+        }
+    }
+
+    /**
+     * Places a block on the ground two blocks to the bot's right; it is broken again on the next
+     * tick, so the world is left as it was.
+     */
+    private void build() {
+        double radians = Math.toRadians(yaw + 90);
+        int blockX = (int) Math.floor(x - 2 * Math.sin(radians));
+        int blockY = (int) Math.floor(y) - 1;
+        int blockZ = (int) Math.floor(z + 2 * Math.cos(radians));
+        write(new BlockPlacementMessage(blockX, blockY, blockZ, UP, 0, 0.5f, 1, 0.5f));
+        placedBlock = new int[] {blockX, blockY + 1, blockZ};
+        metrics.blocksPlaced.incrementAndGet();
+    }
+
+    private String chatPrefix() {
+        return "load test " + name + " #";
+    }
+
+    private void write(Message message) {
+        ctx.write(message);
+        metrics.packetsSent.incrementAndGet();
+    }
+
+    private void send(Message message) {
+        ctx.writeAndFlush(message);
+        metrics.packetsSent.incrementAndGet();
+    }
+
+    private static long seconds(double seconds) {
+        return (long) (seconds * 1e9);
+    }
+
+    private static long chunkKey(int x, int z) {
+        return (long) x << 32 | z & 0xFFFFFFFFL;
+    }
+}
@@ -0,0 +1,68 @@
+package net.glowstone.loadtest;
+
+import com.flowpowered.network.Codec;
+import com.flowpowered.network.Codec.CodecRegistration;
+import com.flowpowered.network.Message;
+import com.flowpowered.network.util.ByteBufUtils;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.MessageToMessageCodec;
+import java.util.List;
+import lombok.Data;
+import lombok.Setter;
+
+/**
+ * The client-side counterpart of {@link net.glowstone.net.pipeline.CodecsHandler}.
+ */
+final class BotCodecsHandler extends MessageToMessageCodec<ByteBuf, Message> {
+
+    /**
+     * Stands in for all messages bots don't decode, so that they are still counted.
+     */
+    static final Object IGNORED = new Object();
+
+    /**
+     * The protocol state; only changed on the channel's event loop.
+     */
+    @Setter
+    private BotProtocol protocol = BotProtocol.HANDSHAKE;
+
+    @Override
+    protected void encode(ChannelHandlerContext ctx, Message msg, List<Object> out)
+            throws Exception {
+        CodecRegistration reg = protocol.getEncoder(msg.getClass());
+
+        ByteBuf headerBuf = ctx.alloc().buffer(8);
+        ByteBufUtils.writeVarInt(headerBuf, reg.getOpcode());
+        ByteBuf messageBuf = ctx.alloc().buffer();
+        messageBuf = reg.getCodec().encode(messageBuf, msg);
+
+        out.add(Unpooled.wrappedBuffer(headerBuf, messageBuf));
+    }
+
+    @Override
+    protected void decode(ChannelHandlerContext ctx, ByteBuf msg, List<Object> out)
+            throws Exception {
+        int opcode = ByteBufUtils.readVarInt(msg);
+        if (opcode == protocol.getChunkDataOpcode()) {
+            out.add(new ChunkColumn(msg.readInt(), msg.readInt(), msg.readBoolean()));
+            return;
+        }
+        Codec<?> codec = protocol.getDecoder(opcode);
+        out.add(codec == null ? IGNORED : codec.decode(msg));
+    }
+
+    /**
+     * The header of a Chunk Data packet, which is all bots read of it.
+     */
+    @Data
+    static final class ChunkColumn {
+        private final int x;
+        private final int z;
+        /**
+         * Whether this is a whole column rather than an update of some of its sections.
+         */
+        private final boolean continuous;
+    }
+}
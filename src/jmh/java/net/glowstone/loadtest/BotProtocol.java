@@ -0,0 +1,91 @@
+package net.glowstone.loadtest;
+
+import com.flowpowered.network.Codec;
+import com.flowpowered.network.Codec.CodecRegistration;
+import com.flowpowered.network.Message;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import lombok.Getter;
+import net.glowstone.net.message.KickMessage;
+import net.glowstone.net.message.SetCompressionMessage;
+import net.glowstone.net.message.login.EncryptionKeyRequestMessage;
+import net.glowstone.net.message.login.LoginSuccessMessage;
+import net.glowstone.net.message.play.game.ChatMessage;
+import net.glowstone.net.message.play.game.ChunkDataMessage;
+import net.glowstone.net.message.play.game.JoinGameMessage;
+import net.glowstone.net.message.play.game.PingMessage;
+import net.glowstone.net.message.play.game.PositionRotationMessage;
+import net.glowstone.net.message.play.game.TimeMessage;
+import net.glowstone.net.message.play.game.UnloadChunkMessage;
+import net.glowstone.net.protocol.GlowProtocol;
+import net.glowstone.net.protocol.HandshakeProtocol;
+import net.glowstone.net.protocol.LoginProtocol;
+import net.glowstone.net.protocol.PlayProtocol;
+import net.glowstone.net.protocol.StatusProtocol;
+
+/**
+ * The client side of one of the server's protocol states. Messages the bot sends are encoded
+ * with the server's inbound codecs; of the messages the server sends, only those a bot reacts to
+ * are decoded, with the server's outbound codecs.
+ */
+final class BotProtocol {
+
+    private static final LoginProtocol LOGIN_PROTOCOL = new LoginProtocol(null);
+    private static final PlayProtocol PLAY_PROTOCOL = new PlayProtocol();
+
+    static final BotProtocol HANDSHAKE = new BotProtocol(
+            new HandshakeProtocol(new StatusProtocol(), LOGIN_PROTOCOL), false);
+    static final BotProtocol LOGIN = new BotProtocol(LOGIN_PROTOCOL, false,
+            KickMessage.class, EncryptionKeyRequestMessage.class, LoginSuccessMessage.class,
+            SetCompressionMessage.class);
+    static final BotProtocol PLAY = new BotProtocol(PLAY_PROTOCOL, true,
+            KickMessage.class, JoinGameMessage.class, PositionRotationMessage.class,
+            PingMessage.class, TimeMessage.class, ChatMessage.class, UnloadChunkMessage.class);
+
+    @Getter
+    private final GlowProtocol protocol;
+    private final Int2ObjectMap<Codec<?>> decoders = new Int2ObjectOpenHashMap<>();
+    /**
+     * The opcode of {@link ChunkDataMessage}, whose codec can't decode; or -1.
+     */
+    @Getter
+    private final int chunkDataOpcode;
+
+    @SafeVarargs
+    private BotProtocol(GlowProtocol protocol, boolean chunks,
+            Class<? extends Message>... decoded) {
+        this.protocol = protocol;
+        for (Class<? extends Message> clazz : decoded) {
+            CodecRegistration registration = protocol.getCodecRegistration(clazz);
+            decoders.put(registration.getOpcode(), registration.getCodec());
+        }
+        chunkDataOpcode = chunks
+                ? protocol.getCodecRegistration(ChunkDataMessage.class).getOpcode() : -1;
+    }
+
+    /**
+     * Finds the codec for a message sent by the server.
+     *
+     * @param opcode the opcode of the message
+     * @return the codec, or null if bots ignore the message
+     */
+    Codec<?> getDecoder(int opcode) {
+        return decoders.get(opcode);
+    }
+
+    /**
+     * Finds the codec for a message sent by the bot.
+     *
+     * @param clazz the message class
+     * @return the codec registration
+     * @throws IllegalArgumentException if the server doesn't accept the message in this state
+     */
+    CodecRegistration getEncoder(Class<? extends Message> clazz) {
+        CodecRegistration registration = protocol.getInboundCodecRegistration(clazz);
+        if (registration == null) {
+            throw new IllegalArgumentException(
+                    clazz.getSimpleName() + " is not sent in " + protocol.getName());
+        }
+        return registration;
+    }
+}
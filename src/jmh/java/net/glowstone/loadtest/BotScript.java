@@ -0,0 +1,69 @@
+package net.glowstone.loadtest;
+
+/**
+ * The scripted route of a bot: a square of side {@code radius} with one corner at the spawn
+ * point, walked at a constant speed. Each bot's square is turned by a quarter turn relative to the
+ * previous bot's, so that bots spread out in all four directions from the spawn point.
+ */
+final class BotScript {
+
+    private final int radius;
+    private final double speed;
+    private final int quarterTurns;
+
+    /**
+     * Creates the route of a bot.
+     *
+     * @param radius the side length of the square, in blocks
+     * @param speed the walking speed, in blocks per second
+     * @param index the index of the bot
+     */
+    BotScript(int radius, double speed, int index) {
+        this.radius = radius;
+        this.speed = speed;
+        this.quarterTurns = index & 3;
+    }
+
+    /**
+     * Computes where on its route the bot is.
+     *
+     * @param seconds the time since the bot spawned
+     * @return the X and Z offsets from the spawn point, and the yaw of the walking direction
+     */
+    double[] position(double seconds) {
+        if (radius <= 0) {
+            return new double[] {0, 0, 0};
+        }
+        double distance = (seconds * speed) % (4.0 * radius);
+        int side = (int) (distance / radius);
+        double along = distance - side * radius;
+        double dx;
+        double dz;
+        switch (side) {
+            case 0:
+                dx = along;
+                dz = 0;
+                break;
+            case 1:
+                dx = radius;
+                dz = along;
+                break;
+            case 2:
+                dx = radius - along;
+                dz = radius;
+                break;
+            default:
+                dx = 0;
+                dz = radius - along;
+                break;
+        }
+        // yaw 0 faces +Z and yaw -90 faces +X; each side turns the walking direction by 90 degrees
+        int turns = side + quarterTurns;
+        for (int i = 0; i < quarterTurns; i++) {
+            double rotated = -dz;
+            dz = dx;
+            dx = rotated;
+        }
+        return new double[] {dx, dz, (turns * 90 - 90) % 360};
+    }
+}
@@ -0,0 +1,116 @@
+package net.glowstone.loadtest;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import net.glowstone.net.pipeline.FramingHandler;
+import net.glowstone.net.pipeline.NoopHandler;
+
+/**
+ * Simulates players to load test a server: connects a number of {@link Bot}s in offline mode,
+ * lets them walk, build and chat for a while, then reports join times, chunk and chat latencies
+ * and the server's tick time as seen by the bots.
+ *
+ * <p>The server must be in offline mode, and should allow as many players as there are bots. Bots
+ * only place blocks if the server puts them in creative mode. Run with:
+ * <pre>
+ * mvn -P benchmarks test-compile exec:exec -Dbenchmark.main=net.glowstone.loadtest.LoadTest \
+ *     -Dbenchmark.args="--bots 100"
+ * </pre>
+ */
+public final class LoadTest {
+
+    private static final Logger logger = Logger.getLogger("LoadTest");
+
+    private LoadTest() {
+    }
+
+    /**
+     * Runs a load test.
+     *
+     * @param args the options; see {@link LoadTestOptions#USAGE}
+     * @throws Exception if the test is interrupted or the report can't be written
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length == 1 && "--help".equals(args[0])) {
+            System.out.println(LoadTestOptions.USAGE);
+            return;
+        }
+        LoadTestOptions options;
+        try {
+            options = LoadTestOptions.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(LoadTestOptions.USAGE);
+            System.exit(1);
+            return;
+        }
+
+        LoadTestMetrics metrics = run(options);
+        metrics.log(logger);
+        if (options.getReport() != null) {
+            metrics.write(options.getReport());
+            logger.info("Report written to " + options.getReport());
+        }
+    }
+
+    /**
+     * Connects the bots, lets them play for the configured duration and disconnects them.
+     *
+     * @param options the test options
+     * @return the measurements
+     * @throws InterruptedException if interrupted while waiting
+     */
+    static LoadTestMetrics run(LoadTestOptions options) throws InterruptedException {
+        LoadTestMetrics metrics = new LoadTestMetrics();
+        EventLoopGroup group = new NioEventLoopGroup(options.getThreads());
+        List<Bot> bots = new ArrayList<>(options.getBots());
+        try {
+            Bootstrap bootstrap = new Bootstrap()
+                    .group(group)
+                    .channel(NioSocketChannel.class)
+                    .option(ChannelOption.TCP_NODELAY, true);
+            long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(options.getDuration());
+            for (int i = 0; i < options.getBots() && System.nanoTime() < end; i++) {
+                Bot bot = new Bot(options.getNamePrefix() + i, i, options, metrics);
+                bots.add(bot);
+                bot.connecting();
+                bootstrap.clone().handler(new ChannelInitializer<SocketChannel>() {
+                    @Override
+                    protected void initChannel(SocketChannel c) {
+                        c.pipeline()
+                                .addLast("framing", new FramingHandler())
+                                .addLast("compression", NoopHandler.INSTANCE)
+                                .addLast("codecs", bot.getCodecs())
+                                .addLast("bot", bot);
+                    }
+                }).connect(options.getHost(), options.getPort()).addListener(future -> {
+                    if (!future.isSuccess()) {
+                        logger.warning(bot.getName() + " could not connect: "
+                                + future.cause().getMessage());
+                        metrics.failed.incrementAndGet();
+                    }
+                });
+                Thread.sleep(options.getJoinInterval());
+            }
+            logger.info(bots.size() + " bots connecting");
+
+            long remaining = end - System.nanoTime();
+            if (remaining > 0) {
+                TimeUnit.NANOSECONDS.sleep(remaining);
+            }
+        } finally {
+            bots.forEach(Bot::disconnect);
+            group.shutdownGracefully().await(10, TimeUnit.SECONDS);
+        }
+        return metrics;
+    }
+}
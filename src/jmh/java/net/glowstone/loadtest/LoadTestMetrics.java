@@ -0,0 +1,172 @@
+package net.glowstone.loadtest;
+
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+import org.json.simple.JSONObject;
+
+/**
+ * Measurements collected by all bots of a {@link LoadTest}.
+ */
+final class LoadTestMetrics {
+
+    /**
+     * Milliseconds from opening the connection to receiving the Join Game packet.
+     */
+    final Distribution join = new Distribution("join");
+    /**
+     * Milliseconds from entering a chunk, or from joining, to receiving each chunk column that
+     * became visible.
+     */
+    final Distribution chunkLatency = new Distribution("chunkLatency");
+    /**
+     * Milliseconds from sending a chat message to receiving it back.
+     */
+    final Distribution chatLatency = new Distribution("chatLatency");
+    /**
+     * Server tick duration in milliseconds, averaged between two time updates.
+     */
+    final Distribution tickTime = new Distribution("tickTime");
+
+    final AtomicLong joined = new AtomicLong();
+    final AtomicLong failed = new AtomicLong();
+    final AtomicLong kicked = new AtomicLong();
+    final AtomicLong packetsReceived = new AtomicLong();
+    final AtomicLong packetsSent = new AtomicLong();
+    final AtomicLong chunksReceived = new AtomicLong();
+    final AtomicLong blocksPlaced = new AtomicLong();
+    final AtomicLong blocksBroken = new AtomicLong();
+    final AtomicLong chatsSent = new AtomicLong();
+
+    /**
+     * Logs a summary of all measurements.
+     *
+     * @param logger the logger to write to
+     */
+    void log(Logger logger) {
+        logger.info(String.format("%d joined, %d failed, %d kicked", joined.get(), failed.get(),
+                kicked.get()));
+        logger.info(String.format("%d packets received, %d sent, %d chunks received",
+                packetsReceived.get(), packetsSent.get(), chunksReceived.get()));
+        logger.info(String.format("%d blocks placed, %d broken, %d chat messages",
+                blocksPlaced.get(), blocksBroken.get(), chatsSent.get()));
+        for (Distribution distribution : distributions()) {
+            logger.info(distribution.toString());
+        }
+    }
+
+    /**
+     * Writes all measurements as a JSON object.
+     *
+     * @param file the file to write
+     * @throws IOException if the file can't be written
+     */
+    @SuppressWarnings("unchecked")
+    void write(File file) throws IOException {
+        JSONObject json = new JSONObject();
+        json.put("joined", joined.get());
+        json.put("failed", failed.get());
+        json.put("kicked", kicked.get());
+        json.put("packetsReceived", packetsReceived.get());
+        json.put("packetsSent", packetsSent.get());
+        json.put("chunksReceived", chunksReceived.get());
+        json.put("blocksPlaced", blocksPlaced.get());
+        json.put("blocksBroken", blocksBroken.get());
+        json.put("chatsSent", chatsSent.get());
+        for (Distribution distribution : distributions()) {
+            json.put(distribution.name, distribution.toJson());
+        }
+        try (Writer writer = new FileWriter(file)) {
+            json.writeJSONString(writer);
+        }
+    }
+
+    private Distribution[] distributions() {
+        return new Distribution[] {join, chunkLatency, chatLatency, tickTime};
+    }
+
+    /**
+     * A set of samples, kept in full so that exact percentiles can be reported. Statistics are in
+     * milliseconds.
+     */
+    static final class Distribution {
+
+        private final String name;
+        /**
+         * Samples in microseconds.
+         */
+        private final LongArrayList samples = new LongArrayList();
+
+        Distribution(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Records a sample.
+         *
+         * @param nanos the sample in nanoseconds
+         */
+        synchronized void record(long nanos) {
+            samples.add(nanos / 1000);
+        }
+
+        /**
+         * Computes the mean and percentiles of the samples.
+         *
+         * @return the statistics by name, in milliseconds, or only the count if there are no
+         *         samples
+         */
+        synchronized Map<String, Number> statistics() {
+            Map<String, Number> statistics = new LinkedHashMap<>();
+            statistics.put("count", samples.size());
+            if (samples.isEmpty()) {
+                return statistics;
+            }
+            long[] sorted = samples.toLongArray();
+            Arrays.sort(sorted);
+            long sum = 0;
+            for (long sample : sorted) {
+                sum += sample;
+            }
+            statistics.put("mean", sum / 1000.0 / sorted.length);
+            statistics.put("p50", percentile(sorted, 0.5));
+            statistics.put("p90", percentile(sorted, 0.9));
+            statistics.put("p99", percentile(sorted, 0.99));
+            statistics.put("max", sorted[sorted.length - 1] / 1000.0);
+            return statistics;
+        }
+
+        private static double percentile(long[] sorted, double fraction) {
+            int index = (int) Math.ceil(fraction * sorted.length) - 1;
+            return sorted[Math.max(index, 0)] / 1000.0;
+        }
+
+        @SuppressWarnings("unchecked")
+        private JSONObject toJson() {
+            JSONObject json = new JSONObject();
+            json.putAll(statistics());
+            return json;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder(name).append(':');
+            for (Map.Entry<String, Number> entry : statistics().entrySet()) {
+                builder.append(' ').append(entry.getKey()).append('=');
+                if (entry.getValue() instanceof Double) {
+                    builder.append(String.format("%.2f", entry.getValue().doubleValue()));
+                } else {
+                    builder.append(entry.getValue());
+                }
+            }
+            return builder.append(" (ms)").toString();
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package net.glowstone.loadtest;
+
+import java.io.File;
+import lombok.Getter;
+
+/**
+ * Command line options of the {@link LoadTest}.
+ */
+@Getter
+final class LoadTestOptions {
+
+    static final String USAGE = "Usage: LoadTest [--host localhost] [--port 25565] [--bots 10]"
+            + " [--name-prefix bot] [--join-interval 200] [--duration 120] [--walk-radius 48]"
+            + " [--walk-speed 4.3] [--build-interval 5] [--chat-interval 10]"
+            + " [--view-distance 8] [--threads 4] [--report file.json]";
+
+    private String host = "localhost";
+    private int port = 25565;
+    private int bots = 10;
+    private String namePrefix = "bot";
+    /**
+     * Milliseconds between two bots connecting.
+     */
+    private long joinInterval = 200;
+    /**
+     * Seconds to run for after the first bot connects.
+     */
+    private long duration = 120;
+    /**
+     * Side length, in blocks, of the square each bot walks around its spawn point.
+     */
+    private int walkRadius = 48;
+    /**
+     * Walking speed in blocks per second; 4.3 is a player walking without sprinting.
+     */
+    private double walkSpeed = 4.3;
+    /**
+     * Seconds between two place-and-break actions of a bot, or 0 to disable them.
+     */
+    private double buildInterval = 5;
+    /**
+     * Seconds between two chat messages of a bot, or 0 to disable them.
+     */
+    private double chatInterval = 10;
+    private int viewDistance = 8;
+    private int threads = 4;
+    private File report;
+
+    /**
+     * Parses the command line.
+     *
+     * @param args the arguments, as {@code --name value} pairs
+     * @return the options
+     * @throws IllegalArgumentException if an option is unknown, lacks a value or has an invalid
+     *         value
+     */
+    static LoadTestOptions parse(String... args) {
+        LoadTestOptions options = new LoadTestOptions();
+        for (int i = 0; i < args.length; i += 2) {
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Missing value for " + args[i]);
+            }
+            String value = args[i + 1];
+            try {
+                switch (args[i]) {
+                    case "--host":
+                        options.host = value;
+                        break;
+                    case "--port":
+                        options.port = Integer.parseInt(value);
+                        break;
+                    case "--bots":
+                        options.bots = Integer.parseInt(value);
+                        break;
+                    case "--name-prefix":
+                        options.namePrefix = value;
+                        break;
+                    case "--join-interval":
+                        options.joinInterval = Long.parseLong(value);
+                        break;
+                    case "--duration":
+                        options.duration = Long.parseLong(value);
+                        break;
+                    case "--walk-radius":
+                        options.walkRadius = Integer.parseInt(value);
+                        break;
+                    case "--walk-speed":
+                        options.walkSpeed = Double.parseDouble(value);
+                        break;
+                    case "--build-interval":
+                        options.buildInterval = Double.parseDouble(value);
+                        break;
+                    case "--chat-interval":
+                        options.chatInterval = Double.parseDouble(value);
+                        break;
+                    case "--view-distance":
+                        options.viewDistance = Integer.parseInt(value);
+                        break;
+                    case "--threads":
+                        options.threads = Integer.parseInt(value);
+                        break;
+                    case "--report":
+                        options.report = new File(value);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown option " + args[i]);
+                }
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid value for " + args[i] + ": " + value);
+            }
+        }
+        if (options.bots < 1) {
+            throw new IllegalArgumentException("At least one bot is required");
+        }
+        if (options.namePrefix.length() + String.valueOf(options.bots - 1).length() > 16) {
+            throw new IllegalArgumentException("Bot names must be at most 16 characters long");
+        }
+        return options;
+    }
+}
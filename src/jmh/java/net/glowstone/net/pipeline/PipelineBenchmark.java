@@ -0,0 +1,87 @@
+package net.glowstone.net.pipeline;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import net.glowstone.chunk.BenchmarkChunks;
+import net.glowstone.chunk.ChunkSection;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Framing and compressing packets on their way through the channel pipeline.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PipelineBenchmark {
+
+    /**
+     * The packet body size; 64 bytes stays below the compression threshold.
+     */
+    @Param({"64", "4096"})
+    public int size;
+
+    private EmbeddedChannel channel;
+    private ByteBuf packet;
+    private ByteBuf frame;
+
+    /**
+     * Builds a packet from chunk section data, so it compresses like real traffic.
+     */
+    @Setup
+    public void setUp() {
+        channel = new EmbeddedChannel(new FramingHandler(), new CompressionHandler(256));
+        ByteBuf section = Unpooled.buffer();
+        new ChunkSection(BenchmarkChunks.terrainTypes(2, 4, new Random(42)))
+                .writeToBuf(section, true);
+        packet = section.slice(0, size);
+        channel.writeOutbound(packet.retainedDuplicate());
+        frame = channel.readOutbound();
+    }
+
+    @TearDown
+    public void tearDown() {
+        frame.release();
+        channel.finishAndReleaseAll();
+    }
+
+    /**
+     * Compresses and frames an outgoing packet.
+     */
+    @Benchmark
+    public int encode() {
+        channel.writeOutbound(packet.retainedDuplicate());
+        ByteBuf out = channel.readOutbound();
+        int length = out.readableBytes();
+        out.release();
+        return length;
+    }
+
+    /**
+     * Unframes and decompresses an incoming packet.
+     */
+    @Benchmark
+    public int decode() {
+        channel.writeInbound(frame.retainedDuplicate());
+        ByteBuf in = channel.readInbound();
+        int length = in.readableBytes();
+        in.release();
+        return length;
+    }
+}
@@ -0,0 +1,72 @@
+package net.glowstone.util.nbt;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import net.glowstone.BenchmarkServer;
+import net.glowstone.chunk.BenchmarkChunks;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Reading and writing a chunk's NBT tree with {@link NbtInputStream} and {@link NbtOutputStream}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NbtBenchmark {
+
+    /**
+     * Whether the stream is gzipped, as for level.dat and player files.
+     */
+    @Param({"false", "true"})
+    public boolean compressed;
+
+    private CompoundTag chunkTag;
+    private byte[] encoded;
+    private ByteArrayOutputStream out;
+
+    @Setup
+    public void setUp() throws IOException {
+        chunkTag = BenchmarkChunks.levelTag(
+                BenchmarkChunks.terrainChunk(BenchmarkServer.mockWorld(0), 0, 0));
+        out = new ByteArrayOutputStream(1 << 16);
+        encoded = write();
+    }
+
+    /**
+     * Encodes the chunk tree.
+     */
+    @Benchmark
+    public byte[] write() throws IOException {
+        out.reset();
+        try (NbtOutputStream nbt = new NbtOutputStream(out, compressed)) {
+            nbt.writeTag(chunkTag);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Decodes the chunk tree.
+     */
+    @Benchmark
+    public CompoundTag read() throws IOException {
+        try (NbtInputStream nbt = new NbtInputStream(new ByteArrayInputStream(encoded),
+                compressed)) {
+            return nbt.readCompound();
+        }
+    }
+}
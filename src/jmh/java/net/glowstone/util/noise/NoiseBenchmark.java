@@ -0,0 +1,99 @@
+package net.glowstone.util.noise;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The octave noise fields sampled per chunk by the overworld generator, with its default sizes
+ * and octave counts.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NoiseBenchmark {
+
+    private PerlinOctaveGenerator height;
+    private PerlinOctaveGenerator roughness;
+    private PerlinOctaveGenerator batchRoughness;
+    private SimplexOctaveGenerator surface;
+    private SimplexNoise simplex;
+    private int next;
+
+    /**
+     * Creates the generators with the overworld's default scales.
+     */
+    @Setup
+    public void setUp() {
+        Random random = new Random(1234L);
+        height = new PerlinOctaveGenerator(random, 16, 5, 5);
+        height.setXScale(200.0);
+        height.setZScale(200.0);
+        roughness = new PerlinOctaveGenerator(random, 16, 5, 33, 5);
+        roughness.setXScale(684.412);
+        roughness.setYScale(684.412);
+        roughness.setZScale(684.412);
+        surface = new SimplexOctaveGenerator(random, 4, 16, 16);
+        surface.setScale(0.0625);
+        simplex = new SimplexNoise(random);
+        batchRoughness = new BatchPerlinOctaveGenerator(random, 16, 5, 33, 5);
+        batchRoughness.setScale(684.412);
+    }
+
+    /**
+     * The 2D 5x5 height field.
+     */
+    @Benchmark
+    public double[] perlin2d() {
+        int chunk = next++;
+        return height.getFractalBrownianMotion(chunk << 2, 0, 0.5, 2.0);
+    }
+
+    /**
+     * The 3D 5x33x5 density field; the generator samples two of these and a detail field.
+     */
+    @Benchmark
+    public double[] perlin3d() {
+        int chunk = next++;
+        return roughness.getFractalBrownianMotion(chunk << 2, 0, 0, 0.5, 2.0);
+    }
+
+    /**
+     * The same 3D density field from {@link BatchPerlinOctaveGenerator}.
+     */
+    @Benchmark
+    public double[] batchPerlin3d() {
+        int chunk = next++;
+        return batchRoughness.getFractalBrownianMotion(chunk << 2, 0, 0, 0.5, 2.0);
+    }
+
+    /**
+     * The 2D 16x16 surface field.
+     */
+    @Benchmark
+    public double[] simplex2d() {
+        int chunk = next++;
+        return surface.getFractalBrownianMotion(chunk << 4, 0, 0.5, 0.5);
+    }
+
+    /**
+     * A single simplex sample, the unit all of the above is built from.
+     */
+    @Benchmark
+    public double simplexSample() {
+        int i = next++;
+        return simplex.noise(i * 0.37, i * 0.11, i * 0.23);
+    }
+}
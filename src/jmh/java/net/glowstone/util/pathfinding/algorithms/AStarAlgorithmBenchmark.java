@@ -0,0 +1,80 @@
+package net.glowstone.util.pathfinding.algorithms;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import net.glowstone.BenchmarkServer;
+import net.glowstone.GlowWorld;
+import net.glowstone.block.GlowBlock;
+import net.glowstone.chunk.BenchmarkChunks;
+import net.glowstone.chunk.GlowChunk;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.block.Block;
+import org.bukkit.util.Vector;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Finding a path across flat terrain with {@link AStarAlgorithm}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AStarAlgorithmBenchmark {
+
+    private static final Map<Material, Double> WEIGHTS
+            = Collections.singletonMap(Material.DIRT, 1.0);
+
+    private final AStarAlgorithm algorithm = new AStarAlgorithm();
+    private GlowBlock start;
+    private GlowBlock end;
+
+    /**
+     * Creates a world of terrain chunks whose surface is at Y=72, and picks two blocks 24 blocks
+     * apart on each axis just above it.
+     */
+    @Setup
+    public void setUp() {
+        GlowWorld world = BenchmarkServer.mockWorld(0);
+        Long2ObjectMap<GlowChunk> chunks = new Long2ObjectOpenHashMap<>();
+        when(world.getChunkAt(any(Block.class))).thenAnswer(invocation -> {
+            Block block = invocation.getArgument(0);
+            int cx = block.getX() >> 4;
+            int cz = block.getZ() >> 4;
+            return chunks.computeIfAbsent((long) cx << 32 | cz & 0xFFFFFFFFL,
+                    key -> BenchmarkChunks.terrainChunk(world, cx, cz));
+        });
+        // GlowBlock only takes the world from the chunk it is given
+        GlowChunk origin = BenchmarkChunks.terrainChunk(world, 0, 0);
+        when(world.getBlockAt(any(Location.class))).thenAnswer(invocation -> {
+            Location location = invocation.getArgument(0);
+            return new GlowBlock(origin, location.getBlockX(), location.getBlockY(),
+                    location.getBlockZ());
+        });
+        start = new GlowBlock(origin, 4, 73, 4);
+        end = new GlowBlock(origin, 28, 73, 28);
+    }
+
+    @Benchmark
+    public List<Vector> calculatePath() {
+        return algorithm.calculatePath(start, end, WEIGHTS, Material.LAVA);
+    }
+}
@@ -1,14 +1,18 @@
 package net.glowstone;
 
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.stream.Collectors;
 import javax.annotation.Nullable;
+import net.glowstone.block.BlockAccess;
+import net.glowstone.block.BlockEditSession;
 import net.glowstone.block.GlowBlock;
+import net.glowstone.block.MaterialValueManager;
 import net.glowstone.block.blocktype.BlockTnt;
 import net.glowstone.entity.GlowEntity;
 import net.glowstone.entity.GlowPlayer;
@@ -31,7 +35,6 @@ import org.bukkit.event.block.BlockIgniteEvent.IgniteCause;
 import org.bukkit.event.entity.EntityDamageEvent.DamageCause;
 import org.bukkit.event.entity.EntityExplodeEvent;
 import org.bukkit.inventory.ItemStack;
-import org.bukkit.util.BlockVector;
 import org.bukkit.util.Vector;
 
 public final class Explosion {
@@ -128,7 +131,7 @@ public final class Explosion {
             return true;
         }
 
-        Set<BlockVector> droppedBlocks = calculateBlocks();
+        LongSet droppedBlocks = calculateBlocks();
 
         // The 'blocks' list should mutable for event calls.
         List<Block> blocks = toBlockList(droppedBlocks);
@@ -153,9 +156,12 @@ public final class Explosion {
 
         playOutSoundAndParticles();
 
+        // the destroyed blocks are sent and their neighbors updated once, by chunk
+        BlockEditSession session = new BlockEditSession(world, true);
         for (Block block : blocks) {
-            handleBlockExplosion((GlowBlock) block);
+            handleBlockExplosion((GlowBlock) block, session);
         }
+        session.flush();
 
         if (incendiary) {
             for (Block block : blocks) {
@@ -176,43 +182,58 @@ public final class Explosion {
     ///////////////////////////////////////////////////
     // Calculate all the dropping blocks
 
-    private Set<BlockVector> calculateBlocks() {
+    /**
+     * Casts the rays of this explosion.
+     *
+     * @return the positions of the blocks to destroy, packed by {@link BlockAccess#pack}
+     */
+    private LongSet calculateBlocks() {
+        LongSet blocks = new LongOpenHashSet();
         if (!breakBlocks) {
-            return new HashSet<>();
+            return blocks;
         }
 
-        Set<BlockVector> blocks = new HashSet<>();
-
-        RAY_DIRECTIONS.forEach(v -> calculateRay(v, blocks));
+        BlockAccess access = new BlockAccess(world);
+        MaterialValueManager materialValues = world.getServer().getMaterialValueManager();
+        for (Vector direction : RAY_DIRECTIONS) {
+            calculateRay(direction, access, materialValues, blocks);
+        }
 
         return blocks;
     }
 
-    private void calculateRay(Vector direction, Collection<BlockVector> result) {
-        Location current = location.clone();
+    private void calculateRay(Vector direction, BlockAccess access,
+            MaterialValueManager materialValues, LongSet result) {
+        double x = location.getX();
+        double y = location.getY();
+        double z = location.getZ();
 
         float currentPower = calculateStartPower();
 
         while (currentPower > 0) {
-            GlowBlock block = world.getBlockAt(current);
+            access.moveTo(Location.locToBlock(x), Location.locToBlock(y), Location.locToBlock(z));
+            int type = access.getTypeId();
 
-            if (block.getType() != Material.AIR) {
-                double blastDurability = getBlastDurability(block) / 5d;
+            if (type != 0) {
+                double blastDurability = materialValues.getValues(Material.getMaterial(type))
+                        .getBlastResistance() / 5d;
                 blastDurability += 0.3F;
                 blastDurability *= 0.3F;
                 currentPower -= blastDurability;
 
                 if (currentPower > 0) {
-                    result.add(new BlockVector(block.getX(), block.getY(), block.getZ()));
+                    result.add(access.getPosition());
                 }
             }
 
-            current.add(direction);
+            x += direction.getX();
+            y += direction.getY();
+            z += direction.getZ();
             currentPower -= 0.225f;
         }
     }
 
-    private void handleBlockExplosion(GlowBlock block) {
+    private void handleBlockExplosion(GlowBlock block, BlockEditSession session) {
         if (block.getType() == Material.AIR
                 || block.getType() == Material.BARRIER
                 || block.getType() == Material.BEDROCK) {
@@ -222,7 +243,18 @@ public final class Explosion {
             return;
         }
 
-        block.breakNaturally(yield);
+        Location location = block.getLocation();
+        for (ItemStack drop : block.getDrops()) {
+            if (ThreadLocalRandom.current().nextFloat() < yield) {
+                world.dropItemNaturally(location, drop);
+            }
+        }
+        if (block.getType() == Material.DOUBLE_PLANT
+                && block.getRelative(BlockFace.UP).getType() == Material.DOUBLE_PLANT) {
+            // as GlowBlock does, the top half goes with the bottom one
+            session.setTypeIdAndData(block.getX(), block.getY() + 1, block.getZ(), 0, 0);
+        }
+        session.setTypeIdAndData(block.getX(), block.getY(), block.getZ(), 0, 0);
     }
 
     private float calculateStartPower() {
@@ -232,16 +264,14 @@ public final class Explosion {
         return rand * power;
     }
 
-    private double getBlastDurability(GlowBlock block) {
-        return block.getMaterialValues().getBlastResistance();
-    }
-
-    private List<Block> toBlockList(Collection<BlockVector> locations) {
-        List<Block> blocks = new ArrayList<>(locations.size());
-        blocks.addAll(locations.stream()
-                .map(location -> world.getBlockAt(
-                        location.getBlockX(), location.getBlockY(), location.getBlockZ()))
-                .collect(Collectors.toList()));
+    private List<Block> toBlockList(LongSet positions) {
+        List<Block> blocks = new ArrayList<>(positions.size());
+        LongIterator it = positions.iterator();
+        while (it.hasNext()) {
+            long position = it.nextLong();
+            blocks.add(world.getBlockAt(BlockAccess.unpackX(position),
+                    BlockAccess.unpackY(position), BlockAccess.unpackZ(position)));
+        }
         return blocks;
     }
 
@@ -346,7 +376,7 @@ public final class Explosion {
     }
 
     private Collection<Entity> getNearbyEntities() {
-        return location.getWorld().getNearbyEntities(location, power, power, power);
+        return world.getEntityManager().getEntitiesInRadius(location, power, null);
     }
 
     private double distanceTo(Entity entity) {
@@ -771,56 +771,79 @@ public class GlowServer implements Server {
         enablePlugins(PluginLoadOrder.STARTUP);
 
         // Create worlds
-        String seedString = config.getString(Key.LEVEL_SEED);
-        WorldType type = WorldType.getByName(getWorldType());
-        if (type == null) {
-            type = WorldType.NORMAL;
-        }
-
-        long seed = new Random().nextLong();
-        if (!seedString.isEmpty()) {
-            try {
-                long parsed = Long.parseLong(seedString);
-                if (parsed != 0) {
-                    seed = parsed;
-                }
-            } catch (NumberFormatException ex) {
-                seed = seedString.hashCode();
-            }
-        }
-
         if (storageProviderFactory == null) {
             storageProviderFactory
                     = (worldName) -> new AnvilWorldStorageProvider(new File(getWorldContainer(),
                     worldName));
         }
         String name = config.getString(Key.LEVEL_NAME);
-        boolean structs = getGenerateStructures();
-        createWorld(WorldCreator.name(name).environment(Environment.NORMAL).seed(seed).type(type)
-                .generateStructures(structs));
+        long seed = getConfiguredSeed();
+        createWorld(createDefaultWorldCreator(Environment.NORMAL, seed));
         if (getAllowNether()) {
             checkTransfer(name, "_nether", Environment.NETHER);
-            createWorld(WorldCreator.name(name + "_nether") // NON-NLS
-                    .environment(Environment.NETHER)
-                    .seed(seed)
-                    .type(type)
-                    .generateStructures(structs));
+            createWorld(createDefaultWorldCreator(Environment.NETHER, seed));
         }
         if (getAllowEnd()) {
             checkTransfer(name, "_the_end", Environment.THE_END);
-            createWorld(WorldCreator.name(name + "_the_end") // NON-NLS
-                    .environment(Environment.THE_END)
-                    .seed(seed)
-                    .type(type)
-                    .generateStructures(structs));
+            createWorld(createDefaultWorldCreator(Environment.THE_END, seed));
         }
 
         // Finish loading plugins
         enablePlugins(PluginLoadOrder.POSTWORLD);
         commandMap.registerServerAliases();
+        worlds.getWatchdog().start(config.getInt(Key.WATCHDOG_STALL_THRESHOLD),
+                config.getInt(Key.WATCHDOG_SAMPLE_INTERVAL),
+                config.getInt(Key.WATCHDOG_RESTART_THRESHOLD),
+                new File(config.getString(Key.WATCHDOG_REPORT_FOLDER)), this::shutdown);
         scheduler.start();
     }
 
+    /**
+     * Gets the seed of the default worlds from the configuration. A seed that isn't a number is
+     * hashed.
+     *
+     * @return the configured seed, or a random seed if none is configured
+     */
+    public long getConfiguredSeed() {
+        String seedString = config.getString(Key.LEVEL_SEED);
+        long seed = new Random().nextLong();
+        if (!seedString.isEmpty()) {
+            try {
+                long parsed = Long.parseLong(seedString);
+                if (parsed != 0) {
+                    seed = parsed;
+                }
+            } catch (NumberFormatException ex) {
+                seed = seedString.hashCode();
+            }
+        }
+        return seed;
+    }
+
+    /**
+     * Creates the creator of one of the default worlds: the main world, or its nether or end,
+     * which are named after it. The world type and whether to generate structures come from the
+     * configuration.
+     *
+     * @param environment the environment of the world
+     * @param seed the seed of the world
+     * @return the world creator
+     */
+    public WorldCreator createDefaultWorldCreator(Environment environment, long seed) {
+        String name = config.getString(Key.LEVEL_NAME);
+        if (environment == Environment.NETHER) {
+            name += "_nether"; // NON-NLS
+        } else if (environment == Environment.THE_END) {
+            name += "_the_end"; // NON-NLS
+        }
+        WorldType type = WorldType.getByName(getWorldType());
+        if (type == null) {
+            type = WorldType.NORMAL;
+        }
+        return WorldCreator.name(name).environment(environment).seed(seed).type(type)
+                .generateStructures(getGenerateStructures());
+    }
+
     private void checkTransfer(String name, @NonNls String suffix, Environment environment) {
         // todo: import things like per-dimension villages.dat when those are implemented
         Path srcPath = new File(new File(getWorldContainer(), name), "DIM" + environment.getId())
@@ -2258,6 +2281,17 @@ public class GlowServer implements Server {
         }
 
         // find generator based on environment and world type
+        return createBuiltInGenerator(environment, type);
+    }
+
+    /**
+     * Creates the built-in ChunkGenerator for the given environment and type.
+     *
+     * @param environment the environment of the world
+     * @param type the type of the world
+     * @return a new ChunkGenerator
+     */
+    public static ChunkGenerator createBuiltInGenerator(Environment environment, WorldType type) {
         if (environment == Environment.NETHER) {
             return new NetherGenerator();
         } else if (environment == Environment.THE_END) {
@@ -4,6 +4,9 @@ import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 import com.flowpowered.network.Message;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
 
 import java.io.File;
 import java.io.IOException;
@@ -31,8 +34,10 @@ import net.glowstone.chunk.ChunkManager;
 import net.glowstone.chunk.ChunkManager.ChunkLock;
 import net.glowstone.chunk.ChunkSection;
 import net.glowstone.chunk.GlowChunk;
-import net.glowstone.chunk.GlowChunk.Key;
 import net.glowstone.chunk.GlowChunkSnapshot.EmptySnapshot;
+import net.glowstone.chunk.HeightMap;
+import net.glowstone.chunk.LightEngine;
+import net.glowstone.chunk.ProtoChunk;
 import net.glowstone.constants.GameRules;
 import net.glowstone.constants.GlowBiome;
 import net.glowstone.constants.GlowBiomeClimate;
@@ -51,7 +56,7 @@ import net.glowstone.entity.GlowPlayer;
 import net.glowstone.entity.objects.GlowFallingBlock;
 import net.glowstone.entity.objects.GlowItem;
 import net.glowstone.entity.physics.BoundingBox;
-import net.glowstone.generator.structures.GlowStructure;
+import net.glowstone.generator.structures.StructureIndex;
 import net.glowstone.io.WorldMetadataService.WorldFinalValues;
 import net.glowstone.io.WorldStorageProvider;
 import net.glowstone.io.entity.EntityStorage;
@@ -154,6 +159,13 @@ public class GlowWorld implements World {
      */
     @Getter
     private final ChunkManager chunkManager;
+    /**
+     * The engine which keeps the block and sky light of this world's chunks up to date.
+     *
+     * @return The LightEngine for the world.
+     */
+    @Getter
+    private final LightEngine lightEngine;
     /**
      * The storage provider for the world.
      *
@@ -364,13 +376,13 @@ public class GlowWorld implements World {
     @Getter
     @Setter
     private int ambientSpawnLimit;
-    private Map<Integer, GlowStructure> structures;
+    private StructureIndex structures;
     /**
      * The maximum height at which players may place blocks.
      */
     @Getter
     private int maxHeight;
-    private Set<Key> activeChunksSet = new HashSet<>();
+    private LongOpenHashSet activeChunksSet = new LongOpenHashSet();
     /**
      * Whether the world has been initialized (i.e. loading/spawn generation is completed).
      */
@@ -429,8 +441,10 @@ public class GlowWorld implements World {
             uid = UUID.randomUUID();
         }
 
+        lightEngine = new LightEngine(this, server.getMaterialValueManager());
         chunkManager = new ChunkManager(this, storage.getChunkIoService(), generator);
-        structures = storage.getStructureDataService().readStructuresData();
+        structures = new StructureIndex();
+        storage.getStructureDataService().readStructuresData().forEach(structures::put);
         functions = storage.getFunctionIoService().readFunctions().stream()
             .collect(Collectors.toMap(CommandFunction::getFullName, function -> function));
         server.addWorld(this);
@@ -492,6 +506,7 @@ public class GlowWorld implements World {
 
         pulsePlayers(players);
         resetEntities(allEntities);
+        lightEngine.flush();
         worldBorder.pulse();
 
         updateWorldTime();
@@ -514,7 +529,7 @@ public class GlowWorld implements World {
             for (int x = cx - radius; x <= cx + radius; x++) {
                 for (int z = cz - radius; z <= cz + radius; z++) {
                     if (isChunkLoaded(cx, cz)) {
-                        activeChunksSet.add(GlowChunk.Key.of(x, z));
+                        activeChunksSet.add(GlowChunk.key(x, z));
                     }
                 }
             }
@@ -522,9 +537,11 @@ public class GlowWorld implements World {
     }
 
     private void updateBlocksInActiveChunks() {
-        for (Key key : activeChunksSet) {
-            int cx = key.getX();
-            int cz = key.getZ();
+        LongIterator iterator = activeChunksSet.iterator();
+        while (iterator.hasNext()) {
+            long key = iterator.nextLong();
+            int cx = GlowChunk.keyX(key);
+            int cz = GlowChunk.keyZ(key);
             // check the chunk is loaded
             if (isChunkLoaded(cx, cz)) {
                 GlowChunk chunk = getChunkAt(cx, cz);
@@ -671,7 +688,18 @@ public class GlowWorld implements World {
     }
 
     public void broadcastBlockChangeInRange(GlowChunk.Key chunkKey, BlockChangeMessage message) {
-        getRawPlayers().stream().filter(player -> player.canSeeChunk(chunkKey))
+        broadcastBlockChangeInRange(chunkKey.getX(), chunkKey.getZ(), message);
+    }
+
+    /**
+     * Sends a block change to all players who can see the chunk it is in.
+     *
+     * @param chunkX the x coordinate of the chunk
+     * @param chunkZ the z coordinate of the chunk
+     * @param message the block change
+     */
+    public void broadcastBlockChangeInRange(int chunkX, int chunkZ, BlockChangeMessage message) {
+        getRawPlayers().stream().filter(player -> player.canSeeChunk(chunkX, chunkZ))
             .forEach(player -> player.sendBlockChangeForce(message));
     }
 
@@ -688,7 +716,7 @@ public class GlowWorld implements World {
         // get lightning target block
         int x = (cx << 4) + (n & 0xF);
         int z = (cz << 4) + (n >> 8 & 0xF);
-        int y = getHighestBlockYAt(x, z);
+        int y = getHighestBlockYAt(x, z, HeightMap.Type.MOTION_BLOCKING);
 
         // search for living entities in a 6×6×h (there's an error in the wiki!) region from 3
         // below the
@@ -705,7 +733,8 @@ public class GlowWorld implements World {
             .filter(entity -> entity instanceof LivingEntity && !entity.isDead())
             .forEach(entity -> {
                 Vector pos = entity.getLocation().toVector();
-                int minY = getHighestBlockYAt(pos.getBlockX(), pos.getBlockZ());
+                int minY = getHighestBlockYAt(pos.getBlockX(), pos.getBlockZ(),
+                        HeightMap.Type.MOTION_BLOCKING);
                 if (pos.getBlockY() >= minY) {
                     livingEntities.add((LivingEntity) entity);
                 }
@@ -968,15 +997,22 @@ public class GlowWorld implements World {
         int total = ((radius << 1) + 1) * ((radius << 1) + 1);
         int current = 0;
 
+        LongArrayList column = new LongArrayList((radius << 1) + 1);
         for (int x = centerX - radius; x <= centerX + radius; ++x) {
+            if (populateAnchoredChunks) {
+                // a column at a time, so that chunks far enough apart are populated concurrently
+                column.clear();
+                for (int z = centerZ - radius; z <= centerZ + radius; ++z) {
+                    column.add(GlowChunk.key(x, z));
+                }
+                getChunkManager().forcePopulation(column);
+            }
             for (int z = centerZ - radius; z <= centerZ + radius; ++z) {
                 ++current;
-                if (populateAnchoredChunks) {
-                    getChunkManager().forcePopulation(x, z);
-                } else {
+                if (!populateAnchoredChunks) {
                     loadChunk(x, z);
                 }
-                spawnChunkLock.acquire(GlowChunk.Key.of(x, z));
+                spawnChunkLock.acquire(GlowChunk.key(x, z));
                 if (System.currentTimeMillis() >= loadTime + 1000) {
                     int progress = 100 * current / total;
                     GlowServer.logger.info("Preparing spawn for " + name + ": " + progress + "%");
@@ -1069,11 +1105,21 @@ public class GlowWorld implements World {
         // save metadata
         writeWorldData(async);
 
-        // save chunkManager
+        // save chunkManager; the sections and proto-chunks are snapshotted here, since the chunks
+        // keep changing and proto-chunks can be loaded while they are written
+        GlowChunk[] chunks = chunkManager.getLoadedChunks();
+        ChunkSection[][] sections = new ChunkSection[chunks.length][];
+        boolean[] lightPopulated = new boolean[chunks.length];
+        for (int i = 0; i < chunks.length; i++) {
+            sections[i] = chunks[i].getSectionSnapshots();
+            lightPopulated[i] = chunks[i].isLightPopulated();
+        }
+        List<ProtoChunk> protoChunks = chunkManager.getProtoChunkSnapshots();
         maybeAsync(async, () -> {
-            for (GlowChunk chunk : chunkManager.getLoadedChunks()) {
-                chunkManager.performSave(chunk);
+            for (int i = 0; i < chunks.length; i++) {
+                chunkManager.performSave(chunks[i], sections[i], lightPopulated[i]);
             }
+            chunkManager.saveProtoChunks(protoChunks);
         });
 
         // save players
@@ -1123,8 +1169,7 @@ public class GlowWorld implements World {
         return false;
     }
 
-    public Map<Integer, GlowStructure> getStructures() {
-        // TODO: Replace with a facade
+    public StructureIndex getStructures() {
         return structures;
     }
 
@@ -1218,6 +1263,19 @@ public class GlowWorld implements World {
         return getChunkAt(x >> 4, z >> 4).getHeight(x & 0xf, z & 0xf);
     }
 
+    /**
+     * Gets the height of a column in a height map of its chunk: one plus the y coordinate of the
+     * highest block that the height map counts.
+     *
+     * @param x the x coordinate of the column
+     * @param z the z coordinate of the column
+     * @param type the type of height map
+     * @return the height of the column
+     */
+    public int getHighestBlockYAt(int x, int z, HeightMap.Type type) {
+        return getChunkAt(x >> 4, z >> 4).getHeight(type, x & 0xf, z & 0xf);
+    }
+
     @Override
     public Block getHighestBlockAt(int x, int z) {
         return getBlockAt(x, getHighestBlockYAt(x, z), z);
@@ -1369,11 +1427,10 @@ public class GlowWorld implements World {
             return false;
         }
 
-        Key key = GlowChunk.Key.of(x, z);
         boolean result = false;
 
         for (GlowPlayer player : getRawPlayers()) {
-            if (player.canSeeChunk(key)) {
+            if (player.canSeeChunk(x, z)) {
                 player.getSession().send(getChunkAt(x, z).toMessage());
                 result = true;
             }
@@ -1939,7 +1996,7 @@ public class GlowWorld implements World {
                 e.printStackTrace();
             }
 
-            storage.getStructureDataService().writeStructuresData(structures);
+            storage.getStructureDataService().writeStructuresData(structures.getStructures());
         });
     }
 
@@ -0,0 +1,285 @@
+package net.glowstone.block;
+
+import lombok.Getter;
+import net.glowstone.GlowWorld;
+import net.glowstone.chunk.ChunkSection;
+import net.glowstone.chunk.GlowChunk;
+import org.bukkit.Material;
+import org.bukkit.block.BlockFace;
+
+/**
+ * A cursor over the blocks of a world, for code that visits many blocks in a row.
+ *
+ * <p>Unlike {@link GlowBlock}s, a cursor is moved rather than created for each block, and reads
+ * raw type ids and data straight from the chunk sections. The chunk it is in is looked up only
+ * when it moves into another chunk, so walking through nearby blocks doesn't go through the chunk
+ * manager for each of them.
+ *
+ * <p>A cursor is not thread-safe, and should only be used by the thread that created it, for the
+ * duration of one task.
+ */
+public final class BlockAccess {
+
+    @Getter
+    private final GlowWorld world;
+    @Getter
+    private int x;
+    @Getter
+    private int y;
+    @Getter
+    private int z;
+
+    private GlowChunk chunk;
+    private int chunkX;
+    private int chunkZ;
+    /**
+     * The sections of the current chunk, or null if they haven't been looked up yet.
+     */
+    private ChunkSection[] sections;
+
+    /**
+     * Creates a cursor at the origin of a world.
+     *
+     * @param world the world
+     */
+    public BlockAccess(GlowWorld world) {
+        this.world = world;
+    }
+
+    /**
+     * Creates a cursor at a block.
+     *
+     * @param block the block
+     */
+    public BlockAccess(GlowBlock block) {
+        this(block.getWorld());
+        moveTo(block.getX(), block.getY(), block.getZ());
+    }
+
+    /**
+     * Moves this cursor to a block.
+     *
+     * @param x the x coordinate of the block
+     * @param y the y coordinate of the block
+     * @param z the z coordinate of the block
+     * @return this cursor
+     */
+    public BlockAccess moveTo(int x, int y, int z) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        if (chunk == null || x >> 4 != chunkX || z >> 4 != chunkZ) {
+            chunk = null;
+            sections = null;
+        }
+        return this;
+    }
+
+    /**
+     * Moves this cursor to a block.
+     *
+     * @param packed the coordinates of the block, as packed by {@link #pack(int, int, int)}
+     * @return this cursor
+     */
+    public BlockAccess moveTo(long packed) {
+        return moveTo(unpackX(packed), unpackY(packed), unpackZ(packed));
+    }
+
+    /**
+     * Moves this cursor by an offset.
+     *
+     * @param dx the offset along the x axis
+     * @param dy the offset along the y axis
+     * @param dz the offset along the z axis
+     * @return this cursor
+     */
+    public BlockAccess move(int dx, int dy, int dz) {
+        return moveTo(x + dx, y + dy, z + dz);
+    }
+
+    /**
+     * Moves this cursor to the neighboring block on a face.
+     *
+     * @param face the face
+     * @return this cursor
+     */
+    public BlockAccess move(BlockFace face) {
+        return move(face.getModX(), face.getModY(), face.getModZ());
+    }
+
+    /**
+     * Moves this cursor a number of blocks in the direction of a face.
+     *
+     * @param face the face
+     * @param distance the number of blocks to move
+     * @return this cursor
+     */
+    public BlockAccess move(BlockFace face, int distance) {
+        return move(face.getModX() * distance, face.getModY() * distance,
+                face.getModZ() * distance);
+    }
+
+    /**
+     * Gets the raw state of the block at this cursor: its type id shifted left by 4, and its data
+     * in the lowest 4 bits.
+     *
+     * @return the raw state, or 0 for air and blocks outside the world's height
+     */
+    public int getState() {
+        ChunkSection section = getSection();
+        return section == null ? 0 : section.getType(x & 0xf, y, z & 0xf);
+    }
+
+    /**
+     * Gets the type id of the block at this cursor.
+     *
+     * @return the type id
+     */
+    public int getTypeId() {
+        return getState() >> 4;
+    }
+
+    /**
+     * Gets the type of the block at this cursor.
+     *
+     * @return the type
+     */
+    public Material getType() {
+        return Material.getMaterial(getTypeId());
+    }
+
+    /**
+     * Gets the data of the block at this cursor.
+     *
+     * @return the data
+     */
+    public byte getData() {
+        return (byte) (getState() & 0xf);
+    }
+
+    /**
+     * Returns whether the block at this cursor is air.
+     *
+     * @return true if the block is air
+     */
+    public boolean isEmpty() {
+        return getState() == 0;
+    }
+
+    /**
+     * Returns whether the block at this cursor is water or lava.
+     *
+     * @return true if the block is a liquid
+     */
+    public boolean isLiquid() {
+        Material type = getType();
+        return type == Material.WATER || type == Material.STATIONARY_WATER
+                || type == Material.LAVA || type == Material.STATIONARY_LAVA;
+    }
+
+    /**
+     * Returns whether the chunk this cursor is in is loaded.
+     *
+     * @return true if the chunk is loaded
+     */
+    public boolean isChunkLoaded() {
+        return getChunk().isLoaded();
+    }
+
+    /**
+     * Sets the type and data of the block at this cursor, without applying physics or telling
+     * players.
+     *
+     * @param type the type id
+     * @param data the data
+     */
+    public void setTypeIdAndData(int type, int data) {
+        if (y < 0 || y >= GlowChunk.DEPTH) {
+            return;
+        }
+        getChunk().setType(x & 0xf, z & 0xf, y, type);
+        getChunk().setMetaData(x & 0xf, z & 0xf, y, data);
+    }
+
+    /**
+     * Gets the block at this cursor, for passing to code that needs a {@link GlowBlock}.
+     *
+     * @return a new block at the position of this cursor
+     */
+    public GlowBlock getBlock() {
+        return new GlowBlock(getChunk(), x, y, z);
+    }
+
+    /**
+     * Gets the position of this cursor, packed into a long.
+     *
+     * @return the packed position
+     */
+    public long getPosition() {
+        return pack(x, y, z);
+    }
+
+    private GlowChunk getChunk() {
+        if (chunk == null) {
+            chunkX = x >> 4;
+            chunkZ = z >> 4;
+            chunk = world.getChunkAt(chunkX, chunkZ);
+        }
+        return chunk;
+    }
+
+    private ChunkSection getSection() {
+        if (y < 0 || y >= GlowChunk.DEPTH) {
+            return null;
+        }
+        if (sections == null) {
+            if (!getChunk().load()) {
+                return null;
+            }
+            sections = getChunk().getSections();
+        }
+        return sections[y >> 4];
+    }
+
+    /**
+     * Packs block coordinates into a long: 26 bits of x, 26 bits of z and 12 bits of y.
+     *
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @param z the z coordinate
+     * @return the packed coordinates
+     */
+    public static long pack(int x, int y, int z) {
+        return ((long) x & 0x3ffffff) << 38 | ((long) z & 0x3ffffff) << 12 | y & 0xfff;
+    }
+
+    /**
+     * Gets the x coordinate from packed coordinates.
+     *
+     * @param packed the packed coordinates
+     * @return the x coordinate
+     */
+    public static int unpackX(long packed) {
+        return (int) (packed >> 38);
+    }
+
+    /**
+     * Gets the y coordinate from packed coordinates.
+     *
+     * @param packed the packed coordinates
+     * @return the y coordinate
+     */
+    public static int unpackY(long packed) {
+        return (int) (packed << 52 >> 52);
+    }
+
+    /**
+     * Gets the z coordinate from packed coordinates.
+     *
+     * @param packed the packed coordinates
+     * @return the z coordinate
+     */
+    public static int unpackZ(long packed) {
+        return (int) (packed << 26 >> 38);
+    }
+}
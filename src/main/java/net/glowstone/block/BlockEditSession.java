@@ -0,0 +1,327 @@
+package net.glowstone.block;
+
+import com.flowpowered.network.Message;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.Long2IntLinkedOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2IntMap;
+import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectLinkedOpenHashMap;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.Getter;
+import net.glowstone.GlowWorld;
+import net.glowstone.block.blocktype.BlockType;
+import net.glowstone.chunk.GlowChunk;
+import net.glowstone.entity.GlowPlayer;
+import net.glowstone.net.message.play.game.BlockChangeMessage;
+import net.glowstone.net.message.play.game.ChunkDataMessage;
+import net.glowstone.net.message.play.game.MultiBlockChangeMessage;
+import org.bukkit.Material;
+import org.bukkit.World.Environment;
+import org.bukkit.block.BlockFace;
+
+/**
+ * A bulk edit of the blocks of a world, for edits too large to make one
+ * {@link GlowBlock#setTypeIdAndData(int, byte, boolean)} at a time, such as cloning a region or
+ * an explosion.
+ *
+ * <p>Blocks are written straight into the chunk sections, and the rest of the work of a block
+ * change is deferred until {@link #flush()}: the height maps of each changed column are updated
+ * once, each neighbor of the changed blocks is told about each of its changed neighbors once, and
+ * each chunk is sent to players either as one {@link MultiBlockChangeMessage} or, when many of its
+ * blocks changed, by resending its changed sections. Lighting is left to the light engine, which
+ * already batches changes until the end of the tick.
+ *
+ * <p>A session is not thread-safe, and should only be used by the world thread. It must be
+ * flushed before the end of the tick, so that no chunk it changed is unloaded in between.
+ */
+public final class BlockEditSession {
+
+    /**
+     * The number of changed blocks in a chunk above which its changed sections are resent instead
+     * of sending each block.
+     */
+    private static final int MAX_BLOCK_CHANGES = 64;
+    /**
+     * The bit standing for a neighbor that isn't told which face the change was on.
+     */
+    private static final int NO_FACE = 1 << 31;
+
+    @Getter
+    private final GlowWorld world;
+    private final boolean applyPhysics;
+    private final BlockAccess access;
+    /**
+     * The changed blocks by packed position, each with its state from before the session in the
+     * high 16 bits and its latest state in the low 16 bits.
+     */
+    private final Long2IntLinkedOpenHashMap changes = new Long2IntLinkedOpenHashMap();
+    private final Long2ObjectLinkedOpenHashMap<ChunkEdit> chunks =
+            new Long2ObjectLinkedOpenHashMap<>();
+    private ChunkEdit lastEdit;
+
+    /**
+     * Creates a session.
+     *
+     * @param world the world to edit
+     * @param applyPhysics whether to notify the changed blocks and their neighbors when flushed
+     */
+    public BlockEditSession(GlowWorld world, boolean applyPhysics) {
+        this.world = world;
+        this.applyPhysics = applyPhysics;
+        access = new BlockAccess(world);
+        changes.defaultReturnValue(-1);
+    }
+
+    /**
+     * Gets the raw state of a block, including the changes made by this session.
+     *
+     * @param x the x coordinate of the block
+     * @param y the y coordinate of the block
+     * @param z the z coordinate of the block
+     * @return the type id shifted left by 4, with the data in the lowest 4 bits
+     */
+    public int getState(int x, int y, int z) {
+        return access.moveTo(x, y, z).getState();
+    }
+
+    /**
+     * Sets the type and data of a block. Block entities are replaced at once when the type
+     * changes; everything else is deferred until {@link #flush()}.
+     *
+     * @param x the x coordinate of the block
+     * @param y the y coordinate of the block
+     * @param z the z coordinate of the block
+     * @param type the type id
+     * @param data the data
+     * @throws IllegalArgumentException if the type or data are out of range
+     */
+    public void setTypeIdAndData(int x, int y, int z, int type, int data) {
+        if (type < 0 || type > 0xfff) {
+            throw new IllegalArgumentException("Block type out of range: " + type);
+        }
+        if (data < 0 || data > 0xf) {
+            throw new IllegalArgumentException("Metadata out of range: " + data);
+        }
+        if (y < 0 || y >= GlowChunk.DEPTH) {
+            return;
+        }
+        ChunkEdit edit = getEdit(x >> 4, z >> 4);
+        int state = type == 0 ? 0 : type << 4 | data;
+        int oldState = edit.chunk.setState(x & 0xf, z & 0xf, y, state);
+        if (oldState < 0) {
+            return;
+        }
+        long position = BlockAccess.pack(x, y, z);
+        int change = changes.get(position);
+        if (change != -1) {
+            changes.put(position, change & 0xffff0000 | state);
+        } else if (oldState != state) {
+            changes.put(position, oldState << 16 | state);
+            edit.record(x & 0xf, y, z & 0xf);
+        }
+    }
+
+    /**
+     * Gets the number of blocks changed since the session was created or last flushed.
+     *
+     * @return the number of changed blocks
+     */
+    public int getChangeCount() {
+        return changes.size();
+    }
+
+    /**
+     * Updates the height maps of the changed columns, applies physics if enabled, and sends the
+     * changes to the players who can see them. The session can then be used for more changes.
+     */
+    public void flush() {
+        for (ChunkEdit edit : chunks.values()) {
+            edit.updateHeightMaps();
+        }
+        if (applyPhysics && world.isInitialized()) {
+            applyPhysics();
+        }
+        // sent after physics, so that players get the states physics left behind
+        boolean skylight = world.getEnvironment() == Environment.NORMAL;
+        List<GlowPlayer> viewers = new ArrayList<>();
+        for (ChunkEdit edit : chunks.values()) {
+            if (edit.blocks.isEmpty()) {
+                // only blocks set to what they already were
+                continue;
+            }
+            viewers.clear();
+            for (GlowPlayer player : world.getRawPlayers()) {
+                if (player.canSeeChunk(edit.chunk.getX(), edit.chunk.getZ())) {
+                    viewers.add(player);
+                }
+            }
+            if (!viewers.isEmpty()) {
+                edit.send(viewers, skylight);
+            }
+        }
+        changes.clear();
+        chunks.clear();
+        lastEdit = null;
+    }
+
+    private ChunkEdit getEdit(int cx, int cz) {
+        if (lastEdit != null && lastEdit.chunk.getX() == cx && lastEdit.chunk.getZ() == cz) {
+            return lastEdit;
+        }
+        lastEdit = chunks.computeIfAbsent(GlowChunk.key(cx, cz),
+                key -> new ChunkEdit(world.getChunkAt(cx, cz)));
+        return lastEdit;
+    }
+
+    /**
+     * Notifies each neighbor of the changed blocks of each of its changed neighbors once, in the
+     * same way as {@link GlowBlock#applyPhysics(Material, int, byte, byte)}, then notifies the
+     * changed blocks themselves.
+     */
+    private void applyPhysics() {
+        // the faces on which each neighbor has a changed block, as bits of BlockFace ordinals
+        Long2IntLinkedOpenHashMap neighbors = new Long2IntLinkedOpenHashMap();
+        // the changed block each neighbor is told about without a face
+        Long2LongOpenHashMap faceless = new Long2LongOpenHashMap();
+        for (Long2IntMap.Entry entry : changes.long2IntEntrySet()) {
+            if (entry.getIntValue() >>> 16 == (entry.getIntValue() & 0xffff)) {
+                // changed back
+                continue;
+            }
+            long position = entry.getLongKey();
+            int x = BlockAccess.unpackX(position);
+            int y = BlockAccess.unpackY(position);
+            int z = BlockAccess.unpackZ(position);
+            for (int dy = -1; dy <= 1; dy++) {
+                for (BlockFace face : GlowBlock.LAYER) {
+                    if (dy == 0 && face == BlockFace.SELF) {
+                        continue;
+                    }
+                    long neighbor = BlockAccess.pack(x + face.getModX(), y + dy,
+                            z + face.getModZ());
+                    int bit;
+                    if (dy == 0) {
+                        bit = 1 << face.getOppositeFace().ordinal();
+                    } else if (face == BlockFace.SELF) {
+                        bit = 1 << (dy < 0 ? BlockFace.UP : BlockFace.DOWN).ordinal();
+                    } else {
+                        bit = NO_FACE;
+                        faceless.putIfAbsent(neighbor, position);
+                    }
+                    neighbors.put(neighbor, neighbors.get(neighbor) | bit);
+                }
+            }
+        }
+
+        ItemTable itemTable = ItemTable.instance();
+        BlockFace[] faces = BlockFace.values();
+        for (Long2IntMap.Entry entry : neighbors.long2IntEntrySet()) {
+            BlockType notifyType = itemTable.getBlock(access.moveTo(entry.getLongKey())
+                    .getTypeId());
+            if (notifyType == null) {
+                continue;
+            }
+            GlowBlock block = access.getBlock();
+            int bits = entry.getIntValue();
+            for (BlockFace face : faces) {
+                if ((bits & 1 << face.ordinal()) != 0) {
+                    notifyNeighbor(notifyType, block, face, BlockAccess.pack(
+                            block.getX() + face.getModX(), block.getY() + face.getModY(),
+                            block.getZ() + face.getModZ()));
+                }
+            }
+            if ((bits & NO_FACE) != 0) {
+                notifyNeighbor(notifyType, block, null, faceless.get(entry.getLongKey()));
+            }
+        }
+
+        for (Long2IntMap.Entry entry : changes.long2IntEntrySet()) {
+            int oldState = entry.getIntValue() >>> 16;
+            int newState = entry.getIntValue() & 0xffff;
+            BlockType type = itemTable.getBlock(oldState >> 4);
+            if (type != null && oldState != newState) {
+                type.onBlockChanged(access.moveTo(entry.getLongKey()).getBlock(),
+                        Material.getMaterial(oldState >> 4), (byte) (oldState & 0xf),
+                        Material.getMaterial(newState >> 4), (byte) (newState & 0xf));
+            }
+        }
+    }
+
+    private void notifyNeighbor(BlockType notifyType, GlowBlock block, BlockFace face,
+            long changed) {
+        int change = changes.get(changed);
+        int oldState = change >>> 16;
+        int newState = change & 0xffff;
+        GlowBlock changedBlock = new GlowBlock(world.getChunkAt(
+                BlockAccess.unpackX(changed) >> 4, BlockAccess.unpackZ(changed) >> 4),
+                BlockAccess.unpackX(changed), BlockAccess.unpackY(changed),
+                BlockAccess.unpackZ(changed));
+        notifyType.onNearBlockChanged(block, face, changedBlock,
+                Material.getMaterial(oldState >> 4), (byte) (oldState & 0xf),
+                Material.getMaterial(newState >> 4), (byte) (newState & 0xf));
+    }
+
+    /**
+     * The blocks changed in one chunk.
+     */
+    private static final class ChunkEdit {
+
+        private final GlowChunk chunk;
+        /**
+         * The changed blocks, as y << 8 | z << 4 | x.
+         */
+        private final IntArrayList blocks = new IntArrayList();
+        /**
+         * The changed columns, with bit z << 4 | x.
+         */
+        private final long[] columns = new long[4];
+        private int sectionMask;
+
+        ChunkEdit(GlowChunk chunk) {
+            this.chunk = chunk;
+        }
+
+        void record(int x, int y, int z) {
+            blocks.add(y << 8 | z << 4 | x);
+            int column = z << 4 | x;
+            columns[column >> 6] |= 1L << column;
+            sectionMask |= 1 << (y >> 4);
+        }
+
+        void updateHeightMaps() {
+            for (int column = 0; column < GlowChunk.WIDTH * GlowChunk.HEIGHT; column++) {
+                if ((columns[column >> 6] & 1L << column) != 0) {
+                    chunk.updateHeightMaps(column & 0xf, column >> 4);
+                }
+            }
+        }
+
+        void send(List<GlowPlayer> viewers, boolean skylight) {
+            if (blocks.size() > MAX_BLOCK_CHANGES) {
+                ChunkDataMessage message = chunk.toChangedSectionsMessage(skylight, sectionMask);
+                for (GlowPlayer player : viewers) {
+                    player.sendBlockChanges(message.retainedDuplicate());
+                }
+                message.getData().release();
+                return;
+            }
+            int baseX = chunk.getX() << 4;
+            int baseZ = chunk.getZ() << 4;
+            List<BlockChangeMessage> records = new ArrayList<>(blocks.size());
+            for (int i = 0; i < blocks.size(); i++) {
+                int block = blocks.getInt(i);
+                int x = block & 0xf;
+                int z = block >> 4 & 0xf;
+                int y = block >> 8;
+                records.add(new BlockChangeMessage(baseX | x, y, baseZ | z,
+                        chunk.getType(x, z, y), chunk.getMetaData(x, z, y)));
+            }
+            Message message = records.size() == 1 ? records.get(0)
+                    : new MultiBlockChangeMessage(chunk.getX(), chunk.getZ(), records);
+            for (GlowPlayer player : viewers) {
+                player.sendBlockChanges(message);
+            }
+        }
+    }
+}
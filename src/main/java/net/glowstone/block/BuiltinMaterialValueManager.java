@@ -93,6 +93,11 @@ public class BuiltinMaterialValueManager implements MaterialValueManager {
             return ((Number) get("lightOpacity")).intValue();
         }
 
+        @Override
+        public int getLightEmission() {
+            return ((Number) get("lightEmission")).intValue();
+        }
+
         @Override
         public int getFlameResistance() {
             return ((Number) get("flameResistance")).intValue();
@@ -40,7 +40,7 @@ public class GlowBlock implements Block {
     /**
      * The BlockFaces of a single-layer 3x3 area.
      */
-    private static final BlockFace[] LAYER = new BlockFace[]{
+    static final BlockFace[] LAYER = new BlockFace[]{
         BlockFace.NORTH_WEST, BlockFace.NORTH, BlockFace.NORTH_EAST, BlockFace.EAST, BlockFace.SELF,
         BlockFace.WEST, BlockFace.SOUTH_WEST, BlockFace.SOUTH, BlockFace.SOUTH_EAST};
 
@@ -236,18 +236,16 @@ public class GlowBlock implements Block {
         if (oldTypeId == Material.DOUBLE_PLANT
                 && getRelative(BlockFace.UP).getType() == Material.DOUBLE_PLANT) {
             world.getChunkAtAsync(this, c -> ((GlowChunk) c).setType(x & 0xf, z & 0xf, y + 1, 0));
-            GlowChunk.Key key = GlowChunk.Key.of(x >> 4, z >> 4);
             BlockChangeMessage bcmsg = new BlockChangeMessage(x, y + 1, z, 0, 0);
-            world.broadcastBlockChangeInRange(key, bcmsg);
+            world.broadcastBlockChangeInRange(x >> 4, z >> 4, bcmsg);
         }
 
         if (applyPhysics) {
             applyPhysics(oldTypeId, type, oldData, data);
         }
 
-        GlowChunk.Key key = GlowChunk.Key.of(x >> 4, z >> 4);
         BlockChangeMessage bcmsg = new BlockChangeMessage(x, y, z, type, data);
-        world.broadcastBlockChangeInRange(key, bcmsg);
+        world.broadcastBlockChangeInRange(x >> 4, z >> 4, bcmsg);
 
         return true;
     }
@@ -307,9 +305,8 @@ public class GlowBlock implements Block {
             applyPhysics(getType(), getTypeId(), oldData, data);
         }
 
-        GlowChunk.Key key = GlowChunk.Key.of(x >> 4, z >> 4);
         BlockChangeMessage bcmsg = new BlockChangeMessage(x, y, z, getTypeId(), data);
-        world.broadcastBlockChangeInRange(key, bcmsg);
+        world.broadcastBlockChangeInRange(x >> 4, z >> 4, bcmsg);
     }
 
     @Override
@@ -550,6 +547,7 @@ public class GlowBlock implements Block {
         // notify the surrounding blocks that this block has changed
         ItemTable itemTable = ItemTable.instance();
         Material newType = Material.getMaterial(newTypeId);
+        BlockAccess access = new BlockAccess(world);
 
         for (int y = -1; y <= 1; y++) {
             for (BlockFace face : LAYER) {
@@ -557,7 +555,12 @@ public class GlowBlock implements Block {
                     continue;
                 }
 
-                GlowBlock notify = getRelative(face.getModX(), face.getModY() + y, face.getModZ());
+                access.moveTo(x + face.getModX(), this.y + face.getModY() + y,
+                        z + face.getModZ());
+                BlockType notifyType = itemTable.getBlock(access.getTypeId());
+                if (notifyType == null) {
+                    continue;
+                }
 
                 BlockFace blockFace;
                 if (y == 0) {
@@ -570,12 +573,8 @@ public class GlowBlock implements Block {
                     blockFace = null;
                 }
 
-                BlockType notifyType = itemTable.getBlock(notify.getType());
-                if (notifyType != null) {
-                    notifyType
-                            .onNearBlockChanged(notify, blockFace, this, oldType, oldData,
-                                    newType, newData);
-                }
+                notifyType.onNearBlockChanged(access.getBlock(), blockFace, this, oldType, oldData,
+                        newType, newData);
             }
         }
 
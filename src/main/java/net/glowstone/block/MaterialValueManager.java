@@ -48,6 +48,13 @@ public interface MaterialValueManager {
          */
         int getLightOpacity();
 
+        /**
+         * Returns the light emission-component of this value.
+         *
+         * @return the block light level emitted by this material, from 0 to 15
+         */
+        int getLightEmission();
+
         /**
          * Returns the flame resistance-component of this value.
          *
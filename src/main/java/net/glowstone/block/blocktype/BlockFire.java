@@ -9,6 +9,7 @@ import net.glowstone.EventFactory;
 import net.glowstone.GlowWorld;
 import net.glowstone.block.GlowBlock;
 import net.glowstone.block.GlowBlockState;
+import net.glowstone.chunk.HeightMap;
 import net.glowstone.constants.GameRules;
 import net.glowstone.constants.GlowBiomeClimate;
 import net.glowstone.entity.GlowPlayer;
@@ -234,13 +235,19 @@ public class BlockFire extends BlockNeedsAttached {
     private boolean isRainingAround(GlowBlock block) {
         // check if it's raining on the block itself or on one of it's 4 faces
         for (BlockFace face : RAIN_FACES) {
-            if (GlowBiomeClimate.isRainy(block.getRelative(face))) {
+            if (isRainingOn(block.getRelative(face))) {
                 return true;
             }
         }
         return false;
     }
 
+    private static boolean isRainingOn(GlowBlock block) {
+        // rain falls until the first block that blocks motion
+        return GlowBiomeClimate.isRainy(block) && block.getY() >= block.getWorld()
+            .getHighestBlockYAt(block.getX(), block.getZ(), HeightMap.Type.MOTION_BLOCKING);
+    }
+
     private void burnBlock(GlowBlock block, GlowBlock from, int burnResistance, int fireAge) {
         if (ThreadLocalRandom.current().nextInt(burnResistance) < block.getMaterialValues()
             .getFireResistance()) {
@@ -251,8 +258,8 @@ public class BlockFire extends BlockNeedsAttached {
                     BlockTnt.igniteBlock(block, false);
                 } else {
                     GlowBlockState state = block.getState();
-                    if (ThreadLocalRandom.current().nextInt(10 + fireAge) < 5 && !GlowBiomeClimate
-                        .isRainy(block)) {
+                    if (ThreadLocalRandom.current().nextInt(10 + fireAge) < 5
+                        && !isRainingOn(block)) {
                         int increasedAge = increaseFireAge(fireAge);
                         state.setType(Material.FIRE);
                         state.setRawData(
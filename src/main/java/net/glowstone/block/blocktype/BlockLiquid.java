@@ -8,6 +8,7 @@ import static org.bukkit.block.BlockFace.UP;
 import static org.bukkit.block.BlockFace.WEST;
 
 import lombok.Getter;
+import net.glowstone.block.BlockAccess;
 import net.glowstone.block.GlowBlock;
 import net.glowstone.block.GlowBlockState;
 import net.glowstone.block.ItemTable;
@@ -133,11 +134,13 @@ public abstract class BlockLiquid extends BlockType {
         } else {
             // we can't flow down, or if we're a source block, let's flow horizontally
             // search 5 blocks out
+            BlockAccess access = new BlockAccess(block.getWorld());
             for (int j = 1; j < 6; j++) {
                 // from each horizontal face
                 for (BlockFace face : SIDES) {
-                    if (calculateTarget(block.getRelative(face, j).getRelative(DOWN), face,
-                        false) && calculateTarget(block.getRelative(face), face, true)) {
+                    access.moveTo(block.getX(), block.getY() - 1, block.getZ()).move(face, j);
+                    if (canFlowInto(access)
+                        && calculateTarget(block.getRelative(face), face, true)) {
                         state.setFlowed(true);
                     }
                 }
@@ -153,6 +156,22 @@ public abstract class BlockLiquid extends BlockType {
         }
     }
 
+    /**
+     * Checks whether liquid could flow into a block, without flowing.
+     *
+     * @param target a cursor at the block
+     * @return true if the block is replaceable or a liquid, in a loaded chunk
+     */
+    private boolean canFlowInto(BlockAccess target) {
+        // Don't flow inside unloaded chunks
+        if (!target.isChunkLoaded()) {
+            return false;
+        }
+        Material type = target.getType();
+        return type == Material.AIR || target.isLiquid()
+            || ItemTable.instance().getBlock(type) instanceof BlockNeedsAttached;
+    }
+
     private boolean calculateTarget(GlowBlock target, BlockFace direction, boolean flow) {
         // Don't flow inside unloaded chunks
         if (!target.getChunk().isLoaded()) {
@@ -232,27 +251,30 @@ public abstract class BlockLiquid extends BlockType {
         if (isStationary(me.getType())) {
             me.setType(getOpposite(me.getType()), me.getData(), false);
         }
-        boolean isWater = isWater(me.getType());
-        if (me.getState().getRawData() != STRENGTH_SOURCE) {
+        Material type = me.getType();
+        boolean isWater = isWater(type);
+        byte strength = me.getData();
+        if (strength != STRENGTH_SOURCE) {
             BlockFace[] faces = {UP, NORTH, EAST, SOUTH, WEST};
             boolean connected = false;
             int count = 0;
+            BlockAccess access = new BlockAccess(me.getWorld());
             for (BlockFace face : faces) {
-                if (me.getRelative(face).getType() == me.getType()) {
+                access.moveTo(me.getX(), me.getY(), me.getZ()).move(face);
+                if (access.getType() == type) {
+                    byte neighborStrength = access.getData();
                     if (isWater && count < 2 && face != UP
-                        && me.getRelative(face).getState().getRawData() == STRENGTH_SOURCE) {
+                        && neighborStrength == STRENGTH_SOURCE) {
                         count++;
                     }
-                    if (!connected && face == UP
-                        || me.getRelative(face).getState().getRawData()
-                            < me.getState().getRawData()) {
+                    if (!connected && face == UP || neighborStrength < strength) {
                         connected = true;
                         if (me.getWorld().getServer().getClassicWater()) {
                             me.getState().setRawData(STRENGTH_SOURCE);
                         }
                     }
                     if (me.getWorld().getServer().getClassicWater()
-                        && me.getRelative(face).getState().getRawData() == STRENGTH_SOURCE) {
+                        && neighborStrength == STRENGTH_SOURCE) {
                         me.getRelative(face).setType(Material.AIR);
                     }
                 }
@@ -266,7 +288,7 @@ public abstract class BlockLiquid extends BlockType {
                 return;
             }
         }
-        if (!(me.getState().getRawData()
+        if (!(strength
                 == (isWater || me.getBiome() == Biome.HELL ? STRENGTH_MIN_WATER
                         : STRENGTH_MIN_LAVA)) || me.getRelative(DOWN).getType() == Material.AIR) {
             calculateFlow(me);
@@ -113,7 +113,6 @@ public class BlockPiston extends BlockDirectional {
             me.isBlockIndirectlyPowered() ? 0 : 1, rawFace, me.getTypeId());
 
         GlowChunk chunk = me.getChunk();
-        GlowChunk.Key chunkKey = GlowChunk.Key.of(chunk.getX(), chunk.getZ());
         GlowWorld world = me.getWorld();
 
         if (me.isBlockIndirectlyPowered() && !isPistonExtended(me)) {
@@ -136,7 +135,8 @@ public class BlockPiston extends BlockDirectional {
                 return;
             }
 
-            world.getRawPlayers().stream().filter(player -> player.canSeeChunk(chunkKey))
+            world.getRawPlayers().stream()
+                .filter(player -> player.canSeeChunk(chunk.getX(), chunk.getZ()))
                 .forEach(player -> player.getSession().send(message));
             world.playSound(me.getLocation(), Sound.BLOCK_PISTON_EXTEND, SoundCategory.BLOCKS, 0.5f,
                 0.75f);
@@ -173,7 +173,8 @@ public class BlockPiston extends BlockDirectional {
             return;
         }
 
-        world.getRawPlayers().stream().filter(player -> player.canSeeChunk(chunkKey))
+        world.getRawPlayers().stream()
+            .filter(player -> player.canSeeChunk(chunk.getX(), chunk.getZ()))
             .forEach(player -> player.getSession().send(message));
         world.playSound(me.getLocation(), Sound.BLOCK_PISTON_CONTRACT, SoundCategory.BLOCKS, 0.5f,
             0.75f);
@@ -3,8 +3,6 @@ package net.glowstone.block.entity;
 import lombok.Getter;
 import net.glowstone.block.GlowBlock;
 import net.glowstone.block.GlowBlockState;
-import net.glowstone.chunk.GlowChunk;
-import net.glowstone.chunk.GlowChunk.Key;
 import net.glowstone.entity.GlowPlayer;
 import net.glowstone.util.nbt.CompoundTag;
 import org.jetbrains.annotations.NonNls;
@@ -40,8 +38,9 @@ public abstract class BlockEntity {
      * Update this BlockEntity's visible state to all players in range.
      */
     public final void updateInRange() {
-        Key key = GlowChunk.Key.of(block.getX() >> 4, block.getZ() >> 4);
-        block.getWorld().getRawPlayers().stream().filter(player -> player.canSeeChunk(key))
+        int cx = block.getX() >> 4;
+        int cz = block.getZ() >> 4;
+        block.getWorld().getRawPlayers().stream().filter(player -> player.canSeeChunk(cx, cz))
             .forEach(this::update);
     }
 
@@ -7,8 +7,6 @@ import net.glowstone.EventFactory;
 import net.glowstone.block.GlowBlock;
 import net.glowstone.block.GlowBlockState;
 import net.glowstone.block.entity.NoteblockEntity;
-import net.glowstone.chunk.GlowChunk;
-import net.glowstone.chunk.GlowChunk.Key;
 import org.bukkit.Instrument;
 import org.bukkit.Location;
 import org.bukkit.Material;
@@ -201,8 +199,9 @@ public class GlowNoteBlock extends GlowBlockState implements NoteBlock {
 
         Location location = getBlock().getLocation();
 
-        Key key = GlowChunk.Key.of(getX() >> 4, getZ() >> 4);
-        getWorld().getRawPlayers().stream().filter(player -> player.canSeeChunk(key))
+        int cx = getX() >> 4;
+        int cz = getZ() >> 4;
+        getWorld().getRawPlayers().stream().filter(player -> player.canSeeChunk(cx, cz))
             .forEach(player -> player.playNote(location, instrument, note));
 
         return true;
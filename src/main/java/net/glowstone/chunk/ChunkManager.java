@@ -1,32 +1,31 @@
 package net.glowstone.chunk;
 
-import com.google.common.collect.ConcurrentHashMultiset;
-import com.google.common.collect.Multiset;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongList;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
 import java.io.IOException;
-import java.util.HashSet;
+import java.util.ArrayList;
 import java.util.Iterator;
-import java.util.Map.Entry;
+import java.util.List;
 import java.util.Random;
-import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
 import lombok.Getter;
+import lombok.Setter;
 import net.glowstone.EventFactory;
 import net.glowstone.GlowWorld;
 import net.glowstone.chunk.GlowChunk.Key;
 import net.glowstone.constants.GlowBiome;
 import net.glowstone.generator.GlowChunkData;
-import net.glowstone.generator.GlowChunkGenerator;
 import net.glowstone.generator.biomegrid.MapLayer;
+import net.glowstone.generator.populators.StructurePopulator;
 import net.glowstone.i18n.ConsoleMessages;
 import net.glowstone.io.ChunkIoService;
-import org.bukkit.Material;
+import net.glowstone.util.collection.ConcurrentLong2ObjectMap;
 import org.bukkit.block.Biome;
 import org.bukkit.event.world.ChunkLoadEvent;
 import org.bukkit.event.world.ChunkPopulateEvent;
 import org.bukkit.generator.BlockPopulator;
 import org.bukkit.generator.ChunkGenerator;
-import org.bukkit.material.MaterialData;
 
 /**
  * A class which manages the {@link GlowChunk}s currently loaded in memory.
@@ -59,14 +58,36 @@ public final class ChunkManager {
     private final MapLayer[] biomeGrid;
 
     /**
-     * A map of chunks currently loaded in memory.
+     * A map of chunks currently loaded in memory, by {@link GlowChunk#key(int, int)}.
      */
-    private final ConcurrentMap<Key, GlowChunk> chunks = new ConcurrentHashMap<>();
+    private final ConcurrentLong2ObjectMap<GlowChunk> chunks = new ConcurrentLong2ObjectMap<>();
 
     /**
-     * A set of chunks which are being kept loaded by players or other factors.
+     * The chunks that were generated or read only to populate the chunks next to them, by
+     * {@link GlowChunk#key(int, int)}, until they are loaded or written back to the disk.
      */
-    private final Multiset<Key> lockSet = ConcurrentHashMultiset.create();
+    private final ConcurrentLong2ObjectMap<ProtoChunk> protoChunks =
+            new ConcurrentLong2ObjectMap<>();
+
+    /**
+     * The number of locks on each chunk which is being kept loaded by players or other factors.
+     * Guarded by itself.
+     */
+    private final Long2IntOpenHashMap lockCounts = new Long2IntOpenHashMap();
+
+    /**
+     * Populates batches of chunks concurrently.
+     */
+    private final PopulationScheduler populationScheduler;
+
+    /**
+     * Where the time spent generating and populating chunks is recorded, or null to not measure
+     * it.
+     *
+     * @param stats the statistics, or null
+     */
+    @Setter
+    private volatile GenerationStats stats;
 
     /**
      * Creates a new chunk manager with the specified I/O service and world generator.
@@ -81,6 +102,7 @@ public final class ChunkManager {
         this.generator = generator;
         biomeGrid = MapLayer.initialize(
                 world.getSeed(), world.getEnvironment(), world.getWorldType());
+        populationScheduler = new PopulationScheduler(world, this);
     }
 
     /**
@@ -91,15 +113,7 @@ public final class ChunkManager {
      * @return The chunk.
      */
     public GlowChunk getChunk(int x, int z) {
-        Key key = GlowChunk.Key.of(x, z);
-        if (chunks.containsKey(key)) {
-            return chunks.get(key);
-        } else {
-            // only create chunk if it's not in the map already
-            GlowChunk chunk = new GlowChunk(world, x, z);
-            chunks.put(key, chunk);
-            return chunk;
-        }
+        return chunks.computeIfAbsent(GlowChunk.key(x, z), key -> new GlowChunk(world, x, z));
     }
 
     /**
@@ -110,8 +124,8 @@ public final class ChunkManager {
      * @return true if the chunk is loaded, otherwise false.
      */
     public boolean isChunkLoaded(int x, int z) {
-        Key key = GlowChunk.Key.of(x, z);
-        return chunks.containsKey(key) && chunks.get(key).isLoaded();
+        GlowChunk chunk = chunks.get(GlowChunk.key(x, z));
+        return chunk != null && chunk.isLoaded();
     }
 
     /**
@@ -122,8 +136,10 @@ public final class ChunkManager {
      * @return Whether the chunk is in use.
      */
     public boolean isChunkInUse(int x, int z) {
-        Key key = GlowChunk.Key.of(x, z);
-        return lockSet.contains(key);
+        long key = GlowChunk.key(x, z);
+        synchronized (lockCounts) {
+            return lockCounts.containsKey(key);
+        }
     }
 
     /**
@@ -145,11 +161,38 @@ public final class ChunkManager {
      * @return true if the chunk was loaded or generated successfully, false otherwise
      */
     public boolean loadChunk(GlowChunk chunk, boolean generate) {
+        // promote the chunk if it was only generated for its neighbours; this can happen while
+        // populating on another thread, so the chunk is locked until it is initialized
+        long key = GlowChunk.key(chunk.getX(), chunk.getZ());
+        boolean concurrent = PopulationScheduler.isPopulatingConcurrently();
+        if (protoChunks.containsKey(key) && (!concurrent
+                || PopulationWriter.isInPopulationArea(world, chunk.getX(), chunk.getZ()))) {
+            synchronized (chunk) {
+                if (chunk.isLoaded()) {
+                    return true;
+                }
+                ProtoChunk protoChunk = protoChunks.remove(key);
+                if (protoChunk != null) {
+                    protoChunk.initialize(chunk);
+                    world.getLightEngine().lightChunk(chunk);
+                    PopulationScheduler.runOnWorldThread(() -> EventFactory.getInstance()
+                            .callEvent(new ChunkLoadEvent(chunk, true)));
+                    return true;
+                }
+            }
+        }
+
+        // a worker populating a chunk only promotes the chunks it prepared; reading or generating
+        // any other chunk could race with the worker that reaches it from the other side
+        if (concurrent) {
+            return chunk.isLoaded();
+        }
+
         // try to load chunk
         try {
             if (service.read(chunk)) {
-                EventFactory.getInstance()
-                        .callEvent(new ChunkLoadEvent(chunk, false));
+                PopulationScheduler.runOnWorldThread(() -> EventFactory.getInstance()
+                        .callEvent(new ChunkLoadEvent(chunk, false)));
                 return true;
             }
         } catch (IOException e) {
@@ -166,13 +209,14 @@ public final class ChunkManager {
 
         // get generating
         try {
-            generateChunk(chunk, chunk.getX(), chunk.getZ());
+            generateChunk(chunk);
         } catch (Throwable ex) {
             ConsoleMessages.Error.Chunk.GEN_FAILED.log(ex, chunk.getX(), chunk.getZ());
             return false;
         }
 
-        EventFactory.getInstance().callEvent(new ChunkLoadEvent(chunk, true));
+        PopulationScheduler.runOnWorldThread(() -> EventFactory.getInstance()
+                .callEvent(new ChunkLoadEvent(chunk, true)));
 
         // right now, forcePopulate takes care of populating chunks that players actually see.
         /*for (int x2 = x - 1; x2 <= x + 1; ++x2) {
@@ -187,57 +231,118 @@ public final class ChunkManager {
      * Unload chunks with no locks on them.
      */
     public void unloadOldChunks() {
-        Iterator<Entry<Key, GlowChunk>> chunksEntryIter = chunks.entrySet().iterator();
-        while (chunksEntryIter.hasNext()) {
-            Entry<Key, GlowChunk> entry = chunksEntryIter.next();
-            if (!lockSet.contains(entry.getKey())) {
-                if (!entry.getValue().unload(true, true)) {
-                    ConsoleMessages.Warn.Chunk.UNLOAD_FAILED.log(world.getName(), entry.getKey());
+        protoChunks.forEach(protoChunk -> {
+            if (writeProtoChunk(protoChunk)) {
+                protoChunks.remove(GlowChunk.key(protoChunk.getX(), protoChunk.getZ()),
+                        protoChunk);
+            }
+        });
+        chunks.forEach(chunk -> {
+            long key = GlowChunk.key(chunk.getX(), chunk.getZ());
+            if (!isChunkInUse(chunk.getX(), chunk.getZ())) {
+                if (!chunk.unload(true, true)) {
+                    ConsoleMessages.Warn.Chunk.UNLOAD_FAILED.log(world.getName(), chunk);
                 }
             }
-            if (!entry.getValue().isLoaded()) {
-                //GlowServer.logger.info("Removing from cache " + entry.getKey());
-                chunksEntryIter.remove();
-                lockSet.setCount(entry.getKey(), 0);
+            if (!chunk.isLoaded()) {
+                //GlowServer.logger.info("Removing from cache " + chunk);
+                chunks.remove(key, chunk);
+                synchronized (lockCounts) {
+                    lockCounts.remove(key);
+                }
             }
-        }
+        });
     }
 
     /**
      * Populate a single chunk if needed.
      */
     private void populateChunk(int x, int z, boolean force) {
+        GlowChunk chunk = preparePopulation(x, z, force);
+        if (chunk != null) {
+            runPopulators(chunk);
+            EventFactory.getInstance().callEvent(new ChunkPopulateEvent(chunk));
+        }
+    }
+
+    /**
+     * Marks a chunk as populated if it isn't yet and the 3x3 chunks around it are available.
+     *
+     * @param x The X coordinate.
+     * @param z The Z coordinate.
+     * @param force Whether to load or generate the chunks around it.
+     * @return the chunk, whose populators still have to be run, or null if it shouldn't be
+     *     populated
+     */
+    GlowChunk preparePopulation(int x, int z, boolean force) {
         GlowChunk chunk = getChunk(x, z);
         // cancel out if it's already populated
         if (chunk.isPopulated()) {
-            return;
+            return null;
         }
 
-        // cancel out if the 3x3 around it isn't available
+        // cancel out if the 3x3 around it isn't available; the chunks around it only have to be
+        // generated, since they are loaded once populators write into them
+        if (!chunk.isLoaded() && (!force || !loadChunk(chunk, true))) {
+            return null;
+        }
         for (int x2 = x - 1; x2 <= x + 1; ++x2) {
             for (int z2 = z - 1; z2 <= z + 1; ++z2) {
-                if (!getChunk(x2, z2).isLoaded() && (!force || !loadChunk(x2, z2, true))) {
-                    return;
+                if ((x2 != x || z2 != z) && !isChunkGenerated(x2, z2)
+                        && (!force || !stageChunk(x2, z2))) {
+                    return null;
                 }
             }
         }
 
         // it might have loaded since before, so check again that it's not already populated
         if (chunk.isPopulated()) {
-            return;
+            return null;
         }
         chunk.setPopulated(true);
+        return chunk;
+    }
 
+    /**
+     * Runs the world's populators on a chunk, through a {@link PopulationWriter} for the chunks
+     * around it, and records how long they took if generation is being measured.
+     *
+     * @param chunk the chunk
+     */
+    void runPopulators(GlowChunk chunk) {
         Random random = new Random(world.getSeed());
         long xrand = (random.nextLong() / 2 << 1) + 1;
         long zrand = (random.nextLong() / 2 << 1) + 1;
-        random.setSeed(x * xrand + z * zrand ^ world.getSeed());
+        random.setSeed(chunk.getX() * xrand + chunk.getZ() * zrand ^ world.getSeed());
 
-        for (BlockPopulator p : world.getPopulators()) {
-            p.populate(world, random, chunk);
+        GenerationStats stats = this.stats;
+        long populationNanos = 0;
+        long structureNanos = 0;
+        boolean structures = false;
+        PopulationWriter writer = PopulationWriter.begin(world, chunk.getX(), chunk.getZ());
+        try {
+            for (BlockPopulator p : world.getPopulators()) {
+                long start = stats == null ? 0 : System.nanoTime();
+                p.populate(world, random, chunk);
+                if (stats == null) {
+                    continue;
+                }
+                if (p instanceof StructurePopulator) {
+                    structureNanos += System.nanoTime() - start;
+                    structures = true;
+                } else {
+                    populationNanos += System.nanoTime() - start;
+                }
+            }
+        } finally {
+            writer.finish();
+        }
+        if (stats != null) {
+            stats.add(GenerationStats.Stage.POPULATION, populationNanos);
+            if (structures) {
+                stats.add(GenerationStats.Stage.STRUCTURES, structureNanos);
+            }
         }
-
-        EventFactory.getInstance().callEvent(new ChunkPopulateEvent(chunk));
     }
 
     /**
@@ -256,9 +361,191 @@ public final class ChunkManager {
     }
 
     /**
-     * Initialize a single chunk from the chunk generator.
+     * Forces chunks to be populated like {@link #forcePopulation(int, int)}, populating chunks
+     * that are far enough apart concurrently.
+     *
+     * @param keys the chunks, by {@link GlowChunk#key(int, int)}
+     * @see PopulationScheduler
+     */
+    public void forcePopulation(LongList keys) {
+        populationScheduler.populate(keys);
+    }
+
+    /**
+     * Checks whether a chunk is loaded or waiting as a proto-chunk, without reading or generating
+     * it.
+     */
+    private boolean isChunkGenerated(int x, int z) {
+        long key = GlowChunk.key(x, z);
+        GlowChunk chunk = chunks.get(key);
+        return chunk != null && chunk.isLoaded() || protoChunks.containsKey(key);
+    }
+
+    /**
+     * Makes a chunk available to populate the chunks next to it, reading or generating it as a
+     * proto-chunk unless it was saved as a full chunk.
+     *
+     * @param x The X coordinate.
+     * @param z The Z coordinate.
+     * @return true if the chunk is available, false otherwise
+     */
+    private boolean stageChunk(int x, int z) {
+        try {
+            if (service.hasChunk(x, z)) {
+                ProtoChunk protoChunk = service.readProtoChunk(x, z);
+                if (protoChunk == null) {
+                    return loadChunk(x, z, true);
+                }
+                protoChunks.put(GlowChunk.key(x, z), protoChunk);
+                return true;
+            }
+        } catch (IOException e) {
+            ConsoleMessages.Error.Chunk.LOAD_FAILED.log(e, x, z);
+            // the full load regenerates the chunk if the saved copy is corrupted
+            return loadChunk(x, z, true);
+        }
+
+        if (world.getServer().isGenerationDisabled()) {
+            return false;
+        }
+        try {
+            protoChunks.put(GlowChunk.key(x, z), generateProtoChunk(x, z));
+        } catch (Throwable ex) {
+            ConsoleMessages.Error.Chunk.GEN_FAILED.log(ex, x, z);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Checks whether a chunk would have to be generated: it is neither loaded, waiting as a
+     * proto-chunk nor saved.
+     *
+     * @param x The X coordinate.
+     * @param z The Z coordinate.
+     * @return true if the chunk has to be generated, false otherwise or if its region file can't
+     *     be read
+     */
+    public boolean isChunkMissing(int x, int z) {
+        if (isChunkGenerated(x, z)) {
+            return false;
+        }
+        try {
+            return !service.hasChunk(x, z);
+        } catch (IOException e) {
+            ConsoleMessages.Error.Chunk.LOAD_FAILED.log(e, x, z);
+            return false;
+        }
+    }
+
+    /**
+     * Makes a chunk generated elsewhere, such as by another chunk manager of the same world,
+     * available to populate the chunks next to it, as if it had been generated by this chunk
+     * manager.
+     *
+     * @param protoChunk the generated chunk, which must be {@linkplain #isChunkMissing missing}
+     */
+    public void stageProtoChunk(ProtoChunk protoChunk) {
+        protoChunks.put(GlowChunk.key(protoChunk.getX(), protoChunk.getZ()), protoChunk);
+    }
+
+    /**
+     * Writes a chunk to the disk and drops it from memory, whether it is loaded or a proto-chunk,
+     * unless it is locked.
+     *
+     * @param x The X coordinate.
+     * @param z The Z coordinate.
+     * @return true if the chunk was written or wasn't in memory, false otherwise
+     */
+    public boolean unloadChunk(int x, int z) {
+        long key = GlowChunk.key(x, z);
+        ProtoChunk protoChunk = protoChunks.get(key);
+        if (protoChunk != null) {
+            if (!writeProtoChunk(protoChunk)) {
+                return false;
+            }
+            protoChunks.remove(key, protoChunk);
+        }
+        GlowChunk chunk = chunks.get(key);
+        if (chunk == null) {
+            return true;
+        }
+        if (!chunk.unload(true, true)) {
+            return false;
+        }
+        chunks.remove(key, chunk);
+        return true;
+    }
+
+    /**
+     * Writes a proto-chunk to the disk.
+     *
+     * @param protoChunk the proto-chunk
+     * @return true if the proto-chunk was written, false otherwise
+     */
+    private boolean writeProtoChunk(ProtoChunk protoChunk) {
+        try {
+            service.writeProtoChunk(protoChunk);
+            return true;
+        } catch (IOException ex) {
+            ConsoleMessages.Error.Chunk.SAVE_FAILED.log(ex, protoChunk);
+            return false;
+        }
+    }
+
+    /**
+     * Takes snapshots of the proto-chunks, which can be written on another thread while the
+     * proto-chunks are loaded. Must be called on the world thread.
+     *
+     * @return the snapshots
+     */
+    public List<ProtoChunk> getProtoChunkSnapshots() {
+        List<ProtoChunk> snapshots = new ArrayList<>(protoChunks.size());
+        protoChunks.forEach(protoChunk -> snapshots.add(protoChunk.snapshot()));
+        return snapshots;
+    }
+
+    /**
+     * Writes proto-chunks to the disk, keeping them in memory.
+     *
+     * @param snapshots the {@linkplain #getProtoChunkSnapshots() snapshots} of the proto-chunks
+     */
+    public void saveProtoChunks(List<ProtoChunk> snapshots) {
+        for (ProtoChunk protoChunk : snapshots) {
+            writeProtoChunk(protoChunk);
+        }
+    }
+
+    /**
+     * Initialize a single chunk from the chunk generator, and queue it for lighting.
+     */
+    private void generateChunk(GlowChunk chunk) {
+        protoChunks.remove(GlowChunk.key(chunk.getX(), chunk.getZ()));
+        initializeChunk(chunk);
+        world.getLightEngine().lightChunk(chunk);
+    }
+
+    /**
+     * Fills a chunk's sections, biomes and height map from the chunk generator, without lighting
+     * or populating it.
+     *
+     * @param chunk the chunk, which must not be loaded yet
+     */
+    public void initializeChunk(GlowChunk chunk) {
+        generateProtoChunk(chunk.getX(), chunk.getZ()).initialize(chunk);
+    }
+
+    /**
+     * Generates a chunk's sections and biomes with the chunk generator, without lighting or
+     * populating it.
+     *
+     * @param x The X coordinate.
+     * @param z The Z coordinate.
+     * @return the generated chunk
      */
-    private void generateChunk(GlowChunk chunk, int x, int z) {
+    public ProtoChunk generateProtoChunk(int x, int z) {
+        GenerationStats stats = this.stats;
+        long start = stats == null ? 0 : System.nanoTime();
         Random random = new Random(x * 341873128712L + z * 132897987541L);
         BiomeGrid biomes = new BiomeGrid();
 
@@ -268,43 +555,45 @@ public final class ChunkManager {
             biomes.biomes[i] = (byte) biomeValues[i];
         }
 
-        // extended sections with data
-        GlowChunkData glowChunkData = null;
-        if (generator instanceof GlowChunkGenerator) {
-            glowChunkData = (GlowChunkData)
-                    generator.generateChunkData(world, random, x, z, biomes);
-        } else {
-            ChunkGenerator.ChunkData chunkData =
-                    generator.generateChunkData(world, random, x, z, biomes);
-            if (chunkData != null) {
-                glowChunkData = new GlowChunkData(world);
-                for (int i = 0; i < 16; ++i) {
-                    for (int j = 0; j < 16; ++j) {
-                        int maxHeight = chunkData.getMaxHeight();
-                        for (int k = 0; k < maxHeight; ++k) {
-                            MaterialData materialData = chunkData.getTypeAndData(i, k, j);
-                            glowChunkData.setBlock(i, k, j, materialData == null
-                                    ? new MaterialData(Material.AIR) : materialData);
-                        }
-                    }
-                }
-            }
+        if (stats == null) {
+            return generateSections(x, z, random, biomes);
         }
+        long biomesDone = System.nanoTime();
+        stats.add(GenerationStats.Stage.BIOMES, biomesDone - start);
+        ProtoChunk protoChunk = generateSections(x, z, random, biomes);
+        stats.add(GenerationStats.Stage.TERRAIN, System.nanoTime() - biomesDone);
+        return protoChunk;
+    }
 
-        if (glowChunkData != null) {
-            short[][] extSections = glowChunkData.getSections();
-            if (extSections != null) {
-                ChunkSection[] sections = new ChunkSection[extSections.length];
-                for (int i = 0; i < extSections.length; ++i) {
-                    if (extSections[i] != null) {
-                        sections[i] = ChunkSection.fromStateArray(extSections[i]);
+    /**
+     * Generates a chunk's sections with the chunk generator.
+     */
+    private ProtoChunk generateSections(int x, int z, Random random, BiomeGrid biomes) {
+        // extended sections with data, written straight into sections by our own chunk data
+        ChunkGenerator.ChunkData chunkData =
+                generator.generateChunkData(world, random, x, z, biomes);
+        if (chunkData instanceof GlowChunkData) {
+            ChunkSection[] sections = ((GlowChunkData) chunkData).optimizeSections();
+            return new ProtoChunk(x, z, sections, biomes.biomes);
+        } else if (chunkData != null) {
+            ChunkSection[] sections = new ChunkSection[GlowChunk.SEC_COUNT];
+            int maxHeight = Math.min(chunkData.getMaxHeight(), GlowChunk.DEPTH);
+            char[] types = new char[ChunkSection.ARRAY_SIZE];
+            for (int sy = 0; sy << 4 < maxHeight; ++sy) {
+                int index = 0;
+                for (int k = sy << 4; k < (sy + 1) << 4; ++k) {
+                    for (int j = 0; j < GlowChunk.HEIGHT; ++j) {
+                        for (int i = 0; i < GlowChunk.WIDTH; ++i) {
+                            types[index++] = k < maxHeight ? (char) (
+                                    chunkData.getTypeId(i, k, j) << 4
+                                            | chunkData.getData(i, k, j) & 0xF) : 0;
+                        }
                     }
                 }
-                chunk.initializeSections(sections);
-                chunk.setBiomes(biomes.biomes);
-                chunk.automaticHeightMap();
-                return;
+                // the section doesn't keep the array, so it is reused for the next one
+                sections[sy] = new ChunkSection(types);
             }
+            return new ProtoChunk(x, z, sections, biomes.biomes);
         }
 
         // extended sections
@@ -316,10 +605,7 @@ public final class ChunkManager {
                     sections[i] = ChunkSection.fromIdArray(extSections[i]);
                 }
             }
-            chunk.initializeSections(sections);
-            chunk.setBiomes(biomes.biomes);
-            chunk.automaticHeightMap();
-            return;
+            return new ProtoChunk(x, z, sections, biomes.biomes);
         }
 
         // normal sections
@@ -331,10 +617,7 @@ public final class ChunkManager {
                     sections[i] = ChunkSection.fromIdArray(blockSections[i]);
                 }
             }
-            chunk.initializeSections(sections);
-            chunk.setBiomes(biomes.biomes);
-            chunk.automaticHeightMap();
-            return;
+            return new ProtoChunk(x, z, sections, biomes.biomes);
         }
 
         // deprecated flat generation
@@ -355,9 +638,7 @@ public final class ChunkManager {
             }
             sections[sy] = sec;
         }
-        chunk.initializeSections(sections);
-        chunk.setBiomes(biomes.biomes);
-        chunk.automaticHeightMap();
+        return new ProtoChunk(x, z, sections, biomes.biomes);
     }
 
     /**
@@ -376,7 +657,7 @@ public final class ChunkManager {
 
         chunk.setPopulated(false);
         try {
-            generateChunk(chunk, x, z);
+            generateChunk(chunk);
             populateChunk(x, z, false);  // should this be forced?
         } catch (Throwable ex) {
             ConsoleMessages.Error.Chunk.REGEN_FAILED.log(ex, chunk.getX(), chunk.getZ());
@@ -391,7 +672,13 @@ public final class ChunkManager {
      * @return The currently loaded chunks.
      */
     public GlowChunk[] getLoadedChunks() {
-        return chunks.values().stream().filter(GlowChunk::isLoaded).toArray(GlowChunk[]::new);
+        List<GlowChunk> loaded = new ArrayList<>(chunks.size());
+        chunks.forEach(chunk -> {
+            if (chunk.isLoaded()) {
+                loaded.add(chunk);
+            }
+        });
+        return loaded.toArray(new GlowChunk[0]);
     }
 
     /**
@@ -401,9 +688,24 @@ public final class ChunkManager {
      * @return True if the save was successful.
      */
     public boolean performSave(GlowChunk chunk) {
+        return chunk.isLoaded()
+                && performSave(chunk, chunk.getSections(), chunk.isLightPopulated());
+    }
+
+    /**
+     * Performs the save for the given chunk using the storage provider, with the given sections
+     * and lighting status instead of the chunk's own.
+     *
+     * @param chunk The chunk to save.
+     * @param sections The sections to save, such as {@linkplain GlowChunk#getSectionSnapshots()
+     *         snapshots} of the chunk's sections when it is saved on another thread.
+     * @param lightPopulated Whether the light of the sections has been computed.
+     * @return True if the save was successful.
+     */
+    public boolean performSave(GlowChunk chunk, ChunkSection[] sections, boolean lightPopulated) {
         if (chunk.isLoaded()) {
             try {
-                service.write(chunk);
+                service.write(chunk, sections, lightPopulated);
                 return true;
             } catch (IOException ex) {
                 ConsoleMessages.Error.Chunk.SAVE_FAILED.log(ex, chunk);
@@ -421,13 +723,27 @@ public final class ChunkManager {
         return biomeGrid[0].generateValues(x, z, sizeX, sizeZ);
     }
 
+    /**
+     * Returns the biome that the world generator gives a column, without loading or generating
+     * its chunk.
+     *
+     * @param x the block X coordinate
+     * @param z the block Z coordinate
+     * @return the generated biome
+     */
+    public Biome getGeneratedBiome(int x, int z) {
+        return GlowBiome.getBiome(biomeGrid[0].generateValues(x, z, 1, 1)[0]);
+    }
+
     /**
      * Indicates that a chunk should be locked. A chunk may be locked multiple times, and will only
      * be unloaded when all instances of a lock has been released.
      * @param key The chunk's key
      */
-    private void acquireLock(Key key) {
-        lockSet.add(key);
+    private void acquireLock(long key) {
+        synchronized (lockCounts) {
+            lockCounts.addTo(key, 1);
+        }
     }
 
     /**
@@ -435,8 +751,12 @@ public final class ChunkManager {
      * unloaded when all instances of a lock has been released.
      * @param key The chunk's key
      */
-    private void releaseLock(Key key) {
-        lockSet.remove(key);
+    private void releaseLock(long key) {
+        synchronized (lockCounts) {
+            if (lockCounts.addTo(key, -1) <= 1) {
+                lockCounts.remove(key);
+            }
+        }
     }
 
     /**
@@ -446,46 +766,57 @@ public final class ChunkManager {
 
         private final ChunkManager cm;
         private final String desc;
-        private final Set<Key> keys = new HashSet<>();
+        private final LongOpenHashSet keys = new LongOpenHashSet();
 
         public ChunkLock(ChunkManager cm, String desc) {
             this.cm = cm;
             this.desc = desc;
         }
 
+        /**
+         * Acquires a lock on the given chunk, if it's not already held.
+         * @param key the key of the chunk to lock, as returned by {@link GlowChunk#key(int, int)}
+         */
+        public void acquire(long key) {
+            if (keys.add(key)) {
+                cm.acquireLock(key);
+            }
+        }
+
         /**
          * Acquires a lock on the given chunk key, if it's not already held.
          * @param key the key to lock
          */
         public void acquire(Key key) {
-            if (keys.contains(key)) {
-                return;
+            acquire(key.toLong());
+        }
+
+        /**
+         * Releases a lock on the given chunk, if it's held.
+         * @param key the key of the chunk to release, as returned by
+         *         {@link GlowChunk#key(int, int)}
+         */
+        public void release(long key) {
+            if (keys.remove(key)) {
+                cm.releaseLock(key);
             }
-            keys.add(key);
-            cm.acquireLock(key);
-            //GlowServer.logger.info(this + " acquires " + key);
         }
 
         /**
-         * Releases a lock on the given chunk key, if it's not already held.
-         * @param key the key to lock
+         * Releases a lock on the given chunk key, if it's held.
+         * @param key the key to release
          */
         public void release(Key key) {
-            if (!keys.contains(key)) {
-                return;
-            }
-            keys.remove(key);
-            cm.releaseLock(key);
-            //GlowServer.logger.info(this + " releases " + key);
+            release(key.toLong());
         }
 
         /**
          * Release all locks.
          */
         public void clear() {
-            for (Key key : keys) {
-                cm.releaseLock(key);
-                //GlowServer.logger.info(this + " clearing " + key);
+            LongIterator iterator = keys.iterator();
+            while (iterator.hasNext()) {
+                cm.releaseLock(iterator.nextLong());
             }
             keys.clear();
         }
@@ -497,7 +828,7 @@ public final class ChunkManager {
 
         @Override
         public Iterator<Key> iterator() {
-            return keys.iterator();
+            return keys.stream().map(Key::of).iterator();
         }
     }
 
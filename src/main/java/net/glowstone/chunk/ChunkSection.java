@@ -2,9 +2,11 @@ package net.glowstone.chunk;
 
 import com.flowpowered.network.util.ByteBufUtils;
 import io.netty.buffer.ByteBuf;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
 import it.unimi.dsi.fastutil.ints.IntArrayList;
 import it.unimi.dsi.fastutil.ints.IntList;
 import it.unimi.dsi.fastutil.ints.IntListIterator;
+import java.util.Arrays;
 import javax.annotation.Nullable;
 import lombok.Getter;
 import net.glowstone.util.NibbleArray;
@@ -41,15 +43,47 @@ public final class ChunkSection {
      * The number of bits per block used in the global palette.
      */
     public static final int GLOBAL_PALETTE_BITS_PER_BLOCK = 13;
+    /**
+     * The fewest bits per block used with a section palette.
+     */
+    private static final int MIN_PALETTE_BITS_PER_BLOCK = 4;
+    /**
+     * The most bits per block used with a section palette.
+     */
+    private static final int MAX_PALETTE_BITS_PER_BLOCK = 8;
+    /**
+     * Shared light arrays of each uniform light level, used until a section's light varies.
+     */
+    private static final NibbleArray[] UNIFORM_LIGHT = new NibbleArray[16];
+
+    static {
+        for (int i = 0; i < UNIFORM_LIGHT.length; i++) {
+            UNIFORM_LIGHT[i] = NibbleArray.shared(ARRAY_SIZE, (byte) i);
+        }
+    }
 
     /**
-     * The palette.
+     * The palette, or null if the global palette is used or all blocks are the same.
      */
     @Nullable
     private IntList palette;
+    /**
+     * The index of each type in the palette, kept alongside it.
+     */
+    @Nullable
+    private Int2IntOpenHashMap paletteIndex;
+    /**
+     * The blocks, or null if all blocks are {@link #singleType}.
+     */
+    @Nullable
     private VariableValueArray data;
     /**
-     * The sky light array. This array is always set, even in dimensions without skylight.
+     * The type of every block, while {@link #data} is null.
+     */
+    private char singleType;
+    /**
+     * The sky light array. This array is always set, even in dimensions without skylight. While
+     * the sky light is uniform, this is a {@linkplain NibbleArray#isShared() shared} array.
      *
      * @return The sky light array. If the dimension of this chunk section's chunk's world is not
      *         the overworld, this array contains only maximum light levels.
@@ -57,7 +91,8 @@ public final class ChunkSection {
     @Getter
     private NibbleArray skyLight;
     /**
-     * The block light array.
+     * The block light array. While the block light is uniform, this is a
+     * {@linkplain NibbleArray#isShared() shared} array.
      */
     @Getter
     private NibbleArray blockLight;
@@ -65,12 +100,41 @@ public final class ChunkSection {
      * The number of non-air blocks in this section, used to determine whether it is empty.
      */
     private int count;
+    /**
+     * The version of this section, which is incremented whenever its blocks or light change. A
+     * snapshot has the version of the section when it was taken, so holders of a snapshot can
+     * tell whether the section has changed since.
+     *
+     * @return The version of this section.
+     */
+    @Getter
+    private int version;
+    /**
+     * The snapshot of the current version of this section, or null if none has been taken.
+     */
+    @Nullable
+    private ChunkSection snapshot;
+    /**
+     * Whether {@link #data}, {@link #palette} and {@link #paletteIndex} are shared with a
+     * snapshot, and must be copied before they are changed.
+     */
+    private boolean blocksShared;
+    /**
+     * Whether {@link #skyLight} is shared with a snapshot, and must be copied before it is
+     * changed. Uniform light arrays are always copied first, so they don't need this.
+     */
+    private boolean skyLightShared;
+    /**
+     * Whether {@link #blockLight} is shared with a snapshot, and must be copied before it is
+     * changed.
+     */
+    private boolean blockLightShared;
 
     /**
      * Create a new, empty ChunkSection.
      */
     public ChunkSection() {
-        this(new char[ARRAY_SIZE]);
+        this((char) 0, 0, UNIFORM_LIGHT[DEFAULT_SKYLIGHT], UNIFORM_LIGHT[DEFAULT_BLOCK_LIGHT]);
     }
 
     /**
@@ -83,8 +147,7 @@ public final class ChunkSection {
      *         metadata)
      */
     public ChunkSection(char[] types) {
-        this(types, new NibbleArray(ARRAY_SIZE, DEFAULT_SKYLIGHT),
-                new NibbleArray(ARRAY_SIZE, DEFAULT_BLOCK_LIGHT));
+        this(types, UNIFORM_LIGHT[DEFAULT_SKYLIGHT], UNIFORM_LIGHT[DEFAULT_BLOCK_LIGHT]);
     }
 
     /**
@@ -104,8 +167,8 @@ public final class ChunkSection {
                     "An array length was not " + ARRAY_SIZE + ": "
                             + types.length + " " + skyLight.size() + " " + blockLight.size());
         }
-        this.skyLight = skyLight;
-        this.blockLight = blockLight;
+        this.skyLight = shareIfUniform(skyLight);
+        this.blockLight = shareIfUniform(blockLight);
 
         loadTypeArray(types);
     }
@@ -136,7 +199,8 @@ public final class ChunkSection {
                         + data.getBitsPerValue());
             }
         } else {
-            if (data.getBitsPerValue() < 4 || data.getBitsPerValue() > 8) {
+            if (data.getBitsPerValue() < MIN_PALETTE_BITS_PER_BLOCK
+                    || data.getBitsPerValue() > MAX_PALETTE_BITS_PER_BLOCK) {
                 throw new IllegalArgumentException("Bits per block must be between 4 and 8 "
                         + "(inclusive) when using a section palette; got "
                         + data.getBitsPerValue());
@@ -144,6 +208,23 @@ public final class ChunkSection {
         }
         this.data = data;
         this.palette = palette;
+        this.paletteIndex = palette == null ? null : indexPalette(palette);
+        this.skyLight = shareIfUniform(skyLight);
+        this.blockLight = shareIfUniform(blockLight);
+    }
+
+    /**
+     * Creates a chunk section whose blocks are all the same.
+     *
+     * @param singleType The type of every block.
+     * @param count The number of non-air blocks.
+     * @param skyLight An array for skylight data for this chunk section.
+     * @param blockLight An array for blocklight data for this chunk section.
+     */
+    private ChunkSection(char singleType, int count, NibbleArray skyLight,
+            NibbleArray blockLight) {
+        this.singleType = singleType;
+        this.count = count;
         this.skyLight = skyLight;
         this.blockLight = blockLight;
     }
@@ -209,20 +290,112 @@ public final class ChunkSection {
      * @return The section
      */
     public static ChunkSection fromNbt(CompoundTag sectionTag) {
-        byte[] rawTypes = sectionTag.getByteArray("Blocks");
-        NibbleArray extTypes = sectionTag.containsKey("Add") ? new NibbleArray(sectionTag
-                .getByteArray("Add")) : null;
-        NibbleArray data = new NibbleArray(sectionTag.getByteArray("Data"));
-        NibbleArray blockLight = new NibbleArray(sectionTag.getByteArray("BlockLight"));
-        NibbleArray skyLight = new NibbleArray(sectionTag.getByteArray("SkyLight"));
+        return fromNbtArrays(sectionTag.getByteArray("Blocks"),
+                sectionTag.containsKey("Add") ? sectionTag.getByteArray("Add") : null,
+                sectionTag.getByteArray("Data"), sectionTag.getByteArray("SkyLight"),
+                sectionTag.getByteArray("BlockLight"));
+    }
+
+    /**
+     * <p>Creates a new chunk section from the arrays of an Anvil section.</p>
+     *
+     * <p>The blocks are decoded straight into the palette and block data, and the arrays are not
+     * kept, so they may be reused for the next section.</p>
+     *
+     * @param blocks The low 8 bits of each block's type ID.
+     * @param add The high 4 bits of each block's type ID, or null if they are all 0.
+     * @param data The metadata of each block.
+     * @param skyLight The sky light, or null for {@link #DEFAULT_SKYLIGHT}.
+     * @param blockLight The block light, or null for {@link #DEFAULT_BLOCK_LIGHT}.
+     * @return The section
+     */
+    public static ChunkSection fromNbtArrays(byte[] blocks, @Nullable byte[] add, byte[] data,
+            @Nullable byte[] skyLight, @Nullable byte[] blockLight) {
+        if (blocks.length != ARRAY_SIZE || add != null && add.length != ARRAY_SIZE / 2
+                || data.length != ARRAY_SIZE / 2) {
+            throw new IllegalArgumentException("A block array length was not " + ARRAY_SIZE + ": "
+                    + blocks.length + " " + (add == null ? "-" : add.length) + " "
+                    + data.length * 2);
+        }
+        ChunkSection section = new ChunkSection((char) 0, 0,
+                lightFromNbt(skyLight, DEFAULT_SKYLIGHT),
+                lightFromNbt(blockLight, DEFAULT_BLOCK_LIGHT));
+        section.loadNbtArrays(blocks, add, data);
+        return section;
+    }
+
+    private static NibbleArray lightFromNbt(@Nullable byte[] light, byte defaultLevel) {
+        if (light == null) {
+            return UNIFORM_LIGHT[defaultLevel];
+        }
+        if (light.length != ARRAY_SIZE / 2) {
+            throw new IllegalArgumentException("A light array length was not " + ARRAY_SIZE
+                    + ": " + light.length * 2);
+        }
+        byte level = new NibbleArray(light).getUniformValue();
+        return level < 0 ? new NibbleArray(light.clone()) : UNIFORM_LIGHT[level];
+    }
 
-        char[] types = new char[rawTypes.length];
-        for (int i = 0; i < rawTypes.length; i++) {
-            types[i] = (char) ((extTypes == null ? 0 : extTypes
-                    .get(i)) << 12 | (rawTypes[i] & 0xff) << 4 | data.get(i));
+    /**
+     * Decodes the type of a block from the arrays of an Anvil section.
+     */
+    private static char nbtType(byte[] blocks, @Nullable byte[] add, byte[] data, int index) {
+        int shift = (index & 1) << 2;
+        int type = (blocks[index] & 0xff) << 4 | data[index >> 1] >> shift & 0xf;
+        if (add != null) {
+            type |= (add[index >> 1] >> shift & 0xf) << 12;
+        }
+        return (char) type;
+    }
+
+    /**
+     * Loads the blocks of this section from the arrays of an Anvil section, in two passes: one
+     * to build the palette and count, and one to encode the blocks, so that no decoded copy of
+     * the types is needed.
+     */
+    private void loadNbtArrays(byte[] blocks, @Nullable byte[] add, byte[] data) {
+        int count = 0;
+        IntList palette = new IntArrayList();
+        Int2IntOpenHashMap paletteIndex = newPaletteIndex();
+        int last = -1;
+        for (int i = 0; i < ARRAY_SIZE; i++) {
+            char type = nbtType(blocks, add, data, i);
+            if (type != 0) {
+                count++;
+            }
+            if (type != last) {
+                last = type;
+                if (paletteIndex.putIfAbsent(type, palette.size()) == -1) {
+                    palette.add(type);
+                }
+            }
         }
+        this.count = count;
 
-        return new ChunkSection(types, skyLight, blockLight);
+        if (palette.size() == 1) {
+            setSingleType((char) palette.getInt(0));
+            return;
+        }
+        int bitsPerBlock = bitsPerBlock(palette.size());
+        boolean global = bitsPerBlock == GLOBAL_PALETTE_BITS_PER_BLOCK;
+        VariableValueArray encoded = new VariableValueArray(bitsPerBlock, ARRAY_SIZE);
+        last = -1;
+        int lastEncoded = 0;
+        for (int i = 0; i < ARRAY_SIZE; i++) {
+            char type = nbtType(blocks, add, data, i);
+            if (global) {
+                encoded.set(i, type);
+            } else {
+                if (type != last) {
+                    last = type;
+                    lastEncoded = paletteIndex.get(type);
+                }
+                encoded.set(i, lastEncoded);
+            }
+        }
+        this.data = encoded;
+        this.palette = global ? null : palette;
+        this.paletteIndex = global ? null : paletteIndex;
     }
 
     /**
@@ -254,50 +427,172 @@ public final class ChunkSection {
         }
 
         // Build the palette, and the count
-        this.count = 0;
-        this.palette = new IntArrayList();
-        for (char type : types) {
+        int count = 0;
+        IntList palette = new IntArrayList();
+        Int2IntOpenHashMap paletteIndex = newPaletteIndex();
+        int[] encoded = new int[ARRAY_SIZE];
+        int last = -1;
+        int lastEncoded = 0;
+        for (int i = 0; i < ARRAY_SIZE; i++) {
+            char type = types[i];
             if (type != 0) {
                 count++;
             }
-
-            if (!palette.contains(type)) {
-                palette.add(type);
+            // runs of the same type are common, so only look up type changes
+            if (type != last) {
+                last = type;
+                lastEncoded = paletteIndex.putIfAbsent(type, palette.size());
+                if (lastEncoded == -1) {
+                    lastEncoded = palette.size();
+                    palette.add(type);
+                }
             }
+            encoded[i] = lastEncoded;
         }
-        // Now that we've built a palette, build the list
-        int bitsPerBlock = VariableValueArray.calculateNeededBits(palette.size());
-        if (bitsPerBlock < 4) {
-            bitsPerBlock = 4;
-        } else if (bitsPerBlock > 8) {
-            palette = null;
-            bitsPerBlock = GLOBAL_PALETTE_BITS_PER_BLOCK;
+        this.count = count;
+        blocksShared = false;
+        changed();
+
+        if (palette.size() == 1) {
+            setSingleType(types[0]);
+            return;
         }
+        // Now that we've built a palette, build the list
+        int bitsPerBlock = bitsPerBlock(palette.size());
         this.data = new VariableValueArray(bitsPerBlock, ARRAY_SIZE);
-        for (int i = 0; i < ARRAY_SIZE; i++) {
-            if (palette != null) {
-                data.set(i, palette.indexOf(types[i]));
-            } else {
+        if (bitsPerBlock == GLOBAL_PALETTE_BITS_PER_BLOCK) {
+            this.palette = null;
+            this.paletteIndex = null;
+            for (int i = 0; i < ARRAY_SIZE; i++) {
                 data.set(i, types[i]);
             }
+        } else {
+            this.palette = palette;
+            this.paletteIndex = paletteIndex;
+            for (int i = 0; i < ARRAY_SIZE; i++) {
+                data.set(i, encoded[i]);
+            }
+        }
+    }
+
+    /**
+     * Makes every block of this section the same type, dropping the block data.
+     *
+     * @param type The type of every block.
+     */
+    private void setSingleType(char type) {
+        singleType = type;
+        data = null;
+        palette = null;
+        paletteIndex = null;
+        blocksShared = false;
+    }
+
+    /**
+     * Returns the bits per block to use for a palette with the given number of types.
+     *
+     * @param paletteSize The number of types in the palette.
+     * @return The bits per block, or {@link #GLOBAL_PALETTE_BITS_PER_BLOCK} if the palette is too
+     *         large and the global palette should be used.
+     */
+    private static int bitsPerBlock(int paletteSize) {
+        int bitsPerBlock = VariableValueArray.calculateNeededBits(paletteSize - 1);
+        if (bitsPerBlock < MIN_PALETTE_BITS_PER_BLOCK) {
+            return MIN_PALETTE_BITS_PER_BLOCK;
+        } else if (bitsPerBlock > MAX_PALETTE_BITS_PER_BLOCK) {
+            return GLOBAL_PALETTE_BITS_PER_BLOCK;
         }
+        return bitsPerBlock;
+    }
+
+    private static Int2IntOpenHashMap newPaletteIndex() {
+        Int2IntOpenHashMap paletteIndex = new Int2IntOpenHashMap();
+        paletteIndex.defaultReturnValue(-1);
+        return paletteIndex;
+    }
+
+    private static Int2IntOpenHashMap indexPalette(IntList palette) {
+        Int2IntOpenHashMap paletteIndex = newPaletteIndex();
+        for (int i = 0; i < palette.size(); i++) {
+            paletteIndex.put(palette.getInt(i), i);
+        }
+        return paletteIndex;
     }
 
     /**
      * <p>Optimizes this chunk section, removing unneeded palette entries and recounting non-air
-     * blocks.</p>
+     * blocks. A section whose blocks are all the same drops its block data.</p>
      *
-     * <p>This is an expensive operation, but occasionally performing it will improve
-     * sending the section.
+     * <p>The palette is kept in order of first use, the order a section built from a type array
+     * has, so a section comes out the same however its blocks were written. This reads every
+     * block once, and only rewrites the block data if the palette shrinks or isn't in that order
+     * yet, such as after the blocks were written straight into palette storage.</p>
      */
     public void optimize() {
-        loadTypeArray(getTypes());
+        if (data == null) {
+            count = singleType == 0 ? 0 : ARRAY_SIZE;
+            return;
+        }
+
+        // find the types in use, and count the non-air blocks
+        Int2IntOpenHashMap used = newPaletteIndex();
+        IntList types = new IntArrayList();
+        int count = 0;
+        int last = -1;
+        boolean lastIsAir = false;
+        for (int i = 0; i < ARRAY_SIZE; i++) {
+            int value = data.get(i);
+            if (value != last) {
+                last = value;
+                int type = typeOf(value);
+                lastIsAir = type == 0;
+                if (used.putIfAbsent(value, types.size()) == -1) {
+                    types.add(type);
+                }
+            }
+            if (!lastIsAir) {
+                count++;
+            }
+        }
+        this.count = count;
+
+        if (types.size() == 1) {
+            setSingleType((char) types.getInt(0));
+            return;
+        }
+        int bitsPerBlock = bitsPerBlock(types.size());
+        if (palette != null && types.equals(palette)
+                || palette == null && bitsPerBlock == GLOBAL_PALETTE_BITS_PER_BLOCK) {
+            // nothing to remove or reorder
+            return;
+        }
+
+        // rewrite the blocks with the new palette, in order of first use
+        VariableValueArray compacted = new VariableValueArray(bitsPerBlock, ARRAY_SIZE);
+        for (int i = 0; i < ARRAY_SIZE; i++) {
+            compacted.set(i, used.get(data.get(i)));
+        }
+        data = compacted;
+        palette = types;
+        paletteIndex = indexPalette(types);
+        blocksShared = false;
+    }
+
+    /**
+     * Decodes a value of the block data into a type.
+     */
+    private int typeOf(int value) {
+        return palette == null ? value : palette.getInt(value);
     }
 
     /**
      * Recount the amount of non-air blocks in the chunk section.
      */
     public void recount() {
+        if (data == null) {
+            count = singleType == 0 ? 0 : ARRAY_SIZE;
+            return;
+        }
         count = 0;
         for (int i = 0; i < ARRAY_SIZE; i++) {
             int type = data.get(i);
@@ -311,14 +606,68 @@ public final class ChunkSection {
     }
 
     /**
-     * Take a snapshot of this section which will not reflect future changes.
+     * <p>Take a snapshot of this section which will not reflect future changes.</p>
+     *
+     * <p>Snapshots are copy-on-write: the snapshot shares the arrays of this section, and this
+     * section copies an array before it next changes it. Until this section changes, taking
+     * another snapshot returns the same one. A snapshot should not be modified, but can be read
+     * from any thread.</p>
      *
      * @return The snapshot for this section.
      */
     public ChunkSection snapshot() {
-        return new ChunkSection(data
-                .clone(), palette == null ? null : new IntArrayList(palette), skyLight
-                .snapshot(), blockLight.snapshot());
+        if (snapshot == null) {
+            ChunkSection snapshot = copy();
+            snapshot.version = version;
+            snapshot.snapshot = snapshot;
+            this.snapshot = snapshot;
+        }
+        return snapshot;
+    }
+
+    /**
+     * <p>Creates a copy of this section, such as for each chunk that starts out with the same
+     * blocks.</p>
+     *
+     * <p>The copy is copy-on-write: it shares the arrays of this section, and whichever of the two
+     * next changes an array copies it first, so the copy costs no memory until it changes.</p>
+     *
+     * @return The copy.
+     */
+    public ChunkSection copy() {
+        ChunkSection copy = new ChunkSection(singleType, count, skyLight, blockLight);
+        copy.data = data;
+        copy.palette = palette;
+        copy.paletteIndex = paletteIndex;
+        copy.blocksShared = data != null;
+        copy.skyLightShared = !skyLight.isShared();
+        copy.blockLightShared = !blockLight.isShared();
+        blocksShared = copy.blocksShared;
+        skyLightShared = copy.skyLightShared;
+        blockLightShared = copy.blockLightShared;
+        return copy;
+    }
+
+    /**
+     * Copies the block arrays if they are shared with a snapshot, before they are changed.
+     */
+    private void unshareBlocks() {
+        if (blocksShared) {
+            data = data.clone();
+            if (palette != null) {
+                palette = new IntArrayList(palette);
+                paletteIndex = paletteIndex.clone();
+            }
+            blocksShared = false;
+        }
+    }
+
+    /**
+     * Records a change to the blocks or light of this section.
+     */
+    private void changed() {
+        version++;
+        snapshot = null;
     }
 
     /**
@@ -330,6 +679,9 @@ public final class ChunkSection {
      * @return A type ID
      */
     public char getType(int x, int y, int z) {
+        if (data == null) {
+            return singleType;
+        }
         int value = data.get(index(x, y, z));
         if (palette != null) {
             value = palette.getInt(value);
@@ -347,43 +699,127 @@ public final class ChunkSection {
      */
     public void setType(int x, int y, int z, char value) {
         int oldType = getType(x, y, z);
+        if (oldType == value) {
+            return;
+        }
         if (oldType != 0) {
             count--;
         }
         if (value != 0) {
             count++;
         }
+        changed();
+        prepareBlocks();
+        int encoded = encode(value);
+        data.set(index(x, y, z), encoded);
+    }
 
-        int encoded;
-        if (palette != null) {
-            encoded = palette.indexOf(value);
-            if (encoded == -1) {
-                encoded = palette.size();
-                palette.add(value);
-                if (encoded > data.getLargestPossibleValue()) {
-                    // This is the situation where it can become expensive:
-                    // resize the array
-                    if (data.getBitsPerValue() == 8) {
-                        data = data.increaseBitsPerValueTo(GLOBAL_PALETTE_BITS_PER_BLOCK);
-                        // No longer using the global palette; need to manually
-                        // recalculate
-                        for (int i = 0; i < ARRAY_SIZE; i++) {
-                            int oldValue = data.get(i);
-                            int newValue = palette.getInt(oldValue);
-                            data.set(i, newValue);
+    /**
+     * Sets the type of every block in a box. A box covering the whole section drops the block
+     * data, like {@link #optimize()} does for a section whose blocks are all the same; otherwise
+     * the type is only looked up in the palette once.
+     *
+     * @param minX The minimum x coordinate, inclusive.
+     * @param minY The minimum y coordinate within the section, inclusive.
+     * @param minZ The minimum z coordinate, inclusive.
+     * @param maxX The maximum x coordinate, exclusive.
+     * @param maxY The maximum y coordinate within the section, exclusive.
+     * @param maxZ The maximum z coordinate, exclusive.
+     * @param value The new type ID for the blocks.
+     */
+    public void fill(int minX, int minY, int minZ, int maxX, int maxY, int maxZ, char value) {
+        if (minX < 0 || minY < 0 || minZ < 0 || maxX > GlowChunk.WIDTH
+                || maxY > GlowChunk.SEC_DEPTH || maxZ > GlowChunk.HEIGHT) {
+            throw new IndexOutOfBoundsException("Box (" + minX + "," + minY + "," + minZ + ")-("
+                    + maxX + "," + maxY + "," + maxZ + ") out of section bounds");
+        }
+        if (minX >= maxX || minY >= maxY || minZ >= maxZ
+                || data == null && singleType == value) {
+            return;
+        }
+        changed();
+        if (minX == 0 && minY == 0 && minZ == 0 && maxX == GlowChunk.WIDTH
+                && maxY == GlowChunk.SEC_DEPTH && maxZ == GlowChunk.HEIGHT) {
+            setSingleType(value);
+            count = value == 0 ? 0 : ARRAY_SIZE;
+            return;
+        }
+
+        prepareBlocks();
+        int encoded = encode(value);
+        for (int y = minY; y < maxY; y++) {
+            for (int z = minZ; z < maxZ; z++) {
+                for (int x = minX; x < maxX; x++) {
+                    int index = y << 8 | z << 4 | x;
+                    int oldType = typeOf(data.get(index));
+                    if (oldType != value) {
+                        if (oldType != 0) {
+                            count--;
+                        }
+                        if (value != 0) {
+                            count++;
                         }
-                        palette = null;
-                        encoded = value;
-                    } else {
-                        // Using the global palette: automatically resize
-                        data = data.increaseBitsPerValueTo(data.getBitsPerValue() + 1);
+                        data.set(index, encoded);
                     }
                 }
             }
+        }
+    }
+
+    /**
+     * Makes sure this section has block data of its own, before blocks are changed.
+     */
+    private void prepareBlocks() {
+        if (data == null) {
+            // the blocks start to differ: use a palette of the single type
+            palette = new IntArrayList();
+            palette.add(singleType);
+            paletteIndex = indexPalette(palette);
+            data = new VariableValueArray(MIN_PALETTE_BITS_PER_BLOCK, ARRAY_SIZE);
         } else {
-            encoded = value;
+            unshareBlocks();
         }
-        data.set(index(x, y, z), encoded);
+    }
+
+    /**
+     * Encodes a type into a value of the block data, adding it to the palette, and widening or
+     * dropping the palette, if needed.
+     *
+     * @param value The type ID.
+     * @return The value to store in the block data.
+     */
+    private int encode(char value) {
+        if (palette == null) {
+            return value;
+        }
+        int encoded = paletteIndex.get(value);
+        if (encoded != -1) {
+            return encoded;
+        }
+        encoded = palette.size();
+        palette.add(value);
+        paletteIndex.put(value, encoded);
+        if (encoded > data.getLargestPossibleValue()) {
+            // This is the situation where it can become expensive:
+            // resize the array
+            if (data.getBitsPerValue() == MAX_PALETTE_BITS_PER_BLOCK) {
+                data = data.increaseBitsPerValueTo(GLOBAL_PALETTE_BITS_PER_BLOCK);
+                // No longer using the global palette; need to manually
+                // recalculate
+                for (int i = 0; i < ARRAY_SIZE; i++) {
+                    int oldValue = data.get(i);
+                    int newValue = palette.getInt(oldValue);
+                    data.set(i, newValue);
+                }
+                palette = null;
+                paletteIndex = null;
+                return value;
+            } else {
+                // Using the global palette: automatically resize
+                data = data.increaseBitsPerValueTo(data.getBitsPerValue() + 1);
+            }
+        }
+        return encoded;
     }
 
     /**
@@ -393,6 +829,12 @@ public final class ChunkSection {
      */
     public char[] getTypes() {
         char[] types = new char[ARRAY_SIZE];
+        if (data == null) {
+            if (singleType != 0) {
+                Arrays.fill(types, singleType);
+            }
+            return types;
+        }
         for (int i = 0; i < ARRAY_SIZE; i++) {
             int type = data.get(i);
             if (palette != null) {
@@ -424,7 +866,28 @@ public final class ChunkSection {
      * @param light The new light level.
      */
     public void setBlockLight(int x, int y, int z, byte light) {
+        if (blockLight.isShared()) {
+            if (blockLight.get(0) == light) {
+                return;
+            }
+            blockLight = blockLight.copy();
+        } else if (blockLightShared) {
+            blockLight = blockLight.copy();
+        }
+        blockLightShared = false;
         blockLight.set(index(x, y, z), light);
+        changed();
+    }
+
+    /**
+     * Replaces the block light array.
+     *
+     * @param blockLight The new block light array, which this section takes ownership of.
+     */
+    void setBlockLight(NibbleArray blockLight) {
+        this.blockLight = shareIfUniform(blockLight);
+        blockLightShared = false;
+        changed();
     }
 
     /**
@@ -448,7 +911,53 @@ public final class ChunkSection {
      * @param light The new light level.
      */
     public void setSkyLight(int x, int y, int z, byte light) {
+        if (skyLight.isShared()) {
+            if (skyLight.get(0) == light) {
+                return;
+            }
+            skyLight = skyLight.copy();
+        } else if (skyLightShared) {
+            skyLight = skyLight.copy();
+        }
+        skyLightShared = false;
         skyLight.set(index(x, y, z), light);
+        changed();
+    }
+
+    /**
+     * Replaces the sky light array.
+     *
+     * @param skyLight The new sky light array, which this section takes ownership of.
+     */
+    void setSkyLight(NibbleArray skyLight) {
+        this.skyLight = shareIfUniform(skyLight);
+        skyLightShared = false;
+        changed();
+    }
+
+    /**
+     * Replaces a light array whose levels are all the same with the shared array of that level,
+     * so that it doesn't take up memory of its own.
+     *
+     * @param light The light array.
+     * @return The shared light array of the same level, or the array itself if its levels vary.
+     */
+    static NibbleArray shareIfUniform(NibbleArray light) {
+        if (light.isShared() || light.size() != ARRAY_SIZE) {
+            return light;
+        }
+        byte level = light.getUniformValue();
+        return level < 0 ? light : UNIFORM_LIGHT[level];
+    }
+
+    /**
+     * Gets the shared light array of a uniform light level.
+     *
+     * @param level The light level.
+     * @return The shared light array.
+     */
+    static NibbleArray uniformLight(byte level) {
+        return UNIFORM_LIGHT[level];
     }
 
     /**
@@ -479,6 +988,18 @@ public final class ChunkSection {
             throw new IllegalStateException("Can't write empty sections");
         }
 
+        if (data == null) {
+            // a palette of the single type, and all blocks set to it
+            int longs = ARRAY_SIZE * MIN_PALETTE_BITS_PER_BLOCK / Long.SIZE;
+            buf.writeByte(MIN_PALETTE_BITS_PER_BLOCK);
+            ByteBufUtils.writeVarInt(buf, 1);
+            ByteBufUtils.writeVarInt(buf, singleType);
+            ByteBufUtils.writeVarInt(buf, longs);
+            buf.writeZero(longs * Long.BYTES);
+            writeLightToBuf(buf, skylight);
+            return;
+        }
+
         buf.writeByte(data.getBitsPerValue()); // Bit per value -> varies
         if (palette == null) {
             ByteBufUtils.writeVarInt(buf, 0); // Palette size -> 0 -> Use the global palette
@@ -497,7 +1018,10 @@ public final class ChunkSection {
         for (long value : backing) {
             buf.writeLong(value);
         }
+        writeLightToBuf(buf, skylight);
+    }
 
+    private void writeLightToBuf(ByteBuf buf, boolean skylight) {
         buf.writeBytes(blockLight.getRawData());
         if (skylight) {
             buf.writeBytes(skyLight.getRawData());
@@ -510,28 +1034,53 @@ public final class ChunkSection {
      * @param sectionTag The tag to write to
      */
     public void writeToNbt(CompoundTag sectionTag) {
-        char[] types = this.getTypes();
-        byte[] rawTypes = new byte[ChunkSection.ARRAY_SIZE];
-        NibbleArray extTypes = null;
-        NibbleArray data = new NibbleArray(ChunkSection.ARRAY_SIZE);
-        for (int j = 0; j < ChunkSection.ARRAY_SIZE; j++) {
-            char type = types[j];
-            rawTypes[j] = (byte) (type >> 4 & 0xFF);
-            byte extType = (byte) (type >> 12);
-            if (extType > 0) {
-                if (extTypes == null) {
-                    extTypes = new NibbleArray(ChunkSection.ARRAY_SIZE);
-                }
-                extTypes.set(j, extType);
-            }
-            data.set(j, (byte) (type & 0xF));
-        }
+        byte[] rawTypes = new byte[ARRAY_SIZE];
+        byte[] extTypes = new byte[ARRAY_SIZE / 2];
+        byte[] data = new byte[ARRAY_SIZE / 2];
+        boolean hasExtTypes = writeNbtArrays(rawTypes, extTypes, data);
         sectionTag.putByteArray("Blocks", rawTypes);
-        if (extTypes != null) {
-            sectionTag.putByteArray("Add", extTypes.getRawData());
+        if (hasExtTypes) {
+            sectionTag.putByteArray("Add", extTypes);
         }
-        sectionTag.putByteArray("Data", data.getRawData());
+        sectionTag.putByteArray("Data", data);
         sectionTag.putByteArray("BlockLight", blockLight.getRawData());
         sectionTag.putByteArray("SkyLight", skyLight.getRawData());
     }
+
+    /**
+     * <p>Writes the blocks of this section into the arrays of an Anvil section, straight from the
+     * palette and block data.</p>
+     *
+     * <p>Every byte of the arrays is overwritten, so they may be reused between sections.</p>
+     *
+     * @param blocks Receives the low 8 bits of each block's type ID.
+     * @param add Receives the high 4 bits of each block's type ID.
+     * @param data Receives the metadata of each block.
+     * @return True if any block has high bits, so that the add array needs to be written.
+     */
+    public boolean writeNbtArrays(byte[] blocks, byte[] add, byte[] data) {
+        if (blocks.length != ARRAY_SIZE || add.length != ARRAY_SIZE / 2
+                || data.length != ARRAY_SIZE / 2) {
+            throw new IllegalArgumentException("A block array length was not " + ARRAY_SIZE + ": "
+                    + blocks.length + " " + add.length * 2 + " " + data.length * 2);
+        }
+        if (this.data == null) {
+            Arrays.fill(blocks, (byte) (singleType >> 4));
+            Arrays.fill(data, (byte) (singleType & 0xf | (singleType & 0xf) << 4));
+            Arrays.fill(add, (byte) (singleType >> 12 | singleType >> 12 << 4));
+            return singleType >> 12 != 0;
+        }
+        int hasAdd = 0;
+        for (int i = 0; i < ARRAY_SIZE; i += 2) {
+            int even = typeOf(this.data.get(i));
+            int odd = typeOf(this.data.get(i + 1));
+            blocks[i] = (byte) (even >> 4);
+            blocks[i + 1] = (byte) (odd >> 4);
+            data[i >> 1] = (byte) (even & 0xf | (odd & 0xf) << 4);
+            int ext = even >> 12 | odd >> 12 << 4;
+            add[i >> 1] = (byte) ext;
+            hasAdd |= ext;
+        }
+        return hasAdd != 0;
+    }
 }
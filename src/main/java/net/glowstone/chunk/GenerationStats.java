@@ -0,0 +1,97 @@
+package net.glowstone.chunk;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import net.glowstone.i18n.ConsoleMessages;
+
+/**
+ * Measures the time spent in each stage of world generation. Times are summed over the threads
+ * that ran a stage, so stages that run concurrently can add up to more than the elapsed time.
+ */
+public final class GenerationStats {
+
+    /**
+     * A stage of world generation.
+     */
+    public enum Stage {
+        /**
+         * Generating the biomes of a chunk.
+         */
+        BIOMES,
+        /**
+         * Generating the blocks of a chunk with the chunk generator.
+         */
+        TERRAIN,
+        /**
+         * Running the populators of a chunk, except for structures.
+         */
+        POPULATION,
+        /**
+         * Running the structure populator of a chunk.
+         */
+        STRUCTURES,
+        /**
+         * Writing a chunk to the disk.
+         */
+        WRITE
+    }
+
+    private final LongAdder[] nanos = new LongAdder[Stage.values().length];
+    private final LongAdder[] counts = new LongAdder[Stage.values().length];
+
+    /**
+     * Creates statistics with nothing measured yet.
+     */
+    public GenerationStats() {
+        for (int i = 0; i < nanos.length; i++) {
+            nanos[i] = new LongAdder();
+            counts[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Records that a stage ran for a chunk. May be called from any thread.
+     *
+     * @param stage the stage
+     * @param nanos how long the stage took, in nanoseconds
+     */
+    public void add(Stage stage, long nanos) {
+        this.nanos[stage.ordinal()].add(nanos);
+        counts[stage.ordinal()].increment();
+    }
+
+    /**
+     * Gets the time spent in a stage.
+     *
+     * @param stage the stage
+     * @return the time, in nanoseconds
+     */
+    public long getNanos(Stage stage) {
+        return nanos[stage.ordinal()].sum();
+    }
+
+    /**
+     * Gets the number of chunks a stage ran for.
+     *
+     * @param stage the stage
+     * @return the number of chunks
+     */
+    public long getCount(Stage stage) {
+        return counts[stage.ordinal()].sum();
+    }
+
+    /**
+     * Logs the number of chunks, the total time and the time per chunk of each stage that ran.
+     */
+    public void log() {
+        for (Stage stage : Stage.values()) {
+            long count = getCount(stage);
+            if (count == 0) {
+                continue;
+            }
+            long millis = TimeUnit.NANOSECONDS.toMillis(getNanos(stage));
+            ConsoleMessages.Info.WorldGen.STAGE.log(stage.name().toLowerCase(), count, millis,
+                    getNanos(stage) / 1e6 / count);
+        }
+    }
+}
@@ -2,7 +2,6 @@ package net.glowstone.chunk;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
-import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
 
 import java.util.ArrayList;
 import java.util.Collection;
@@ -99,10 +98,10 @@ public class GlowChunk implements Chunk {
      */
     private byte[] biomes;
     /**
-     * The height map values values of each column, or null if it is unloaded. The height for a
-     * column is one plus the y-index of the highest non-air block in the column.
+     * The height maps of this chunk, indexed by the ordinal of their {@link HeightMap.Type}, or
+     * null if it is unloaded.
      */
-    private byte[] heightMap;
+    private HeightMap[] heightMaps;
     /**
      * Whether the chunk has been populated by special features. Used in map generation.
      *
@@ -112,6 +111,17 @@ public class GlowChunk implements Chunk {
     @Getter
     @Setter
     private boolean populated;
+    /**
+     * Whether the chunk's light has been computed since it was generated or read without light,
+     * so that it is saved as lit. Cleared when the chunk is queued for lighting, and set once its
+     * light has been merged into it.
+     *
+     * @param lightPopulated Lighting status.
+     * @return Lighting status.
+     */
+    @Getter
+    @Setter
+    private volatile boolean lightPopulated;
 
     @Setter
     private int isSlimeChunk = -1;
@@ -207,7 +217,8 @@ public class GlowChunk implements Chunk {
     public GlowChunkSnapshot getChunkSnapshot(boolean includeMaxBlockY, boolean includeBiome,
                                               boolean includeBiomeTempRain) {
         return new GlowChunkSnapshot(x, z, world, sections,
-            includeMaxBlockY ? heightMap.clone() : null, includeBiome ? biomes.clone() : null,
+            includeMaxBlockY ? getHeightMap(HeightMap.Type.WORLD_SURFACE).toArray() : null,
+            includeBiome ? biomes.clone() : null,
             includeBiomeTempRain, isSlimeChunk());
     }
 
@@ -257,7 +268,7 @@ public class GlowChunk implements Chunk {
 
         sections = null;
         biomes = null;
-        heightMap = null;
+        heightMaps = null;
         blockEntities.clear();
         if (save) {
             for (GlowEntity entity : entities) {
@@ -293,7 +304,10 @@ public class GlowChunk implements Chunk {
 
         sections = new ChunkSection[SEC_COUNT];
         biomes = new byte[WIDTH * HEIGHT];
-        heightMap = new byte[WIDTH * HEIGHT];
+        heightMaps = new HeightMap[HeightMap.Type.all().length];
+        for (int i = 0; i < heightMaps.length; i++) {
+            heightMaps[i] = new HeightMap();
+        }
 
         for (int y = 0; y < SEC_COUNT && y < initSections.length; y++) {
             if (initSections[y] != null) {
@@ -306,6 +320,24 @@ public class GlowChunk implements Chunk {
         sections[y] = section;
     }
 
+    /**
+     * Takes snapshots of this chunk's sections, which can be read on another thread while the
+     * chunk keeps changing. Must be called on the world thread, and paired with
+     * {@link #isLightPopulated()} at the same time, since the snapshots only hold the light that
+     * was merged by then.
+     *
+     * @return the snapshots, by section Y coordinate; null for empty sections
+     */
+    public ChunkSection[] getSectionSnapshots() {
+        ChunkSection[] snapshots = new ChunkSection[sections.length];
+        for (int y = 0; y < sections.length; y++) {
+            if (sections[y] != null) {
+                snapshots[y] = sections[y].snapshot();
+            }
+        }
+        return snapshots;
+    }
+
     /**
      * If needed, create a new block entity at the given location.
      *
@@ -461,6 +493,7 @@ public class GlowChunk implements Chunk {
                     return;
                 }
                 sections[idx] = section = new ChunkSection();
+                initializeSkyLight(idx, section);
             }
         }
 
@@ -470,21 +503,14 @@ public class GlowChunk implements Chunk {
             blockEntities.remove(blockEntityIndex).destroy();
         }
 
-        // update the air count and height map
-        int heightIndex = z * WIDTH + x;
-        if (type == 0) {
-            if (heightMap[heightIndex] == y + 1) {
-                // erased just below old height map -> lower
-                heightMap[heightIndex] = (byte) lowerHeightMap(x, y, z);
-            }
-        } else {
-            if (heightMap[heightIndex] <= y) {
-                // placed between old height map and top -> raise
-                heightMap[heightIndex] = (byte) Math.min(y + 1, 255);
-            }
-        }
         // update the type - also sets metadata to 0
+        int oldType = section.getType(x, y, z) >> 4;
         section.setType(x, y, z, (char) (type << 4));
+        updateHeightMaps(x, y, z, type);
+        LightEngine lightEngine = world.getLightEngine();
+        if (lightEngine != null) {
+            lightEngine.blockChanged(this.x << 4 | x, y, this.z << 4 | z, oldType, type);
+        }
 
         if (section.isEmpty()) {
             // destroy the empty section
@@ -497,15 +523,179 @@ public class GlowChunk implements Chunk {
     }
 
     /**
-     * Scan downwards to determine the new height map value.
+     * Sets the type and data of a block in one write, for bulk edits. Unlike
+     * {@link #setType(int, int, int, int)}, this leaves the height maps alone; once the column is
+     * done with, they must be brought up to date with {@link #updateHeightMaps(int, int)}.
+     *
+     * @param x The X coordinate.
+     * @param z The Z coordinate.
+     * @param y The Y coordinate.
+     * @param state The type id shifted left by 4, with the data in the lowest 4 bits.
+     * @return The previous state of the block, or -1 if it is outside the world.
      */
-    private int lowerHeightMap(int x, int y, int z) {
-        for (--y; y >= 0; --y) {
-            if (getType(x, z, y) != 0) {
-                break;
+    public int setState(int x, int z, int y, int state) {
+        return setState(x, z, y, state, false);
+    }
+
+    /**
+     * Sets the type and data of a block in one write, optionally keeping the height maps up to
+     * date, as when many blocks are written one at a time between reads of the height maps.
+     *
+     * @param x The X coordinate.
+     * @param z The Z coordinate.
+     * @param y The Y coordinate.
+     * @param state The type id shifted left by 4, with the data in the lowest 4 bits.
+     * @param updateHeightMaps Whether to update the height maps of the column.
+     * @return The previous state of the block, or -1 if it is outside the world.
+     */
+    public int setState(int x, int z, int y, int state, boolean updateHeightMaps) {
+        if (state < 0 || state > 0xffff) {
+            throw new IllegalArgumentException("Block state out of range: " + state);
+        }
+        int type = state >> 4;
+        if (type == 0) {
+            // air has no data
+            state = 0;
+        }
+        int idx = y >> 4;
+        if (y < 0 || y >= DEPTH || !load() || idx >= sections.length) {
+            return -1;
+        }
+        ChunkSection section = sections[idx];
+        if (section == null) {
+            if (type == 0) {
+                return 0;
+            }
+            sections[idx] = section = new ChunkSection();
+            initializeSkyLight(idx, section);
+        }
+        int oldState = section.getType(x, y, z);
+        if (oldState == state) {
+            return oldState;
+        }
+        int oldType = oldState >> 4;
+        if (oldType != type) {
+            int blockEntityIndex = coordinateToIndex(x, z, y);
+            if (blockEntities.containsKey(blockEntityIndex)) {
+                blockEntities.remove(blockEntityIndex).destroy();
+            }
+        }
+        section.setType(x, y, z, (char) state);
+        if (updateHeightMaps && oldType != type) {
+            updateHeightMaps(x, y, z, type);
+        }
+        LightEngine lightEngine = world.getLightEngine();
+        if (lightEngine != null && oldType != type) {
+            lightEngine.blockChanged(this.x << 4 | x, y, this.z << 4 | z, oldType, type);
+        }
+        if (section.isEmpty()) {
+            sections[idx] = null;
+        } else if (oldType != type) {
+            createEntity(x, y, z, type);
+        }
+        return oldState;
+    }
+
+    /**
+     * Sets the sky light of a new section to what it was while the section was empty, so that
+     * creating it doesn't light up caves.
+     *
+     * @param idx the index of the section
+     * @param section the new section
+     */
+    private void initializeSkyLight(int idx, ChunkSection section) {
+        if (!hasSkyLight()) {
+            return;
+        }
+        int bottom = idx << 4;
+        int lowest = DEPTH;
+        int highest = 0;
+        HeightMap heightMap = getHeightMap(HeightMap.Type.LIGHT_BLOCKING);
+        for (int x = 0; x < WIDTH; x++) {
+            for (int z = 0; z < HEIGHT; z++) {
+                lowest = Math.min(lowest, heightMap.get(x, z));
+                highest = Math.max(highest, heightMap.get(x, z));
+            }
+        }
+        if (highest <= bottom) {
+            // all in the open, as the section already is
+            return;
+        }
+        if (lowest >= bottom + SEC_DEPTH) {
+            // all in the dark
+            section.setSkyLight(ChunkSection.uniformLight((byte) 0));
+            return;
+        }
+        for (int x = 0; x < WIDTH; x++) {
+            for (int z = 0; z < HEIGHT; z++) {
+                int height = heightMap.get(x, z);
+                for (int y = bottom; y < height && y < bottom + SEC_DEPTH; y++) {
+                    section.setSkyLight(x, y, z, (byte) 0);
+                }
+            }
+        }
+    }
+
+    /**
+     * Updates the height maps of a column after a block in it is set.
+     *
+     * @param x the x coordinate of the column
+     * @param y the y coordinate of the block
+     * @param z the z coordinate of the column
+     * @param type the new type id of the block
+     */
+    private void updateHeightMaps(int x, int y, int z, int type) {
+        int counted = HeightMap.Type.countedBy(type);
+        int lower = 0;
+        for (HeightMap.Type mapType : HeightMap.Type.all()) {
+            HeightMap heightMap = heightMaps[mapType.ordinal()];
+            int height = heightMap.get(x, z);
+            if ((counted >> mapType.ordinal() & 1) != 0) {
+                if (height <= y) {
+                    // placed above the old height -> raise
+                    heightMap.set(x, z, y + 1);
+                }
+            } else if (height == y + 1) {
+                // removed the highest counted block -> lower
+                lower |= 1 << mapType.ordinal();
+            }
+        }
+        if (lower != 0) {
+            scanHeightMaps(x, y - 1, z, lower);
+        }
+    }
+
+    /**
+     * Scans a column downwards to find its heights in some height maps.
+     *
+     * @param x the x coordinate of the column
+     * @param top the y coordinate to start at
+     * @param z the z coordinate of the column
+     * @param types the height maps to set, as a bit for each type shifted left by its ordinal
+     */
+    private void scanHeightMaps(int x, int top, int z, int types) {
+        for (int y = top; y >= 0 && types != 0; y--) {
+            ChunkSection section = sections[y >> 4];
+            if (section == null) {
+                // skip to the top of the next section down
+                y &= ~0xf;
+                continue;
+            }
+            int found = types & HeightMap.Type.countedBy(section.getType(x, y, z) >> 4);
+            if (found != 0) {
+                setHeights(x, z, found, y + 1);
+                types &= ~found;
+            }
+        }
+        setHeights(x, z, types, 0);
+    }
+
+    private void setHeights(int x, int z, int types, int height) {
+        for (HeightMap.Type mapType : HeightMap.Type.all()) {
+            if ((types >> mapType.ordinal() & 1) != 0) {
+                heightMaps[mapType.ordinal()].set(x, z, height);
             }
         }
-        return y + 1;
     }
 
     /**
@@ -554,7 +744,33 @@ public class GlowChunk implements Chunk {
      */
     public byte getSkyLight(int x, int z, int y) {
         ChunkSection section = getSection(y);
-        return section == null ? ChunkSection.EMPTY_SKYLIGHT : section.getSkyLight(x, y, z);
+        return section == null ? getEmptySkyLight(x, z, y) : section.getSkyLight(x, y, z);
+    }
+
+    /**
+     * Gets the sky light level of a block in an empty section, which has no light data of its
+     * own: full sky light above the light blocking height map, and none below it.
+     *
+     * @param x The X coordinate.
+     * @param z The Z coordinate.
+     * @param y The Y coordinate.
+     * @return The sky light level.
+     */
+    byte getEmptySkyLight(int x, int z, int y) {
+        if (!hasSkyLight() || heightMaps == null
+                || y < heightMaps[HeightMap.Type.LIGHT_BLOCKING.ordinal()].get(x, z)) {
+            return ChunkSection.EMPTY_SKYLIGHT;
+        }
+        return LightEngine.MAX_LIGHT;
+    }
+
+    /**
+     * Returns whether this chunk's world has sky light.
+     *
+     * @return true in the overworld
+     */
+    boolean hasSkyLight() {
+        return world.getEnvironment() == Environment.NORMAL;
     }
 
     /**
@@ -653,10 +869,32 @@ public class GlowChunk implements Chunk {
      * @return The height map value.
      */
     public int getHeight(int x, int z) {
-        if (heightMap == null && !load()) {
+        return getHeight(HeightMap.Type.WORLD_SURFACE, x, z);
+    }
+
+    /**
+     * Get a height map value of a column within this chunk.
+     *
+     * @param type The type of height map.
+     * @param x The X coordinate.
+     * @param z The Z coordinate.
+     * @return The height map value.
+     */
+    public int getHeight(HeightMap.Type type, int x, int z) {
+        if (heightMaps == null && !load()) {
             return 0;
         }
-        return heightMap[z * WIDTH + x] & 0xff;
+        return heightMaps[type.ordinal()].get(x, z);
+    }
+
+    /**
+     * Gets a height map of this chunk.
+     *
+     * @param type The type of height map.
+     * @return The height map, or null if this chunk is unloaded.
+     */
+    public HeightMap getHeightMap(HeightMap.Type type) {
+        return heightMaps == null ? null : heightMaps[type.ordinal()];
     }
 
     public double getRegionalDifficulty() {
@@ -724,36 +962,77 @@ public class GlowChunk implements Chunk {
      * @param newHeightMap The height map.
      */
     public void setHeightMap(int... newHeightMap) {
-        if (heightMap == null) {
+        setHeightMap(HeightMap.Type.WORLD_SURFACE, newHeightMap);
+    }
+
+    /**
+     * Set an entire height map of this chunk.
+     *
+     * @param type The type of height map.
+     * @param newHeightMap The height map.
+     */
+    public void setHeightMap(HeightMap.Type type, int... newHeightMap) {
+        if (heightMaps == null) {
             throw new IllegalStateException("Must initialize chunk first");
         }
-        if (newHeightMap.length != heightMap.length) {
-            throw new IllegalArgumentException("Height map not of length " + heightMap.length);
-        }
-        for (int i = 0; i < heightMap.length; ++i) {
-            heightMap[i] = (byte) newHeightMap[i];
-        }
+        heightMaps[type.ordinal()].load(newHeightMap);
     }
 
     // ======== Helper functions ========
 
     /**
-     * Automatically fill the height map after chunks have been initialized.
+     * Automatically fill the height maps after chunks have been initialized.
      */
     public void automaticHeightMap() {
-        // determine max Y chunk section at a time
+        automaticHeightMap(HeightMap.Type.all());
+    }
+
+    /**
+     * Automatically fill some of the height maps after chunks have been initialized, in a single
+     * scan down each column.
+     *
+     * @param types The types of height map to fill.
+     */
+    public void automaticHeightMap(HeightMap.Type... types) {
+        int mask = 0;
+        for (HeightMap.Type type : types) {
+            mask |= 1 << type.ordinal();
+        }
+        int top = getTopSectionY();
+        for (int x = 0; x < WIDTH; ++x) {
+            for (int z = 0; z < HEIGHT; ++z) {
+                scanHeightMaps(x, top, z, mask);
+            }
+        }
+    }
+
+    /**
+     * Brings every height map of a column up to date, after its blocks were set with
+     * {@link #setState(int, int, int, int)}.
+     *
+     * @param x The X coordinate.
+     * @param z The Z coordinate.
+     */
+    public void updateHeightMaps(int x, int z) {
+        if (heightMaps == null) {
+            throw new IllegalStateException("Must initialize chunk first");
+        }
+        scanHeightMaps(x, getTopSectionY(), z, (1 << HeightMap.Type.all().length) - 1);
+    }
+
+    /**
+     * Gets the y coordinate of the top of the highest section that isn't empty.
+     *
+     * @return the y coordinate, or -1 if every section is empty
+     */
+    private int getTopSectionY() {
         int sy = sections.length - 1;
         for (; sy >= 0; --sy) {
             if (sections[sy] != null) {
                 break;
             }
         }
-        int y = (sy + 1) << 4;
-        for (int x = 0; x < WIDTH; ++x) {
-            for (int z = 0; z < HEIGHT; ++z) {
-                heightMap[z * WIDTH + x] = (byte) lowerHeightMap(x, y, z);
-            }
-        }
+        return ((sy + 1) << 4) - 1;
     }
 
     /**
@@ -805,17 +1084,50 @@ public class GlowChunk implements Chunk {
      * @return The {@link ChunkDataMessage}.
      */
     public ChunkDataMessage toMessage(boolean skylight, boolean entireChunk) {
+        return toMessage(skylight, entireChunk, entireChunk ? -1 : 0);
+    }
+
+    /**
+     * Creates a new {@link ChunkDataMessage} which can be sent to a client to replace some of the
+     * sections of this chunk they have, e.g. after their light changed.
+     *
+     * @param skylight    Whether to include skylight data.
+     * @param sectionMask The sections to send, with bit {@code n} for section {@code n}.
+     * @return The {@link ChunkDataMessage}.
+     */
+    public ChunkDataMessage toMessage(boolean skylight, int sectionMask) {
+        return toMessage(skylight, false, sectionMask);
+    }
+
+    /**
+     * Creates a new {@link ChunkDataMessage} which can be sent to a client to replace the sections
+     * of this chunk whose blocks changed. If one of them has become empty, the entire chunk is sent
+     * instead, since a partial resend would leave the client's copy of that section alone.
+     *
+     * @param skylight    Whether to include skylight data.
+     * @param sectionMask The changed sections, with bit {@code n} for section {@code n}.
+     * @return The {@link ChunkDataMessage}.
+     */
+    public ChunkDataMessage toChangedSectionsMessage(boolean skylight, int sectionMask) {
+        load();
+        if (sections != null) {
+            for (int i = 0; i < sections.length; i++) {
+                if ((sectionMask & 1 << i) != 0 && sections[i] == null) {
+                    return toMessage(skylight);
+                }
+            }
+        }
+        return toMessage(skylight, sectionMask);
+    }
+
+    private ChunkDataMessage toMessage(boolean skylight, boolean entireChunk, int sectionMask) {
         load();
         int sectionBitmask = 0;
 
         // filter sectionBitmask based on actual chunk contents
         if (sections != null) {
             int maxBitmask = (1 << sections.length) - 1;
-            if (entireChunk) {
-                sectionBitmask = maxBitmask;
-            } else {
-                sectionBitmask &= maxBitmask;
-            }
+            sectionBitmask = sectionMask & maxBitmask;
 
             for (int i = 0; i < sections.length; ++i) {
                 if (sections[i] == null || sections[i].isEmpty()) {
@@ -856,17 +1168,48 @@ public class GlowChunk implements Chunk {
         inhabitedTime++;
     }
 
+    /**
+     * Packs chunk coordinates into a long, for use as a key in primitive hash tables and sets.
+     *
+     * @param x the x coordinate of the chunk
+     * @param z the z coordinate of the chunk
+     * @return the key
+     */
+    public static long key(int x, int z) {
+        return (long) x << 32 | z & 0xffffffffL;
+    }
+
+    /**
+     * Gets the x coordinate of a chunk from its key.
+     *
+     * @param key the key, as returned by {@link #key(int, int)}
+     * @return the x coordinate
+     */
+    public static int keyX(long key) {
+        return (int) (key >> 32);
+    }
+
+    /**
+     * Gets the z coordinate of a chunk from its key.
+     *
+     * @param key the key, as returned by {@link #key(int, int)}
+     * @return the z coordinate
+     */
+    public static int keyZ(long key) {
+        return (int) key;
+    }
+
     /**
      * A chunk key represents the X and Z coordinates of a chunk in a manner suitable for use as a
      * key in a hash table or set.
+     *
+     * <p>The chunk maps of the server are keyed by {@link GlowChunk#key(int, int)} instead; this
+     * class is kept for code that needs the coordinates as an object. Keys are not cached, so
+     * compare them with {@link #equals(Object)}.
      */
     @Data
     public static final class Key {
 
-        // Key cache storage
-        private static final Long2ObjectOpenHashMap<Key> keys
-            = new Long2ObjectOpenHashMap<>(512, 0.5F);
-
         /**
          * The x-coordinate.
          */
@@ -886,19 +1229,27 @@ public class GlowChunk implements Chunk {
             this.hashCode = x * 31 + z;
         }
 
-        private static long mapCode(int x, int z) {
-            return (((long) x) << 32) | (z & 0xffffffffL);
+        public static Key of(int x, int z) {
+            return new Key(x, z);
         }
 
-        public static Key of(int x, int z) {
-            long id = mapCode(x, z);
-            return keys.computeIfAbsent(id, l -> new Key(x, z));
+        public static Key of(long key) {
+            return new Key(keyX(key), keyZ(key));
         }
 
         public static Key to(Chunk chunk) {
             return of(chunk.getX(), chunk.getZ());
         }
 
+        /**
+         * Packs this key into a long.
+         *
+         * @return the same value as {@link GlowChunk#key(int, int)}
+         */
+        public long toLong() {
+            return key(x, z);
+        }
+
         @Override
         public int hashCode() {
             return hashCode;
@@ -30,7 +30,7 @@ public class GlowChunkSnapshot implements ChunkSnapshot {
     @Getter
     private final ChunkSection[] rawSections;
 
-    private final byte[] height;
+    private final int[] height;
     private final double[] temp;
     private final double[] humid;
     @Getter
@@ -49,7 +49,7 @@ public class GlowChunkSnapshot implements ChunkSnapshot {
      * @param biomes the biome map
      * @param svTemp if true, copy temperature and humidity from the world
      */
-    public GlowChunkSnapshot(int x, int z, World world, ChunkSection[] sections, byte[] height,
+    public GlowChunkSnapshot(int x, int z, World world, ChunkSection[] sections, int[] height,
             byte[] biomes, boolean svTemp, boolean isSlimeChunk) {
         this.x = x;
         this.z = z;
@@ -93,16 +93,12 @@ public class GlowChunkSnapshot implements ChunkSnapshot {
     }
 
     /**
-     * Returns the heightmap, converted to an {@code int[]}.
+     * Returns a copy of the heightmap.
      *
      * @return the heightmap as an {@code int[]}
      */
     public int[] getRawHeightmap() {
-        int[] result = new int[height.length];
-        for (int i = 0; i < result.length; ++i) {
-            result[i] = height[i];
-        }
-        return result;
+        return height.clone();
     }
 
     @Override
@@ -0,0 +1,152 @@
+package net.glowstone.chunk;
+
+import net.glowstone.block.BuiltinMaterialValueManager;
+import net.glowstone.block.MaterialValueManager;
+import net.glowstone.util.VariableValueArray;
+import org.bukkit.Material;
+
+/**
+ * The height of each column of a chunk for one {@link Type} of height map: one plus the y-index
+ * of the highest block in the column that the type counts, or 0 if there is none.
+ *
+ * <p>Heights are packed into 9 bits each, so that a column full to the top of the world can be
+ * told apart from an empty one.
+ */
+public final class HeightMap {
+
+    private static final int BITS_PER_HEIGHT = 9;
+    private static final int SIZE = GlowChunk.WIDTH * GlowChunk.HEIGHT;
+
+    private final VariableValueArray heights = new VariableValueArray(BITS_PER_HEIGHT, SIZE);
+
+    /**
+     * Gets the height of a column.
+     *
+     * @param x the x coordinate of the column within the chunk
+     * @param z the z coordinate of the column within the chunk
+     * @return the height
+     */
+    public int get(int x, int z) {
+        return heights.get(z * GlowChunk.WIDTH + x);
+    }
+
+    /**
+     * Sets the height of a column.
+     *
+     * @param x the x coordinate of the column within the chunk
+     * @param z the z coordinate of the column within the chunk
+     * @param height the height, from 0 to {@link GlowChunk#DEPTH}
+     */
+    void set(int x, int z, int height) {
+        heights.set(z * GlowChunk.WIDTH + x, height);
+    }
+
+    /**
+     * Copies the heights of every column, in the order of Anvil's HeightMap tag.
+     *
+     * @return a new array of the heights
+     */
+    public int[] toArray() {
+        int[] result = new int[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            result[i] = heights.get(i);
+        }
+        return result;
+    }
+
+    /**
+     * Sets the heights of every column.
+     *
+     * @param newHeights the heights, in the order of Anvil's HeightMap tag
+     * @throws IllegalArgumentException if the array is of the wrong length, or a height is out of
+     *         range
+     */
+    void load(int... newHeights) {
+        if (newHeights.length != SIZE) {
+            throw new IllegalArgumentException("Height map not of length " + SIZE);
+        }
+        for (int i = 0; i < SIZE; i++) {
+            int height = newHeights[i];
+            if (height < 0 || height > GlowChunk.DEPTH) {
+                throw new IllegalArgumentException("Height out of range: " + height);
+            }
+            heights.set(i, height);
+        }
+    }
+
+    /**
+     * The kinds of blocks a height map can count.
+     */
+    public enum Type {
+        /**
+         * Any block that isn't air. This is the height map saved as Anvil's HeightMap tag, and the
+         * one used by {@link org.bukkit.World#getHighestBlockYAt(int, int)}.
+         */
+        WORLD_SURFACE,
+        /**
+         * Solid blocks and liquids, which stop falling entities, rain and lightning.
+         */
+        MOTION_BLOCKING,
+        /**
+         * Blocks with a light opacity, the same as the {@link LightEngine}'s. Columns are open to
+         * the sky above this height, and empty sections below it are dark.
+         */
+        LIGHT_BLOCKING;
+
+        private static final Type[] VALUES = values();
+        /**
+         * Whether each block type is counted, as a bit for each height map type.
+         */
+        private static final byte[] COUNTED = new byte[1 << 12];
+
+        static {
+            // the server's light engine takes its opacities from the builtin values too
+            MaterialValueManager materialValues = new BuiltinMaterialValueManager();
+            for (int id = 1; id < COUNTED.length; id++) {
+                Material material = Material.getMaterial(id);
+                int counted = 1 << WORLD_SURFACE.ordinal();
+                if (material == null || material.isSolid() || isLiquid(material)) {
+                    counted |= 1 << MOTION_BLOCKING.ordinal();
+                }
+                if (materialValues.getValues(material).getLightOpacity() > 0) {
+                    counted |= 1 << LIGHT_BLOCKING.ordinal();
+                }
+                COUNTED[id] = (byte) counted;
+            }
+        }
+
+        private static boolean isLiquid(Material material) {
+            return material == Material.WATER || material == Material.STATIONARY_WATER
+                    || material == Material.LAVA || material == Material.STATIONARY_LAVA;
+        }
+
+        /**
+         * Gets the types of height map, in order.
+         *
+         * @return the shared array of every type, which must not be modified
+         */
+        static Type[] all() {
+            return VALUES;
+        }
+
+        /**
+         * Returns whether height maps of this type count a block type.
+         *
+         * @param typeId the id of the block type
+         * @return true if the block type is counted
+         */
+        public boolean counts(int typeId) {
+            return (COUNTED[typeId] >> ordinal() & 1) != 0;
+        }
+
+        /**
+         * Gets the height map types that count a block type.
+         *
+         * @param typeId the id of the block type
+         * @return a bit for each counting type, shifted left by its ordinal
+         */
+        static int countedBy(int typeId) {
+            return COUNTED[typeId];
+        }
+    }
+}
@@ -0,0 +1,756 @@
+package net.glowstone.chunk;
+
+import it.unimi.dsi.fastutil.ints.IntArrayFIFOQueue;
+import it.unimi.dsi.fastutil.longs.Long2IntMap;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayFIFOQueue;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import net.glowstone.GlowWorld;
+import net.glowstone.block.MaterialValueManager;
+import net.glowstone.block.MaterialValueManager.ValueCollection;
+import net.glowstone.entity.GlowPlayer;
+import net.glowstone.i18n.ConsoleMessages;
+import net.glowstone.net.message.play.game.ChunkDataMessage;
+import net.glowstone.util.NibbleArray;
+import org.bukkit.Material;
+import org.bukkit.World.Environment;
+
+/**
+ * Propagates block light and sky light through the chunks of a world.
+ *
+ * <p>Light is updated breadth-first. When a block changes, the light that passed through it is
+ * removed by a decrease pass, after which the light of its surroundings flows back in through an
+ * increase pass. Queued positions are packed into longs together with their light level, so the
+ * passes don't allocate.
+ *
+ * <p>Block changes are recorded as they happen, from any thread, and applied in batches by
+ * {@link #flush()} once per world tick, within a time budget. The sections whose light changed
+ * are then resent once per chunk to the players who can see them. Newly generated chunks are lit
+ * on a background thread, and merged into their neighbors' light by the next flush.
+ *
+ * <p>Empty sections have no light arrays of their own: their sky light is implied by the light
+ * blocking height map (see {@link GlowChunk#getEmptySkyLight}) and their block light is 0, so light
+ * doesn't spread through them.
+ */
+public final class LightEngine {
+
+    /**
+     * The highest light level.
+     */
+    public static final byte MAX_LIGHT = 15;
+    /**
+     * How long a flush may take before the remaining block changes are left for the next one.
+     */
+    private static final long FLUSH_BUDGET_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    /**
+     * The number of block changes whose light is updated together.
+     */
+    private static final int BATCH_SIZE = 512;
+    private static final int TOP = GlowChunk.DEPTH - 1;
+    private static final int ALL_SECTIONS = (1 << GlowChunk.SEC_COUNT) - 1;
+
+    // the six directions; DOWN must stay at index 0
+    private static final int DOWN = 0;
+    private static final int[] DX = {0, 0, -1, 1, 0, 0};
+    private static final int[] DY = {-1, 1, 0, 0, 0, 0};
+    private static final int[] DZ = {0, 0, 0, 0, -1, 1};
+
+    private static final AtomicInteger threadCounter = new AtomicInteger();
+    private static final ExecutorService initialLightingExecutor = Executors.newFixedThreadPool(
+            Math.max(1, Runtime.getRuntime().availableProcessors() / 2), runnable -> {
+                Thread thread = new Thread(runnable,
+                        "Glowstone-lighting-" + threadCounter.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    private final GlowWorld world;
+    private final boolean skyLight;
+    /**
+     * The light opacity of each block type, capped at {@link #MAX_LIGHT}.
+     */
+    private final byte[] opacity = new byte[1 << 12];
+    /**
+     * The light emitted by each block type.
+     */
+    private final byte[] emission = new byte[1 << 12];
+
+    /**
+     * Block changes not yet applied, recorded from any thread.
+     */
+    private final LongArrayList changes = new LongArrayList();
+    /**
+     * Chunks waiting to be lit for the first time, queued from any thread.
+     */
+    private final Queue<GlowChunk> unlitChunks = new ConcurrentLinkedQueue<>();
+    /**
+     * Chunks that have been lit on a background thread, to be merged by the next flush.
+     */
+    private final Queue<InitialLighting> litChunks = new ConcurrentLinkedQueue<>();
+
+    // the rest is only accessed by the world thread, during flushes
+    private final LongArrayList pending = new LongArrayList();
+    private final LongArrayList batch = new LongArrayList(BATCH_SIZE);
+    private final LongArrayList deferred = new LongArrayList();
+    /**
+     * The keys of chunks being lit on a background thread. Their light is ignored, and changes
+     * in them are deferred, until their light is merged.
+     */
+    private final LongSet lighting = new LongOpenHashSet();
+    private final LongArrayFIFOQueue decrease = new LongArrayFIFOQueue();
+    private final LongArrayFIFOQueue increase = new LongArrayFIFOQueue();
+    /**
+     * The chunks looked up during this flush, or null for chunks that can't be lit.
+     */
+    private final Long2ObjectOpenHashMap<GlowChunk> chunks = new Long2ObjectOpenHashMap<>();
+    private long lastChunkKey;
+    private GlowChunk lastChunk;
+    /**
+     * The sections whose light changed, by chunk key, to be sent to players.
+     */
+    private final Long2IntOpenHashMap dirtySections = new Long2IntOpenHashMap();
+
+    /**
+     * Creates the light engine of a world.
+     *
+     * @param world the world
+     * @param materialValues the source of the light opacity and emission of block types
+     */
+    public LightEngine(GlowWorld world, MaterialValueManager materialValues) {
+        this.world = world;
+        skyLight = world.getEnvironment() == Environment.NORMAL;
+        for (int type = 0; type < opacity.length; type++) {
+            ValueCollection values = materialValues.getValues(Material.getMaterial(type));
+            opacity[type] = (byte) Math.min(MAX_LIGHT, values.getLightOpacity());
+            emission[type] = (byte) values.getLightEmission();
+        }
+        clearChunkCache();
+    }
+
+    /**
+     * Records a block change, whose effect on light is applied by the next {@link #flush()}. May
+     * be called from any thread.
+     *
+     * @param x the x coordinate of the block
+     * @param y the y coordinate of the block
+     * @param z the z coordinate of the block
+     * @param oldType the previous type id of the block
+     * @param newType the new type id of the block
+     */
+    public void blockChanged(int x, int y, int z, int oldType, int newType) {
+        if (opacity[oldType] == opacity[newType] && emission[oldType] == emission[newType]) {
+            return;
+        }
+        long pos = pack(x, y, z, 0);
+        synchronized (changes) {
+            changes.add(pos);
+        }
+    }
+
+    /**
+     * Queues a newly generated chunk to be lit on a background thread. May be called from any
+     * thread.
+     *
+     * @param chunk the chunk
+     */
+    public void lightChunk(GlowChunk chunk) {
+        chunk.setLightPopulated(false);
+        unlitChunks.add(chunk);
+    }
+
+    /**
+     * Applies the recorded block changes and merges the light of newly lit chunks, then sends the
+     * sections whose light changed to the players who can see them. Called by the world thread
+     * once per tick.
+     */
+    public void flush() {
+        long deadline = System.nanoTime() + FLUSH_BUDGET_NANOS;
+        try {
+            startInitialLighting();
+            InitialLighting lit;
+            while ((lit = litChunks.poll()) != null) {
+                merge(lit);
+            }
+
+            synchronized (changes) {
+                pending.addAll(changes);
+                changes.clear();
+            }
+            int next = 0;
+            while (next < pending.size() && System.nanoTime() < deadline) {
+                batch.clear();
+                while (batch.size() < BATCH_SIZE && next < pending.size()) {
+                    long pos = pending.getLong(next++);
+                    if (!lighting.isEmpty() && lighting.contains(
+                            GlowChunk.key(unpackX(pos) >> 4, unpackZ(pos) >> 4))) {
+                        deferred.add(pos);
+                    } else {
+                        batch.add(pos);
+                    }
+                }
+                update(false);
+                if (skyLight) {
+                    update(true);
+                }
+            }
+            pending.removeElements(0, next);
+            pending.addAll(deferred);
+            deferred.clear();
+        } finally {
+            clearChunkCache();
+        }
+        sendDirtySections();
+    }
+
+    /**
+     * Checks whether light is up to date: every recorded block change has been applied, and every
+     * newly generated chunk has been lit and merged. Called by the world thread.
+     *
+     * @return true if a {@link #flush()} would have nothing to do
+     */
+    public boolean isIdle() {
+        synchronized (changes) {
+            if (!changes.isEmpty()) {
+                return false;
+            }
+        }
+        return pending.isEmpty() && lighting.isEmpty() && unlitChunks.isEmpty();
+    }
+
+    /**
+     * Updates the light around the block changes in the current batch.
+     *
+     * @param sky true to update sky light; false to update block light
+     */
+    private void update(boolean sky) {
+        for (int i = 0; i < batch.size(); i++) {
+            long pos = batch.getLong(i);
+            int x = unpackX(pos);
+            int y = unpackY(pos);
+            int z = unpackZ(pos);
+            int old = getLight(sky, x, y, z);
+            if (old > 0 && setLight(sky, x, y, z, 0)) {
+                decrease.enqueue(pack(x, y, z, old));
+            }
+        }
+        propagateDecrease(sky);
+
+        for (int i = 0; i < batch.size(); i++) {
+            long pos = batch.getLong(i);
+            int x = unpackX(pos);
+            int y = unpackY(pos);
+            int z = unpackZ(pos);
+            // the block's own light
+            int own;
+            if (sky) {
+                own = y == TOP && getOpacity(x, y, z) == 0 ? MAX_LIGHT : 0;
+            } else {
+                own = getEmission(x, y, z);
+            }
+            if (own > getLight(sky, x, y, z) && setLight(sky, x, y, z, own)) {
+                increase.enqueue(pack(x, y, z, own));
+            }
+            // and the light flowing in from around it
+            for (int d = 0; d < 6; d++) {
+                int ny = y + DY[d];
+                if (ny < 0 || ny > TOP) {
+                    continue;
+                }
+                int level = getLight(sky, x + DX[d], ny, z + DZ[d]);
+                if (level > 1) {
+                    increase.enqueue(pack(x + DX[d], ny, z + DZ[d], level));
+                }
+            }
+        }
+        propagateIncrease(sky);
+    }
+
+    /**
+     * Removes the light that came from the queued positions, which have already been darkened,
+     * and queues the brighter light around the darkened area to flow back in.
+     *
+     * @param sky true for sky light; false for block light
+     */
+    private void propagateDecrease(boolean sky) {
+        while (!decrease.isEmpty()) {
+            long pos = decrease.dequeueLong();
+            int x = unpackX(pos);
+            int y = unpackY(pos);
+            int z = unpackZ(pos);
+            int level = unpackLevel(pos);
+            for (int d = 0; d < 6; d++) {
+                int nx = x + DX[d];
+                int ny = y + DY[d];
+                int nz = z + DZ[d];
+                if (ny < 0 || ny > TOP) {
+                    continue;
+                }
+                int current = getLight(sky, nx, ny, nz);
+                if (current == 0) {
+                    continue;
+                }
+                if (current < level
+                        || isDirectSkyLight(sky, d, level) && current == MAX_LIGHT) {
+                    // this light came from the darkened position
+                    int own = sky ? 0 : getEmission(nx, ny, nz);
+                    if (current > own && setLight(sky, nx, ny, nz, own)) {
+                        decrease.enqueue(pack(nx, ny, nz, current));
+                        if (own > 0) {
+                            increase.enqueue(pack(nx, ny, nz, own));
+                        }
+                        continue;
+                    }
+                }
+                // this light has another source, so it can relight the darkened area
+                increase.enqueue(pack(nx, ny, nz, current));
+            }
+        }
+    }
+
+    /**
+     * Spreads the light of the queued positions to their neighbors.
+     *
+     * @param sky true for sky light; false for block light
+     */
+    private void propagateIncrease(boolean sky) {
+        while (!increase.isEmpty()) {
+            long pos = increase.dequeueLong();
+            int x = unpackX(pos);
+            int y = unpackY(pos);
+            int z = unpackZ(pos);
+            int level = unpackLevel(pos);
+            if (getLight(sky, x, y, z) != level) {
+                // changed since it was queued
+                continue;
+            }
+            for (int d = 0; d < 6; d++) {
+                int nx = x + DX[d];
+                int ny = y + DY[d];
+                int nz = z + DZ[d];
+                if (ny < 0 || ny > TOP) {
+                    continue;
+                }
+                int opacity = getOpacity(nx, ny, nz);
+                int target = isDirectSkyLight(sky, d, level) && opacity == 0
+                        ? MAX_LIGHT : level - Math.max(1, opacity);
+                if (target > getLight(sky, nx, ny, nz) && setLight(sky, nx, ny, nz, target)
+                        && target > 1) {
+                    increase.enqueue(pack(nx, ny, nz, target));
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns whether light travelling in a direction is full sky light going straight down,
+     * which transparent blocks don't dim.
+     */
+    private static boolean isDirectSkyLight(boolean sky, int direction, int level) {
+        return sky && direction == DOWN && level == MAX_LIGHT;
+    }
+
+    // ======== Initial lighting ========
+
+    /**
+     * Snapshots the chunks waiting to be lit, and lights them on background threads.
+     */
+    private void startInitialLighting() {
+        GlowChunk chunk;
+        while ((chunk = unlitChunks.poll()) != null) {
+            ChunkSection[] sections = chunk.getSections();
+            if (sections == null) {
+                continue;
+            }
+            ChunkSection[] snapshots = new ChunkSection[sections.length];
+            for (int i = 0; i < sections.length; i++) {
+                if (sections[i] != null) {
+                    snapshots[i] = sections[i].snapshot();
+                }
+            }
+            lighting.add(GlowChunk.key(chunk.getX(), chunk.getZ()));
+            InitialLighting job = new InitialLighting(chunk, sections, snapshots);
+            initialLightingExecutor.execute(() -> {
+                try {
+                    job.run();
+                } catch (RuntimeException e) {
+                    ConsoleMessages.Error.Chunk.LIGHT_FAILED.log(e, job.chunk.getX(),
+                            job.chunk.getZ());
+                } finally {
+                    litChunks.add(job);
+                }
+            });
+        }
+    }
+
+    /**
+     * Copies the light computed for a chunk into it, then spreads light across its borders with
+     * its neighbors.
+     *
+     * @param job the finished lighting job
+     */
+    private void merge(InitialLighting job) {
+        GlowChunk chunk = job.chunk;
+        long key = GlowChunk.key(chunk.getX(), chunk.getZ());
+        lighting.remove(key);
+        clearChunkCache();
+        ChunkSection[] sections = chunk.getSections();
+        if (sections == null || sections != job.sections || job.blockLight == null) {
+            // unloaded or regenerated since, or failed
+            return;
+        }
+        for (int i = 0; i < sections.length; i++) {
+            if (sections[i] != null && job.blockLight[i] != null) {
+                sections[i].setBlockLight(job.blockLight[i]);
+                if (skyLight) {
+                    sections[i].setSkyLight(job.skyLight[i]);
+                }
+            }
+        }
+        chunk.setLightPopulated(true);
+        dirtySections.put(key, ALL_SECTIONS);
+
+        spreadAcrossBorders(false, chunk.getX() << 4, chunk.getZ() << 4);
+        if (skyLight) {
+            spreadAcrossBorders(true, chunk.getX() << 4, chunk.getZ() << 4);
+        }
+    }
+
+    /**
+     * Spreads light both ways across the borders of a chunk and its loaded neighbors.
+     *
+     * @param sky true for sky light; false for block light
+     * @param baseX the x coordinate of the chunk's first block
+     * @param baseZ the z coordinate of the chunk's first block
+     */
+    private void spreadAcrossBorders(boolean sky, int baseX, int baseZ) {
+        for (int i = 0; i < 16; i++) {
+            for (int y = 0; y <= TOP; y++) {
+                seed(sky, baseX, y, baseZ + i);
+                seed(sky, baseX - 1, y, baseZ + i);
+                seed(sky, baseX + 15, y, baseZ + i);
+                seed(sky, baseX + 16, y, baseZ + i);
+                seed(sky, baseX + i, y, baseZ);
+                seed(sky, baseX + i, y, baseZ - 1);
+                seed(sky, baseX + i, y, baseZ + 15);
+                seed(sky, baseX + i, y, baseZ + 16);
+            }
+        }
+        propagateIncrease(sky);
+    }
+
+    private void seed(boolean sky, int x, int y, int z) {
+        int level = getLight(sky, x, y, z);
+        if (level > 1) {
+            increase.enqueue(pack(x, y, z, level));
+        }
+    }
+
+    /**
+     * Lights a chunk on its own, from a snapshot of its sections.
+     */
+    private final class InitialLighting implements Runnable {
+
+        private static final int CELLS = GlowChunk.DEPTH << 8;
+
+        private final GlowChunk chunk;
+        private final ChunkSection[] sections;
+        private final ChunkSection[] snapshots;
+        private final IntArrayFIFOQueue queue = new IntArrayFIFOQueue();
+        private NibbleArray[] skyLight;
+        private NibbleArray[] blockLight;
+
+        InitialLighting(GlowChunk chunk, ChunkSection[] sections, ChunkSection[] snapshots) {
+            this.chunk = chunk;
+            this.sections = sections;
+            this.snapshots = snapshots;
+        }
+
+        @Override
+        public void run() {
+            // cells are indexed y << 8 | z << 4 | x, as within sections
+            byte[] opacities = new byte[CELLS];
+            byte[] light = new byte[CELLS];
+            for (int i = 0; i < snapshots.length; i++) {
+                if (snapshots[i] == null) {
+                    continue;
+                }
+                char[] types = snapshots[i].getTypes();
+                for (int j = 0; j < types.length; j++) {
+                    int type = types[j] >> 4;
+                    int cell = i << 12 | j;
+                    opacities[cell] = opacity[type];
+                    if (emission[type] > 0) {
+                        light[cell] = emission[type];
+                        queue.enqueue(cell << 4 | emission[type]);
+                    }
+                }
+            }
+            spread(opacities, light, false);
+            NibbleArray[] blockLight = toSections(light);
+
+            NibbleArray[] skyLight = null;
+            if (LightEngine.this.skyLight) {
+                Arrays.fill(light, (byte) 0);
+                // direct light, column by column
+                int[] tops = new int[256];
+                for (int column = 0; column < 256; column++) {
+                    int level = MAX_LIGHT;
+                    for (int y = TOP; y >= 0 && level > 0; y--) {
+                        int cell = y << 8 | column;
+                        if (level < MAX_LIGHT || opacities[cell] > 0) {
+                            if (level == MAX_LIGHT) {
+                                tops[column] = y + 1;
+                            }
+                            level = Math.max(0, level - Math.max(1, opacities[cell]));
+                        }
+                        light[cell] = (byte) level;
+                    }
+                }
+                // then spread sideways from below the highest neighboring shadow
+                for (int column = 0; column < 256; column++) {
+                    int x = column & 0xf;
+                    int z = column >> 4;
+                    int top = tops[column];
+                    if (x > 0) {
+                        top = Math.max(top, tops[column - 1]);
+                    }
+                    if (x < 15) {
+                        top = Math.max(top, tops[column + 1]);
+                    }
+                    if (z > 0) {
+                        top = Math.max(top, tops[column - 16]);
+                    }
+                    if (z < 15) {
+                        top = Math.max(top, tops[column + 16]);
+                    }
+                    for (int y = 0; y < top; y++) {
+                        int cell = y << 8 | column;
+                        if (light[cell] > 1) {
+                            queue.enqueue(cell << 4 | light[cell]);
+                        }
+                    }
+                }
+                spread(opacities, light, true);
+                skyLight = toSections(light);
+            }
+
+            this.skyLight = skyLight;
+            this.blockLight = blockLight;
+        }
+
+        /**
+         * Spreads the queued light within the chunk.
+         */
+        private void spread(byte[] opacities, byte[] light, boolean sky) {
+            while (!queue.isEmpty()) {
+                int entry = queue.dequeueInt();
+                int cell = entry >>> 4;
+                int level = entry & 0xf;
+                if (light[cell] != level) {
+                    continue;
+                }
+                int x = cell & 0xf;
+                int y = cell >>> 8;
+                int z = cell >> 4 & 0xf;
+                for (int d = 0; d < 6; d++) {
+                    int nx = x + DX[d];
+                    int ny = y + DY[d];
+                    int nz = z + DZ[d];
+                    if (nx < 0 || nx > 15 || ny < 0 || ny > TOP || nz < 0 || nz > 15) {
+                        continue;
+                    }
+                    int neighbor = ny << 8 | nz << 4 | nx;
+                    int opacity = opacities[neighbor];
+                    int target = isDirectSkyLight(sky, d, level) && opacity == 0
+                            ? MAX_LIGHT : level - Math.max(1, opacity);
+                    if (target > light[neighbor]) {
+                        light[neighbor] = (byte) target;
+                        if (target > 1) {
+                            queue.enqueue(neighbor << 4 | target);
+                        }
+                    }
+                }
+            }
+        }
+
+        private NibbleArray[] toSections(byte[] light) {
+            NibbleArray[] arrays = new NibbleArray[snapshots.length];
+            for (int i = 0; i < snapshots.length; i++) {
+                if (snapshots[i] == null) {
+                    continue;
+                }
+                byte[] raw = new byte[ChunkSection.ARRAY_SIZE / 2];
+                int base = i << 12;
+                for (int j = 0; j < raw.length; j++) {
+                    raw[j] = (byte) (light[base + 2 * j] | light[base + 2 * j + 1] << 4);
+                }
+                arrays[i] = new NibbleArray(raw);
+            }
+            return arrays;
+        }
+    }
+
+    // ======== Light access ========
+
+    private void clearChunkCache() {
+        chunks.clear();
+        lastChunkKey = Long.MIN_VALUE;
+        lastChunk = null;
+    }
+
+    /**
+     * Looks up a loaded chunk whose light can be read and written.
+     *
+     * @return the chunk, or null if it isn't loaded or is still being lit for the first time
+     */
+    private GlowChunk getChunk(int cx, int cz) {
+        long key = GlowChunk.key(cx, cz);
+        if (key == lastChunkKey) {
+            return lastChunk;
+        }
+        GlowChunk chunk = chunks.get(key);
+        if (chunk == null && !chunks.containsKey(key)) {
+            ChunkManager chunkManager = world.getChunkManager();
+            if (!lighting.contains(key) && chunkManager.isChunkLoaded(cx, cz)) {
+                chunk = chunkManager.getChunk(cx, cz);
+            }
+            chunks.put(key, chunk);
+        }
+        lastChunkKey = key;
+        lastChunk = chunk;
+        return chunk;
+    }
+
+    private int getLight(boolean sky, int x, int y, int z) {
+        GlowChunk chunk = getChunk(x >> 4, z >> 4);
+        ChunkSection[] sections = chunk == null ? null : chunk.getSections();
+        if (sections == null) {
+            return 0;
+        }
+        ChunkSection section = sections[y >> 4];
+        if (section == null) {
+            return sky ? chunk.getEmptySkyLight(x & 0xf, z & 0xf, y) : 0;
+        }
+        return sky ? section.getSkyLight(x & 0xf, y, z & 0xf)
+                : section.getBlockLight(x & 0xf, y, z & 0xf);
+    }
+
+    /**
+     * Sets the light at a position, unless it's in an empty section or a chunk that can't be lit.
+     *
+     * @return whether the light was set
+     */
+    private boolean setLight(boolean sky, int x, int y, int z, int level) {
+        GlowChunk chunk = getChunk(x >> 4, z >> 4);
+        ChunkSection[] sections = chunk == null ? null : chunk.getSections();
+        if (sections == null || sections[y >> 4] == null) {
+            return false;
+        }
+        if (sky) {
+            sections[y >> 4].setSkyLight(x & 0xf, y, z & 0xf, (byte) level);
+        } else {
+            sections[y >> 4].setBlockLight(x & 0xf, y, z & 0xf, (byte) level);
+        }
+        long key = GlowChunk.key(x >> 4, z >> 4);
+        dirtySections.put(key, dirtySections.get(key) | 1 << (y >> 4));
+        return true;
+    }
+
+    /**
+     * Gets the opacity of a block; blocks in chunks that can't be lit block all light.
+     */
+    private int getOpacity(int x, int y, int z) {
+        GlowChunk chunk = getChunk(x >> 4, z >> 4);
+        ChunkSection[] sections = chunk == null ? null : chunk.getSections();
+        if (sections == null) {
+            return MAX_LIGHT;
+        }
+        ChunkSection section = sections[y >> 4];
+        return section == null ? 0 : opacity[section.getType(x & 0xf, y, z & 0xf) >> 4];
+    }
+
+    private int getEmission(int x, int y, int z) {
+        GlowChunk chunk = getChunk(x >> 4, z >> 4);
+        ChunkSection[] sections = chunk == null ? null : chunk.getSections();
+        if (sections == null || sections[y >> 4] == null) {
+            return 0;
+        }
+        return emission[sections[y >> 4].getType(x & 0xf, y, z & 0xf) >> 4];
+    }
+
+    // ======== Sending ========
+
+    /**
+     * Sends the sections whose light changed to the players who can see them.
+     */
+    private void sendDirtySections() {
+        if (dirtySections.isEmpty()) {
+            return;
+        }
+        Collection<GlowPlayer> players = world.getRawPlayers();
+        for (Long2IntMap.Entry entry : dirtySections.long2IntEntrySet()) {
+            int cx = GlowChunk.keyX(entry.getLongKey());
+            int cz = GlowChunk.keyZ(entry.getLongKey());
+            if (!world.isChunkLoaded(cx, cz)) {
+                continue;
+            }
+            // built for the first player who can see the chunk, and shared with the others
+            ChunkDataMessage message = null;
+            for (GlowPlayer player : players) {
+                if (!player.canSeeChunk(cx, cz)) {
+                    continue;
+                }
+                if (message == null) {
+                    message = world.getChunkAt(cx, cz).toMessage(skyLight, entry.getIntValue());
+                }
+                if (message.getPrimaryMask() == 0) {
+                    // only empty sections changed, which clients light themselves
+                    break;
+                }
+                player.getSession().send(message.retainedDuplicate());
+            }
+            if (message != null) {
+                message.getData().release();
+            }
+        }
+        dirtySections.clear();
+    }
+
+    // ======== Packing ========
+
+    /**
+     * Packs a block position and a light level into a long: 26 bits of x, 26 bits of z, 8 bits of
+     * y and 4 bits of light.
+     */
+    static long pack(int x, int y, int z, int level) {
+        return ((long) x & 0x3ffffff) << 38 | ((long) z & 0x3ffffff) << 12 | (y & 0xff) << 4
+                | level;
+    }
+
+    static int unpackX(long packed) {
+        return (int) (packed >> 38);
+    }
+
+    static int unpackY(long packed) {
+        return (int) (packed >>> 4) & 0xff;
+    }
+
+    static int unpackZ(long packed) {
+        return (int) (packed << 26 >> 38);
+    }
+
+    static int unpackLevel(long packed) {
+        return (int) packed & 0xf;
+    }
+}
@@ -0,0 +1,221 @@
+package net.glowstone.chunk;
+
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongList;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import net.glowstone.EventFactory;
+import net.glowstone.GlowWorld;
+import net.glowstone.generator.GlowChunkGenerator;
+import net.glowstone.i18n.ConsoleMessages;
+import org.bukkit.event.world.ChunkPopulateEvent;
+import org.bukkit.generator.BlockPopulator;
+
+/**
+ * Populates batches of chunks, running the populators of chunks that are far enough apart
+ * concurrently.
+ *
+ * <p>Populators write into the 3x3 chunks around the chunk they populate, and block physics can
+ * reach one block further, so two chunks are only populated at the same time if they are at least
+ * {@value #SPACING} chunks apart along an axis, which leaves a chunk that neither of them writes
+ * into between their 3x3 areas. The chunks of a batch are split greedily into phases of such
+ * chunks; the phases run one after another, and the chunks of each phase run on a shared pool of
+ * worker threads.
+ *
+ * <p>Whatever has to happen on the world thread is committed there once a phase is done: the
+ * actions that populators pass to {@link #runOnWorldThread(Runnable)}, such as spawning entities
+ * and chunk load events, and the {@link ChunkPopulateEvent}s, in the order the chunks were given.
+ * A worker doesn't load chunks outside the population area of its chunk, which could race with
+ * another worker reaching the same chunk; they read as air, as if they weren't generated yet.
+ *
+ * <p>Worlds whose populators don't all come from a built-in generator, which might not expect to
+ * run on another thread, are populated one chunk at a time on the calling thread, as before.
+ */
+public final class PopulationScheduler {
+
+    /**
+     * The smallest distance in chunks, along either axis, between chunks populated at once.
+     */
+    public static final int SPACING = 4;
+
+    private static final AtomicInteger threadCounter = new AtomicInteger();
+    private static final int THREADS = Math.max(1,
+            Runtime.getRuntime().availableProcessors() / 2);
+    private static final ExecutorService populationExecutor = Executors.newFixedThreadPool(
+            THREADS, runnable -> {
+                Thread thread = new Thread(runnable,
+                        "Glowstone-population-" + threadCounter.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            });
+    /**
+     * The actions to commit on the world thread, while the current thread populates a chunk.
+     */
+    private static final ThreadLocal<List<Runnable>> deferred = new ThreadLocal<>();
+
+    private final GlowWorld world;
+    private final ChunkManager chunkManager;
+
+    PopulationScheduler(GlowWorld world, ChunkManager chunkManager) {
+        this.world = world;
+        this.chunkManager = chunkManager;
+    }
+
+    /**
+     * Runs an action on the world thread. While a chunk is being populated on a worker thread,
+     * the action is run once the chunk's phase is done; otherwise, it is run immediately.
+     *
+     * @param action the action
+     */
+    public static void runOnWorldThread(Runnable action) {
+        List<Runnable> actions = deferred.get();
+        if (actions == null) {
+            action.run();
+        } else {
+            actions.add(action);
+        }
+    }
+
+    /**
+     * Checks whether the current thread is populating a chunk concurrently with other chunks, and
+     * so must not read or generate chunks outside the chunk's population area.
+     *
+     * @return true on a worker thread populating a chunk
+     */
+    static boolean isPopulatingConcurrently() {
+        return deferred.get() != null;
+    }
+
+    /**
+     * Populates the chunks that aren't populated yet, first loading or generating the chunks
+     * around them. Must be called on the world thread.
+     *
+     * @param keys the chunks, by {@link GlowChunk#key(int, int)}
+     */
+    public void populate(LongList keys) {
+        if (THREADS == 1 || keys.size() == 1 || !isThreadSafe()) {
+            for (int i = 0; i < keys.size(); i++) {
+                long key = keys.getLong(i);
+                chunkManager.forcePopulation(GlowChunk.keyX(key), GlowChunk.keyZ(key));
+            }
+            return;
+        }
+
+        for (LongList phase : splitIntoPhases(keys)) {
+            populatePhase(phase);
+        }
+    }
+
+    /**
+     * Splits chunks greedily into phases of chunks that are at least {@value #SPACING} chunks
+     * apart along an axis, each chunk going into the first phase it fits in.
+     *
+     * @param keys the chunks, by {@link GlowChunk#key(int, int)}
+     * @return the phases, each keeping the order of its chunks in {@code keys}
+     */
+    static List<LongList> splitIntoPhases(LongList keys) {
+        List<LongList> phases = new ArrayList<>();
+        List<LongSet> members = new ArrayList<>();
+        for (int i = 0; i < keys.size(); i++) {
+            long key = keys.getLong(i);
+            int x = GlowChunk.keyX(key);
+            int z = GlowChunk.keyZ(key);
+            int phase = 0;
+            while (phase < phases.size() && conflicts(members.get(phase), x, z)) {
+                phase++;
+            }
+            if (phase == phases.size()) {
+                phases.add(new LongArrayList());
+                members.add(new LongOpenHashSet());
+            }
+            phases.get(phase).add(key);
+            members.get(phase).add(key);
+        }
+        return phases;
+    }
+
+    private void populatePhase(LongList keys) {
+        // loading and generating the surroundings stays on this thread
+        List<GlowChunk> chunks = new ArrayList<>(keys.size());
+        for (int i = 0; i < keys.size(); i++) {
+            long key = keys.getLong(i);
+            try {
+                GlowChunk chunk = chunkManager.preparePopulation(
+                        GlowChunk.keyX(key), GlowChunk.keyZ(key), true);
+                if (chunk != null) {
+                    chunks.add(chunk);
+                }
+            } catch (Throwable ex) {
+                ConsoleMessages.Error.Chunk.POP_FAILED.log(ex, GlowChunk.keyX(key),
+                        GlowChunk.keyZ(key));
+            }
+        }
+
+        List<CompletableFuture<List<Runnable>>> results = new ArrayList<>(chunks.size());
+        for (GlowChunk chunk : chunks) {
+            results.add(CompletableFuture.supplyAsync(
+                    () -> runPopulators(chunk), populationExecutor));
+        }
+
+        for (int i = 0; i < chunks.size(); i++) {
+            GlowChunk chunk = chunks.get(i);
+            try {
+                results.get(i).join().forEach(Runnable::run);
+            } catch (Throwable ex) {
+                ConsoleMessages.Error.Chunk.POP_FAILED.log(ex, chunk.getX(), chunk.getZ());
+            }
+        }
+    }
+
+    /**
+     * Runs the populators of a chunk on the current thread, deferring its actions on the world
+     * thread. If a populator fails, the failure is logged and what the populators did before it
+     * stays, as when populating on the world thread, so their actions are kept too.
+     *
+     * @param chunk the chunk
+     * @return the actions to run on the world thread, ending with the chunk's
+     *         {@link ChunkPopulateEvent} if its populators succeeded
+     */
+    List<Runnable> runPopulators(GlowChunk chunk) {
+        List<Runnable> actions = new ArrayList<>();
+        deferred.set(actions);
+        try {
+            chunkManager.runPopulators(chunk);
+            actions.add(() -> EventFactory.getInstance().callEvent(new ChunkPopulateEvent(chunk)));
+        } catch (Throwable ex) {
+            ConsoleMessages.Error.Chunk.POP_FAILED.log(ex, chunk.getX(), chunk.getZ());
+        } finally {
+            deferred.remove();
+        }
+        return actions;
+    }
+
+    private boolean isThreadSafe() {
+        if (!(chunkManager.getGenerator() instanceof GlowChunkGenerator)) {
+            return false;
+        }
+        for (BlockPopulator populator : world.getPopulators()) {
+            if (!populator.getClass().getName().startsWith("net.glowstone.")) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean conflicts(LongSet phase, int x, int z) {
+        for (int dx = 1 - SPACING; dx < SPACING; dx++) {
+            for (int dz = 1 - SPACING; dz < SPACING; dz++) {
+                if (phase.contains(GlowChunk.key(x + dx, z + dz))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
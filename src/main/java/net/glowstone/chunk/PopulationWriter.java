@@ -0,0 +1,285 @@
+package net.glowstone.chunk;
+
+import java.util.ArrayList;
+import java.util.List;
+import lombok.Getter;
+import net.glowstone.GlowWorld;
+import net.glowstone.block.BlockAccess;
+import net.glowstone.entity.GlowPlayer;
+import net.glowstone.net.message.play.game.ChunkDataMessage;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.World.Environment;
+import org.bukkit.material.MaterialData;
+
+/**
+ * Writes the blocks that populators place, such as trees, ores and plants.
+ *
+ * <p>While a chunk is being populated, the writer of the thread populating it writes raw states
+ * straight into the sections of the 3x3 chunks around it, keeping the height maps up to date for
+ * the populators that run later, but without creating {@link net.glowstone.block.GlowBlock}s,
+ * applying physics or telling players about each block. Writes outside those chunks are dropped,
+ * since other threads might be populating the chunks beyond. Once the populators are done, the
+ * changed sections of each chunk are resent once to the players who can see it.
+ *
+ * <p>Outside of population, {@link #of(World)} returns a writer that sets blocks the usual way,
+ * one block at a time with physics.
+ */
+public final class PopulationWriter {
+
+    private static final ThreadLocal<PopulationWriter> current = new ThreadLocal<>();
+
+    @Getter
+    private final GlowWorld world;
+    private final int minChunkX;
+    private final int minChunkZ;
+    /**
+     * The chunks of the population area, by {@code dx * 3 + dz}, or null outside of population.
+     */
+    private final GlowChunk[] chunks;
+    /**
+     * The changed sections of each chunk of the population area, by bit.
+     */
+    private final int[] sectionMasks;
+    private final BlockAccess access;
+    private PopulationWriter previous;
+
+    private PopulationWriter(GlowWorld world, int chunkX, int chunkZ, boolean populating) {
+        this.world = world;
+        minChunkX = chunkX - 1;
+        minChunkZ = chunkZ - 1;
+        chunks = populating ? new GlowChunk[9] : null;
+        sectionMasks = populating ? new int[9] : null;
+        access = new BlockAccess(world);
+    }
+
+    /**
+     * Gets the writer for placing blocks in a world: the writer of the chunk being populated by the
+     * current thread, if any, or else a writer that sets blocks one at a time.
+     *
+     * @param world the world
+     * @return the writer
+     */
+    public static PopulationWriter of(World world) {
+        PopulationWriter writer = current.get();
+        if (writer != null && writer.world == world) {
+            return writer;
+        }
+        return new PopulationWriter((GlowWorld) world, 0, 0, false);
+    }
+
+    /**
+     * Starts populating a chunk on the current thread.
+     *
+     * @param world the world
+     * @param chunkX the X coordinate of the chunk
+     * @param chunkZ the Z coordinate of the chunk
+     * @return the writer, which must be {@linkplain #finish() finished} on the same thread
+     */
+    static PopulationWriter begin(GlowWorld world, int chunkX, int chunkZ) {
+        PopulationWriter writer = new PopulationWriter(world, chunkX, chunkZ, true);
+        writer.previous = current.get();
+        current.set(writer);
+        return writer;
+    }
+
+    /**
+     * Checks whether a chunk is in the population area of the chunk that the current thread is
+     * populating in a world.
+     *
+     * @param world the world
+     * @param chunkX the X coordinate of the chunk
+     * @param chunkZ the Z coordinate of the chunk
+     * @return true if the current thread is populating a chunk next to it or the chunk itself
+     */
+    static boolean isInPopulationArea(World world, int chunkX, int chunkZ) {
+        PopulationWriter writer = current.get();
+        if (writer == null || writer.world != world) {
+            return false;
+        }
+        int dx = chunkX - writer.minChunkX;
+        int dz = chunkZ - writer.minChunkZ;
+        return dx >= 0 && dx < 3 && dz >= 0 && dz < 3;
+    }
+
+    /**
+     * Stops populating on the current thread, and sends the changed sections of each chunk to the
+     * players who can see it, on the world thread.
+     */
+    void finish() {
+        if (previous == null) {
+            current.remove();
+        } else {
+            current.set(previous);
+        }
+        for (int i = 0; i < chunks.length; i++) {
+            if (sectionMasks[i] != 0) {
+                GlowChunk chunk = chunks[i];
+                int sectionMask = sectionMasks[i];
+                PopulationScheduler.runOnWorldThread(() -> send(chunk, sectionMask));
+            }
+        }
+    }
+
+    /**
+     * Gets the raw state of a block: its type id shifted left by 4, and its data in the lowest 4
+     * bits.
+     *
+     * @param x the x coordinate of the block
+     * @param y the y coordinate of the block
+     * @param z the z coordinate of the block
+     * @return the raw state, or 0 for air and blocks outside the world's height
+     */
+    public int getState(int x, int y, int z) {
+        GlowChunk chunk = getChunk(x, z);
+        if (chunk == null) {
+            return access.moveTo(x, y, z).getState();
+        }
+        if (y < 0 || y >= GlowChunk.DEPTH || !chunk.load()) {
+            return 0;
+        }
+        ChunkSection section = chunk.getSections()[y >> 4];
+        return section == null ? 0 : section.getType(x & 0xf, y, z & 0xf);
+    }
+
+    /**
+     * Gets the type of a block.
+     *
+     * @param x the x coordinate of the block
+     * @param y the y coordinate of the block
+     * @param z the z coordinate of the block
+     * @return the type
+     */
+    public Material getType(int x, int y, int z) {
+        return Material.getMaterial(getState(x, y, z) >> 4);
+    }
+
+    /**
+     * Returns whether a block is air.
+     *
+     * @param x the x coordinate of the block
+     * @param y the y coordinate of the block
+     * @param z the z coordinate of the block
+     * @return true if the block is air
+     */
+    public boolean isEmpty(int x, int y, int z) {
+        return getState(x, y, z) == 0;
+    }
+
+    /**
+     * Sets the raw state of a block. Does nothing if the block is outside the world's height or
+     * the population area.
+     *
+     * @param x the x coordinate of the block
+     * @param y the y coordinate of the block
+     * @param z the z coordinate of the block
+     * @param state the type id shifted left by 4, with the data in the lowest 4 bits
+     */
+    @SuppressWarnings("deprecation")
+    public void setState(int x, int y, int z, int state) {
+        if (y < 0 || y >= GlowChunk.DEPTH) {
+            return;
+        }
+        if (chunks == null) {
+            world.getBlockAt(x, y, z).setTypeIdAndData(state >> 4, (byte) (state & 0xf), true);
+            return;
+        }
+        int index = getIndex(x, z);
+        if (index < 0) {
+            return;
+        }
+        GlowChunk chunk = getChunk(index);
+        int oldState = chunk.setState(x & 0xf, z & 0xf, y, state, true);
+        if (oldState >= 0 && oldState != state) {
+            sectionMasks[index] |= 1 << (y >> 4);
+        }
+    }
+
+    /**
+     * Sets the type of a block, with data 0.
+     *
+     * @param x the x coordinate of the block
+     * @param y the y coordinate of the block
+     * @param z the z coordinate of the block
+     * @param type the type
+     */
+    @SuppressWarnings("deprecation")
+    public void setType(int x, int y, int z, Material type) {
+        setState(x, y, z, type.getId() << 4);
+    }
+
+    /**
+     * Sets the type and data of a block.
+     *
+     * @param x the x coordinate of the block
+     * @param y the y coordinate of the block
+     * @param z the z coordinate of the block
+     * @param type the type
+     * @param data the data
+     */
+    @SuppressWarnings("deprecation")
+    public void setType(int x, int y, int z, Material type, int data) {
+        setState(x, y, z, type.getId() << 4 | data & 0xf);
+    }
+
+    /**
+     * Sets the type and data of a block.
+     *
+     * @param x the x coordinate of the block
+     * @param y the y coordinate of the block
+     * @param z the z coordinate of the block
+     * @param data the type and data
+     */
+    @SuppressWarnings("deprecation")
+    public void setType(int x, int y, int z, MaterialData data) {
+        setType(x, y, z, data.getItemType(), data.getData());
+    }
+
+    private int getIndex(int x, int z) {
+        int dx = (x >> 4) - minChunkX;
+        int dz = (z >> 4) - minChunkZ;
+        return dx >= 0 && dx < 3 && dz >= 0 && dz < 3 ? dx * 3 + dz : -1;
+    }
+
+    /**
+     * Gets a chunk of the population area.
+     *
+     * @param x the x coordinate of a block in the chunk
+     * @param z the z coordinate of a block in the chunk
+     * @return the chunk, or null if this writer isn't populating or the chunk is outside the area
+     */
+    private GlowChunk getChunk(int x, int z) {
+        if (chunks == null) {
+            return null;
+        }
+        int index = getIndex(x, z);
+        return index < 0 ? null : getChunk(index);
+    }
+
+    private GlowChunk getChunk(int index) {
+        GlowChunk chunk = chunks[index];
+        if (chunk == null) {
+            chunk = world.getChunkAt(minChunkX + index / 3, minChunkZ + index % 3);
+            chunks[index] = chunk;
+        }
+        return chunk;
+    }
+
+    private void send(GlowChunk chunk, int sectionMask) {
+        List<GlowPlayer> viewers = new ArrayList<>();
+        for (GlowPlayer player : world.getRawPlayers()) {
+            if (player.canSeeChunk(chunk.getX(), chunk.getZ())) {
+                viewers.add(player);
+            }
+        }
+        if (viewers.isEmpty()) {
+            return;
+        }
+        ChunkDataMessage message = chunk.toChangedSectionsMessage(
+                world.getEnvironment() == Environment.NORMAL, sectionMask);
+        for (GlowPlayer player : viewers) {
+            player.sendBlockChanges(message.retainedDuplicate());
+        }
+        message.getData().release();
+    }
+}
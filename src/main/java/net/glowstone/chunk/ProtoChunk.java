@@ -0,0 +1,82 @@
+package net.glowstone.chunk;
+
+import lombok.Getter;
+
+/**
+ * A chunk that has been generated but not populated, lit or shown to anyone, such as the chunks
+ * around a chunk being populated. It only holds the generated sections, whose blocks are kept in
+ * palette storage and whose light is shared, and the biomes, and is turned into a full
+ * {@link GlowChunk} once the chunk is loaded.
+ */
+@Getter
+public final class ProtoChunk {
+
+    /**
+     * The chunk X coordinate.
+     */
+    private final int x;
+    /**
+     * The chunk Z coordinate.
+     */
+    private final int z;
+    /**
+     * The sections, by section Y coordinate; null for empty sections.
+     */
+    private final ChunkSection[] sections;
+    /**
+     * The biome of each column, indexed by {@code z * 16 + x}.
+     */
+    private final byte[] biomes;
+
+    /**
+     * Creates a proto-chunk.
+     *
+     * @param x the chunk X coordinate
+     * @param z the chunk Z coordinate
+     * @param sections the sections, which the proto-chunk takes ownership of
+     * @param biomes the biomes, which the proto-chunk takes ownership of
+     */
+    public ProtoChunk(int x, int z, ChunkSection[] sections, byte[] biomes) {
+        if (biomes.length != GlowChunk.WIDTH * GlowChunk.HEIGHT) {
+            throw new IllegalArgumentException("Biomes array not of length "
+                    + GlowChunk.WIDTH * GlowChunk.HEIGHT);
+        }
+        this.x = x;
+        this.z = z;
+        this.sections = sections;
+        this.biomes = biomes;
+    }
+
+    /**
+     * Fills a chunk's sections, biomes and height maps from this proto-chunk, without lighting
+     * it. The proto-chunk must not be used afterwards, since the chunk owns its sections.
+     *
+     * @param chunk the chunk, which must not be loaded yet
+     */
+    public void initialize(GlowChunk chunk) {
+        chunk.initializeSections(sections);
+        chunk.setBiomes(biomes);
+        chunk.automaticHeightMap();
+    }
+
+    /**
+     * Takes a snapshot of this proto-chunk, which can be read on another thread while this one is
+     * turned into a chunk that keeps changing. The sections are copy-on-write snapshots.
+     *
+     * @return the snapshot
+     */
+    public ProtoChunk snapshot() {
+        ChunkSection[] snapshots = new ChunkSection[sections.length];
+        for (int y = 0; y < sections.length; y++) {
+            if (sections[y] != null) {
+                snapshots[y] = sections[y].snapshot();
+            }
+        }
+        return new ProtoChunk(x, z, snapshots, biomes.clone());
+    }
+
+    @Override
+    public String toString() {
+        return "ProtoChunk{x=" + x + ",z=" + z + '}';
+    }
+}
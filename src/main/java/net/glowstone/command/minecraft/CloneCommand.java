@@ -5,6 +5,7 @@ import java.util.ResourceBundle;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import net.glowstone.GlowWorld;
+import net.glowstone.block.BlockEditSession;
 import net.glowstone.block.GlowBlock;
 import net.glowstone.block.entity.BlockEntity;
 import net.glowstone.command.CommandUtils;
@@ -189,6 +190,7 @@ public class CloneCommand extends GlowVanillaCommand {
         Iterator<Location> toIterator = toRegion
                 .blockLocations(directionX, directionY, directionZ).iterator();
 
+        BlockEditSession session = new BlockEditSession(world, false);
         while (fromIterator.hasNext() && toIterator.hasNext()) {
             Location fromLocation = fromIterator.next();
             Location toLocation = toIterator.next();
@@ -196,14 +198,16 @@ public class CloneCommand extends GlowVanillaCommand {
             GlowBlock fromBlock = world.getBlockAt(fromLocation);
 
             if (blockFilter.shouldClone(fromBlock)) {
-                GlowBlock toBlock = world.getBlockAt(toLocation);
-                toBlock.setTypeIdAndData(fromBlock.getTypeId(), fromBlock.getData(), false);
+                int toX = toLocation.getBlockX();
+                int toY = toLocation.getBlockY();
+                int toZ = toLocation.getBlockZ();
+                session.setTypeIdAndData(toX, toY, toZ, fromBlock.getTypeId(),
+                        fromBlock.getData());
 
                 BlockEntity fromEntity = fromBlock.getBlockEntity();
                 if (fromEntity != null) {
-                    BlockEntity toEntity = toBlock.getChunk()
-                            .createEntity(toBlock.getX(), toBlock.getY(), toBlock
-                                    .getZ(), toBlock.getTypeId());
+                    BlockEntity toEntity = world.getChunkAt(toX >> 4, toZ >> 4)
+                            .createEntity(toX & 0xf, toY, toZ & 0xf, fromBlock.getTypeId());
                     if (toEntity != null) {
                         CompoundTag entityTag = new CompoundTag();
                         fromEntity.saveNbt(entityTag);
@@ -212,12 +216,14 @@ public class CloneCommand extends GlowVanillaCommand {
                 }
 
                 if (cloneMode == CloneMode.MOVE) {
-                    fromBlock.setType(Material.AIR, false);
+                    session.setTypeIdAndData(fromBlock.getX(), fromBlock.getY(),
+                            fromBlock.getZ(), 0, 0);
                 }
 
                 blocksCloned++;
             }
         }
+        session.flush();
         switch (blocksCloned) {
             case 0:
                 new LocalizedStringImpl("clone.done.zero", bundle)
@@ -1,51 +1,76 @@
 package net.glowstone.entity;
 
-import java.util.HashSet;
-import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * Manager responsible for allocating all entity ids on the server.
+ *
+ * <p>Used ids are tracked in a bitmap of 64-bit words. Each thread claims a whole word at a time
+ * and hands out its free bits in ascending order, so world threads allocating at the same time
+ * rarely touch the same memory, and neither allocating nor freeing takes a lock. Words are claimed
+ * round-robin over the bitmap, so a freed id is only reused once every other word has had its
+ * turn; the bitmap only grows when a full pass finds no free id.
  */
 public class EntityIdManager {
 
     /**
-     * A set containing all used entity ids.
+     * Returned by {@link #claimBit(int, int)} when the word is full; 0 is never a valid id.
      */
-    private final Set<Integer> usedIds = new HashSet<>();
+    private static final int NONE = 0;
+    private static final int SEGMENT_SHIFT = 16;
+    private static final int SEGMENT_WORDS = 1 << SEGMENT_SHIFT;
+    /**
+     * Enough segments to cover every 32-bit id.
+     */
+    private static final int MAX_SEGMENTS = 1 << (Integer.SIZE - 6 - SEGMENT_SHIFT);
 
     /**
-     * The last assigned id value.
+     * Bitmap segments of used ids, each covering {@code 64 * SEGMENT_WORDS} ids.
+     */
+    private final AtomicReferenceArray<AtomicLongArray> segments
+            = new AtomicReferenceArray<>(MAX_SEGMENTS);
+    /**
+     * The number of segments in use, all of which have been created.
+     */
+    private volatile int segmentCount;
+    /**
+     * Counts claimed words; taken modulo the bitmap size to find the next word to claim.
+     */
+    private final AtomicLong cursor = new AtomicLong();
+    /**
+     * The word each thread is currently handing out ids from (or -1), and the lowest bit in it
+     * that the thread has not yet handed out.
      */
-    private int lastId;
+    private final ThreadLocal<int[]> currentWord
+            = ThreadLocal.withInitial(() -> new int[] {-1, Long.SIZE});
+
+    public EntityIdManager() {
+        grow(0);
+    }
 
     /**
-     * Allocates the id for an entity. This method performs synchronization as it might be accessed
-     * by multiple world threads simultaneously.
+     * Allocates the id for an entity. This method is safe to call from multiple world threads
+     * simultaneously.
      *
      * @param entity The entity.
      * @return The id.
      */
-    synchronized int allocate(GlowEntity entity) {
+    int allocate(GlowEntity entity) {
         if (entity.entityId != 0) {
             throw new IllegalStateException("Entity already has an id assigned.");
         }
 
-        int startedAt = lastId;
-        // intentionally wraps around integer boundaries
-        for (int id = lastId + 1; id != startedAt; ++id) {
-            // skip special values
-            if (id == -1 || id == 0) {
-                continue;
-            }
-
-            if (usedIds.add(id)) {
-                entity.entityId = id;
-                lastId = id;
-                return id;
-            }
+        int[] word = currentWord.get();
+        int id = claimBit(word[0], word[1]);
+        while (id == NONE) {
+            word[0] = claimWord();
+            id = claimBit(word[0], 0);
         }
-
-        throw new IllegalStateException("No free entity ids");
+        word[1] = (id & 63) + 1;
+        entity.entityId = id;
+        return id;
     }
 
     /**
@@ -53,11 +78,90 @@ public class EntityIdManager {
      *
      * @param entity The entity.
      */
-    synchronized void deallocate(GlowEntity entity) {
+    void deallocate(GlowEntity entity) {
         if (entity.entityId == 0) {
             throw new IllegalStateException("Entity does not have an id assigned.");
         }
-        usedIds.remove(entity.entityId);
+        int word = entity.entityId >>> 6;
+        long mask = 1L << (entity.entityId & 63);
+        AtomicLongArray segment = segments.get(word >>> SEGMENT_SHIFT);
+        if (segment == null) {
+            return;
+        }
+        int index = word & (SEGMENT_WORDS - 1);
+        long bits;
+        do {
+            bits = segment.get(index);
+        } while ((bits & mask) != 0 && !segment.compareAndSet(index, bits, bits & ~mask));
     }
 
+    /**
+     * Marks the lowest free id in a word, at or above the given bit, as used.
+     *
+     * @param word the index of the word, or -1
+     * @param fromBit the lowest bit to consider
+     * @return the id, or {@link #NONE} if there is no such free id
+     */
+    private int claimBit(int word, int fromBit) {
+        if (word < 0 || fromBit >= Long.SIZE) {
+            return NONE;
+        }
+        AtomicLongArray segment = segments.get(word >>> SEGMENT_SHIFT);
+        int index = word & (SEGMENT_WORDS - 1);
+        while (true) {
+            long bits = segment.get(index);
+            long candidates = ~bits & (-1L << fromBit);
+            if (candidates == 0) {
+                return NONE;
+            }
+            long free = Long.lowestOneBit(candidates);
+            if (segment.compareAndSet(index, bits, bits | free)) {
+                return word << 6 | Long.numberOfTrailingZeros(free);
+            }
+        }
+    }
+
+    /**
+     * Claims the next word that still has a free id, growing the bitmap if none does.
+     *
+     * @return the index of the word
+     */
+    private int claimWord() {
+        while (true) {
+            int count = segmentCount;
+            long words = (long) count << SEGMENT_SHIFT;
+            for (long i = 0; i < words; i++) {
+                int word = (int) (cursor.getAndIncrement() % words);
+                AtomicLongArray segment = segments.get(word >>> SEGMENT_SHIFT);
+                if (segment.get(word & (SEGMENT_WORDS - 1)) != -1L) {
+                    return word;
+                }
+            }
+            grow(count);
+        }
+    }
+
+    /**
+     * Adds a segment to the bitmap, unless another thread already has.
+     *
+     * @param expectedCount the segment count the caller found to be full
+     */
+    private synchronized void grow(int expectedCount) {
+        if (segmentCount != expectedCount) {
+            return;
+        }
+        if (expectedCount == MAX_SEGMENTS) {
+            throw new IllegalStateException("No free entity ids");
+        }
+        AtomicLongArray segment = new AtomicLongArray(SEGMENT_WORDS);
+        // skip special values
+        if (expectedCount == 0) {
+            segment.set(0, 1L); // 0
+        }
+        if (expectedCount == MAX_SEGMENTS - 1) {
+            segment.set(SEGMENT_WORDS - 1, 1L << 63); // -1
+        }
+        segments.set(expectedCount, segment);
+        segmentCount = expectedCount + 1;
+    }
 }
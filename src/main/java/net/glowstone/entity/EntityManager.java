@@ -6,20 +6,20 @@ import com.destroystokyo.paper.event.entity.EntityAddToWorldEvent;
 import com.destroystokyo.paper.event.entity.EntityRemoveFromWorldEvent;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Sets;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
 import net.glowstone.EventFactory;
 import net.glowstone.chunk.GlowChunk;
 import net.glowstone.entity.physics.BoundingBox;
 import org.bukkit.Chunk;
 import org.bukkit.Location;
 import org.bukkit.entity.Entity;
+import org.bukkit.util.Vector;
 
 /**
  * A class which manages all of the entities within a world.
@@ -40,6 +40,11 @@ public class EntityManager implements Iterable<GlowEntity> {
             = newSetMultimap(new ConcurrentHashMap<>(),
                     Sets::newConcurrentHashSet);
 
+    /**
+     * A grid of all entities by position, used for area queries.
+     */
+    private final EntitySpatialIndex spatialIndex = new EntitySpatialIndex();
+
     /**
      * Returns all entities with the specified type.
      *
@@ -87,6 +92,11 @@ public class EntityManager implements Iterable<GlowEntity> {
         }
         entities.put(entity.entityId, entity);
         groupedEntities.put(entity.getClass(), entity);
+        spatialIndex.add(entity, entity.location.getX(), entity.location.getY(),
+                entity.location.getZ());
+        if (entity.boundingBox != null) {
+            spatialIndex.includeExtent(entity.boundingBox);
+        }
         ((GlowChunk) entity.location.getChunk()).getRawEntities().add(entity);
         EventFactory.getInstance().callEvent(
                 new EntityAddToWorldEvent(entity)
@@ -102,6 +112,7 @@ public class EntityManager implements Iterable<GlowEntity> {
         EventFactory.getInstance().callEvent(new EntityRemoveFromWorldEvent(entity));
         entities.remove(entity.entityId);
         groupedEntities.remove(entity.getClass(), entity);
+        spatialIndex.remove(entity);
         ((GlowChunk) entity.location.getChunk()).getRawEntities().remove(entity);
     }
 
@@ -118,6 +129,17 @@ public class EntityManager implements Iterable<GlowEntity> {
             ((GlowChunk) prevChunk).getRawEntities().remove(entity);
             ((GlowChunk) newChunk).getRawEntities().add(entity);
         }
+        spatialIndex.move(entity, newLocation.getX(), newLocation.getY(), newLocation.getZ());
+    }
+
+    /**
+     * Notes that an entity's bounding box has been created or resized, so that area queries are
+     * widened enough to find it.
+     *
+     * @param box The entity's bounding box.
+     */
+    void resize(BoundingBox box) {
+        spatialIndex.includeExtent(box);
     }
 
     @Override
@@ -133,9 +155,39 @@ public class EntityManager implements Iterable<GlowEntity> {
      * @return the entities contained in or touching {@code searchBox}, other than {@code except}
      */
     public List<Entity> getEntitiesInside(BoundingBox searchBox, GlowEntity except) {
-        // todo: narrow search based on the box's corners
-        return entities.values().stream()
-            .filter(entity -> entity != except && entity.intersects(searchBox))
-            .collect(Collectors.toCollection(LinkedList::new));
+        List<Entity> result = new ArrayList<>();
+        spatialIndex.getEntitiesInside(searchBox, except, result);
+        return result;
+    }
+
+    /**
+     * Returns all entities whose bounding box comes within the given distance of a point, with
+     * optionally one exception.
+     * @param center the point to measure from
+     * @param radius the maximum distance from {@code center}
+     * @param except the entity to exclude, or null to include all
+     * @return the entities within {@code radius} of {@code center}, other than {@code except}
+     */
+    public List<Entity> getEntitiesInRadius(Location center, double radius, GlowEntity except) {
+        List<Entity> result = new ArrayList<>();
+        spatialIndex.getEntitiesInRadius(center.getX(), center.getY(), center.getZ(), radius,
+                except, result);
+        return result;
+    }
+
+    /**
+     * Returns all entities whose bounding box is hit by a ray, with optionally one exception. The
+     * entities are not sorted by distance.
+     * @param origin the start of the ray
+     * @param direction the direction of the ray
+     * @param maxDistance the length of the ray
+     * @param except the entity to exclude, or null to include all
+     * @return the entities hit by the ray, other than {@code except}
+     */
+    public List<Entity> getEntitiesOnRay(Vector origin, Vector direction, double maxDistance,
+            GlowEntity except) {
+        List<Entity> result = new ArrayList<>();
+        spatialIndex.getEntitiesOnRay(origin, direction, maxDistance, except, result);
+        return result;
     }
 }
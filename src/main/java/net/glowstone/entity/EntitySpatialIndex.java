@@ -0,0 +1,427 @@
+package net.glowstone.entity;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import java.util.Collection;
+import java.util.concurrent.locks.StampedLock;
+import net.glowstone.entity.physics.BoundingBox;
+import org.bukkit.util.Vector;
+
+/**
+ * A uniform grid over a world's entities, used to answer box, radius and ray queries without
+ * visiting every entity in the world.
+ *
+ * <p>Entities are filed under the 16×16×16 cell containing their location. Because a bounding box
+ * may stick out of that cell, queries are widened by the largest bounding box extent the index has
+ * seen. As with {@link GlowEntity#intersects(BoundingBox)}, entities without a bounding box are
+ * never returned.
+ *
+ * <p>Queries allocate nothing besides what the caller's output collection allocates.
+ */
+final class EntitySpatialIndex {
+
+    private static final int CELL_SHIFT = 4;
+
+    private final Long2ObjectOpenHashMap<Cell> cells = new Long2ObjectOpenHashMap<>();
+    /**
+     * Every non-empty cell, so that queries larger than the populated area can scan the cells
+     * rather than the grid.
+     */
+    private final ObjectArrayList<Cell> occupied = new ObjectArrayList<>();
+    private final StampedLock lock = new StampedLock();
+
+    private volatile double maxHalfWidth;
+    private volatile double maxHeight;
+
+    /**
+     * Packs cell coordinates into a single key.
+     *
+     * @param cellX the cell X coordinate
+     * @param cellY the cell Y coordinate
+     * @param cellZ the cell Z coordinate
+     * @return the packed key
+     */
+    static long key(int cellX, int cellY, int cellZ) {
+        return ((long) cellX & 0x3FFFFFF) << 38 | ((long) cellZ & 0x3FFFFFF) << 12
+            | (long) cellY & 0xFFF;
+    }
+
+    private static int cell(double coordinate) {
+        return (int) Math.floor(coordinate) >> CELL_SHIFT;
+    }
+
+    /**
+     * Adds an entity at the given position.
+     *
+     * @param entity the entity
+     * @param x the entity's X coordinate
+     * @param y the entity's Y coordinate
+     * @param z the entity's Z coordinate
+     */
+    void add(GlowEntity entity, double x, double y, double z) {
+        long key = key(cell(x), cell(y), cell(z));
+        long stamp = lock.writeLock();
+        try {
+            insert(entity, key);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Removes an entity that was previously added.
+     *
+     * @param entity the entity
+     */
+    void remove(GlowEntity entity) {
+        long stamp = lock.writeLock();
+        try {
+            delete(entity, entity.spatialCell);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Moves an entity that was previously added to a new position.
+     *
+     * @param entity the entity
+     * @param x the new X coordinate
+     * @param y the new Y coordinate
+     * @param z the new Z coordinate
+     */
+    void move(GlowEntity entity, double x, double y, double z) {
+        long key = key(cell(x), cell(y), cell(z));
+        if (key == entity.spatialCell) {
+            return;
+        }
+        long stamp = lock.writeLock();
+        try {
+            if (delete(entity, entity.spatialCell)) {
+                insert(entity, key);
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Widens queries so that they find entities with a bounding box of this size.
+     *
+     * @param box a bounding box belonging to an indexed entity
+     */
+    void includeExtent(BoundingBox box) {
+        Vector min = box.minCorner;
+        Vector max = box.maxCorner;
+        double halfWidth = Math.max(max.getX() - min.getX(), max.getZ() - min.getZ()) / 2;
+        double height = max.getY() - min.getY();
+        // racy check-then-set is harmless: extents only ever grow and a lost update is redone
+        // the next time the entity's box is refreshed
+        if (halfWidth > maxHalfWidth) {
+            maxHalfWidth = halfWidth;
+        }
+        if (height > maxHeight) {
+            maxHeight = height;
+        }
+    }
+
+    /**
+     * Collects the entities whose bounding boxes intersect the given box.
+     *
+     * @param box the box to search
+     * @param except an entity to leave out, or null
+     * @param out the collection to add the results to
+     */
+    void getEntitiesInside(BoundingBox box, GlowEntity except,
+            Collection<? super GlowEntity> out) {
+        double halfWidth = maxHalfWidth;
+        double height = maxHeight;
+        Vector min = box.minCorner;
+        Vector max = box.maxCorner;
+        long stamp = lock.readLock();
+        try {
+            visit(min.getX() - halfWidth, min.getY() - height, min.getZ() - halfWidth,
+                max.getX() + halfWidth, max.getY() + height, max.getZ() + halfWidth,
+                QueryType.BOX, box, 0, 0, 0, 0, 0, 0, 0, except, out);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Collects the entities whose bounding boxes come within the given distance of a point.
+     *
+     * @param x the X coordinate of the center
+     * @param y the Y coordinate of the center
+     * @param z the Z coordinate of the center
+     * @param radius the maximum distance
+     * @param except an entity to leave out, or null
+     * @param out the collection to add the results to
+     */
+    void getEntitiesInRadius(double x, double y, double z, double radius, GlowEntity except,
+            Collection<? super GlowEntity> out) {
+        double halfWidth = maxHalfWidth;
+        double height = maxHeight;
+        long stamp = lock.readLock();
+        try {
+            visit(x - radius - halfWidth, y - radius - height, z - radius - halfWidth,
+                x + radius + halfWidth, y + radius + height, z + radius + halfWidth,
+                QueryType.RADIUS, null, x, y, z, 0, 0, 0, radius * radius, except, out);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Collects the entities whose bounding boxes are hit by a ray. The results are not ordered by
+     * distance.
+     *
+     * @param origin the start of the ray
+     * @param direction the direction of the ray; need not be normalized
+     * @param maxDistance the length of the ray
+     * @param except an entity to leave out, or null
+     * @param out the collection to add the results to
+     */
+    void getEntitiesOnRay(Vector origin, Vector direction, double maxDistance,
+            GlowEntity except, Collection<? super GlowEntity> out) {
+        double length = direction.length();
+        if (length == 0) {
+            return;
+        }
+        double dx = direction.getX() / length * maxDistance;
+        double dy = direction.getY() / length * maxDistance;
+        double dz = direction.getZ() / length * maxDistance;
+        double x = origin.getX();
+        double y = origin.getY();
+        double z = origin.getZ();
+        double halfWidth = maxHalfWidth;
+        double height = maxHeight;
+        long stamp = lock.readLock();
+        try {
+            visit(Math.min(x, x + dx) - halfWidth, Math.min(y, y + dy) - height,
+                Math.min(z, z + dz) - halfWidth, Math.max(x, x + dx) + halfWidth,
+                Math.max(y, y + dy) + height, Math.max(z, z + dz) + halfWidth,
+                QueryType.RAY, null, x, y, z, dx, dy, dz, 0, except, out);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Returns the number of indexed entities.
+     *
+     * @return the number of indexed entities
+     */
+    int size() {
+        long stamp = lock.readLock();
+        try {
+            int size = 0;
+            for (int i = 0; i < occupied.size(); i++) {
+                size += occupied.get(i).size;
+            }
+            return size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private void insert(GlowEntity entity, long key) {
+        Cell cell = cells.get(key);
+        if (cell == null) {
+            cell = new Cell(key);
+            cells.put(key, cell);
+            cell.slot = occupied.size();
+            occupied.add(cell);
+        }
+        cell.add(entity);
+        entity.spatialCell = key;
+    }
+
+    private boolean delete(GlowEntity entity, long key) {
+        Cell cell = cells.get(key);
+        if (cell == null || !cell.remove(entity)) {
+            return false;
+        }
+        if (cell.size == 0) {
+            cells.remove(key);
+            Cell last = occupied.pop();
+            if (last != cell) {
+                last.slot = cell.slot;
+                occupied.set(cell.slot, last);
+            }
+        }
+        return true;
+    }
+
+    private void visit(double minX, double minY, double minZ, double maxX, double maxY,
+            double maxZ, QueryType type, BoundingBox box, double x, double y, double z,
+            double dx, double dy, double dz, double radiusSquared, GlowEntity except,
+            Collection<? super GlowEntity> out) {
+        int minCellX = cell(minX);
+        int minCellY = cell(minY);
+        int minCellZ = cell(minZ);
+        int maxCellX = cell(maxX);
+        int maxCellY = cell(maxY);
+        int maxCellZ = cell(maxZ);
+        long gridCells = ((long) maxCellX - minCellX + 1) * ((long) maxCellY - minCellY + 1)
+            * ((long) maxCellZ - minCellZ + 1);
+        if (gridCells > occupied.size()) {
+            // cheaper to walk the populated cells than the (mostly empty) grid
+            for (int i = 0; i < occupied.size(); i++) {
+                Cell cell = occupied.get(i);
+                if (cell.x >= minCellX && cell.x <= maxCellX && cell.y >= minCellY
+                        && cell.y <= maxCellY && cell.z >= minCellZ && cell.z <= maxCellZ) {
+                    cell.collect(type, box, x, y, z, dx, dy, dz, radiusSquared, except, out);
+                }
+            }
+            return;
+        }
+        for (int cellX = minCellX; cellX <= maxCellX; cellX++) {
+            for (int cellZ = minCellZ; cellZ <= maxCellZ; cellZ++) {
+                for (int cellY = minCellY; cellY <= maxCellY; cellY++) {
+                    Cell cell = cells.get(key(cellX, cellY, cellZ));
+                    if (cell != null) {
+                        cell.collect(type, box, x, y, z, dx, dy, dz, radiusSquared, except, out);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the squared distance from a point to the closest point of a box.
+     */
+    private static double distanceSquared(BoundingBox box, double x, double y, double z) {
+        double offX = Math.max(0, Math.max(box.minCorner.getX() - x, x - box.maxCorner.getX()));
+        double offY = Math.max(0, Math.max(box.minCorner.getY() - y, y - box.maxCorner.getY()));
+        double offZ = Math.max(0, Math.max(box.minCorner.getZ() - z, z - box.maxCorner.getZ()));
+        return offX * offX + offY * offY + offZ * offZ;
+    }
+
+    /**
+     * Tests whether the segment from (x, y, z) to (x + dx, y + dy, z + dz) crosses a box, using
+     * the slab method.
+     */
+    private static boolean segmentIntersects(BoundingBox box, double x, double y, double z,
+            double dx, double dy, double dz) {
+        Vector min = box.minCorner;
+        Vector max = box.maxCorner;
+        double enter = 0;
+        double exit = 1;
+        for (int axis = 0; axis < 3; axis++) {
+            double start;
+            double delta;
+            double low;
+            double high;
+            switch (axis) {
+                case 0:
+                    start = x;
+                    delta = dx;
+                    low = min.getX();
+                    high = max.getX();
+                    break;
+                case 1:
+                    start = y;
+                    delta = dy;
+                    low = min.getY();
+                    high = max.getY();
+                    break;
+                default:
+                    start = z;
+                    delta = dz;
+                    low = min.getZ();
+                    high = max.getZ();
+                    break;
+            }
+            if (delta == 0) {
+                if (start < low || start > high) {
+                    return false;
+                }
+                continue;
+            }
+            double t1 = (low - start) / delta;
+            double t2 = (high - start) / delta;
+            enter = Math.max(enter, Math.min(t1, t2));
+            exit = Math.min(exit, Math.max(t1, t2));
+            if (enter > exit) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private enum QueryType {
+        BOX,
+        RADIUS,
+        RAY
+    }
+
+    /**
+     * The entities filed under one grid cell, stored in a plain array for cheap iteration.
+     */
+    private static final class Cell {
+
+        final int x;
+        final int y;
+        final int z;
+        int slot;
+        GlowEntity[] entities = new GlowEntity[4];
+        int size;
+
+        Cell(long key) {
+            x = (int) (key >> 38);
+            z = (int) (key << 26 >> 38);
+            y = (int) (key << 52 >> 52);
+        }
+
+        void add(GlowEntity entity) {
+            if (size == entities.length) {
+                GlowEntity[] grown = new GlowEntity[size * 2];
+                System.arraycopy(entities, 0, grown, 0, size);
+                entities = grown;
+            }
+            entities[size++] = entity;
+        }
+
+        boolean remove(GlowEntity entity) {
+            for (int i = 0; i < size; i++) {
+                if (entities[i] == entity) {
+                    entities[i] = entities[--size];
+                    entities[size] = null;
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        void collect(QueryType type, BoundingBox box, double x, double y, double z,
+                double dx, double dy, double dz, double radiusSquared, GlowEntity except,
+                Collection<? super GlowEntity> out) {
+            for (int i = 0; i < size; i++) {
+                GlowEntity entity = entities[i];
+                if (entity == except) {
+                    continue;
+                }
+                boolean matches;
+                switch (type) {
+                    case BOX:
+                        matches = entity.intersects(box);
+                        break;
+                    case RADIUS:
+                        BoundingBox nearBox = entity.boundingBox;
+                        matches = nearBox != null
+                            && distanceSquared(nearBox, x, y, z) <= radiusSquared;
+                        break;
+                    default:
+                        BoundingBox rayBox = entity.boundingBox;
+                        matches = rayBox != null
+                            && segmentIntersects(rayBox, x, y, z, dx, dy, dz);
+                        break;
+                }
+                if (matches) {
+                    out.add(entity);
+                }
+            }
+        }
+    }
+}
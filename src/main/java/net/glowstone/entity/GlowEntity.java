@@ -162,6 +162,10 @@ public abstract class GlowEntity implements Entity {
      */
     @Getter
     protected int entityId;
+    /**
+     * The cell of its world's spatial index that this entity is filed under.
+     */
+    long spatialCell;
     /**
      * Whether the entity should have its position resent as if teleported.
      */
@@ -1094,6 +1098,7 @@ public abstract class GlowEntity implements Entity {
         // make sure bounding box is up to date
         if (boundingBox != null) {
             boundingBox.setCenter(location.getX(), location.getY(), location.getZ());
+            world.getEntityManager().resize(boundingBox);
         }
     }
 
@@ -12,6 +12,14 @@ import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongArrays;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import it.unimi.dsi.fastutil.longs.LongSets;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.nio.charset.StandardCharsets;
@@ -245,9 +253,10 @@ public class GlowPlayer extends GlowHumanEntity implements Player {
     private final Set<UUID> hiddenEntities = new HashSet<>();
 
     /**
-     * The chunks that the client knows about.
+     * The chunks that the client knows about, by {@link GlowChunk#key(int, int)}. Iteration must
+     * be synchronized on the set.
      */
-    private final Set<Key> knownChunks = new HashSet<>();
+    private final LongSet knownChunks = LongSets.synchronize(new LongOpenHashSet());
 
     /**
      * A queue of BlockChangeMessages to be sent.
@@ -948,25 +957,31 @@ public class GlowPlayer extends GlowHumanEntity implements Player {
                 session.send(new DestroyEntitiesMessage(destroyIds));
             }
             // add entities
-            knownChunks.forEach(key ->
-                    world.getChunkAt(key.getX(), key.getZ()).getRawEntities().stream()
-                            .filter(entity -> this != entity
-                                    && isWithinDistance(entity)
-                                    && !entity.isDead()
-                                    && !knownEntities.contains(entity)
-                                    && !hiddenEntities.contains(entity.getUniqueId()))
-                            .forEach((entity) -> Bukkit.getScheduler()
-                                    .runTaskAsynchronously(null, () -> {
-                                        worldLock.readLock().lock();
-                                        try {
-                                            knownEntities.add(entity);
-                                        } finally {
-                                            worldLock.readLock().unlock();
-                                        }
-                                        entity.createSpawnMessage().forEach(session::send);
-                                        entity.createAfterSpawnMessage(session)
-                                                .forEach(session::send);
-                                    })));
+            long[] chunkKeys;
+            synchronized (knownChunks) {
+                chunkKeys = knownChunks.toLongArray();
+            }
+            for (long key : chunkKeys) {
+                world.getChunkAt(GlowChunk.keyX(key), GlowChunk.keyZ(key)).getRawEntities()
+                        .stream()
+                        .filter(entity -> this != entity
+                                && isWithinDistance(entity)
+                                && !entity.isDead()
+                                && !knownEntities.contains(entity)
+                                && !hiddenEntities.contains(entity.getUniqueId()))
+                        .forEach((entity) -> Bukkit.getScheduler()
+                                .runTaskAsynchronously(null, () -> {
+                                    worldLock.readLock().lock();
+                                    try {
+                                        knownEntities.add(entity);
+                                    } finally {
+                                        worldLock.readLock().unlock();
+                                    }
+                                    entity.createSpawnMessage().forEach(session::send);
+                                    entity.createAfterSpawnMessage(session)
+                                            .forEach(session::send);
+                                }));
+            }
         } finally {
             worldLock.writeLock().unlock();
         }
@@ -1010,29 +1025,33 @@ public class GlowPlayer extends GlowHumanEntity implements Player {
     private void processBlockChanges() {
         // separate messages by chunk
         // inner map is used to only send one entry for same coordinates
-        Map<Key, Map<BlockVector, BlockChangeMessage>> chunks = new HashMap<>();
+        Long2ObjectOpenHashMap<Map<BlockVector, BlockChangeMessage>> chunks
+                = new Long2ObjectOpenHashMap<>();
         while (true) {
             BlockChangeMessage message = blockChanges.poll();
             if (message == null) {
                 break;
             }
-            Key key = GlowChunk.Key.of(message.getX() >> 4, message.getZ() >> 4);
-            if (canSeeChunk(key)) {
+            int cx = message.getX() >> 4;
+            int cz = message.getZ() >> 4;
+            if (canSeeChunk(cx, cz)) {
                 Map<BlockVector, BlockChangeMessage> map = chunks
-                        .computeIfAbsent(key, k -> new HashMap<>());
+                        .computeIfAbsent(GlowChunk.key(cx, cz), k -> new HashMap<>());
                 map.put(new BlockVector(message.getX(), message.getY(), message
                         .getZ()), message);
             }
         }
         // send away
-        for (Map.Entry<Key, Map<BlockVector, BlockChangeMessage>> entry : chunks.entrySet()) {
-            Key key = entry.getKey();
+        for (Long2ObjectMap.Entry<Map<BlockVector, BlockChangeMessage>> entry
+                : chunks.long2ObjectEntrySet()) {
+            long key = entry.getLongKey();
             List<BlockChangeMessage> value = new ArrayList<>(entry.getValue().values());
 
             if (value.size() == 1) {
                 session.send(value.get(0));
             } else if (value.size() > 1) {
-                session.send(new MultiBlockChangeMessage(key.getX(), key.getZ(), value));
+                session.send(new MultiBlockChangeMessage(GlowChunk.keyX(key), GlowChunk.keyZ(key),
+                        value));
             }
         }
         // now send post-block-change messages
@@ -1045,8 +1064,8 @@ public class GlowPlayer extends GlowHumanEntity implements Player {
      * Streams chunks to the player's client.
      */
     private void streamBlocks() {
-        Set<Key> previousChunks = null;
-        ArrayList<Key> newChunks = new ArrayList<>();
+        LongOpenHashSet previousChunks = null;
+        LongArrayList newChunks = new LongArrayList();
 
         int centralX = location.getBlockX() >> 4;
         int centralZ = location.getBlockZ() >> 4;
@@ -1056,7 +1075,7 @@ public class GlowPlayer extends GlowHumanEntity implements Player {
             firstStream = false;
             for (int x = centralX - radius; x <= centralX + radius; x++) {
                 for (int z = centralZ - radius; z <= centralZ + radius; z++) {
-                    newChunks.add(GlowChunk.Key.of(x, z));
+                    newChunks.add(GlowChunk.key(x, z));
                 }
             }
         } else if (Math.abs(centralX - prevCentralX) > radius
@@ -1064,14 +1083,16 @@ public class GlowPlayer extends GlowHumanEntity implements Player {
             knownChunks.clear();
             for (int x = centralX - radius; x <= centralX + radius; x++) {
                 for (int z = centralZ - radius; z <= centralZ + radius; z++) {
-                    newChunks.add(GlowChunk.Key.of(x, z));
+                    newChunks.add(GlowChunk.key(x, z));
                 }
             }
         } else if (forceStream || prevCentralX != centralX || prevCentralZ != centralZ) {
-            previousChunks = new HashSet<>(knownChunks);
+            synchronized (knownChunks) {
+                previousChunks = new LongOpenHashSet(knownChunks);
+            }
             for (int x = centralX - radius; x <= centralX + radius; x++) {
                 for (int z = centralZ - radius; z <= centralZ + radius; z++) {
-                    Key key = GlowChunk.Key.of(x, z);
+                    long key = GlowChunk.key(x, z);
                     if (knownChunks.contains(key)) {
                         previousChunks.remove(key);
                     } else {
@@ -1087,12 +1108,12 @@ public class GlowPlayer extends GlowHumanEntity implements Player {
         prevCentralZ = centralZ;
 
         // sort chunks by distance from player - closer chunks sent first
-        newChunks.sort((a, b) -> {
-            double dx = 16 * a.getX() + 8 - location.getX();
-            double dz = 16 * a.getZ() + 8 - location.getZ();
+        LongArrays.quickSort(newChunks.elements(), 0, newChunks.size(), (long a, long b) -> {
+            double dx = 16 * GlowChunk.keyX(a) + 8 - location.getX();
+            double dz = 16 * GlowChunk.keyZ(a) + 8 - location.getZ();
             double da = dx * dx + dz * dz;
-            dx = 16 * b.getX() + 8 - location.getX();
-            dz = 16 * b.getZ() + 8 - location.getZ();
+            dx = 16 * GlowChunk.keyX(b) + 8 - location.getX();
+            dz = 16 * GlowChunk.keyZ(b) + 8 - location.getZ();
             double db = dx * dx + dz * dz;
             return Double.compare(da, db);
         });
@@ -1103,30 +1124,37 @@ public class GlowPlayer extends GlowHumanEntity implements Player {
         // one of its neighbors has populated
 
         // first step: force population then acquire lock on each chunk
-        newChunks.forEach(newChunk -> {
-            world.getChunkManager().forcePopulation(newChunk.getX(), newChunk.getZ());
-            knownChunks.add(newChunk);
-            chunkLock.acquire(newChunk);
-        });
+        world.getChunkManager().forcePopulation(newChunks);
+        for (int i = 0; i < newChunks.size(); i++) {
+            long key = newChunks.getLong(i);
+            knownChunks.add(key);
+            chunkLock.acquire(key);
+        }
 
         boolean skylight = world.getEnvironment() == Environment.NORMAL;
 
-        newChunks.stream().map(key -> world.getChunkAt(key.getX(), key.getZ()).toMessage(skylight))
-                .forEach(session::send);
+        for (int i = 0; i < newChunks.size(); i++) {
+            long key = newChunks.getLong(i);
+            session.send(world.getChunkAt(GlowChunk.keyX(key), GlowChunk.keyZ(key))
+                    .toMessage(skylight));
+        }
 
         // send visible block entity data
-        newChunks.stream().flatMap(key -> world.getChunkAt(key.getX(),
-                key.getZ()).getRawBlockEntities().stream())
-                .forEach(entity -> entity.update(this));
+        for (int i = 0; i < newChunks.size(); i++) {
+            long key = newChunks.getLong(i);
+            world.getChunkAt(GlowChunk.keyX(key), GlowChunk.keyZ(key)).getRawBlockEntities()
+                    .forEach(entity -> entity.update(this));
+        }
 
         // and remove old chunks
         if (previousChunks != null) {
-            previousChunks.forEach(key -> {
-                session.send(new UnloadChunkMessage(key.getX(), key.getZ()));
+            LongIterator iterator = previousChunks.iterator();
+            while (iterator.hasNext()) {
+                long key = iterator.nextLong();
+                session.send(new UnloadChunkMessage(GlowChunk.keyX(key), GlowChunk.keyZ(key)));
                 knownChunks.remove(key);
                 chunkLock.release(key);
-            });
-            previousChunks.clear();
+            }
         }
     }
 
@@ -1267,7 +1295,18 @@ public class GlowPlayer extends GlowHumanEntity implements Player {
      * @return If the chunk is known to the player's client.
      */
     public boolean canSeeChunk(Key chunk) {
-        return knownChunks.contains(chunk);
+        return canSeeChunk(chunk.getX(), chunk.getZ());
+    }
+
+    /**
+     * Checks whether the player can see the given chunk.
+     *
+     * @param x The x coordinate of the chunk.
+     * @param z The z coordinate of the chunk.
+     * @return If the chunk is known to the player's client.
+     */
+    public boolean canSeeChunk(int x, int z) {
+        return knownChunks.contains(GlowChunk.key(x, z));
     }
 
     /**
@@ -2590,8 +2629,7 @@ public class GlowPlayer extends GlowHumanEntity implements Player {
      */
     public void sendBlockChange(BlockChangeMessage message) {
         // only send message if the chunk is within visible range
-        Key key = GlowChunk.Key.of(message.getX() >> 4, message.getZ() >> 4);
-        if (canSeeChunk(key)) {
+        if (canSeeChunk(message.getX() >> 4, message.getZ() >> 4)) {
             blockChanges.add(message);
         }
     }
@@ -2601,6 +2639,17 @@ public class GlowPlayer extends GlowHumanEntity implements Player {
         blockChanges.add(message);
     }
 
+    /**
+     * Sends a batch of block changes, such as a {@link MultiBlockChangeMessage} or a chunk data
+     * message that replaces some sections, after any single block changes that are still pending,
+     * so that it isn't overwritten by older changes.
+     *
+     * @param message the message to send
+     */
+    public void sendBlockChanges(Message message) {
+        afterBlockChanges.add(message);
+    }
+
     @Override
     public boolean sendChunkChange(Location loc, int sx, int sy, int sz, byte[] data) {
         throw new UnsupportedOperationException("Not supported yet.");
@@ -3528,9 +3577,10 @@ public class GlowPlayer extends GlowHumanEntity implements Player {
     }
 
     private void broadcastBlockBreakAnimation(GlowBlock block, int destroyStage) {
-        GlowChunk.Key key = GlowChunk.Key.of(block.getX() >> 4, block.getZ() >> 4);
+        int cx = block.getX() >> 4;
+        int cz = block.getZ() >> 4;
         block.getWorld().getRawPlayers().stream()
-                .filter(player -> player != this && player.canSeeChunk(key))
+                .filter(player -> player != this && player.canSeeChunk(cx, cz))
                 .forEach(player -> player
                         .sendBlockBreakAnimation(block.getLocation(), destroyStage));
     }
@@ -3617,7 +3667,8 @@ public class GlowPlayer extends GlowHumanEntity implements Player {
         Location dugLocation = digging.getLocation();
         // OK to use sequential stream here, because sendBlockChange is async
         world.getRawPlayers().stream()
-                .filter(player -> player.canSeeChunk(GlowChunk.Key.to(dugLocation.getChunk())))
+                .filter(player -> player.canSeeChunk(dugLocation.getBlockX() >> 4,
+                        dugLocation.getBlockZ() >> 4))
                 .forEach(player -> player.sendBlockChange(dugLocation, Material.AIR, (byte) 0));
         setDigging(null);
     }
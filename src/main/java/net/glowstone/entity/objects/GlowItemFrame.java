@@ -4,8 +4,6 @@ import com.flowpowered.network.Message;
 import java.util.Arrays;
 import java.util.List;
 import net.glowstone.EventFactory;
-import net.glowstone.chunk.GlowChunk;
-import net.glowstone.chunk.GlowChunk.Key;
 import net.glowstone.entity.GlowHangingEntity;
 import net.glowstone.entity.GlowPlayer;
 import net.glowstone.entity.meta.MetadataIndex;
@@ -174,9 +172,10 @@ public class GlowItemFrame extends GlowHangingEntity implements ItemFrame {
                 // do nothing
         }
 
-        Key key = GlowChunk.Key.of(location.getBlockX() >> 4, location.getBlockZ() >> 4);
+        int cx = location.getBlockX() >> 4;
+        int cz = location.getBlockZ() >> 4;
         for (GlowPlayer player : getWorld().getRawPlayers()) {
-            if (player.canSeeChunk(key)) {
+            if (player.canSeeChunk(cx, cz)) {
                 double x = location.getX();
                 double y = location.getY();
                 double z = location.getZ();
@@ -10,6 +10,7 @@ import java.util.List;
 import java.util.concurrent.ThreadLocalRandom;
 import net.glowstone.EventFactory;
 import net.glowstone.GlowWorld;
+import net.glowstone.chunk.HeightMap;
 import net.glowstone.constants.GlowBiomeClimate;
 import net.glowstone.entity.FishingRewardManager.RewardCategory;
 import net.glowstone.entity.FishingRewardManager.RewardItem;
@@ -220,8 +221,8 @@ public class GlowFishingHook extends GlowProjectile implements FishHook {
 
         // "If the bobber is not directly exposed to sun or moonlight, the wait time will be
         // approximately doubled."
-        Block highestBlockAt = world.getHighestBlockAt(location);
-        if (location.getY() < highestBlockAt.getLocation().getY()) {
+        if (location.getY() < world.getHighestBlockYAt(location.getBlockX(),
+                location.getBlockZ(), HeightMap.Type.LIGHT_BLOCKING)) {
             if (ThreadLocalRandom.current().nextDouble(100) < 50) {
                 return;
             }
@@ -1,35 +1,42 @@
 package net.glowstone.generator;
 
 import lombok.Getter;
+import net.glowstone.chunk.ChunkSection;
 import net.glowstone.chunk.GlowChunk;
 import org.bukkit.Material;
 import org.bukkit.World;
 import org.bukkit.generator.ChunkGenerator.ChunkData;
 import org.bukkit.material.MaterialData;
 
+/**
+ * Chunk data that generators write straight into palette-backed {@link ChunkSection}s, which
+ * become the sections of the generated chunk without being converted.
+ */
 @SuppressWarnings("deprecation")
 public class GlowChunkData implements ChunkData {
 
     @Getter
     private final int maxHeight;
+    /**
+     * The sections, by section Y coordinate; null for sections where no block has been set.
+     *
+     * @return the sections
+     */
     @Getter
-    private short[][] sections;
+    private final ChunkSection[] sections;
+    /**
+     * The sections that blocks were set in since they were created, by bit.
+     */
+    private int changedSections;
 
     public GlowChunkData(World world) {
         maxHeight = world.getMaxHeight();
-        sections = new short[GlowChunk.SEC_COUNT][];
+        sections = new ChunkSection[GlowChunk.SEC_COUNT];
     }
 
     @Override
     public byte getData(int x, int y, int z) {
-        if (x < 0 || y < 0 || z < 0 || x >= GlowChunk.HEIGHT || y >= GlowChunk.DEPTH
-            || z >= GlowChunk.WIDTH) {
-            return (byte) 0;
-        }
-        if (sections[y >> 4] == null) {
-            return (byte) 0;
-        }
-        return (byte) (sections[y >> 4][(y & 0xF) << 8 | z << 4 | x] & 0xF);
+        return (byte) (getState(x, y, z) & 0xF);
     }
 
     @Override
@@ -44,14 +51,25 @@ public class GlowChunkData implements ChunkData {
 
     @Override
     public int getTypeId(int x, int y, int z) {
+        return getState(x, y, z) >> 4;
+    }
+
+    /**
+     * Gets the block state at the given coordinates, with the type ID in the upper bits and the
+     * data in the lower 4 bits.
+     *
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @param z the z coordinate
+     * @return the block state, or 0 if the coordinates are out of bounds
+     */
+    public int getState(int x, int y, int z) {
         if (x < 0 || y < 0 || z < 0 || x >= GlowChunk.HEIGHT || y >= GlowChunk.DEPTH
             || z >= GlowChunk.WIDTH) {
             return 0;
         }
-        if (sections[y >> 4] == null) {
-            return 0;
-        }
-        return sections[y >> 4][(y & 0xF) << 8 | z << 4 | x] >> 4;
+        ChunkSection section = sections[y >> 4];
+        return section == null ? 0 : section.getType(x, y, z);
     }
 
     @Override
@@ -75,32 +93,112 @@ public class GlowChunkData implements ChunkData {
             || z >= GlowChunk.WIDTH) {
             return;
         }
-        if (sections[y >> 4] == null) {
-            sections[y >> 4] = new short[4096];
-        }
-        sections[y >> 4][(y & 0xF) << 8 | z << 4 | x] = (short) (blockId << 4 | data);
+        getOrChangeSection(y >> 4).setType(x, y, z, (char) (blockId << 4 | data));
     }
 
     @Override
     public void setRegion(int minX, int minY, int minZ, int maxX, int maxY, int maxZ,
         Material material) {
-        throw new UnsupportedOperationException("Not implemented yet.");
+        setRegion(minX, minY, minZ, maxX, maxY, maxZ, material.getId());
     }
 
     @Override
     public void setRegion(int minX, int minY, int minZ, int maxX, int maxY, int maxZ,
         MaterialData materialData) {
-        throw new UnsupportedOperationException("Not implemented yet.");
+        setRegion(minX, minY, minZ, maxX, maxY, maxZ, materialData.getItemTypeId(),
+            materialData.getData());
     }
 
     @Override
     public void setRegion(int minX, int minY, int minZ, int maxX, int maxY, int maxZ, int blockId) {
-        throw new UnsupportedOperationException("Not implemented yet.");
+        setRegion(minX, minY, minZ, maxX, maxY, maxZ, blockId, 0);
     }
 
     @Override
     public void setRegion(int minX, int minY, int minZ, int maxX, int maxY, int maxZ, int blockId,
         int data) {
-        throw new UnsupportedOperationException("Not implemented yet.");
+        minX = Math.max(minX, 0);
+        minY = Math.max(minY, 0);
+        minZ = Math.max(minZ, 0);
+        maxX = Math.min(maxX, GlowChunk.WIDTH);
+        maxY = Math.min(maxY, GlowChunk.DEPTH);
+        maxZ = Math.min(maxZ, GlowChunk.HEIGHT);
+        if (minX >= maxX || minY >= maxY || minZ >= maxZ) {
+            return;
+        }
+        char state = (char) (blockId << 4 | data);
+        for (int sy = minY >> 4; sy <= (maxY - 1) >> 4; sy++) {
+            ChunkSection section = sections[sy];
+            if (section == null && state == 0) {
+                // missing sections are air already
+                continue;
+            }
+            int base = sy << 4;
+            getOrChangeSection(sy).fill(minX, Math.max(minY - base, 0), minZ,
+                maxX, Math.min(maxY - base, GlowChunk.SEC_DEPTH), maxZ, state);
+        }
+    }
+
+    /**
+     * Sets every block of a range of layers.
+     *
+     * @param minY the lowest layer, inclusive
+     * @param maxY the highest layer, exclusive
+     * @param blockId the block type ID
+     * @param data the block data
+     */
+    public void setLayers(int minY, int maxY, int blockId, int data) {
+        setRegion(0, minY, 0, GlowChunk.WIDTH, maxY, GlowChunk.HEIGHT, blockId, data);
+    }
+
+    /**
+     * Sets a range of blocks of a column.
+     *
+     * @param x the x coordinate
+     * @param z the z coordinate
+     * @param minY the lowest block, inclusive
+     * @param maxY the highest block, exclusive
+     * @param blockId the block type ID
+     * @param data the block data
+     */
+    public void setColumn(int x, int z, int minY, int maxY, int blockId, int data) {
+        setRegion(x, minY, z, x + 1, maxY, z + 1, blockId, data);
+    }
+
+    /**
+     * Replaces a section, such as with a copy of a section that a generator builds only once.
+     *
+     * @param sy the section Y coordinate
+     * @param section the section, which this chunk data takes ownership of, or null for air
+     */
+    public void setSection(int sy, ChunkSection section) {
+        sections[sy] = section;
+        changedSections &= ~(1 << sy);
+    }
+
+    /**
+     * Optimizes the sections that blocks were set in, so that sections filled with one type drop
+     * their block data, and returns the sections.
+     *
+     * @return the sections, by section Y coordinate
+     */
+    public ChunkSection[] optimizeSections() {
+        for (int sy = 0; sy < sections.length; sy++) {
+            if ((changedSections & 1 << sy) != 0) {
+                sections[sy].optimize();
+            }
+        }
+        changedSections = 0;
+        return sections;
+    }
+
+    private ChunkSection getOrChangeSection(int sy) {
+        ChunkSection section = sections[sy];
+        if (section == null) {
+            section = new ChunkSection();
+            sections[sy] = section;
+        }
+        changedSections |= 1 << sy;
+        return section;
     }
 }
@@ -5,6 +5,7 @@ import java.util.Random;
 import net.glowstone.GlowServer;
 import net.glowstone.generator.populators.NetherPopulator;
 import net.glowstone.util.config.WorldConfig;
+import net.glowstone.util.noise.BatchPerlinOctaveGenerator;
 import net.glowstone.util.noise.PerlinOctaveGenerator;
 import org.bukkit.Location;
 import org.bukkit.Material;
@@ -95,39 +96,39 @@ public class NetherGenerator extends GlowChunkGenerator {
     protected void createWorldOctaves(World world, Map<String, OctaveGenerator> octaves) {
         Random seed = new Random(world.getSeed());
 
-        OctaveGenerator gen = new PerlinOctaveGenerator(seed, 16, 5, 5);
+        OctaveGenerator gen = new BatchPerlinOctaveGenerator(seed, 16, 5, 5);
         gen.setXScale(heightNoiseScaleX);
         gen.setZScale(heightNoiseScaleZ);
         octaves.put("height", gen);
 
-        gen = new PerlinOctaveGenerator(seed, 16, 5, 17, 5);
+        gen = new BatchPerlinOctaveGenerator(seed, 16, 5, 17, 5);
         gen.setXScale(coordinateScale);
         gen.setYScale(heightScale);
         gen.setZScale(coordinateScale);
         octaves.put("roughness", gen);
 
-        gen = new PerlinOctaveGenerator(seed, 16, 5, 17, 5);
+        gen = new BatchPerlinOctaveGenerator(seed, 16, 5, 17, 5);
         gen.setXScale(coordinateScale);
         gen.setYScale(heightScale);
         gen.setZScale(coordinateScale);
         octaves.put("roughness2", gen);
 
-        gen = new PerlinOctaveGenerator(seed, 8, 5, 17, 5);
+        gen = new BatchPerlinOctaveGenerator(seed, 8, 5, 17, 5);
         gen.setXScale(coordinateScale / detailNoiseScaleX);
         gen.setYScale(heightScale / detailNoiseScaleY);
         gen.setZScale(coordinateScale / detailNoiseScaleZ);
         octaves.put("detail", gen);
 
-        gen = new PerlinOctaveGenerator(seed, 4, 16, 16, 1);
+        gen = new BatchPerlinOctaveGenerator(seed, 4, 16, 16, 1);
         gen.setScale(surfaceScale);
         octaves.put("surface", gen);
 
-        gen = new PerlinOctaveGenerator(seed, 4, 16, 16, 1);
+        gen = new BatchPerlinOctaveGenerator(seed, 4, 16, 16, 1);
         gen.setXScale(surfaceScale / 2.0);
         gen.setYScale(surfaceScale / 2.0);
         octaves.put("soulsand", gen);
 
-        gen = new PerlinOctaveGenerator(seed, 4, 16, 1, 16);
+        gen = new BatchPerlinOctaveGenerator(seed, 4, 16, 1, 16);
         gen.setXScale(surfaceScale / 2.0);
         gen.setZScale(surfaceScale / 2.0);
         octaves.put("gravel", gen);
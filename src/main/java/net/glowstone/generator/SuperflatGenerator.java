@@ -1,14 +1,56 @@
 package net.glowstone.generator;
 
 import java.util.Random;
+import net.glowstone.chunk.ChunkSection;
+import net.glowstone.chunk.GlowChunk;
 import net.glowstone.generator.populators.StructurePopulator;
 import org.bukkit.Material;
 import org.bukkit.World;
 
+/**
+ * Generates flat layers, the same in every chunk. The sections are built once from the layers,
+ * and each chunk gets copy-on-write copies of them, which take no memory of their own until the
+ * chunk changes.
+ */
 public class SuperflatGenerator extends GlowChunkGenerator {
 
+    private static final Material[] DEFAULT_LAYERS = {Material.BEDROCK, Material.DIRT,
+            Material.DIRT, Material.GRASS};
+
+    private final Material[] layers;
+    private final ChunkSection[] template = new ChunkSection[GlowChunk.SEC_COUNT];
+
     public SuperflatGenerator() {
+        this(DEFAULT_LAYERS);
+    }
+
+    /**
+     * Creates a generator of the given layers.
+     *
+     * @param layers the material of each layer, from the bottom up
+     */
+    @SuppressWarnings("deprecation")
+    public SuperflatGenerator(Material... layers) {
         super(new StructurePopulator());
+        if (layers.length > GlowChunk.DEPTH) {
+            throw new IllegalArgumentException("Too many layers: " + layers.length);
+        }
+        this.layers = layers.clone();
+        for (int y = 0; y < layers.length; y++) {
+            if (layers[y] == Material.AIR) {
+                continue;
+            }
+            if (template[y >> 4] == null) {
+                template[y >> 4] = new ChunkSection();
+            }
+            template[y >> 4].fill(0, y & 0xf, 0, GlowChunk.WIDTH, (y & 0xf) + 1,
+                    GlowChunk.HEIGHT, (char) (layers[y].getId() << 4));
+        }
+        for (ChunkSection section : template) {
+            if (section != null) {
+                section.optimize();
+            }
+        }
     }
 
     @Override
@@ -16,6 +58,16 @@ public class SuperflatGenerator extends GlowChunkGenerator {
         BiomeGrid biomes) {
         ChunkData chunkData = createChunkData(world);
 
+        if (chunkData instanceof GlowChunkData) {
+            GlowChunkData glowChunkData = (GlowChunkData) chunkData;
+            for (int sy = 0; sy < template.length; sy++) {
+                if (template[sy] != null) {
+                    glowChunkData.setSection(sy, template[sy].copy());
+                }
+            }
+            return chunkData;
+        }
+
         int cx = chunkX << 4;
         int cz = chunkZ << 4;
 
@@ -39,13 +91,11 @@ public class SuperflatGenerator extends GlowChunkGenerator {
      */
     public void generateTerrainColumn(ChunkData chunkData, World world, Random random, int x,
         int z) {
-        // TODO: Handle superflat configurations.
         x = x & 0xF;
         z = z & 0xF;
 
-        chunkData.setBlock(x, 0, z, Material.BEDROCK);
-        chunkData.setBlock(x, 1, z, Material.DIRT);
-        chunkData.setBlock(x, 2, z, Material.DIRT);
-        chunkData.setBlock(x, 3, z, Material.GRASS);
+        for (int y = 0; y < layers.length; y++) {
+            chunkData.setBlock(x, y, z, layers[y]);
+        }
     }
 }
@@ -5,6 +5,7 @@ import java.util.Random;
 import net.glowstone.GlowServer;
 import net.glowstone.generator.populators.TheEndPopulator;
 import net.glowstone.util.config.WorldConfig;
+import net.glowstone.util.noise.BatchPerlinOctaveGenerator;
 import net.glowstone.util.noise.PerlinOctaveGenerator;
 import org.bukkit.Material;
 import org.bukkit.World;
@@ -53,19 +54,19 @@ public class TheEndGenerator extends GlowChunkGenerator {
     protected void createWorldOctaves(World world, Map<String, OctaveGenerator> octaves) {
         Random seed = new Random(world.getSeed());
 
-        OctaveGenerator gen = new PerlinOctaveGenerator(seed, 16, 3, 33, 3);
+        OctaveGenerator gen = new BatchPerlinOctaveGenerator(seed, 16, 3, 33, 3);
         gen.setXScale(coordinateScale);
         gen.setYScale(heightScale);
         gen.setZScale(coordinateScale);
         octaves.put("roughness", gen);
 
-        gen = new PerlinOctaveGenerator(seed, 16, 3, 33, 3);
+        gen = new BatchPerlinOctaveGenerator(seed, 16, 3, 33, 3);
         gen.setXScale(coordinateScale);
         gen.setYScale(heightScale);
         gen.setZScale(coordinateScale);
         octaves.put("roughness2", gen);
 
-        gen = new PerlinOctaveGenerator(seed, 8, 3, 33, 3);
+        gen = new BatchPerlinOctaveGenerator(seed, 8, 3, 33, 3);
         gen.setXScale(coordinateScale / detailNoiseScaleX);
         gen.setYScale(heightScale / detailNoiseScaleY);
         gen.setZScale(coordinateScale / detailNoiseScaleZ);
@@ -0,0 +1,131 @@
+package net.glowstone.generator;
+
+import com.google.common.collect.ImmutableSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import lombok.Getter;
+import org.bukkit.World.Environment;
+
+/**
+ * Command line options of the {@link WorldGenerationTool}.
+ */
+@Getter
+final class WorldGenerationOptions {
+
+    /**
+     * The options of the tool itself, each followed by a value.
+     */
+    private static final Set<String> OPTIONS = ImmutableSet.of(
+            "--from", "--to", "--environment", "--seed", "--threads", "--band");
+
+    /**
+     * The area to generate, in chunks, inclusive.
+     */
+    private int minX;
+    private int minZ;
+    private int maxX;
+    private int maxZ;
+    private Environment environment = Environment.NORMAL;
+    /**
+     * The seed, as it would be configured, or null to use the configured one.
+     */
+    private String seed;
+    /**
+     * The number of threads generating terrain.
+     */
+    private int threads = Runtime.getRuntime().availableProcessors();
+    /**
+     * The number of rows of chunks generated and populated at once.
+     */
+    private int band = 16;
+    /**
+     * The options passed on to the server, such as {@code --configdir}.
+     */
+    private final List<String> serverArgs = new ArrayList<>();
+
+    /**
+     * Parses the command line.
+     *
+     * @param args the arguments; the tool's own options are {@code --name value} pairs, and any
+     *         other argument is passed on to the server as is, one at a time, so that server
+     *         options with and without a value can both be given
+     * @return the options
+     * @throws IllegalArgumentException if an option lacks a value or has an invalid value, or the
+     *         area is missing
+     */
+    static WorldGenerationOptions parse(String... args) {
+        WorldGenerationOptions options = new WorldGenerationOptions();
+        int[] from = null;
+        int[] to = null;
+        for (int i = 0; i < args.length; i++) {
+            String name = args[i];
+            if (!OPTIONS.contains(name)) {
+                options.serverArgs.add(name);
+                continue;
+            }
+            if (++i >= args.length) {
+                throw new IllegalArgumentException("Missing value for " + name);
+            }
+            String value = args[i];
+            try {
+                switch (name) {
+                    case "--from":
+                        from = parseChunk(value);
+                        break;
+                    case "--to":
+                        to = parseChunk(value);
+                        break;
+                    case "--environment":
+                        options.environment = Environment.valueOf(value.toUpperCase());
+                        break;
+                    case "--seed":
+                        options.seed = value;
+                        break;
+                    case "--threads":
+                        options.threads = Integer.parseInt(value);
+                        break;
+                    case "--band":
+                        options.band = Integer.parseInt(value);
+                        break;
+                    default:
+                        throw new IllegalStateException("Unhandled option " + name);
+                }
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Invalid value for " + name + ": " + value);
+            }
+        }
+        if (from == null || to == null) {
+            throw new IllegalArgumentException("Both --from and --to are required");
+        }
+        if (options.threads < 1) {
+            throw new IllegalArgumentException("At least one thread is required");
+        }
+        if (options.band < 1) {
+            throw new IllegalArgumentException("Bands must have at least one row");
+        }
+        options.minX = Math.min(from[0], to[0]);
+        options.minZ = Math.min(from[1], to[1]);
+        options.maxX = Math.max(from[0], to[0]);
+        options.maxZ = Math.max(from[1], to[1]);
+        return options;
+    }
+
+    private static int[] parseChunk(String value) {
+        String[] coordinates = value.split(",");
+        if (coordinates.length != 2) {
+            throw new IllegalArgumentException();
+        }
+        return new int[] {Integer.parseInt(coordinates[0].trim()),
+                Integer.parseInt(coordinates[1].trim())};
+    }
+
+    /**
+     * Gets the number of chunks to generate.
+     *
+     * @return the number of chunks in the area
+     */
+    long getChunkCount() {
+        return (long) (maxX - minX + 1) * (maxZ - minZ + 1);
+    }
+}
@@ -0,0 +1,240 @@
+package net.glowstone.generator;
+
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongList;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import net.glowstone.GlowServer;
+import net.glowstone.GlowWorld;
+import net.glowstone.chunk.ChunkManager;
+import net.glowstone.chunk.GenerationStats;
+import net.glowstone.chunk.GenerationStats.Stage;
+import net.glowstone.chunk.GlowChunk;
+import net.glowstone.chunk.LightEngine;
+import net.glowstone.chunk.ProtoChunk;
+import net.glowstone.i18n.ConsoleMessages;
+import net.glowstone.io.anvil.AnvilWorldStorageProvider;
+import net.glowstone.util.config.ServerConfig;
+import net.glowstone.util.config.ServerConfig.Key;
+import org.bukkit.generator.ChunkGenerator;
+
+/**
+ * Generates an area of a world and writes it to region files without running a server: no
+ * network, plugins or ticking, only the world with its generator, populators and Anvil storage.
+ *
+ * <p>The world is created from the server's configuration and generated by the server's own code,
+ * so a chunk comes out the same as if a server had generated it, given that chunks around it were
+ * populated in the same order. The area is generated in bands of rows of chunks. The terrain of
+ * each band, and of the chunks around it, is generated on all threads, each with its own chunk
+ * generator, since generators aren't thread-safe. The band is then populated like chunks sent to
+ * players, and the rows that later bands can no longer change are written and unloaded. Finally,
+ * the time spent in each stage is logged.
+ *
+ * <p>The spawn area isn't generated, but when the world is new, the server first looks for a
+ * spawn point like it always does. It generates the terrain of each chunk it tries, which may lie
+ * outside the area, and those chunks are written along with the area when the world is unloaded.
+ *
+ * <p>Run with:
+ * <pre>
+ * java -cp glowstone.jar net.glowstone.generator.WorldGenerationTool --from -32,-32 --to 31,31
+ * </pre>
+ */
+public final class WorldGenerationTool {
+
+    private static final AtomicInteger threadCounter = new AtomicInteger();
+
+    private final GlowWorld world;
+    private final WorldGenerationOptions options;
+    private final ChunkManager chunkManager;
+    private final GenerationStats stats = new GenerationStats();
+    /**
+     * The chunk managers generating terrain on the worker threads, or null if the world's
+     * generator isn't a built-in one.
+     */
+    private final ThreadLocal<ChunkManager> terrainManagers;
+    private final ExecutorService terrainExecutor;
+
+    private WorldGenerationTool(GlowWorld world, WorldGenerationOptions options) {
+        this.world = world;
+        this.options = options;
+        chunkManager = world.getChunkManager();
+        chunkManager.setStats(stats);
+        ChunkGenerator generator = world.getGenerator();
+        if (GlowServer.createBuiltInGenerator(world.getEnvironment(), world.getWorldType())
+                .getClass() == generator.getClass()) {
+            terrainManagers = ThreadLocal.withInitial(() -> {
+                ChunkManager manager = new ChunkManager(world, null, GlowServer
+                        .createBuiltInGenerator(world.getEnvironment(), world.getWorldType()));
+                manager.setStats(stats);
+                return manager;
+            });
+        } else {
+            terrainManagers = null;
+        }
+        terrainExecutor = Executors.newFixedThreadPool(options.getThreads(), runnable -> {
+            Thread thread = new Thread(runnable,
+                    "Glowstone-terrain-" + threadCounter.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Generates an area of a world.
+     *
+     * @param args the options; see {@link WorldGenerationOptions}
+     * @throws InterruptedException if interrupted while waiting for light to be updated
+     */
+    public static void main(String... args) throws InterruptedException {
+        if (args.length == 1 && "--help".equals(args[0])) {
+            System.out.println(ConsoleMessages.Info.WorldGen.USAGE.get());
+            return;
+        }
+        WorldGenerationOptions options;
+        try {
+            options = WorldGenerationOptions.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(ConsoleMessages.Info.WorldGen.USAGE.get());
+            System.exit(1);
+            return;
+        }
+
+        GlowServer server = GlowServer.createFromArguments(
+                options.getServerArgs().toArray(new String[0]));
+        if (server == null) {
+            return;
+        }
+        ServerConfig config = server.getConfig();
+        // the spawn area isn't prepared, but a new world still looks for a spawn point, which
+        // generates the chunks it tries and the one it picks even outside the area
+        config.set(Key.PERSIST_SPAWN, false);
+        if (options.getSeed() != null) {
+            config.set(Key.LEVEL_SEED, options.getSeed());
+        }
+        server.setStorageProvider(worldName -> new AnvilWorldStorageProvider(
+                new File(server.getWorldContainer(), worldName)));
+        GlowWorld world = server.createWorld(server.createDefaultWorldCreator(
+                options.getEnvironment(), server.getConfiguredSeed()));
+
+        WorldGenerationTool tool = new WorldGenerationTool(world, options);
+        try {
+            tool.run();
+        } finally {
+            tool.terrainExecutor.shutdown();
+        }
+        server.unloadWorld(world, true);
+        tool.stats.log();
+    }
+
+    private void run() throws InterruptedException {
+        ConsoleMessages.Info.WorldGen.START.log(options.getChunkCount(), world.getName(),
+                options.getMinX(), options.getMinZ(), options.getMaxX(), options.getMaxZ(),
+                terrainManagers == null ? 1 : options.getThreads());
+        long start = System.nanoTime();
+        long populated = 0;
+        // the next row to write; the chunks around the area are written too, since the area's
+        // populators write into them
+        int nextRow = options.getMinZ() - 1;
+        for (int minZ = options.getMinZ(); minZ <= options.getMaxZ(); minZ += options.getBand()) {
+            int maxZ = Math.min(minZ + options.getBand() - 1, options.getMaxZ());
+            generateTerrain(minZ - 1, maxZ + 1);
+            LongList keys = new LongArrayList();
+            for (int z = minZ; z <= maxZ; z++) {
+                for (int x = options.getMinX(); x <= options.getMaxX(); x++) {
+                    keys.add(GlowChunk.key(x, z));
+                }
+            }
+            chunkManager.forcePopulation(keys);
+            updateLight();
+            // populating the next band writes into the last row of this one, and the light
+            // changes that follow can reach into the row before it
+            nextRow = write(nextRow, maxZ - 2);
+
+            populated += keys.size();
+            ConsoleMessages.Info.WorldGen.PROGRESS.log(populated, options.getChunkCount(),
+                    populated / ((System.nanoTime() - start) / 1e9));
+        }
+        write(nextRow, options.getMaxZ() + 1);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        ConsoleMessages.Info.WorldGen.DONE.log(populated, seconds, populated / seconds);
+    }
+
+    /**
+     * Generates the terrain of the missing chunks in some rows, around the area too, and stages
+     * them in the world as proto-chunks.
+     *
+     * @param minZ the first row
+     * @param maxZ the last row, inclusive
+     */
+    private void generateTerrain(int minZ, int maxZ) {
+        if (terrainManagers == null) {
+            // the world's generator generates them while populating
+            return;
+        }
+        LongList keys = new LongArrayList();
+        for (int z = minZ; z <= maxZ; z++) {
+            for (int x = options.getMinX() - 1; x <= options.getMaxX() + 1; x++) {
+                if (chunkManager.isChunkMissing(x, z)) {
+                    keys.add(GlowChunk.key(x, z));
+                }
+            }
+        }
+        List<CompletableFuture<ProtoChunk>> results = new ArrayList<>(keys.size());
+        for (int i = 0; i < keys.size(); i++) {
+            int x = GlowChunk.keyX(keys.getLong(i));
+            int z = GlowChunk.keyZ(keys.getLong(i));
+            results.add(CompletableFuture.supplyAsync(
+                    () -> terrainManagers.get().generateProtoChunk(x, z), terrainExecutor));
+        }
+        for (int i = 0; i < keys.size(); i++) {
+            try {
+                chunkManager.stageProtoChunk(results.get(i).join());
+            } catch (CompletionException ex) {
+                // left for the world's generator to retry while populating
+                ConsoleMessages.Error.Chunk.GEN_FAILED.log(ex.getCause(),
+                        GlowChunk.keyX(keys.getLong(i)), GlowChunk.keyZ(keys.getLong(i)));
+            }
+        }
+    }
+
+    /**
+     * Flushes the world's light engine until the light of every populated and newly loaded chunk
+     * is up to date, as it would be after enough ticks of a server.
+     */
+    private void updateLight() throws InterruptedException {
+        LightEngine lightEngine = world.getLightEngine();
+        lightEngine.flush();
+        while (!lightEngine.isIdle()) {
+            // newly loaded chunks are lit on other threads
+            Thread.sleep(1);
+            lightEngine.flush();
+        }
+    }
+
+    /**
+     * Writes some rows of chunks, around the area too, and drops them from memory.
+     *
+     * @param minZ the first row
+     * @param maxZ the last row, inclusive
+     * @return the row after the last one written
+     */
+    private int write(int minZ, int maxZ) {
+        for (int z = minZ; z <= maxZ; z++) {
+            for (int x = options.getMinX() - 1; x <= options.getMaxX() + 1; x++) {
+                long start = System.nanoTime();
+                if (!chunkManager.unloadChunk(x, z)) {
+                    ConsoleMessages.Warn.Chunk.UNLOAD_FAILED.log(world.getName(), x + "," + z);
+                }
+                stats.add(Stage.WRITE, System.nanoTime() - start);
+            }
+        }
+        return Math.max(minZ, maxZ + 1);
+    }
+}
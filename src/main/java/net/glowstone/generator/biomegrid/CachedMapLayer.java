@@ -0,0 +1,77 @@
+package net.glowstone.generator.biomegrid;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectLinkedOpenHashMap;
+
+/**
+ * Caches the values of a layer in square tiles, so that nearby requests, such as those for
+ * neighboring chunks, reuse the same values instead of generating them again along with the
+ * borders that the layers below need.
+ *
+ * <p>Each value a layer generates only depends on its position, so a value taken from a tile is
+ * the same as one generated for any other area. The least recently used tiles are dropped once
+ * there are too many.
+ *
+ * <p>Layers aren't thread-safe, since they share a random number generator for every position,
+ * so values are generated while holding a lock that the caches of a chain of layers share.
+ */
+public class CachedMapLayer extends MapLayer {
+
+    static final int TILE_BITS = 8;
+    static final int TILE_SIZE = 1 << TILE_BITS;
+
+    private final MapLayer belowLayer;
+    private final int maxTiles;
+    private final Object lock;
+    private final Long2ObjectLinkedOpenHashMap<int[]> tiles = new Long2ObjectLinkedOpenHashMap<>();
+
+    /**
+     * Creates a cache of a layer.
+     *
+     * @param belowLayer the layer to cache
+     * @param maxTiles the number of tiles to keep
+     * @param lock the lock to hold while generating values, shared with the other caches of the
+     *     same chain of layers
+     */
+    public CachedMapLayer(MapLayer belowLayer, int maxTiles, Object lock) {
+        super(0);
+        this.belowLayer = belowLayer;
+        this.maxTiles = maxTiles;
+        this.lock = lock;
+    }
+
+    @Override
+    public int[] generateValues(int x, int z, int sizeX, int sizeZ) {
+        int[] values = new int[sizeX * sizeZ];
+        synchronized (lock) {
+            for (int tileZ = z >> TILE_BITS; tileZ <= z + sizeZ - 1 >> TILE_BITS; tileZ++) {
+                int minZ = Math.max(z, tileZ << TILE_BITS);
+                int maxZ = Math.min(z + sizeZ, tileZ + 1 << TILE_BITS);
+                for (int tileX = x >> TILE_BITS; tileX <= x + sizeX - 1 >> TILE_BITS; tileX++) {
+                    int minX = Math.max(x, tileX << TILE_BITS);
+                    int maxX = Math.min(x + sizeX, tileX + 1 << TILE_BITS);
+                    int[] tile = getTile(tileX, tileZ);
+                    int tileMinX = minX - (tileX << TILE_BITS);
+                    for (int i = minZ; i < maxZ; i++) {
+                        System.arraycopy(tile, (i - (tileZ << TILE_BITS)) * TILE_SIZE + tileMinX,
+                                values, (i - z) * sizeX + minX - x, maxX - minX);
+                    }
+                }
+            }
+        }
+        return values;
+    }
+
+    private int[] getTile(int tileX, int tileZ) {
+        long key = (long) tileX << 32 | tileZ & 0xffffffffL;
+        int[] tile = tiles.getAndMoveToLast(key);
+        if (tile == null) {
+            tile = belowLayer.generateValues(tileX << TILE_BITS, tileZ << TILE_BITS, TILE_SIZE,
+                    TILE_SIZE);
+            tiles.putAndMoveToLast(key, tile);
+            if (tiles.size() > maxTiles) {
+                tiles.removeFirst();
+            }
+        }
+        return tile;
+    }
+}
@@ -37,6 +37,8 @@ public abstract class MapLayer {
             zoom = 4;
         }
 
+        // the layers that are used more than once are cached, all sharing one lock
+        Object lock = new Object();
         MapLayer layer = new NoiseMapLayer(seed); // this is initial land spread layer
         layer = new WhittakerMapLayer(seed + 1, layer, ClimateType.WARM_WET);
         layer = new WhittakerMapLayer(seed + 1, layer, ClimateType.COLD_DRY);
@@ -53,6 +55,7 @@ public abstract class MapLayer {
         for (int i = 0; i < 2; i++) {
             layerMountains = new ZoomMapLayer(seed + 200 + i, layerMountains);
         }
+        layerMountains = new CachedMapLayer(layerMountains, 4, lock);
 
         layer = new BiomeMapLayer(seed + 5, layer);
         for (int i = 0; i < 2; i++) {
@@ -79,12 +82,14 @@ public abstract class MapLayer {
         layerRiver = new RiverMapLayer(seed + 10, layerRiver);
         layer = new RiverMapLayer(seed + 1000, layerRiver, layer);
 
+        layer = new CachedMapLayer(layer, 4, lock);
         MapLayer layerLowerRes = layer;
         for (int i = 0; i < 2; i++) {
             layer = new ZoomMapLayer(seed + 2000 + i, layer);
         }
 
         layer = new SmoothMapLayer(seed + 1001, layer);
+        layer = new CachedMapLayer(layer, 16, lock);
 
         return new MapLayer[]{layer, layerLowerRes};
     }
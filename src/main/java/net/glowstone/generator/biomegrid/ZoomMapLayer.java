@@ -30,37 +30,41 @@ public class ZoomMapLayer extends MapLayer {
         int gridSizeZ = (sizeZ >> 1) + 2;
         int[] values = belowLayer.generateValues(gridX, gridZ, gridSizeX, gridSizeZ);
 
-        int zoomSizeX = gridSizeX - 1 << 1;
-        int zoomSizeZ = gridSizeZ - 1 << 1;
-        int[] tmpValues = new int[zoomSizeX * zoomSizeZ];
+        // each grid cell is zoomed into 2x2 values, written straight into the requested area
+        int offsetX = x & 1;
+        int offsetZ = z & 1;
+        int[] finalValues = new int[sizeX * sizeZ];
         for (int i = 0; i < gridSizeZ - 1; i++) {
-            int n = i * 2 * zoomSizeX;
             int upperLeftVal = values[i * gridSizeX];
             int lowerLeftVal = values[(i + 1) * gridSizeX];
+            int upperZ = (i << 1) - offsetZ;
             for (int j = 0; j < gridSizeX - 1; j++) {
                 setCoordsSeed(gridX + j << 1, gridZ + i << 1);
-                tmpValues[n] = upperLeftVal;
-                tmpValues[n + zoomSizeX] = nextInt(2) > 0 ? upperLeftVal : lowerLeftVal;
+                int leftX = (j << 1) - offsetX;
+                int belowVal = nextInt(2) > 0 ? upperLeftVal : lowerLeftVal;
                 int upperRightVal = values[j + 1 + i * gridSizeX];
                 int lowerRightVal = values[j + 1 + (i + 1) * gridSizeX];
-                tmpValues[n + 1] = nextInt(2) > 0 ? upperLeftVal : upperRightVal;
-                tmpValues[n + 1 + zoomSizeX] = getNearest(upperLeftVal, upperRightVal, lowerLeftVal,
+                int rightVal = nextInt(2) > 0 ? upperLeftVal : upperRightVal;
+                int nearestVal = getNearest(upperLeftVal, upperRightVal, lowerLeftVal,
                     lowerRightVal);
+                set(finalValues, sizeX, sizeZ, leftX, upperZ, upperLeftVal);
+                set(finalValues, sizeX, sizeZ, leftX, upperZ + 1, belowVal);
+                set(finalValues, sizeX, sizeZ, leftX + 1, upperZ, rightVal);
+                set(finalValues, sizeX, sizeZ, leftX + 1, upperZ + 1, nearestVal);
                 upperLeftVal = upperRightVal;
                 lowerLeftVal = lowerRightVal;
-                n += 2;
-            }
-        }
-        int[] finalValues = new int[sizeX * sizeZ];
-        for (int i = 0; i < sizeZ; i++) {
-            for (int j = 0; j < sizeX; j++) {
-                finalValues[j + i * sizeX] = tmpValues[j + (i + (z & 1)) * zoomSizeX + (x & 1)];
             }
         }
 
         return finalValues;
     }
 
+    private static void set(int[] values, int sizeX, int sizeZ, int x, int z, int value) {
+        if (x >= 0 && x < sizeX && z >= 0 && z < sizeZ) {
+            values[x + z * sizeX] = value;
+        }
+    }
+
     private int getNearest(int upperLeftVal, int upperRightVal, int lowerLeftVal,
         int lowerRightVal) {
         if (zoomType == ZoomType.NORMAL) {
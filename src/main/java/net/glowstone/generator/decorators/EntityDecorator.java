@@ -1,16 +1,18 @@
 package net.glowstone.generator.decorators;
 
+import static net.glowstone.chunk.HeightMap.Type.MOTION_BLOCKING;
+
 import java.util.Random;
 import lombok.Getter;
 import lombok.Setter;
 import net.glowstone.GlowServer;
+import net.glowstone.GlowWorld;
+import net.glowstone.chunk.PopulationScheduler;
 import org.bukkit.Bukkit;
 import org.bukkit.Chunk;
 import org.bukkit.Location;
 import org.bukkit.Material;
 import org.bukkit.World;
-import org.bukkit.block.Block;
-import org.bukkit.block.BlockFace;
 import org.bukkit.entity.Animals;
 import org.bukkit.entity.EntityType;
 import org.bukkit.entity.Monster;
@@ -73,21 +75,21 @@ public class EntityDecorator extends BlockPopulator {
             double angle = random.nextDouble() * Math.PI;
             double x = radius * Math.sin(angle) + centerX;
             double z = radius * Math.cos(angle) + centerZ;
-            Block block = world.getHighestBlockAt(new Location(world, x, 0, z));
-            if (block.getType() == Material.WATER || block.getType() == Material.STATIONARY_WATER
-                || block.getType() == Material.LAVA
-                || block.getType() == Material.STATIONARY_LAVA) {
+            int blockX = Location.locToBlock(x);
+            int blockZ = Location.locToBlock(z);
+            // stand on the highest block that stops motion, rather than on grass or flowers
+            int y = ((GlowWorld) world).getHighestBlockYAt(blockX, blockZ, MOTION_BLOCKING);
+            Material ground = world.getBlockAt(blockX, y - 1, blockZ).getType();
+            if (ground == Material.WATER || ground == Material.STATIONARY_WATER
+                || ground == Material.LAVA || ground == Material.STATIONARY_LAVA) {
                 i--;
                 attempts--;
                 continue;
             }
             attempts = 5;
-            Location location = block.getLocation().clone().add(0, 1, 0);
+            Location location = new Location(world, blockX, y, blockZ);
             location.setYaw(random.nextFloat() * 360 - 180);
-            if (location.getBlock().getRelative(BlockFace.DOWN).getType() == Material.AIR) {
-                location.subtract(0, 1, 0);
-            }
-            world.spawnEntity(location, type);
+            PopulationScheduler.runOnWorldThread(() -> world.spawnEntity(location, type));
         }
     }
 }
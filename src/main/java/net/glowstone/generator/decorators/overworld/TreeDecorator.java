@@ -5,12 +5,12 @@ import java.util.List;
 import java.util.Random;
 import java.util.function.BiFunction;
 import lombok.Data;
+import net.glowstone.chunk.PopulationWriter;
 import net.glowstone.generator.decorators.BlockDecorator;
 import net.glowstone.generator.objects.trees.GenericTree;
 import net.glowstone.util.BlockStateDelegate;
 import org.bukkit.Chunk;
 import org.bukkit.World;
-import org.bukkit.block.Block;
 
 public class TreeDecorator extends BlockDecorator {
 
@@ -35,20 +35,19 @@ public class TreeDecorator extends BlockDecorator {
     public void decorate(World world, Random random, Chunk source) {
         int sourceX = (source.getX() << 4) + random.nextInt(16);
         int sourceZ = (source.getZ() << 4) + random.nextInt(16);
-        Block sourceBlock = world
-                .getBlockAt(sourceX, world.getHighestBlockYAt(sourceX, sourceZ), sourceZ);
+        int sourceY = world.getHighestBlockYAt(sourceX, sourceZ);
 
         BiFunction<Random, BlockStateDelegate, ? extends GenericTree> ctor
                 = getRandomTree(random, trees);
         if (ctor != null) {
-            BlockStateDelegate delegate = new BlockStateDelegate();
+            BlockStateDelegate delegate = new BlockStateDelegate(PopulationWriter.of(world));
             GenericTree tree;
             try {
                 tree = ctor.apply(random, delegate);
             } catch (Exception ex) {
                 tree = new GenericTree(random, delegate);
             }
-            if (tree.generate(sourceBlock.getLocation())) {
+            if (tree.generate(world, random, sourceX, sourceY, sourceZ)) {
                 delegate.updateBlockStates();
             }
         }
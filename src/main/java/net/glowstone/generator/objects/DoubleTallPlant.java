@@ -1,11 +1,9 @@
 package net.glowstone.generator.objects;
 
 import java.util.Random;
+import net.glowstone.chunk.PopulationWriter;
 import org.bukkit.Material;
 import org.bukkit.World;
-import org.bukkit.block.Block;
-import org.bukkit.block.BlockFace;
-import org.bukkit.block.BlockState;
 import org.bukkit.material.DoublePlant;
 import org.bukkit.material.types.DoublePlantSpecies;
 
@@ -25,23 +23,16 @@ public class DoubleTallPlant implements TerrainObject {
     @Override
     public boolean generate(World world, Random random, int sourceX, int sourceY, int sourceZ) {
         boolean placed = false;
+        PopulationWriter writer = PopulationWriter.of(world);
         for (int i = 0; i < 64; i++) {
             int x = sourceX + random.nextInt(8) - random.nextInt(8);
             int z = sourceZ + random.nextInt(8) - random.nextInt(8);
             int y = sourceY + random.nextInt(4) - random.nextInt(4);
 
-            Block block = world.getBlockAt(x, y, z);
-            Block topBlock = block.getRelative(BlockFace.UP);
-            if (y < 255 && block.isEmpty() && topBlock.isEmpty()
-                    && block.getRelative(BlockFace.DOWN).getType() == Material.GRASS) {
-                BlockState state = block.getState();
-                state.setType(Material.DOUBLE_PLANT);
-                state.setData(new DoublePlant(species));
-                state.update(true);
-                state = topBlock.getState();
-                state.setType(Material.DOUBLE_PLANT);
-                state.setData(new DoublePlant(DoublePlantSpecies.PLANT_APEX));
-                state.update(true);
+            if (y < 255 && writer.isEmpty(x, y, z) && writer.isEmpty(x, y + 1, z)
+                    && writer.getType(x, y - 1, z) == Material.GRASS) {
+                writer.setType(x, y, z, new DoublePlant(species));
+                writer.setType(x, y + 1, z, new DoublePlant(DoublePlantSpecies.PLANT_APEX));
                 placed = true;
             }
         }
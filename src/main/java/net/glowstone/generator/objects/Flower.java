@@ -1,10 +1,9 @@
 package net.glowstone.generator.objects;
 
 import java.util.Random;
+import net.glowstone.chunk.PopulationWriter;
 import org.bukkit.Material;
 import org.bukkit.World;
-import org.bukkit.block.Block;
-import org.bukkit.block.BlockFace;
 
 public class Flower implements TerrainObject {
 
@@ -22,16 +21,15 @@ public class Flower implements TerrainObject {
     @Override
     public boolean generate(World world, Random random, int sourceX, int sourceY, int sourceZ) {
         boolean succeeded = false;
+        PopulationWriter writer = PopulationWriter.of(world);
         for (int i = 0; i < 64; i++) {
             int x = sourceX + random.nextInt(8) - random.nextInt(8);
             int z = sourceZ + random.nextInt(8) - random.nextInt(8);
             int y = sourceY + random.nextInt(4) - random.nextInt(4);
 
-            Block block = world.getBlockAt(x, y, z);
-            if (y < 255 && block.getType() == Material.AIR
-                    && block.getRelative(BlockFace.DOWN).getType() == Material.GRASS) {
-                block.setType(type);
-                block.setData((byte) data);
+            if (y < 255 && writer.isEmpty(x, y, z)
+                    && writer.getType(x, y - 1, z) == Material.GRASS) {
+                writer.setType(x, y, z, type, data);
                 succeeded = true;
             }
         }
@@ -2,12 +2,13 @@ package net.glowstone.generator.objects;
 
 import java.util.Arrays;
 import java.util.Random;
+import net.glowstone.GlowWorld;
+import net.glowstone.block.BlockAccess;
+import net.glowstone.chunk.PopulationWriter;
 import net.glowstone.constants.GlowBiomeClimate;
 import org.bukkit.Material;
 import org.bukkit.World;
 import org.bukkit.block.Biome;
-import org.bukkit.block.Block;
-import org.bukkit.block.BlockFace;
 
 public class Lake implements TerrainObject {
 
@@ -61,6 +62,7 @@ public class Lake implements TerrainObject {
                 .getBiome(
                         sourceX + 8 + (int) MAX_DIAMETER / 2, sourceZ + 8 + (int) MAX_DIAMETER / 2);
         boolean mycelBiome = Arrays.asList(MYCEL_BIOMES).contains(biome);
+        PopulationWriter writer = PopulationWriter.of(world);
 
         for (int x = 0; x < (int) MAX_DIAMETER; x++) {
             for (int z = 0; z < (int) MAX_DIAMETER; z++) {
@@ -69,10 +71,11 @@ public class Lake implements TerrainObject {
                         continue;
                     }
                     Material type = this.type;
-                    Block block = world.getBlockAt(sourceX + x, sourceY + y, sourceZ + z);
-                    Block blockAbove = block.getRelative(BlockFace.UP);
-                    Material blockType = block.getType();
-                    Material blockAboveType = blockAbove.getType();
+                    int blockX = sourceX + x;
+                    int blockY = sourceY + y;
+                    int blockZ = sourceZ + z;
+                    Material blockType = writer.getType(blockX, blockY, blockZ);
+                    Material blockAboveType = writer.getType(blockX, blockY + 1, blockZ);
                     if (blockType == Material.DIRT
                                     && (blockAboveType == Material.LOG
                                     || blockAboveType == Material.LOG_2)
@@ -82,7 +85,7 @@ public class Lake implements TerrainObject {
                     }
                     if (y >= (int) MAX_HEIGHT / 2) {
                         type = Material.AIR;
-                        if (TerrainObject.killPlantAbove(block)) {
+                        if (TerrainObject.killPlantAbove(writer, blockX, blockY, blockZ)) {
                             break;
                         }
                         if (this.type == Material.STATIONARY_WATER && (
@@ -97,7 +100,7 @@ public class Lake implements TerrainObject {
                             type = Material.ICE;
                         }
                     }
-                    block.setType(type);
+                    writer.setType(blockX, blockY, blockZ, type);
                 }
             }
         }
@@ -108,12 +111,14 @@ public class Lake implements TerrainObject {
                     if (!isLakeBlock(lakeMap, x, y, z)) {
                         continue;
                     }
-                    Block block = world.getBlockAt(sourceX + x, sourceY + y - 1, sourceZ + z);
-                    Block blockAbove = block.getRelative(BlockFace.UP);
-                    if (block.getType() == Material.DIRT
-                            && !blockAbove.getType().isOccluding()
-                            && blockAbove.getLightLevel() > 0) {
-                        block.setType(mycelBiome ? Material.MYCEL : Material.GRASS);
+                    int blockX = sourceX + x;
+                    int blockY = sourceY + y - 1;
+                    int blockZ = sourceZ + z;
+                    if (writer.getType(blockX, blockY, blockZ) == Material.DIRT
+                            && !writer.getType(blockX, blockY + 1, blockZ).isOccluding()
+                            && world.getBlockAt(blockX, blockY + 1, blockZ).getLightLevel() > 0) {
+                        writer.setType(blockX, blockY, blockZ,
+                                mycelBiome ? Material.MYCEL : Material.GRASS);
                     }
                 }
             }
@@ -122,6 +127,7 @@ public class Lake implements TerrainObject {
     }
 
     private boolean canPlace(byte[] lakeMap, World world, int sourceX, int sourceY, int sourceZ) {
+        BlockAccess access = new BlockAccess((GlowWorld) world);
         for (int x = 0; x < MAX_DIAMETER; x++) {
             for (int z = 0; z < MAX_DIAMETER; z++) {
                 for (int y = 0; y < MAX_HEIGHT; y++) {
@@ -135,12 +141,13 @@ public class Lake implements TerrainObject {
                             && ((z <= 0) || !isLakeBlock(lakeMap, x, y - 1, z)))) {
                         continue;
                     }
-                    Block block = world.getBlockAt(sourceX + x, sourceY + y, sourceZ + z);
-                    if (y >= MAX_HEIGHT / 2 && (block.isLiquid()
-                            || block.getType() == Material.ICE)) {
+                    access.moveTo(sourceX + x, sourceY + y, sourceZ + z);
+                    Material blockType = access.getType();
+                    if (y >= MAX_HEIGHT / 2 && (access.isLiquid()
+                            || blockType == Material.ICE)) {
                         return false; // there's already some liquids above
-                    } else if (y < MAX_HEIGHT / 2 && !block.getType().isSolid()
-                            && block.getType() != type) {
+                    } else if (y < MAX_HEIGHT / 2 && !blockType.isSolid()
+                            && blockType != type) {
                         return false;
                         // bottom must be solid and do not overlap with another liquid type
                     }
@@ -1,6 +1,7 @@
 package net.glowstone.generator.objects;
 
 import java.util.Random;
+import net.glowstone.chunk.PopulationScheduler;
 import org.bukkit.Location;
 import org.bukkit.Material;
 import org.bukkit.World;
@@ -45,7 +46,8 @@ public class ObsidianPillar implements TerrainObject {
 
         final Location loc = new Location(world, sourceX + 0.5D, sourceY + height + 1,
             sourceZ + 0.5D, random.nextFloat() * 360, 0);
-        world.spawnEntity(loc, EntityType.ENDER_CRYSTAL);
+        PopulationScheduler.runOnWorldThread(
+            () -> world.spawnEntity(loc, EntityType.ENDER_CRYSTAL));
         Block block = world.getBlockAt(sourceX, sourceY + height, sourceZ);
         block.setType(Material.BEDROCK);
         return true;
@@ -1,9 +1,9 @@
 package net.glowstone.generator.objects;
 
 import java.util.Random;
+import net.glowstone.chunk.PopulationWriter;
 import org.bukkit.Material;
 import org.bukkit.World;
-import org.bukkit.block.BlockState;
 import org.bukkit.material.MaterialData;
 
 public class OreVein implements TerrainObject {
@@ -35,6 +35,7 @@ public class OreVein implements TerrainObject {
         double dy1 = sourceY + random.nextInt(3) - 2;
         double dy2 = sourceY + random.nextInt(3) - 2;
         boolean succeeded = false;
+        PopulationWriter writer = PopulationWriter.of(world);
         for (int i = 0; i < amount; i++) {
             double originX = dx1 + (dx2 - dx1) * i / amount;
             double originY = dy1 + (dy2 - dy1) * i / amount;
@@ -59,11 +60,8 @@ public class OreVein implements TerrainObject {
                         double squaredNormalizedZ
                                 = normalizedSquaredCoordinate(originZ, radiusH, z);
                         if (squaredNormalizedX + squaredNormalizedY + squaredNormalizedZ < 1
-                                && world.getBlockAt(x, y, z).getType() == targetType) {
-                            BlockState state = world.getBlockAt(x, y, z).getState();
-                            state.setType(type);
-                            state.setData(data);
-                            state.update(true);
+                                && writer.getType(x, y, z) == targetType) {
+                            writer.setType(x, y, z, type, data.getData());
                             succeeded = true;
                         }
                     }
@@ -1,11 +1,9 @@
 package net.glowstone.generator.objects;
 
 import java.util.Random;
+import net.glowstone.chunk.PopulationWriter;
 import org.bukkit.Material;
 import org.bukkit.World;
-import org.bukkit.block.Block;
-import org.bukkit.block.BlockFace;
-import org.bukkit.block.BlockState;
 import org.bukkit.material.LongGrass;
 
 public class TallGrass implements TerrainObject {
@@ -18,11 +16,12 @@ public class TallGrass implements TerrainObject {
 
     @Override
     public boolean generate(World world, Random random, int sourceX, int sourceY, int sourceZ) {
-        Block thisBlock;
+        PopulationWriter writer = PopulationWriter.of(world);
+        Material thisType;
         do {
-            thisBlock = world.getBlockAt(sourceX, sourceY, sourceZ);
+            thisType = writer.getType(sourceX, sourceY, sourceZ);
             sourceY--;
-        } while ((thisBlock.isEmpty() || thisBlock.getType() == Material.LEAVES) && sourceY > 0);
+        } while ((thisType == Material.AIR || thisType == Material.LEAVES) && sourceY > 0);
         sourceY++;
         boolean succeeded = false;
         for (int i = 0; i < 128; i++) {
@@ -30,14 +29,10 @@ public class TallGrass implements TerrainObject {
             int z = sourceZ + random.nextInt(8) - random.nextInt(8);
             int y = sourceY + random.nextInt(4) - random.nextInt(4);
 
-            Block block = world.getBlockAt(x, y, z);
-            Material blockTypeBelow = block.getRelative(BlockFace.DOWN).getType();
-            if (y < 255 && block.getType() == Material.AIR && (
+            Material blockTypeBelow = writer.getType(x, y - 1, z);
+            if (y < 255 && writer.isEmpty(x, y, z) && (
                     blockTypeBelow == Material.GRASS || blockTypeBelow == Material.DIRT)) {
-                BlockState state = block.getState();
-                state.setType(Material.LONG_GRASS);
-                state.setData(grassType);
-                state.update(true);
+                writer.setType(x, y, z, grassType);
                 succeeded = true;
             }
         }
@@ -3,6 +3,7 @@ package net.glowstone.generator.objects;
 import com.google.common.collect.ImmutableSortedSet;
 import java.util.Random;
 import java.util.SortedSet;
+import net.glowstone.chunk.PopulationWriter;
 import org.bukkit.Material;
 import org.bukkit.World;
 import org.bukkit.block.Block;
@@ -52,6 +53,34 @@ public interface TerrainObject {
         return false;
     }
 
+    /**
+     * Removes the grass, shrub, flower or mushroom directly above the given block, if present,
+     * through a {@link PopulationWriter}. Does not drop an item.
+     *
+     * @param writer the writer
+     * @param x the x coordinate of the block
+     * @param y the y coordinate of the block
+     * @param z the z coordinate of the block
+     * @return true if a plant was removed; false if none was present
+     */
+    static boolean killPlantAbove(PopulationWriter writer, int x, int y, int z) {
+        int stateAbove = writer.getState(x, y + 1, z);
+        Material mat = Material.getMaterial(stateAbove >> 4);
+        if (PLANT_TYPES.contains(mat)) {
+            if (mat == Material.DOUBLE_PLANT) {
+                MaterialData dataAbove = mat.getNewData((byte) (stateAbove & 0xf));
+                if (dataAbove instanceof DoublePlant
+                        && ((DoublePlant) dataAbove).getSpecies()
+                        == DoublePlantSpecies.PLANT_APEX) {
+                    writer.setType(x, y + 2, z, Material.AIR);
+                }
+            }
+            writer.setType(x, y + 1, z, Material.AIR);
+            return true;
+        }
+        return false;
+    }
+
     /**
      * Generates this feature.
      *
@@ -4,7 +4,6 @@ import java.util.Random;
 import net.glowstone.util.BlockStateDelegate;
 import org.bukkit.Material;
 import org.bukkit.World;
-import org.bukkit.block.Block;
 import org.bukkit.block.BlockFace;
 import org.bukkit.material.CocoaPlant;
 import org.bukkit.material.CocoaPlant.CocoaPlantSize;
@@ -122,12 +121,8 @@ public class CocoaTree extends JungleTree {
                     if (random.nextInt(COCOA_FACES.length - y)
                             == 0) { // higher it is, more chances there is
                         CocoaPlantSize size = COCOA_SIZE[random.nextInt(COCOA_SIZE.length)];
-                        Block block = delegate
-                                .getBlockState(world, sourceX, sourceY + height - 5 + y,
-                                        sourceZ)
-                                .getBlock().getRelative(cocoaFace);
-                        delegate.setTypeAndData(world, block.getX(), block.getY(),
-                                block.getZ(),
+                        delegate.setTypeAndData(world, sourceX + cocoaFace.getModX(),
+                                sourceY + height - 5 + y, sourceZ + cocoaFace.getModZ(),
                                 Material.COCOA, new CocoaPlant(size, cocoaFace.getOppositeFace()));
                     }
                 }
@@ -213,6 +213,6 @@ public class GenericTree implements TerrainObject {
      * @return the block type
      */
     protected Material blockTypeAt(int x, int y, int z, World world) {
-        return delegate.getBlockState(world, x, y, z).getType();
+        return delegate.getType(world, x, y, z);
     }
 }
@@ -51,7 +51,7 @@ public class JungleBush extends GenericTree {
                 for (int z = blockZ - radius; z <= blockZ + radius; z++) {
                     if ((Math.abs(x - l.getBlockX()) != radius
                             || Math.abs(z - l.getBlockZ()) != radius || random.nextBoolean())
-                            && !delegate.getBlockState(world, x, y, z).getType().isSolid()) {
+                            && !blockTypeAt(x, y, z, world).isSolid()) {
                         delegate
                             .setTypeAndRawData(world, x, y, z, Material.LEAVES, leavesType);
                     }
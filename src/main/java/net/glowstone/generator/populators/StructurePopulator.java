@@ -1,13 +1,10 @@
 package net.glowstone.generator.populators;
 
-import java.util.Iterator;
-import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Random;
 import net.glowstone.GlowServer;
 import net.glowstone.GlowWorld;
-import net.glowstone.chunk.GlowChunk;
 import net.glowstone.generator.structures.GlowStructure;
+import net.glowstone.generator.structures.StructureIndex;
 import net.glowstone.io.structure.StructureStorage;
 import net.glowstone.io.structure.StructureStore;
 import net.glowstone.util.BlockStateDelegate;
@@ -29,47 +26,42 @@ public class StructurePopulator extends BlockPopulator {
             long randX = random.nextLong();
             long randZ = random.nextLong();
 
-            boolean placed = false;
-            for (int x = cx - 8; x <= cx + 8 && !placed; x++) {
-                for (int z = cz - 8; z <= cz + 8 && !placed; z++) {
-                    if (!world.getChunkAt(x, z).isLoaded() && !world.getChunkAt(x, z).load(true)) {
-                        continue;
-                    }
-                    random.setSeed(x * randX + z * randZ ^ world.getSeed());
-                    Map<Integer, GlowStructure> structures = ((GlowWorld) world)
-                        .getStructures();
-                    int key = GlowChunk.Key.of(x, z).hashCode();
-                    if (structures.containsKey(key)) {
-                        continue;
-                    }
+            // where structures start only depends on the seed, so the neighbouring chunks that
+            // structures could reach this chunk from don't have to be loaded
+            StructureIndex structures = ((GlowWorld) world).getStructures();
+            for (int x = cx - 8; x <= cx + 8; x++) {
+                for (int z = cz - 8; z <= cz + 8; z++) {
                     for (StructureStore<?> store : StructureStorage.getStructureStores()) {
+                        if (!store.isStartChunk((GlowWorld) world, x, z)
+                                || structures.contains(x, z)) {
+                            continue;
+                        }
+                        random.setSeed(x * randX + z * randZ ^ world.getSeed());
                         GlowStructure structure = store
                             .createNewStructure((GlowWorld) world, random, x, z);
-                        if (structure.shouldGenerate(random)) {
-                            structure.setDirty(true);
-                            structures.put(key, structure);
+                        structure.setDirty(true);
+                        if (structures.putIfAbsent(structure) == null) {
                             GlowServer.logger.finer("structure in chunk " + x + "," + z);
-                            placed = true;
-                            break;
                         }
+                        break;
                     }
                 }
             }
 
             int x = cx << 4;
             int z = cz << 4;
-            Iterator<Entry<Integer, GlowStructure>> it = ((GlowWorld) world).getStructures()
-                .entrySet().iterator();
-            while (it.hasNext()) {
-                GlowStructure structure = it.next().getValue();
-                if (structure.getBoundingBox().intersectsWith(x, z, x + 15, z + 15)) {
+            random.setSeed(cx * randX + cz * randZ ^ world.getSeed());
+            for (GlowStructure structure : structures.getIntersecting(x, z, x + 15, z + 15)) {
+                // chunks far enough apart are populated concurrently, and could share a large
+                // structure
+                synchronized (structure) {
                     BlockStateDelegate delegate = new BlockStateDelegate();
                     if (structure.generate(random, x, z, delegate)) {
                         // maybe later trigger a StructureGeneratedEvent event and cancel
                         delegate.updateBlockStates();
                     } else {
                         delegate.rollbackBlockStates();
-                        it.remove();
+                        structures.remove(structure);
                     }
                 }
             }
@@ -1,6 +1,7 @@
 package net.glowstone.generator.populators;
 
 import java.util.Random;
+import net.glowstone.chunk.PopulationScheduler;
 import net.glowstone.generator.decorators.theend.ObsidianPillarDecorator;
 import org.bukkit.Chunk;
 import org.bukkit.Location;
@@ -24,7 +25,8 @@ public class TheEndPopulator extends BlockPopulator {
         if (chunk.getX() == 0 && chunk.getZ() == 0) {
             final Location loc = new Location(world, (chunk.getX() << 4) + 8, 128,
                 (chunk.getZ() << 4) + 8, random.nextFloat() * 360, 0);
-            world.spawnEntity(loc, EntityType.ENDER_DRAGON);
+            PopulationScheduler.runOnWorldThread(
+                () -> world.spawnEntity(loc, EntityType.ENDER_DRAGON));
         }
     }
 }
@@ -4,6 +4,7 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Random;
+import net.glowstone.chunk.PopulationWriter;
 import net.glowstone.generator.decorators.overworld.MelonDecorator;
 import net.glowstone.generator.decorators.overworld.TreeDecorator.TreeDecoration;
 import net.glowstone.generator.objects.trees.BigOakTree;
@@ -14,7 +15,6 @@ import net.glowstone.util.BlockStateDelegate;
 import org.bukkit.Chunk;
 import org.bukkit.World;
 import org.bukkit.block.Biome;
-import org.bukkit.block.Block;
 
 public class JunglePopulator extends BiomePopulator {
 
@@ -51,10 +51,9 @@ public class JunglePopulator extends BiomePopulator {
             int x = sourceX + random.nextInt(16);
             int z = sourceZ + random.nextInt(16);
             int y = world.getHighestBlockYAt(x, z);
-            Block sourceBlock = world.getBlockAt(x, y, z);
-            BlockStateDelegate delegate = new BlockStateDelegate();
+            BlockStateDelegate delegate = new BlockStateDelegate(PopulationWriter.of(world));
             JungleBush bush = new JungleBush(random, delegate);
-            if (bush.generate(sourceBlock.getLocation())) {
+            if (bush.generate(world, random, x, y, z)) {
                 delegate.updateBlockStates();
             }
         }
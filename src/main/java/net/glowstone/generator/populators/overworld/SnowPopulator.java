@@ -1,12 +1,11 @@
 package net.glowstone.generator.populators.overworld;
 
 import java.util.Random;
+import net.glowstone.chunk.PopulationWriter;
 import net.glowstone.constants.GlowBiomeClimate;
 import org.bukkit.Chunk;
 import org.bukkit.Material;
 import org.bukkit.World;
-import org.bukkit.block.Block;
-import org.bukkit.block.BlockFace;
 import org.bukkit.generator.BlockPopulator;
 
 public class SnowPopulator extends BlockPopulator {
@@ -15,13 +14,14 @@ public class SnowPopulator extends BlockPopulator {
     public void populate(World world, Random random, Chunk source) {
         int sourceX = source.getX() << 4;
         int sourceZ = source.getZ() << 4;
+        PopulationWriter writer = PopulationWriter.of(world);
         for (int x = sourceX; x < sourceX + 16; x++) {
             for (int z = sourceZ; z < sourceZ + 16; z++) {
                 int y = world.getHighestBlockYAt(x, z) - 1;
                 if (GlowBiomeClimate.isSnowy(world.getBiome(x, z), sourceX + x, y, sourceZ + z)) {
-                    Block block = world.getBlockAt(x, y, z);
-                    Block blockAbove = block.getRelative(BlockFace.UP);
-                    switch (block.getType()) {
+                    Material type = writer.getType(x, y, z);
+                    boolean emptyAbove = writer.isEmpty(x, y + 1, z);
+                    switch (type) {
                         case WATER:
                         case STATIONARY_WATER:
                         case SNOW:
@@ -36,14 +36,14 @@ public class SnowPopulator extends BlockPopulator {
                         case STATIONARY_LAVA:
                             break;
                         case DIRT:
-                            block.setType(Material.GRASS);
-                            if (blockAbove.isEmpty()) {
-                                blockAbove.setType(Material.SNOW);
+                            writer.setType(x, y, z, Material.GRASS);
+                            if (emptyAbove) {
+                                writer.setType(x, y + 1, z, Material.SNOW);
                             }
                             break;
                         default:
-                            if (blockAbove.isEmpty()) {
-                                blockAbove.setType(Material.SNOW);
+                            if (emptyAbove) {
+                                writer.setType(x, y + 1, z, Material.SNOW);
                             }
                             break;
                     }
@@ -3,6 +3,7 @@ package net.glowstone.generator.structures;
 import java.util.EnumMap;
 import java.util.Map;
 import java.util.Random;
+import net.glowstone.GlowWorld;
 import org.bukkit.Location;
 import org.bukkit.World;
 import org.bukkit.block.Biome;
@@ -14,7 +15,16 @@ public class GlowTemple extends GlowStructure {
 
     private static final int MIN_DISTANCE = 8;
     private static final int MAX_DISTANCE = 32;
-    private final Map<Biome, TempleType> types = new EnumMap<>(Biome.class);
+    private static final long SALT = 14357617L;
+    private static final Map<Biome, TempleType> TYPES = new EnumMap<>(Biome.class);
+
+    static {
+        TYPES.put(Biome.DESERT, TempleType.DESERT_TEMPLE);
+        TYPES.put(Biome.DESERT_HILLS, TempleType.DESERT_TEMPLE);
+        TYPES.put(Biome.JUNGLE, TempleType.JUNGLE_TEMPLE);
+        TYPES.put(Biome.JUNGLE_HILLS, TempleType.JUNGLE_TEMPLE);
+        TYPES.put(Biome.SWAMPLAND, TempleType.WITCH_HUT);
+    }
 
     /**
      * Creates a structure with no pieces.
@@ -25,11 +35,6 @@ public class GlowTemple extends GlowStructure {
      */
     public GlowTemple(World world, int chunkX, int chunkZ) {
         super(world, chunkX, chunkZ);
-        types.put(Biome.DESERT, TempleType.DESERT_TEMPLE);
-        types.put(Biome.DESERT_HILLS, TempleType.DESERT_TEMPLE);
-        types.put(Biome.JUNGLE, TempleType.JUNGLE_TEMPLE);
-        types.put(Biome.JUNGLE_HILLS, TempleType.JUNGLE_TEMPLE);
-        types.put(Biome.SWAMPLAND, TempleType.WITCH_HUT);
     }
 
     /**
@@ -45,10 +50,10 @@ public class GlowTemple extends GlowStructure {
 
         int x = chunkX << 4;
         int z = chunkZ << 4;
-        Biome biome = world.getBiome(x + 8, z + 8);
+        Biome biome = getGeneratedBiome(world, x + 8, z + 8);
 
-        if (types.containsKey(biome)) {
-            switch (types.get(biome)) {
+        if (TYPES.containsKey(biome)) {
+            switch (TYPES.get(biome)) {
                 case JUNGLE_TEMPLE:
                     addPiece(new GlowJungleTemple(random,
                         new Location(world, x, world.getSeaLevel(), z)));
@@ -67,17 +72,38 @@ public class GlowTemple extends GlowStructure {
 
     @Override
     public boolean shouldGenerate(Random random) {
-        Biome biome = world.getBiome((chunkX << 4) + 8, (chunkZ << 4) + 8);
-        if (types.containsKey(biome)) {
-            int x = chunkX < 0 ? (chunkX - MAX_DISTANCE - 1) / MAX_DISTANCE : chunkX / MAX_DISTANCE;
-            int z = chunkZ < 0 ? (chunkZ - MAX_DISTANCE - 1) / MAX_DISTANCE : chunkZ / MAX_DISTANCE;
-            x = x * MAX_DISTANCE + random.nextInt(MAX_DISTANCE - MIN_DISTANCE);
-            z = z * MAX_DISTANCE + random.nextInt(MAX_DISTANCE - MIN_DISTANCE);
-            if (x == chunkX && z == chunkZ) {
-                return true;
-            }
+        return isStartChunk(world, chunkX, chunkZ);
+    }
+
+    /**
+     * Returns whether a temple or witch hut starts in a chunk. Each region of {@value MAX_DISTANCE}
+     * by {@value MAX_DISTANCE} chunks has one candidate chunk, chosen from the seed and the
+     * region's coordinates, which gets a temple if its generated biome has a type of temple. No
+     * chunks are loaded, so the answer doesn't depend on which chunks were generated before.
+     *
+     * @param world the world
+     * @param chunkX the chunk X coordinate
+     * @param chunkZ the chunk Z coordinate
+     * @return true if a temple starts in the chunk; false otherwise
+     */
+    public static boolean isStartChunk(World world, int chunkX, int chunkZ) {
+        int regionX = Math.floorDiv(chunkX, MAX_DISTANCE);
+        int regionZ = Math.floorDiv(chunkZ, MAX_DISTANCE);
+        Random random = new Random(
+                regionX * 341873128712L + regionZ * 132897987541L + world.getSeed() + SALT);
+        int x = regionX * MAX_DISTANCE + random.nextInt(MAX_DISTANCE - MIN_DISTANCE);
+        int z = regionZ * MAX_DISTANCE + random.nextInt(MAX_DISTANCE - MIN_DISTANCE);
+        if (x != chunkX || z != chunkZ) {
+            return false;
+        }
+        return TYPES.containsKey(getGeneratedBiome(world, (chunkX << 4) + 8, (chunkZ << 4) + 8));
+    }
+
+    private static Biome getGeneratedBiome(World world, int x, int z) {
+        if (world instanceof GlowWorld && world.getEnvironment() == World.Environment.NORMAL) {
+            return ((GlowWorld) world).getChunkManager().getGeneratedBiome(x, z);
         }
-        return false;
+        return world.getBiome(x, z);
     }
 
     public enum TempleType {
@@ -0,0 +1,182 @@
+package net.glowstone.generator.structures;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import net.glowstone.chunk.GlowChunk;
+import net.glowstone.generator.structures.util.StructureBoundingBox;
+
+/**
+ * The structures of a world, indexed by the chunk they start in and by the regions of
+ * {@value #REGION_SIZE} by {@value #REGION_SIZE} blocks that their bounding boxes cover, so that
+ * finding the structures that intersect a chunk doesn't have to check every structure.
+ *
+ * <p>All methods are synchronized, so the index can be used while chunks are populated on other
+ * threads.
+ */
+public class StructureIndex {
+
+    /**
+     * The width of the regions in blocks.
+     */
+    public static final int REGION_SIZE = 512;
+    private static final int REGION_SHIFT = 9;
+
+    private final Long2ObjectMap<GlowStructure> byChunk = new Long2ObjectOpenHashMap<>();
+    private final Long2ObjectMap<List<GlowStructure>> byRegion = new Long2ObjectOpenHashMap<>();
+
+    /**
+     * Returns the structure that starts in a chunk.
+     *
+     * @param chunkX the chunk X coordinate
+     * @param chunkZ the chunk Z coordinate
+     * @return the structure, or null if none starts in that chunk
+     */
+    public synchronized GlowStructure get(int chunkX, int chunkZ) {
+        return byChunk.get(GlowChunk.key(chunkX, chunkZ));
+    }
+
+    /**
+     * Returns whether a structure starts in a chunk.
+     *
+     * @param chunkX the chunk X coordinate
+     * @param chunkZ the chunk Z coordinate
+     * @return true if a structure starts in that chunk; false otherwise
+     */
+    public synchronized boolean contains(int chunkX, int chunkZ) {
+        return byChunk.containsKey(GlowChunk.key(chunkX, chunkZ));
+    }
+
+    /**
+     * Adds a structure, replacing the one that starts in the same chunk if there is one. The
+     * structure's bounding box must not change while it is in the index.
+     *
+     * @param structure the structure to add
+     */
+    public synchronized void put(GlowStructure structure) {
+        GlowStructure replaced = byChunk.put(
+                GlowChunk.key(structure.getChunkX(), structure.getChunkZ()), structure);
+        if (replaced != null) {
+            removeFromRegions(replaced);
+        }
+        StructureBoundingBox boundingBox = structure.getBoundingBox();
+        if (boundingBox == null) {
+            return;
+        }
+        int minX = boundingBox.getMin().getBlockX() >> REGION_SHIFT;
+        int minZ = boundingBox.getMin().getBlockZ() >> REGION_SHIFT;
+        int maxX = boundingBox.getMax().getBlockX() >> REGION_SHIFT;
+        int maxZ = boundingBox.getMax().getBlockZ() >> REGION_SHIFT;
+        for (int x = minX; x <= maxX; x++) {
+            for (int z = minZ; z <= maxZ; z++) {
+                byRegion.computeIfAbsent(GlowChunk.key(x, z), key -> new ArrayList<>(1))
+                        .add(structure);
+            }
+        }
+    }
+
+    /**
+     * Adds a structure unless one already starts in the same chunk.
+     *
+     * @param structure the structure to add
+     * @return the structure that already starts in that chunk, or null if {@code structure} was
+     *     added
+     */
+    public synchronized GlowStructure putIfAbsent(GlowStructure structure) {
+        GlowStructure existing = get(structure.getChunkX(), structure.getChunkZ());
+        if (existing == null) {
+            put(structure);
+        }
+        return existing;
+    }
+
+    /**
+     * Removes a structure.
+     *
+     * @param structure the structure to remove
+     * @return true if the structure was in the index; false otherwise
+     */
+    public synchronized boolean remove(GlowStructure structure) {
+        long key = GlowChunk.key(structure.getChunkX(), structure.getChunkZ());
+        if (byChunk.get(key) != structure) {
+            return false;
+        }
+        byChunk.remove(key);
+        removeFromRegions(structure);
+        return true;
+    }
+
+    /**
+     * Returns the structures whose bounding boxes intersect a vertically-infinite box.
+     *
+     * @param minX the minimum X coordinate
+     * @param minZ the minimum Z coordinate
+     * @param maxX the maximum X coordinate
+     * @param maxZ the maximum Z coordinate
+     * @return the intersecting structures, each listed once; within one region, in the order they
+     *     were added
+     */
+    public synchronized List<GlowStructure> getIntersecting(int minX, int minZ, int maxX,
+            int maxZ) {
+        List<GlowStructure> result = new ArrayList<>();
+        for (int x = minX >> REGION_SHIFT; x <= maxX >> REGION_SHIFT; x++) {
+            for (int z = minZ >> REGION_SHIFT; z <= maxZ >> REGION_SHIFT; z++) {
+                List<GlowStructure> region = byRegion.get(GlowChunk.key(x, z));
+                if (region == null) {
+                    continue;
+                }
+                for (GlowStructure structure : region) {
+                    // a structure is in every region it covers, but only needs to be listed once
+                    if (structure.getBoundingBox().intersectsWith(minX, minZ, maxX, maxZ)
+                            && !result.contains(structure)) {
+                        result.add(structure);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns all the structures.
+     *
+     * @return a copy of the structures, which isn't affected by later changes to the index
+     */
+    public synchronized Collection<GlowStructure> getStructures() {
+        return new ArrayList<>(byChunk.values());
+    }
+
+    /**
+     * Returns the number of structures.
+     *
+     * @return the number of structures
+     */
+    public synchronized int size() {
+        return byChunk.size();
+    }
+
+    private void removeFromRegions(GlowStructure structure) {
+        StructureBoundingBox boundingBox = structure.getBoundingBox();
+        if (boundingBox == null) {
+            return;
+        }
+        int minX = boundingBox.getMin().getBlockX() >> REGION_SHIFT;
+        int minZ = boundingBox.getMin().getBlockZ() >> REGION_SHIFT;
+        int maxX = boundingBox.getMax().getBlockX() >> REGION_SHIFT;
+        int maxZ = boundingBox.getMax().getBlockZ() >> REGION_SHIFT;
+        for (int x = minX; x <= maxX; x++) {
+            for (int z = minZ; z <= maxZ; z++) {
+                long key = GlowChunk.key(x, z);
+                List<GlowStructure> region = byRegion.get(key);
+                if (region != null) {
+                    region.removeIf(other -> other == structure);
+                    if (region.isEmpty()) {
+                        byRegion.remove(key);
+                    }
+                }
+            }
+        }
+    }
+}
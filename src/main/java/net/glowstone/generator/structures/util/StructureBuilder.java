@@ -6,6 +6,7 @@ import java.util.Random;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
+import net.glowstone.chunk.PopulationScheduler;
 import net.glowstone.generator.objects.RandomItemsContent;
 import net.glowstone.generator.structures.GlowStructurePiece;
 import net.glowstone.util.BlockStateDelegate;
@@ -460,14 +461,18 @@ public class StructureBuilder {
      *
      * @param pos a point relative to this structure's root point
      * @param entityType the type of entity to spawn
-     * @return true if the entity was spawned; false if {@code pos} is outside the builder's
-     *         bounding box or {@link World#spawnEntity(Location, EntityType)} fails
+     * @return true if the entity was spawned, or will be once population commits it on the world
+     *         thread (see {@link PopulationScheduler#runOnWorldThread(Runnable)}); false if
+     *         {@code pos} is outside the builder's bounding box
      */
     public boolean spawnMob(Vector pos, EntityType entityType) {
         Vector vec = translate(pos);
-        return boundingBox.isVectorInside(vec) && world
-                .spawnEntity(new Location(world, vec.getBlockX(), vec.getBlockY(), vec.getBlockZ()),
-                        entityType) != null;
+        if (!boundingBox.isVectorInside(vec)) {
+            return false;
+        }
+        Location location = new Location(world, vec.getBlockX(), vec.getBlockY(), vec.getBlockZ());
+        PopulationScheduler.runOnWorldThread(() -> world.spawnEntity(location, entityType));
+        return true;
     }
 
     private Vector translate(Vector pos) {
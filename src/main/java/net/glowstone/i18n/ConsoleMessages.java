@@ -25,6 +25,9 @@ public interface ConsoleMessages {
             LoggableLocalizedString GEN_FAILED = new LoggableLocalizedStringImpl(
                     "console.chunk.gen-failed", Level.SEVERE);
 
+            LoggableLocalizedString LIGHT_FAILED = new LoggableLocalizedStringImpl(
+                    "console.chunk.light-failed", Level.SEVERE);
+
             LoggableLocalizedString LOAD_FAILED = new LoggableLocalizedStringImpl(
                     "console.chunk.load-failed", Level.SEVERE);
 
@@ -162,6 +165,16 @@ public interface ConsoleMessages {
             );
         }
 
+        interface Tick {
+            LoggableLocalizedString REPORT_FAILED = new LoggableLocalizedStringImpl(
+                    "console.tick.report-failed", Level.SEVERE
+            );
+
+            LoggableLocalizedString RESTART = new LoggableLocalizedStringImpl(
+                    "console.tick.restart", Level.SEVERE
+            );
+        }
+
         interface Uuid {
             LoggableLocalizedString INTERRUPTED = new LoggableLocalizedStringImpl(
                     "console.uuid.interrupted", Level.SEVERE
@@ -347,6 +360,28 @@ public interface ConsoleMessages {
                     "console.version.minecraft-client", Level.INFO
             );
         }
+
+        interface WorldGen {
+            LoggableLocalizedString DONE = new LoggableLocalizedStringImpl(
+                    "console.worldgen.done", Level.INFO
+            );
+
+            LoggableLocalizedString PROGRESS = new LoggableLocalizedStringImpl(
+                    "console.worldgen.progress", Level.INFO
+            );
+
+            LoggableLocalizedString STAGE = new LoggableLocalizedStringImpl(
+                    "console.worldgen.stage", Level.INFO
+            );
+
+            LoggableLocalizedString START = new LoggableLocalizedStringImpl(
+                    "console.worldgen.start", Level.INFO
+            );
+
+            LoggableLocalizedString USAGE = new LoggableLocalizedStringImpl(
+                    "console.worldgen.usage", Level.INFO
+            );
+        }
     }
 
     interface Warn {
@@ -573,6 +608,16 @@ public interface ConsoleMessages {
             );
         }
 
+        interface Tick {
+            LoggableLocalizedString STALL = new LoggableLocalizedStringImpl(
+                    "console.tick.stall", Level.WARNING
+            );
+
+            LoggableLocalizedString STALL_REPORT = new LoggableLocalizedStringImpl(
+                    "console.tick.stall-report", Level.WARNING
+            );
+        }
+
         interface Uuid {
             LoggableLocalizedString TIMEOUT = new LoggableLocalizedStringImpl(
                     "console.uuid.timeout", Level.WARNING
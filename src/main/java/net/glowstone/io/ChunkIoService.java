@@ -1,7 +1,9 @@
 package net.glowstone.io;
 
 import java.io.IOException;
+import net.glowstone.chunk.ChunkSection;
 import net.glowstone.chunk.GlowChunk;
+import net.glowstone.chunk.ProtoChunk;
 
 /**
  * Provider of chunk I/O services.
@@ -27,6 +29,46 @@ public interface ChunkIoService {
      */
     void write(GlowChunk chunk) throws IOException;
 
+    /**
+     * Writes a single chunk with the given sections and lighting status instead of its own, such
+     * as snapshots of them taken on the world thread when the chunk is written on another thread.
+     *
+     * @param chunk The {@link GlowChunk} to write from.
+     * @param sections The sections to write, by section Y coordinate.
+     * @param lightPopulated Whether the light of the sections has been computed.
+     * @throws IOException if an I/O error occurs.
+     */
+    void write(GlowChunk chunk, ChunkSection[] sections, boolean lightPopulated)
+            throws IOException;
+
+    /**
+     * Checks whether a chunk has been saved.
+     *
+     * @param x The chunk X coordinate.
+     * @param z The chunk Z coordinate.
+     * @return if the chunk has been saved.
+     * @throws IOException if an I/O error occurs.
+     */
+    boolean hasChunk(int x, int z) throws IOException;
+
+    /**
+     * Reads a chunk that was saved as a proto-chunk, generated but not yet populated or lit.
+     *
+     * @param x The chunk X coordinate.
+     * @param z The chunk Z coordinate.
+     * @return the proto-chunk, or null if the chunk wasn't saved or was saved as a full chunk.
+     * @throws IOException if an I/O error occurs.
+     */
+    ProtoChunk readProtoChunk(int x, int z) throws IOException;
+
+    /**
+     * Writes a proto-chunk, marked so that it is read back as one.
+     *
+     * @param chunk The {@link ProtoChunk} to write from.
+     * @throws IOException if an I/O error occurs.
+     */
+    void writeProtoChunk(ProtoChunk chunk) throws IOException;
+
     /**
      * Unload the service, performing any cleanup necessary.
      *
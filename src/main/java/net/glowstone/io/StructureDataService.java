@@ -1,6 +1,6 @@
 package net.glowstone.io;
 
-import java.util.Map;
+import java.util.Collection;
 import net.glowstone.generator.structures.GlowStructure;
 
 /**
@@ -11,14 +11,14 @@ public interface StructureDataService {
     /**
      * Reads the structures data from storage.
      *
-     * @return A map containing structures indexed by their chunk hash.
+     * @return The structures that were read.
      */
-    Map<Integer, GlowStructure> readStructuresData();
+    Collection<GlowStructure> readStructuresData();
 
     /**
      * Write the structures data to storage.
      *
      * @param structures The structures to write to storage.
      */
-    void writeStructuresData(Map<Integer, GlowStructure> structures);
+    void writeStructuresData(Collection<GlowStructure> structures);
 }
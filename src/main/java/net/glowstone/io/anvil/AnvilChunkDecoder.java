@@ -0,0 +1,271 @@
+package net.glowstone.io.anvil;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import lombok.Getter;
+import net.glowstone.chunk.ChunkSection;
+import net.glowstone.chunk.GlowChunk;
+import net.glowstone.chunk.HeightMap;
+import net.glowstone.i18n.ConsoleMessages;
+import net.glowstone.util.nbt.CompoundTag;
+import net.glowstone.util.nbt.NbtInputStream;
+import net.glowstone.util.nbt.TagType;
+
+/**
+ * Decodes an Anvil chunk while it is read from the stream, without building a tag tree.
+ *
+ * <p>Sections are decoded straight into {@link ChunkSection}s from buffers that are reused
+ * between sections and chunks. Only entities, block entities and tile ticks are read into
+ * {@link CompoundTag}s, since they are loaded from tags. A decoder is not thread-safe.
+ */
+final class AnvilChunkDecoder {
+
+    private byte[] blocks = new byte[ChunkSection.ARRAY_SIZE];
+    private byte[] add = new byte[ChunkSection.ARRAY_SIZE / 2];
+    private byte[] data = new byte[ChunkSection.ARRAY_SIZE / 2];
+    private byte[] skyLight = new byte[ChunkSection.ARRAY_SIZE / 2];
+    private byte[] blockLight = new byte[ChunkSection.ARRAY_SIZE / 2];
+
+    /**
+     * Decodes a chunk.
+     *
+     * @param in the stream, positioned at the root compound
+     * @param chunk the chunk being read, or a description of it, for warnings
+     * @return the decoded level
+     * @throws IOException if the stream can't be read, or has no level
+     */
+    Level decode(NbtInputStream in, Object chunk) throws IOException {
+        Level level = null;
+        in.beginRoot();
+        for (TagType type = in.nextEntry(); type != TagType.END; type = in.nextEntry()) {
+            if (type == TagType.COMPOUND && "Level".equals(in.getEntryName())) { // NON-NLS
+                level = readLevel(in, chunk);
+            } else {
+                in.skip(type);
+            }
+        }
+        if (level == null) {
+            throw new IOException("Chunk has no Level tag");
+        }
+        return level;
+    }
+
+    private Level readLevel(NbtInputStream in, Object chunk) throws IOException {
+        Level level = new Level();
+        for (TagType type = in.nextEntry(); type != TagType.END; type = in.nextEntry()) {
+            switch (in.getEntryName()) {
+                case "Sections": // NON-NLS
+                    if (type == TagType.LIST) {
+                        readSections(in, level.sections, chunk);
+                        continue;
+                    }
+                    break;
+                case "TerrainPopulated": // NON-NLS
+                    if (type == TagType.BYTE) {
+                        level.populated = in.readByte() != 0;
+                        continue;
+                    }
+                    break;
+                case "LightPopulated": // NON-NLS
+                    if (type == TagType.BYTE) {
+                        level.lightPopulated = in.readByte() != 0;
+                        continue;
+                    }
+                    break;
+                case "InhabitedTime": // NON-NLS
+                    if (type == TagType.LONG) {
+                        level.inhabitedTime = in.readLong();
+                        continue;
+                    }
+                    break;
+                case "Biomes": // NON-NLS
+                    if (type == TagType.BYTE_ARRAY) {
+                        level.biomes = in.readByteArray(null);
+                        continue;
+                    }
+                    break;
+                case "HeightMap": // NON-NLS
+                    if (type == TagType.INT_ARRAY) {
+                        level.heightMap = in.readIntArray();
+                        continue;
+                    }
+                    break;
+                case "Heightmaps": // NON-NLS
+                    if (type == TagType.COMPOUND) {
+                        readHeightMaps(in, level.heightMaps);
+                        continue;
+                    }
+                    break;
+                case "isSlimeChunk": // NON-NLS
+                    if (type == TagType.BYTE) {
+                        level.slimeChunk = in.readByte();
+                        continue;
+                    }
+                    break;
+                case "Entities": // NON-NLS
+                    if (type == TagType.LIST) {
+                        level.entities = readCompoundList(in);
+                        continue;
+                    }
+                    break;
+                case "TileEntities": // NON-NLS
+                    if (type == TagType.LIST) {
+                        level.blockEntities = readCompoundList(in);
+                        continue;
+                    }
+                    break;
+                case "TileTicks": // NON-NLS
+                    if (type == TagType.LIST) {
+                        level.tileTicks = readCompoundList(in);
+                        continue;
+                    }
+                    break;
+                default:
+                    break;
+            }
+            in.skip(type);
+        }
+        return level;
+    }
+
+    private void readSections(NbtInputStream in, ChunkSection[] sections, Object chunk)
+            throws IOException {
+        int length = in.beginList();
+        if (in.getListType() != TagType.COMPOUND) {
+            for (int i = 0; i < length; i++) {
+                in.skip(in.getListType());
+            }
+            return;
+        }
+        for (int i = 0; i < length; i++) {
+            int y = -1;
+            boolean hasBlocks = false;
+            boolean hasAdd = false;
+            boolean hasData = false;
+            boolean hasSkyLight = false;
+            boolean hasBlockLight = false;
+            for (TagType type = in.nextEntry(); type != TagType.END; type = in.nextEntry()) {
+                if (type == TagType.BYTE && "Y".equals(in.getEntryName())) { // NON-NLS
+                    y = in.readByte();
+                    continue;
+                }
+                if (type != TagType.BYTE_ARRAY) {
+                    in.skip(type);
+                    continue;
+                }
+                switch (in.getEntryName()) {
+                    case "Blocks": // NON-NLS
+                        blocks = in.readByteArray(blocks);
+                        hasBlocks = true;
+                        break;
+                    case "Add": // NON-NLS
+                        add = in.readByteArray(add);
+                        hasAdd = true;
+                        break;
+                    case "Data": // NON-NLS
+                        data = in.readByteArray(data);
+                        hasData = true;
+                        break;
+                    case "SkyLight": // NON-NLS
+                        skyLight = in.readByteArray(skyLight);
+                        hasSkyLight = true;
+                        break;
+                    case "BlockLight": // NON-NLS
+                        blockLight = in.readByteArray(blockLight);
+                        hasBlockLight = true;
+                        break;
+                    default:
+                        in.skip(type);
+                        break;
+                }
+            }
+
+            if (y < 0 || y >= GlowChunk.SEC_COUNT) {
+                ConsoleMessages.Warn.Chunk.SECTION_OOB.log(y, chunk);
+                continue;
+            }
+            if (sections[y] != null) {
+                ConsoleMessages.Warn.Chunk.SECTION_DUP.log(y, chunk);
+                continue;
+            }
+            if (!hasBlocks || !hasData) {
+                throw new IOException("Section " + y + " has no blocks");
+            }
+            try {
+                sections[y] = ChunkSection.fromNbtArrays(blocks, hasAdd ? add : null, data,
+                        hasSkyLight ? skyLight : null, hasBlockLight ? blockLight : null);
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Section " + y + " is malformed", e);
+            }
+        }
+    }
+
+    private void readHeightMaps(NbtInputStream in, Map<HeightMap.Type, int[]> heightMaps)
+            throws IOException {
+        for (TagType type = in.nextEntry(); type != TagType.END; type = in.nextEntry()) {
+            HeightMap.Type mapType = null;
+            for (HeightMap.Type candidate : HeightMap.Type.values()) {
+                if (candidate.name().equals(in.getEntryName())) {
+                    mapType = candidate;
+                }
+            }
+            if (type == TagType.INT_ARRAY && mapType != null) {
+                heightMaps.put(mapType, in.readIntArray());
+            } else {
+                in.skip(type);
+            }
+        }
+    }
+
+    private List<CompoundTag> readCompoundList(NbtInputStream in) throws IOException {
+        int length = in.beginList();
+        if (in.getListType() != TagType.COMPOUND) {
+            for (int i = 0; i < length; i++) {
+                in.skip(in.getListType());
+            }
+            return Collections.emptyList();
+        }
+        List<CompoundTag> tags = new ArrayList<>(length);
+        for (int i = 0; i < length; i++) {
+            tags.add(in.readCompoundPayload());
+        }
+        return tags;
+    }
+
+    /**
+     * The contents of a chunk's Level tag.
+     */
+    @Getter
+    static final class Level {
+
+        private final ChunkSection[] sections = new ChunkSection[GlowChunk.SEC_COUNT];
+        private boolean populated;
+        /**
+         * Whether the chunk was lit; chunks saved before this was recorded are taken to be lit.
+         */
+        private boolean lightPopulated = true;
+        private long inhabitedTime;
+        private byte[] biomes;
+        private int[] heightMap;
+        private final Map<HeightMap.Type, int[]> heightMaps = new EnumMap<>(HeightMap.Type.class);
+        private int slimeChunk = -1;
+        private List<CompoundTag> entities = Collections.emptyList();
+        private List<CompoundTag> blockEntities = Collections.emptyList();
+        private List<CompoundTag> tileTicks = Collections.emptyList();
+
+        /**
+         * Returns whether the chunk was saved as a proto-chunk: neither lit nor populated, and
+         * with nothing but blocks and biomes.
+         *
+         * @return true if the chunk is a proto-chunk; false otherwise
+         */
+        boolean isProtoChunk() {
+            return !lightPopulated && !populated && entities.isEmpty() && blockEntities.isEmpty()
+                    && tileTicks.isEmpty();
+        }
+    }
+}
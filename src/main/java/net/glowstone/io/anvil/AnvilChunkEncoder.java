@@ -0,0 +1,267 @@
+package net.glowstone.io.anvil;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.Deflater;
+import net.glowstone.chunk.ChunkSection;
+import net.glowstone.chunk.GlowChunk;
+import net.glowstone.chunk.HeightMap;
+import net.glowstone.chunk.ProtoChunk;
+import net.glowstone.util.nbt.CompoundTag;
+import net.glowstone.util.nbt.NbtOutputStream;
+import net.glowstone.util.nbt.TagType;
+
+/**
+ * Encodes an Anvil chunk straight from the loaded chunk, without building a tag tree.
+ *
+ * <p>Sections are written from their palette storage through buffers that are reused between
+ * sections and chunks, and the whole chunk is deflated in one go into a buffer that is also
+ * reused, with room for the region file's header in front. Only entities, block entities and tile
+ * ticks are written from {@link CompoundTag}s, since they are saved as tags. An encoder is not
+ * thread-safe.
+ */
+final class AnvilChunkEncoder {
+
+    private final Deflater deflater;
+    private final Buffer raw = new Buffer();
+    private final NbtOutputStream out;
+    private byte[] compressed = new byte[4096];
+
+    private final byte[] blocks = new byte[ChunkSection.ARRAY_SIZE];
+    private final byte[] add = new byte[ChunkSection.ARRAY_SIZE / 2];
+    private final byte[] data = new byte[ChunkSection.ARRAY_SIZE / 2];
+    private final int[] heightMap = new int[GlowChunk.WIDTH * GlowChunk.HEIGHT];
+    private final byte[] biomes = new byte[GlowChunk.WIDTH * GlowChunk.HEIGHT];
+
+    /**
+     * Creates an encoder.
+     *
+     * @param deflater the deflater to compress chunks with, which is reset for each chunk
+     */
+    AnvilChunkEncoder(Deflater deflater) {
+        this.deflater = deflater;
+        try {
+            out = new NbtOutputStream(raw, false);
+        } catch (IOException e) {
+            // the buffer doesn't throw
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Encodes and deflates a chunk into {@link #getBuffer()}.
+     *
+     * @param chunk the chunk, which must be loaded
+     * @param sections the sections to write, which are the chunk's own sections or snapshots of
+     *         them when the chunk is saved on another thread
+     * @param lightPopulated whether the light of the sections has been computed
+     * @param entities the saved entities of the chunk
+     * @param blockEntities the saved block entities of the chunk
+     * @param tileTicks the saved tile ticks of the chunk
+     * @return the length of the encoded chunk in the buffer, including the
+     *         {@link RegionFile#CHUNK_HEADER_SIZE} bytes left for the header
+     * @throws IOException if the chunk can't be encoded
+     */
+    int encode(GlowChunk chunk, ChunkSection[] sections, boolean lightPopulated,
+            List<CompoundTag> entities, List<CompoundTag> blockEntities,
+            List<CompoundTag> tileTicks) throws IOException {
+        raw.count = 0;
+        out.beginRoot();
+        out.beginEntry(TagType.COMPOUND, "Level"); // NON-NLS
+
+        // core properties
+        out.beginEntry(TagType.INT, "xPos"); // NON-NLS
+        out.writeInt(chunk.getX());
+        out.beginEntry(TagType.INT, "zPos"); // NON-NLS
+        out.writeInt(chunk.getZ());
+        out.beginEntry(TagType.LONG, "LastUpdate"); // NON-NLS
+        out.writeLong(0);
+        out.beginEntry(TagType.LONG, "InhabitedTime"); // NON-NLS
+        out.writeLong(chunk.getInhabitedTime());
+        out.beginEntry(TagType.BYTE, "TerrainPopulated"); // NON-NLS
+        out.writeByte(chunk.isPopulated() ? 1 : 0);
+        out.beginEntry(TagType.BYTE, "LightPopulated"); // NON-NLS
+        out.writeByte(lightPopulated ? 1 : 0);
+
+        writeSections(sections, true);
+
+        // height maps and biomes
+        writeHeightMap(chunk, HeightMap.Type.WORLD_SURFACE);
+        out.beginEntry(TagType.INT_ARRAY, "HeightMap"); // NON-NLS
+        out.writeIntArray(heightMap);
+        out.beginEntry(TagType.COMPOUND, "Heightmaps"); // NON-NLS
+        for (HeightMap.Type type : HeightMap.Type.values()) {
+            if (type != HeightMap.Type.WORLD_SURFACE) {
+                writeHeightMap(chunk, type);
+                out.beginEntry(TagType.INT_ARRAY, type.name());
+                out.writeIntArray(heightMap);
+            }
+        }
+        out.endCompound();
+        for (int z = 0; z < GlowChunk.HEIGHT; z++) {
+            for (int x = 0; x < GlowChunk.WIDTH; x++) {
+                biomes[z * GlowChunk.WIDTH + x] = (byte) chunk.getBiome(x, z);
+            }
+        }
+        out.beginEntry(TagType.BYTE_ARRAY, "Biomes"); // NON-NLS
+        out.writeByteArray(biomes);
+
+        out.beginEntry(TagType.BYTE, "isSlimeChunk"); // NON-NLS
+        out.writeByte(chunk.isSlimeChunk() ? 1 : 0);
+
+        writeCompoundList("Entities", entities); // NON-NLS
+        writeCompoundList("TileEntities", blockEntities); // NON-NLS
+        writeCompoundList("TileTicks", tileTicks); // NON-NLS
+
+        out.endCompound();
+        out.endCompound();
+        return deflate();
+    }
+
+    /**
+     * Encodes and deflates a proto-chunk into {@link #getBuffer()}. It is marked as neither lit
+     * nor populated, and its light and height maps are left out, since they are computed when it
+     * is loaded.
+     *
+     * @param chunk the proto-chunk
+     * @return the length of the encoded chunk in the buffer, including the
+     *         {@link RegionFile#CHUNK_HEADER_SIZE} bytes left for the header
+     * @throws IOException if the chunk can't be encoded
+     */
+    int encode(ProtoChunk chunk) throws IOException {
+        raw.count = 0;
+        out.beginRoot();
+        out.beginEntry(TagType.COMPOUND, "Level"); // NON-NLS
+
+        out.beginEntry(TagType.INT, "xPos"); // NON-NLS
+        out.writeInt(chunk.getX());
+        out.beginEntry(TagType.INT, "zPos"); // NON-NLS
+        out.writeInt(chunk.getZ());
+        out.beginEntry(TagType.LONG, "LastUpdate"); // NON-NLS
+        out.writeLong(0);
+        out.beginEntry(TagType.LONG, "InhabitedTime"); // NON-NLS
+        out.writeLong(0);
+        out.beginEntry(TagType.BYTE, "TerrainPopulated"); // NON-NLS
+        out.writeByte(0);
+        out.beginEntry(TagType.BYTE, "LightPopulated"); // NON-NLS
+        out.writeByte(0);
+
+        writeSections(chunk.getSections(), false);
+        out.beginEntry(TagType.BYTE_ARRAY, "Biomes"); // NON-NLS
+        out.writeByteArray(chunk.getBiomes());
+
+        writeCompoundList("Entities", Collections.emptyList()); // NON-NLS
+        writeCompoundList("TileEntities", Collections.emptyList()); // NON-NLS
+        writeCompoundList("TileTicks", Collections.emptyList()); // NON-NLS
+
+        out.endCompound();
+        out.endCompound();
+        return deflate();
+    }
+
+    /**
+     * Gets the buffer that holds the last encoded chunk, after the space for its header.
+     *
+     * @return the buffer
+     */
+    byte[] getBuffer() {
+        return compressed;
+    }
+
+    private void writeHeightMap(GlowChunk chunk, HeightMap.Type type) {
+        for (int z = 0; z < GlowChunk.HEIGHT; z++) {
+            for (int x = 0; x < GlowChunk.WIDTH; x++) {
+                heightMap[z * GlowChunk.WIDTH + x] = chunk.getHeight(type, x, z);
+            }
+        }
+    }
+
+    private void writeSections(ChunkSection[] sections, boolean light) throws IOException {
+        int count = 0;
+        for (ChunkSection section : sections) {
+            if (section != null) {
+                count++;
+            }
+        }
+        out.beginEntry(TagType.LIST, "Sections"); // NON-NLS
+        out.beginList(TagType.COMPOUND, count);
+        for (int y = 0; y < sections.length; y++) {
+            ChunkSection section = sections[y];
+            if (section == null) {
+                continue;
+            }
+            out.beginEntry(TagType.BYTE, "Y"); // NON-NLS
+            out.writeByte(y);
+            boolean hasAdd = section.writeNbtArrays(blocks, add, data);
+            out.beginEntry(TagType.BYTE_ARRAY, "Blocks"); // NON-NLS
+            out.writeByteArray(blocks);
+            if (hasAdd) {
+                out.beginEntry(TagType.BYTE_ARRAY, "Add"); // NON-NLS
+                out.writeByteArray(add);
+            }
+            out.beginEntry(TagType.BYTE_ARRAY, "Data"); // NON-NLS
+            out.writeByteArray(data);
+            if (light) {
+                out.beginEntry(TagType.BYTE_ARRAY, "BlockLight"); // NON-NLS
+                out.writeByteArray(section.getBlockLight().getRawData());
+                out.beginEntry(TagType.BYTE_ARRAY, "SkyLight"); // NON-NLS
+                out.writeByteArray(section.getSkyLight().getRawData());
+            }
+            out.endCompound();
+        }
+    }
+
+    private void writeCompoundList(String name, List<CompoundTag> tags) throws IOException {
+        out.beginEntry(TagType.LIST, name);
+        out.beginList(TagType.COMPOUND, tags.size());
+        for (CompoundTag tag : tags) {
+            out.writePayload(tag);
+        }
+    }
+
+    private int deflate() {
+        deflater.reset();
+        deflater.setInput(raw.bytes, 0, raw.count);
+        deflater.finish();
+        int length = RegionFile.CHUNK_HEADER_SIZE;
+        while (!deflater.finished()) {
+            if (length == compressed.length) {
+                compressed = Arrays.copyOf(compressed, compressed.length * 2);
+            }
+            length += deflater.deflate(compressed, length, compressed.length - length);
+        }
+        return length;
+    }
+
+    /**
+     * A growable buffer that is reused for each chunk. Unlike a
+     * {@link java.io.ByteArrayOutputStream}, it isn't synchronized and exposes its array.
+     */
+    private static final class Buffer extends OutputStream {
+
+        private byte[] bytes = new byte[16384];
+        private int count;
+
+        private void ensureCapacity(int capacity) {
+            if (capacity > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(capacity, bytes.length * 2));
+            }
+        }
+
+        @Override
+        public void write(int b) {
+            ensureCapacity(count + 1);
+            bytes[count++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            ensureCapacity(count + len);
+            System.arraycopy(b, off, bytes, count, len);
+            count += len;
+        }
+    }
+}
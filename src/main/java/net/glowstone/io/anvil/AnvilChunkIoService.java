@@ -4,7 +4,10 @@ import java.io.DataInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import net.glowstone.block.GlowBlock;
 import net.glowstone.block.ItemTable;
@@ -12,7 +15,8 @@ import net.glowstone.block.blocktype.BlockType;
 import net.glowstone.block.entity.BlockEntity;
 import net.glowstone.chunk.ChunkSection;
 import net.glowstone.chunk.GlowChunk;
-import net.glowstone.chunk.GlowChunkSnapshot;
+import net.glowstone.chunk.HeightMap;
+import net.glowstone.chunk.ProtoChunk;
 import net.glowstone.constants.ItemIds;
 import net.glowstone.entity.GlowEntity;
 import net.glowstone.i18n.ConsoleMessages;
@@ -21,7 +25,6 @@ import net.glowstone.io.entity.EntityStorage;
 import net.glowstone.io.entity.UnknownEntityTypeException;
 import net.glowstone.util.nbt.CompoundTag;
 import net.glowstone.util.nbt.NbtInputStream;
-import net.glowstone.util.nbt.NbtOutputStream;
 import org.bukkit.Chunk;
 import org.bukkit.Location;
 import org.bukkit.Material;
@@ -42,6 +45,19 @@ public final class AnvilChunkIoService implements ChunkIoService {
      */
     private final RegionFileCache cache;
 
+    /**
+     * The decoder for chunks read by each thread, which keeps its section buffers between reads.
+     */
+    private final ThreadLocal<AnvilChunkDecoder> decoder =
+            ThreadLocal.withInitial(AnvilChunkDecoder::new);
+
+    /**
+     * The encoder for chunks written by each thread, which keeps its buffers and deflater between
+     * writes.
+     */
+    private final ThreadLocal<AnvilChunkEncoder> encoder =
+            ThreadLocal.withInitial(() -> new AnvilChunkEncoder(RegionFile.newDeflater()));
+
     // todo: consider the session.lock file
 
     public AnvilChunkIoService(File dir) {
@@ -61,45 +77,47 @@ public final class AnvilChunkIoService implements ChunkIoService {
 
         DataInputStream in = region.getChunkDataInputStream(regionX, regionZ);
 
-        CompoundTag levelTag;
+        AnvilChunkDecoder.Level level;
         try (NbtInputStream nbt = new NbtInputStream(in, false)) {
-            CompoundTag root = nbt.readCompound();
-            levelTag = root.getCompound("Level"); // NON-NLS
-        }
-
-        // read the vertical sections
-        List<CompoundTag> sectionList = levelTag.getCompoundList("Sections"); // NON-NLS
-        ChunkSection[] sections = new ChunkSection[GlowChunk.SEC_COUNT];
-        for (CompoundTag sectionTag : sectionList) {
-            int y = sectionTag.getByte("Y"); // NON-NLS
-            if (y < 0 || y > GlowChunk.SEC_COUNT) {
-                ConsoleMessages.Warn.Chunk.SECTION_OOB.log(y, chunk);
-                continue;
-            }
-            if (sections[y] != null) {
-                ConsoleMessages.Warn.Chunk.SECTION_DUP.log(y, chunk);
-                continue;
-            }
-            sections[y] = ChunkSection.fromNbt(sectionTag);
+            level = decoder.get().decode(nbt, chunk);
         }
 
         // initialize the chunk
-        chunk.initializeSections(sections);
-        chunk.setPopulated(levelTag.getBoolean("TerrainPopulated", false)); // NON-NLS
-        levelTag.readLong("InhabitedTime", chunk::setInhabitedTime);
+        chunk.initializeSections(level.getSections());
+        chunk.setPopulated(level.isPopulated());
+        chunk.setInhabitedTime(level.getInhabitedTime());
 
         // read biomes
-        levelTag.readByteArray("Biomes", chunk::setBiomes); // NON-NLS
-        // read height map
-        if (!levelTag.readIntArray("HeightMap", chunk::setHeightMap)) { // NON-NLS
-            chunk.automaticHeightMap();
+        if (level.getBiomes() != null) {
+            chunk.setBiomes(level.getBiomes());
+        }
+        // read height maps, and compute those that are missing or invalid
+        Set<HeightMap.Type> missing = EnumSet.allOf(HeightMap.Type.class);
+        if (level.getHeightMap() != null
+                && loadHeightMap(chunk, HeightMap.Type.WORLD_SURFACE, level.getHeightMap())) {
+            missing.remove(HeightMap.Type.WORLD_SURFACE);
+        }
+        for (Map.Entry<HeightMap.Type, int[]> entry : level.getHeightMaps().entrySet()) {
+            if (loadHeightMap(chunk, entry.getKey(), entry.getValue())) {
+                missing.remove(entry.getKey());
+            }
+        }
+        if (!missing.isEmpty()) {
+            chunk.automaticHeightMap(missing.toArray(new HeightMap.Type[0]));
         }
 
         // read slime chunk
-        levelTag.readByte("isSlimeChunk", chunk::setIsSlimeChunk); // NON-NLS
+        chunk.setIsSlimeChunk(level.getSlimeChunk());
+
+        // proto-chunks and chunks from elsewhere may not have been lit yet
+        if (level.isLightPopulated()) {
+            chunk.setLightPopulated(true);
+        } else {
+            chunk.getWorld().getLightEngine().lightChunk(chunk);
+        }
 
         // read entities
-        levelTag.iterateCompoundList("Entities", entityTag -> { // NON-NLS
+        for (CompoundTag entityTag : level.getEntities()) {
             try {
                 // note that creating the entity is sufficient to add it to the world
                 EntityStorage.loadEntity(chunk.getWorld(), entityTag);
@@ -108,12 +126,11 @@ public final class AnvilChunkIoService implements ChunkIoService {
             } catch (Exception e) {
                 ConsoleMessages.Warn.Entity.LOAD_FAILED.log(e, chunk);
             }
-        });
+        }
 
         // read block entities
-        List<CompoundTag> storedBlockEntities = levelTag.getCompoundList("TileEntities"); // NON-NLS
         BlockEntity blockEntity;
-        for (CompoundTag blockEntityTag : storedBlockEntities) {
+        for (CompoundTag blockEntityTag : level.getBlockEntities()) {
             int tx = blockEntityTag.getInt("x"); // NON-NLS
             int ty = blockEntityTag.getInt("y"); // NON-NLS
             int tz = blockEntityTag.getInt("z"); // NON-NLS
@@ -135,7 +152,7 @@ public final class AnvilChunkIoService implements ChunkIoService {
             }
         }
 
-        levelTag.iterateCompoundList("TileTicks", tileTick -> { // NON-NLS
+        for (CompoundTag tileTick : level.getTileTicks()) {
             int tileX = tileTick.getInt("x"); // NON-NLS
             int tileY = tileTick.getInt("y"); // NON-NLS
             int tileZ = tileTick.getInt("z"); // NON-NLS
@@ -143,65 +160,87 @@ public final class AnvilChunkIoService implements ChunkIoService {
             Material material = ItemIds.getBlock(id);
             if (material == null) {
                 ConsoleMessages.Warn.Chunk.UNKNOWN_BLOCK_TO_TICK.log(id);
-                return;
+                continue;
             }
             GlowBlock block = chunk.getBlock(tileX, tileY, tileZ);
             if (material != block.getType()) {
-                return;
+                continue;
             }
             // TODO tick delay: tileTick.getInt("t");
             // TODO ordering: tileTick.getInt("p");
             BlockType type = ItemTable.instance().getBlock(material);
             if (type == null) {
-                return;
+                continue;
             }
             block.getWorld().requestPulse(block);
-        });
+        }
 
         return true;
     }
 
+    private static boolean loadHeightMap(GlowChunk chunk, HeightMap.Type type, int[] heights) {
+        try {
+            chunk.setHeightMap(type, heights);
+            return true;
+        } catch (IllegalArgumentException e) {
+            // older versions saved heights above 127 as negative bytes
+            return false;
+        }
+    }
+
     @Override
-    public void write(GlowChunk chunk) throws IOException {
-        int x = chunk.getX();
-        int z = chunk.getZ();
+    public boolean hasChunk(int x, int z) throws IOException {
+        return cache.getRegionFile(x, z).hasChunk(x & REGION_SIZE - 1, z & REGION_SIZE - 1);
+    }
+
+    @Override
+    public ProtoChunk readProtoChunk(int x, int z) throws IOException {
         RegionFile region = cache.getRegionFile(x, z);
         int regionX = x & REGION_SIZE - 1;
         int regionZ = z & REGION_SIZE - 1;
+        if (!region.hasChunk(regionX, regionZ)) {
+            return null;
+        }
 
-        CompoundTag levelTags = new CompoundTag();
-
-        // core properties
-        levelTags.putInt("xPos", chunk.getX()); // NON-NLS
-        levelTags.putInt("zPos", chunk.getZ()); // NON-NLS
-        levelTags.putLong("LastUpdate", 0); // NON-NLS
-        levelTags.putLong("InhabitedTime", chunk.getInhabitedTime()); // NON-NLS
-        levelTags.putBool("TerrainPopulated", chunk.isPopulated()); // NON-NLS
-
-        // chunk sections
-        List<CompoundTag> sectionTags = new ArrayList<>();
-        GlowChunkSnapshot snapshot = chunk.getChunkSnapshot(true, true, false);
-        ChunkSection[] sections = snapshot.getRawSections();
-        for (byte i = 0; i < sections.length; ++i) {
-            ChunkSection sec = sections[i];
-            if (sec == null) {
-                continue;
-            }
+        DataInputStream in = region.getChunkDataInputStream(regionX, regionZ);
 
-            CompoundTag sectionTag = new CompoundTag();
-            sectionTag.putByte("Y", i); // NON-NLS
-            sec.optimize();
-            sec.writeToNbt(sectionTag);
-            sectionTags.add(sectionTag);
+        AnvilChunkDecoder.Level level;
+        try (NbtInputStream nbt = new NbtInputStream(in, false)) {
+            level = decoder.get().decode(nbt, "ProtoChunk{x=" + x + ",z=" + z + '}'); // NON-NLS
+        }
+        if (!level.isProtoChunk()) {
+            return null;
         }
-        levelTags.putCompoundList("Sections", sectionTags); // NON-NLS
+        byte[] biomes = level.getBiomes();
+        if (biomes == null || biomes.length != GlowChunk.WIDTH * GlowChunk.HEIGHT) {
+            return null;
+        }
+        return new ProtoChunk(x, z, level.getSections(), biomes);
+    }
 
-        // height map and biomes
-        levelTags.putIntArray("HeightMap", snapshot.getRawHeightmap()); // NON-NLS
-        levelTags.putByteArray("Biomes", snapshot.getRawBiomes()); // NON-NLS
+    @Override
+    public void writeProtoChunk(ProtoChunk chunk) throws IOException {
+        int x = chunk.getX();
+        int z = chunk.getZ();
+        RegionFile region = cache.getRegionFile(x, z);
+        AnvilChunkEncoder encoder = this.encoder.get();
+        int length = encoder.encode(chunk);
+        region.writeChunk(x & REGION_SIZE - 1, z & REGION_SIZE - 1, encoder.getBuffer(), length);
+    }
 
-        // Save Slime Chunk
-        levelTags.putByte("isSlimeChunk", snapshot.isSlimeChunk() ? 1 : 0); // NON-NLS
+    @Override
+    public void write(GlowChunk chunk) throws IOException {
+        write(chunk, chunk.getSections(), chunk.isLightPopulated());
+    }
+
+    @Override
+    public void write(GlowChunk chunk, ChunkSection[] sections, boolean lightPopulated)
+            throws IOException {
+        int x = chunk.getX();
+        int z = chunk.getZ();
+        RegionFile region = cache.getRegionFile(x, z);
+        int regionX = x & REGION_SIZE - 1;
+        int regionZ = z & REGION_SIZE - 1;
 
         // entities
         List<CompoundTag> entities = new ArrayList<>();
@@ -221,7 +260,6 @@ public final class AnvilChunkIoService implements ChunkIoService {
                 ConsoleMessages.Warn.Entity.SAVE_FAILED.log(e, entity, chunk);
             }
         }
-        levelTags.putCompoundList("Entities", entities);
 
         // block entities
         List<CompoundTag> blockEntities = new ArrayList<>();
@@ -234,7 +272,6 @@ public final class AnvilChunkIoService implements ChunkIoService {
                 ConsoleMessages.Error.BlockEntity.SAVE_FAILED.log(ex, entity.getBlock());
             }
         }
-        levelTags.putCompoundList("TileEntities", blockEntities);
 
         List<CompoundTag> tileTicks = new ArrayList<>();
         for (Location location : chunk.getWorld().getTickMap()) {
@@ -252,15 +289,11 @@ public final class AnvilChunkIoService implements ChunkIoService {
                 tileTicks.add(tag);
             }
         }
-        levelTags.putCompoundList("TileTicks", tileTicks);
-
-        CompoundTag levelOut = new CompoundTag();
-        levelOut.putCompound("Level", levelTags);
 
-        try (NbtOutputStream nbt = new NbtOutputStream(
-            region.getChunkDataOutputStream(regionX, regionZ), false)) {
-            nbt.writeTag(levelOut);
-        }
+        AnvilChunkEncoder encoder = this.encoder.get();
+        int length = encoder.encode(chunk, sections, lightPopulated, entities,
+                blockEntities, tileTicks);
+        region.writeChunk(regionX, regionZ, encoder.getBuffer(), length);
     }
 
     @Override
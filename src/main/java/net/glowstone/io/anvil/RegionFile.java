@@ -37,6 +37,7 @@ import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
 import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
 import java.util.BitSet;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.zip.Deflater;
@@ -94,7 +95,10 @@ public class RegionFile {
     private static final int SECTOR_BYTES = 4096;
     private static final int SECTOR_INTS = SECTOR_BYTES / 4;
 
-    private static final int CHUNK_HEADER_SIZE = 5;
+    /**
+     * The length of the header before the data of each chunk: its length and version.
+     */
+    static final int CHUNK_HEADER_SIZE = 5;
 
     private static final byte[] emptySector = new byte[SECTOR_BYTES];
     private final int[] offsets;
@@ -289,9 +293,7 @@ public class RegionFile {
      */
     public DataOutputStream getChunkDataOutputStream(int x, int z) {
         checkBounds(x, z);
-        Deflater deflater = new Deflater(
-                COMPRESSION_ENABLED ? Deflater.BEST_SPEED : Deflater.NO_COMPRESSION);
-        deflater.setStrategy(Deflater.HUFFMAN_ONLY);
+        Deflater deflater = newDeflater();
         DeflaterOutputStream dos = new DeflaterOutputStream(new ChunkBuffer(x, z), deflater, 2048) {
             @Override
             public void close() throws IOException {
@@ -302,12 +304,37 @@ public class RegionFile {
         return new DataOutputStream(new BufferedOutputStream(dos));
     }
 
-    /* write a chunk at (x,z) with length bytes of data to disk */
-    protected void write(int x, int z, byte[] data, int length) throws IOException {
+    /**
+     * Creates a deflater with the settings used for chunks.
+     *
+     * @return a new deflater
+     */
+    static Deflater newDeflater() {
+        Deflater deflater = new Deflater(
+                COMPRESSION_ENABLED ? Deflater.BEST_SPEED : Deflater.NO_COMPRESSION);
+        deflater.setStrategy(Deflater.HUFFMAN_ONLY);
+        return deflater;
+    }
+
+    /**
+     * Writes a chunk that has already been deflated, with a single write to the file.
+     *
+     * @param x the chunk X coordinate within the region
+     * @param z the chunk Z coordinate within the region
+     * @param chunk {@link #CHUNK_HEADER_SIZE} bytes, which are overwritten with the header,
+     *         followed by the deflated chunk
+     * @param length the number of bytes of the header and chunk
+     * @throws IOException if the file can't be written
+     */
+    public void writeChunk(int x, int z, byte[] chunk, int length) throws IOException {
+        checkBounds(x, z);
+        if (length < CHUNK_HEADER_SIZE) {
+            throw new IllegalArgumentException("Chunk has no room for its header: " + length);
+        }
         int offset = getOffset(x, z);
         int sectorNumber = offset >> 8;
         int sectorsAllocated = offset & 0xFF;
-        int sectorsNeeded = (length + CHUNK_HEADER_SIZE) / SECTOR_BYTES + 1;
+        int sectorsNeeded = length / SECTOR_BYTES + 1;
 
         // maximum chunk size is 1MB
         if (sectorsNeeded >= 256) {
@@ -316,7 +343,7 @@ public class RegionFile {
 
         if (sectorNumber != 0 && sectorsAllocated == sectorsNeeded) {
             /* we can simply overwrite the old sectors */
-            writeSector(sectorNumber, data, length);
+            writeSector(sectorNumber, chunk, length);
         } else {
             /* mark the sectors previously used for this chunk as free */
             if (sectorNumber != 0) {
@@ -339,7 +366,7 @@ public class RegionFile {
             }
 
             sectorsUsed.set(sectorNumber, sectorNumber + sectorsNeeded + 1);
-            writeSector(sectorNumber, data, length);
+            writeSector(sectorNumber, chunk, length);
             setOffset(x, z, sectorNumber << 8 | sectorsNeeded);
             setTimestamp(x, z, (int) (System.currentTimeMillis() / 1000L));
         }
@@ -367,12 +394,16 @@ public class RegionFile {
         return -1;
     }
 
-    /* write a chunk data to the region file at specified sector number */
-    private void writeSector(int sectorNumber, byte[] data, int length) throws IOException {
-        file.seek(sectorNumber * SECTOR_BYTES);
-        file.writeInt(length + 1); // chunk length
-        file.writeByte(VERSION_DEFLATE); // chunk version number
-        file.write(data, 0, length); // chunk data
+    /* write a chunk, after filling in its header, at the specified sector number */
+    private void writeSector(int sectorNumber, byte[] chunk, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(chunk, 0, length);
+        buffer.putInt(0, length - CHUNK_HEADER_SIZE + 1); // chunk length
+        buffer.put(4, VERSION_DEFLATE); // chunk version number
+        FileChannel channel = file.getChannel();
+        long position = (long) sectorNumber * SECTOR_BYTES;
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
     }
 
     /* is this an invalid chunk coordinate? */
@@ -420,11 +451,12 @@ public class RegionFile {
             super(SECTOR_BYTES); // initialize to 4KB
             this.x = x;
             this.z = z;
+            count = CHUNK_HEADER_SIZE; // leave room for the header
         }
 
         @Override
         public void close() throws IOException {
-            RegionFile.this.write(x, z, buf, count);
+            writeChunk(x, z, buf, count);
         }
     }
 }
@@ -4,11 +4,11 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import net.glowstone.GlowWorld;
 import net.glowstone.ServerProvider;
-import net.glowstone.chunk.GlowChunk;
 import net.glowstone.generator.structures.GlowStructure;
 import net.glowstone.i18n.ConsoleMessages;
 import net.glowstone.io.StructureDataService;
@@ -42,8 +42,8 @@ public class NbtStructureDataService implements StructureDataService {
     }
 
     @Override
-    public Map<Integer, GlowStructure> readStructuresData() {
-        Map<Integer, GlowStructure> structures = new HashMap<>();
+    public Collection<GlowStructure> readStructuresData() {
+        List<GlowStructure> structures = new ArrayList<>();
         for (StructureStore<?> store : StructureStorage.getStructureStores()) {
             File structureFile = new File(structureDir, store.getId() + ".dat");
             if (structureFile.exists()) {
@@ -52,13 +52,8 @@ public class NbtStructureDataService implements StructureDataService {
                     if (!data.readCompound("data", innerData -> innerData.readCompound(// NON-NLS
                             "Features", features -> features.getValue().keySet().stream() // NON-NLS
                                 .filter(features::isCompound)
-                                .forEach(key -> {
-                                    GlowStructure structure = StructureStorage
-                                        .loadStructure(world, features.getCompound(key));
-                                    structures.put(GlowChunk.Key
-                                        .of(structure.getChunkX(), structure.getChunkZ())
-                                        .hashCode(), structure);
-                                })))) {
+                                .forEach(key -> structures.add(StructureStorage
+                                    .loadStructure(world, features.getCompound(key))))))) {
                         ConsoleMessages.Error.Structure.NO_DATA.log(structureFile);
                     }
                 } catch (IOException e) {
@@ -70,8 +65,8 @@ public class NbtStructureDataService implements StructureDataService {
     }
 
     @Override
-    public void writeStructuresData(Map<Integer, GlowStructure> structures) {
-        for (GlowStructure structure : structures.values()) {
+    public void writeStructuresData(Collection<GlowStructure> structures) {
+        for (GlowStructure structure : structures) {
             if (structure.isDirty()) {
                 CompoundTag data;
                 CompoundTag features;
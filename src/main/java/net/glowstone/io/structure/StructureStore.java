@@ -46,6 +46,17 @@ public abstract class StructureStore<T extends GlowStructure> {
      */
     public abstract T createNewStructure(GlowWorld world, Random random, int chunkX, int chunkZ);
 
+    /**
+     * Returns whether a new structure of this store's type starts in the given chunk. This only
+     * depends on the world's seed and generated biomes, so no chunks are loaded.
+     *
+     * @param world The target world.
+     * @param chunkX The chunk X.
+     * @param chunkZ The chunk Z.
+     * @return Whether a structure starts in the chunk.
+     */
+    public abstract boolean isStartChunk(GlowWorld world, int chunkX, int chunkZ);
+
     /**
      * Load structure data of the appropriate type from the given compound tag.
      *
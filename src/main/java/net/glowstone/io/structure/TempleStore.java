@@ -19,4 +19,9 @@ public class TempleStore extends StructureStore<GlowTemple> {
     public GlowTemple createNewStructure(GlowWorld world, Random random, int chunkX, int chunkZ) {
         return new GlowTemple(world, random, chunkX, chunkZ);
     }
+
+    @Override
+    public boolean isStartChunk(GlowWorld world, int chunkX, int chunkZ) {
+        return GlowTemple.isStartChunk(world, chunkX, chunkZ);
+    }
 }
@@ -3,12 +3,12 @@ package net.glowstone.map;
 import static net.glowstone.map.GlowMapCanvas.MAP_SIZE;
 
 import net.glowstone.GlowServer;
+import net.glowstone.GlowWorld;
 import net.glowstone.ServerProvider;
-import net.glowstone.block.GlowBlock;
-import net.glowstone.block.MaterialValueManager.ValueCollection;
+import net.glowstone.block.MaterialValueManager;
+import net.glowstone.chunk.HeightMap;
 import org.bukkit.Location;
-import org.bukkit.World;
-import org.bukkit.block.Block;
+import org.bukkit.Material;
 import org.bukkit.entity.Player;
 import org.bukkit.map.MapCanvas;
 import org.bukkit.map.MapRenderer;
@@ -29,7 +29,9 @@ public final class GlowMapRenderer extends MapRenderer {
 
     @Override
     public void render(MapView map, MapCanvas canvas, Player player) {
-        World world = map.getWorld();
+        GlowWorld world = (GlowWorld) map.getWorld();
+        MaterialValueManager materialValues =
+                ((GlowServer) ServerProvider.getServer()).getMaterialValueManager();
         int scaleShift = map.getScale().getValue();
         Location playerLoc = player.getLocation();
         int playerX = playerLoc.getBlockX();
@@ -42,10 +44,7 @@ public final class GlowMapRenderer extends MapRenderer {
                 int worldZ = cornerZ + (pixelY << scaleShift);
                 if (((worldX - playerX) * (worldX - playerX)
                         + (worldZ - playerZ) * (worldZ - playerZ)) < MAP_SIGHT_DISTANCE_SQUARED) {
-                    // TODO: Should the highest block be skipped over if it's e.g. a flower or a
-                    // technical block?
-                    byte blockColor =
-                        colorFor(world.getHighestBlockAt(worldX, worldZ), worldX, worldZ);
+                    byte blockColor = colorFor(materialValues, world, worldX, worldZ);
                     canvas.setPixel(pixelX, pixelY, blockColor);
                 }
             }
@@ -63,13 +62,15 @@ public final class GlowMapRenderer extends MapRenderer {
                 + (worldZ * 0x5f24f))) % 4);
     }
 
-    private static byte colorFor(Block block, int worldX, int worldZ) {
+    private static byte colorFor(MaterialValueManager materialValues, GlowWorld world,
+            int worldX, int worldZ) {
         // TODO: Some blocks vary in map color based on block states (e.g. wood species)
-        ValueCollection materialValues;
-        materialValues = block instanceof GlowBlock ? ((GlowBlock) block).getMaterialValues()
-            : ((GlowServer) ServerProvider.getServer()).getMaterialValueManager()
-                .getValues(block.getType());
-        byte baseColor = materialValues.getBaseMapColor();
+        // the height map skips blocks that don't block motion, such as flowers and torches
+        int y = world.getHighestBlockYAt(worldX, worldZ, HeightMap.Type.MOTION_BLOCKING) - 1;
+        Material type = y < 0 ? null
+                : Material.getMaterial(world.getBlockTypeIdAt(worldX, y, worldZ));
+        byte baseColor = materialValues.getValues(type == null ? Material.AIR : type)
+                .getBaseMapColor();
         return (byte) (baseColor | pseudoRandomShade(worldX, worldZ));
     }
 }
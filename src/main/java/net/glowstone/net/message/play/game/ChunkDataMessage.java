@@ -15,4 +15,15 @@ public final class ChunkDataMessage implements Message {
     private final int primaryMask;
     private final ByteBuf data;
     private final Collection<CompoundTag> blockEntities;
+
+    /**
+     * Creates a copy of this message with its own reference to the same data, so that one message
+     * can be sent to several players: encoding a message reads and releases its data.
+     *
+     * @return the copy
+     */
+    public ChunkDataMessage retainedDuplicate() {
+        return new ChunkDataMessage(x, z, continuous, primaryMask, data.retainedDuplicate(),
+                blockEntities);
+    }
 }
@@ -110,6 +110,17 @@ public abstract class GlowProtocol extends AbstractProtocol {
         return reg;
     }
 
+    /**
+     * Finds the codec for a message sent by the client, so that tools can speak the protocol from
+     * the client side.
+     *
+     * @param clazz the message class
+     * @return the codec registration, or null if the message isn't inbound in this protocol
+     */
+    public <M extends Message> CodecRegistration getInboundCodecRegistration(Class<M> clazz) {
+        return inboundCodecs.find(clazz);
+    }
+
     @Override
     @Deprecated
     public ByteBuf writeHeader(ByteBuf out, CodecRegistration codec, ByteBuf data) {
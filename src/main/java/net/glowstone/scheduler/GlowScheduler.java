@@ -84,6 +84,10 @@ public final class GlowScheduler implements BukkitScheduler {
      * The session registry used to pulse all players.
      */
     private final SessionRegistry sessionRegistry;
+    /**
+     * Reports the server ticks to the watchdog.
+     */
+    private TickWatchdog.Tracker tickTracker;
 
     /**
      * Creates a new task scheduler.
@@ -117,11 +121,15 @@ public final class GlowScheduler implements BukkitScheduler {
      * Starts running ticks.
      */
     public void start() {
+        tickTracker = worlds.getWatchdog().track("server");
         executor.scheduleAtFixedRate(() -> {
+            tickTracker.begin();
             try {
                 pulse();
             } catch (Exception ex) {
                 GlowServer.logger.log(Level.SEVERE, "Error while pulsing", ex);
+            } finally {
+                tickTracker.end();
             }
         }, 0, PULSE_EVERY, TimeUnit.MILLISECONDS);
     }
@@ -180,7 +188,6 @@ public final class GlowScheduler implements BukkitScheduler {
     /**
      * Adds new tasks and updates existing tasks, removing them if necessary.
      */
-    // TODO: Add watchdog system to make sure ticks advance
     private void pulse() {
         primaryThread = Thread.currentThread();
 
@@ -221,7 +228,9 @@ public final class GlowScheduler implements BukkitScheduler {
                         tickTask.run();
                     }
 
+                    tickTracker.setWaiting(true);
                     inTickTaskCondition.wait();
+                    tickTracker.setWaiting(false);
                 }
             }
         } catch (InterruptedException e) {
@@ -0,0 +1,150 @@
+package net.glowstone.scheduler;
+
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Aggregates the stack samples of a stalled tick into the frames it spent the most time in.
+ */
+final class StallReport {
+
+    private static final int TOP_FRAMES = 20;
+    private static final int MAX_STACK_DEPTH = 256;
+
+    private final String name;
+    private final String threadName;
+    private final long startMillis;
+    private final long sampleIntervalMillis;
+    /**
+     * Samples whose top frame is each frame.
+     */
+    private final Object2IntOpenHashMap<StackTraceElement> selfCounts
+            = new Object2IntOpenHashMap<>();
+    /**
+     * Samples that contain each method anywhere on the stack, counted once per sample.
+     */
+    private final Object2IntOpenHashMap<String> totalCounts = new Object2IntOpenHashMap<>();
+    /**
+     * Samples of each distinct stack.
+     */
+    private final Object2IntOpenHashMap<List<StackTraceElement>> stackCounts
+            = new Object2IntOpenHashMap<>();
+    private int samples;
+    private int waitingSamples;
+
+    /**
+     * Starts a report.
+     *
+     * @param name the name of the stalled tick source
+     * @param threadName the name of the stalled thread
+     * @param startMillis when the tick started, in milliseconds since the epoch
+     * @param sampleIntervalMillis the time between two samples
+     */
+    StallReport(String name, String threadName, long startMillis, long sampleIntervalMillis) {
+        this.name = name;
+        this.threadName = threadName;
+        this.startMillis = startMillis;
+        this.sampleIntervalMillis = sampleIntervalMillis;
+    }
+
+    /**
+     * Adds a stack sample.
+     *
+     * @param stack the stack of the stalled thread, innermost frame first
+     */
+    void add(StackTraceElement... stack) {
+        if (stack.length == 0) {
+            return;
+        }
+        samples++;
+        selfCounts.addTo(stack[0], 1);
+        Set<String> methods = new HashSet<>();
+        for (StackTraceElement frame : stack) {
+            String method = frame.getClassName() + '.' + frame.getMethodName();
+            if (methods.add(method)) {
+                totalCounts.addTo(method, 1);
+            }
+        }
+        stackCounts.addTo(Arrays.asList(stack).subList(0, Math.min(stack.length,
+                MAX_STACK_DEPTH)), 1);
+    }
+
+    /**
+     * Counts a sample taken while the thread was waiting for other tick sources.
+     */
+    void addWaiting() {
+        waitingSamples++;
+    }
+
+    int getSamples() {
+        return samples;
+    }
+
+    /**
+     * Returns the frame most samples were taken in.
+     *
+     * @return the hottest frame, or null if there are no samples
+     */
+    StackTraceElement getHottestFrame() {
+        return selfCounts.object2IntEntrySet().stream()
+                .max(Comparator.comparingInt(Object2IntMap.Entry::getIntValue))
+                .map(Object2IntMap.Entry::getKey)
+                .orElse(null);
+    }
+
+    /**
+     * Writes the report.
+     *
+     * @param out the writer to write to
+     * @param durationMillis how long the tick has taken
+     * @param finished whether the tick has finished
+     */
+    void write(PrintWriter out, long durationMillis, boolean finished) {
+        out.printf("Tick stall in %s (thread %s)%n", name, threadName);
+        out.printf("Started at %tF %<tT.%<tL, %s %d ms%n", startMillis,
+                finished ? "lasted" : "running for", durationMillis);
+        out.printf("%d samples every %d ms", samples + waitingSamples, sampleIntervalMillis);
+        if (waitingSamples > 0) {
+            out.printf(", %d of them waiting for the world threads", waitingSamples);
+        }
+        out.println();
+        if (samples == 0) {
+            return;
+        }
+
+        out.println();
+        out.println("Hottest frames (top of stack):");
+        writeCounts(out, selfCounts);
+        out.println();
+        out.println("Hottest methods (anywhere on the stack):");
+        writeCounts(out, totalCounts);
+
+        Object2IntMap.Entry<List<StackTraceElement>> common = stackCounts.object2IntEntrySet()
+                .stream()
+                .max(Comparator.comparingInt(Object2IntMap.Entry::getIntValue))
+                .get();
+        out.println();
+        out.printf("Most common stack (%d samples):%n", common.getIntValue());
+        for (StackTraceElement frame : common.getKey()) {
+            out.println("    at " + frame);
+        }
+    }
+
+    private <K> void writeCounts(PrintWriter out, Object2IntMap<K> counts) {
+        List<Object2IntMap.Entry<K>> top = counts.object2IntEntrySet().stream()
+                .sorted(Comparator.comparingInt(Object2IntMap.Entry<K>::getIntValue).reversed())
+                .limit(TOP_FRAMES)
+                .collect(Collectors.toList());
+        for (Object2IntMap.Entry<K> entry : top) {
+            out.printf("  %5.1f%% %6d  %s%n", 100.0 * entry.getIntValue() / samples,
+                    entry.getIntValue(), entry.getKey());
+        }
+    }
+}
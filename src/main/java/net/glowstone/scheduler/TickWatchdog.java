@@ -0,0 +1,257 @@
+package net.glowstone.scheduler;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import lombok.Getter;
+import net.glowstone.i18n.ConsoleMessages;
+
+/**
+ * Watches that the server and world ticks keep advancing.
+ *
+ * <p>Each thread that runs ticks reports their start and end through a {@link Tracker}. When a
+ * tick runs longer than the stall threshold, the watchdog samples the stack of the thread running
+ * it at a high rate until the tick ends, then writes a report of the frames it spent its time in.
+ * If a restart threshold is set and a tick is still running when it is reached, the server is shut
+ * down, so that the script or service running it can start it again.
+ */
+public final class TickWatchdog {
+
+    /**
+     * The longest time between two checks while no tick is stalled.
+     */
+    private static final long IDLE_CHECK_MILLIS = 100;
+    /**
+     * How long a shutdown after a stall may take before the process exits regardless.
+     */
+    private static final long SHUTDOWN_GRACE_MILLIS = 30_000;
+    private static final long IDLE = Long.MIN_VALUE;
+
+    private final List<Tracker> trackers = new CopyOnWriteArrayList<>();
+    private Thread thread;
+
+    private long stallThresholdNanos;
+    private long restartThresholdNanos;
+    private long sampleIntervalMillis;
+    private File reportFolder;
+    private Runnable restart;
+
+    /**
+     * Creates a tracker for ticks run by a thread. Trackers may be created before the watchdog is
+     * started.
+     *
+     * @param name the name of what is being ticked, used in reports
+     * @return the tracker
+     */
+    public Tracker track(String name) {
+        Tracker tracker = new Tracker(name);
+        trackers.add(tracker);
+        return tracker;
+    }
+
+    /**
+     * Stops watching a tracker.
+     *
+     * @param tracker the tracker
+     */
+    public void untrack(Tracker tracker) {
+        trackers.remove(tracker);
+    }
+
+    /**
+     * Starts watching, unless the stall threshold is 0.
+     *
+     * @param stallThresholdMillis how long a tick may take before its stack is sampled
+     * @param sampleIntervalMillis the time between two stack samples
+     * @param restartThresholdSeconds how long a tick may take before the server is shut down, or
+     *         0 to never shut it down
+     * @param reportFolder the folder to write stall reports to
+     * @param restart shuts the server down; called on a new thread
+     */
+    public synchronized void start(int stallThresholdMillis, int sampleIntervalMillis,
+            int restartThresholdSeconds, File reportFolder, Runnable restart) {
+        if (thread != null || stallThresholdMillis <= 0) {
+            return;
+        }
+        this.stallThresholdNanos = TimeUnit.MILLISECONDS.toNanos(stallThresholdMillis);
+        this.sampleIntervalMillis = Math.max(1, sampleIntervalMillis);
+        this.restartThresholdNanos = TimeUnit.SECONDS.toNanos(restartThresholdSeconds);
+        this.reportFolder = reportFolder;
+        this.restart = restart;
+        thread = new Thread(this::run, "Glowstone-watchdog");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops watching.
+     */
+    public synchronized void stop() {
+        if (thread != null) {
+            thread.interrupt();
+            thread = null;
+        }
+    }
+
+    private void run() {
+        long idleSleep = Math.min(IDLE_CHECK_MILLIS,
+                Math.max(1, TimeUnit.NANOSECONDS.toMillis(stallThresholdNanos) / 4));
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                long now = System.nanoTime();
+                boolean sampling = false;
+                for (Tracker tracker : trackers) {
+                    if (check(tracker, now)) {
+                        sampling = true;
+                    }
+                }
+                Thread.sleep(sampling ? sampleIntervalMillis : idleSleep);
+            }
+        } catch (InterruptedException e) {
+            // stopped
+        }
+    }
+
+    /**
+     * Checks whether a tracker's tick has stalled, and samples it if so.
+     *
+     * @param tracker the tracker
+     * @param now the current {@link System#nanoTime()}
+     * @return whether the tracker's tick is stalled
+     * @throws InterruptedException if interrupted while shutting down the server
+     */
+    private boolean check(Tracker tracker, long now) throws InterruptedException {
+        long start = tracker.tickStart;
+        int tick = tracker.tick;
+        if (tracker.report != null && (start == IDLE || tick != tracker.reportTick)) {
+            finish(tracker, now, true);
+        }
+        if (start == IDLE || now - start < stallThresholdNanos) {
+            return false;
+        }
+
+        Thread stalled = tracker.thread;
+        if (tracker.report == null) {
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(now - start);
+            tracker.report = new StallReport(tracker.name, stalled.getName(),
+                    System.currentTimeMillis() - elapsedMillis, sampleIntervalMillis);
+            tracker.reportTick = tick;
+            tracker.reportStart = start;
+            ConsoleMessages.Warn.Tick.STALL.log(tracker.name, elapsedMillis);
+        }
+        if (tracker.waiting) {
+            tracker.report.addWaiting();
+        } else {
+            tracker.report.add(stalled.getStackTrace());
+        }
+
+        if (restartThresholdNanos > 0 && now - start >= restartThresholdNanos) {
+            finish(tracker, now, false);
+            restart(tracker.name);
+        }
+        return true;
+    }
+
+    /**
+     * Writes and logs the report of a tracker's stalled tick.
+     *
+     * @param tracker the tracker
+     * @param now the current {@link System#nanoTime()}
+     * @param finished whether the tick has ended
+     */
+    private void finish(Tracker tracker, long now, boolean finished) {
+        StallReport report = tracker.report;
+        tracker.report = null;
+        long durationMillis = TimeUnit.NANOSECONDS.toMillis(now - tracker.reportStart);
+
+        String fileName = "stall-" + tracker.name.replaceAll("[^A-Za-z0-9_.-]", "_") + "-"
+                + new SimpleDateFormat("yyyyMMdd-HHmmss-SSS").format(new Date()) + ".txt";
+        File file = new File(reportFolder, fileName);
+        StringWriter text = new StringWriter();
+        report.write(new PrintWriter(text), durationMillis, finished);
+        try {
+            Files.createDirectories(reportFolder.toPath());
+            Files.write(file.toPath(), text.toString().getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            ConsoleMessages.Error.Tick.REPORT_FAILED.log(e, file);
+            return;
+        }
+        StackTraceElement hottest = report.getHottestFrame();
+        ConsoleMessages.Warn.Tick.STALL_REPORT.log(tracker.name, durationMillis,
+                hottest == null ? "waiting for the world threads" : hottest, file);
+    }
+
+    /**
+     * Shuts the server down, and exits if that doesn't finish in time.
+     *
+     * @param name the name of the stalled tracker
+     * @throws InterruptedException if interrupted while waiting, as happens when the shutdown
+     *         stops the watchdog
+     */
+    private void restart(String name) throws InterruptedException {
+        ConsoleMessages.Error.Tick.RESTART.log(name,
+                TimeUnit.NANOSECONDS.toSeconds(restartThresholdNanos));
+        Thread shutdown = new Thread(restart, "Glowstone-watchdog-shutdown");
+        shutdown.start();
+        shutdown.join(SHUTDOWN_GRACE_MILLIS);
+        System.exit(1);
+    }
+
+    /**
+     * Reports the start and end of the ticks run by one thread.
+     */
+    public static final class Tracker {
+
+        @Getter
+        private final String name;
+        private volatile Thread thread;
+        private volatile long tickStart = IDLE;
+        private volatile int tick;
+        private volatile boolean waiting;
+
+        // only accessed by the watchdog thread
+        private StallReport report;
+        private int reportTick;
+        private long reportStart;
+
+        private Tracker(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Marks the start of a tick on the current thread.
+         */
+        public void begin() {
+            thread = Thread.currentThread();
+            tickStart = IDLE;
+            tick++;
+            tickStart = System.nanoTime();
+        }
+
+        /**
+         * Marks the end of the current tick.
+         */
+        public void end() {
+            tickStart = IDLE;
+            waiting = false;
+        }
+
+        /**
+         * Marks whether the ticking thread is only waiting for other tracked threads, so that
+         * samples taken meanwhile are not counted as time spent in its own code.
+         *
+         * @param waiting whether the thread is waiting
+         */
+        public void setWaiting(boolean waiting) {
+            this.waiting = waiting;
+        }
+    }
+}
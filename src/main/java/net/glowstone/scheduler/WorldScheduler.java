@@ -27,6 +27,11 @@ public class WorldScheduler {
     private final Phaser tickEnd = new Phaser(1);
     private final List<WorldEntry> worlds = new CopyOnWriteArrayList<>();
     private volatile int currentTick = -1;
+    /**
+     * The watchdog checking that the server and world ticks advance.
+     */
+    @Getter
+    private final TickWatchdog watchdog = new TickWatchdog();
 
     /**
      * Returns an immutable list of the currently scheduled worlds.
@@ -127,6 +132,7 @@ public class WorldScheduler {
         tickBegin.forceTermination();
         tickEnd.forceTermination();
         worldExecutor.shutdownNow();
+        watchdog.stop();
     }
 
     void doTickEnd() {
@@ -163,19 +169,23 @@ public class WorldScheduler {
 
         @Override
         public void run() {
+            TickWatchdog.Tracker tickTracker = watchdog.track("world " + world.getName());
             try {
                 while (!isInterrupted() && !tickEnd.isTerminated()) {
                     tickBegin.arriveAndAwaitAdvance();
+                    tickTracker.begin();
                     try {
                         world.pulse();
                     } catch (Exception e) {
                         GlowServer.logger.log(Level.SEVERE,
                             "Error occurred while pulsing world " + world.getName(), e);
                     } finally {
+                        tickTracker.end();
                         tickEnd.arriveAndAwaitAdvance();
                     }
                 }
             } finally {
+                watchdog.untrack(tickTracker);
                 tickBegin.arriveAndDeregister();
                 tickEnd.arriveAndDeregister();
             }
@@ -1,9 +1,15 @@
 package net.glowstone.util;
 
+import it.unimi.dsi.fastutil.longs.Long2IntLinkedOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2IntMap;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
+import net.glowstone.block.BlockAccess;
 import net.glowstone.block.GlowBlock;
 import net.glowstone.block.GlowBlockState;
+import net.glowstone.chunk.PopulationWriter;
 import org.bukkit.Location;
 import org.bukkit.Material;
 import org.bukkit.World;
@@ -14,11 +20,41 @@ import org.bukkit.material.MaterialData;
 /**
  * A small utility class that allow to maintain a {@link BlockState}'s list in order to capture a
  * chain of modified blocks and update all the states in once, or never (ie: event cancelled).
+ *
+ * <p>A delegate created with a {@link PopulationWriter} keeps raw states instead of
+ * {@link BlockState}s, and writes them through the writer, so that populators can buffer the
+ * blocks of a tree without creating a block and a state for each of them.
  */
 public class BlockStateDelegate {
 
     private final HashMap<Location, BlockState> blockStateMap = new HashMap<>();
     private final HashMap<Location, BlockState> blockStateBackupMap = new HashMap<>();
+    /**
+     * The writer that raw states are written through, or null if states are kept as
+     * {@link BlockState}s.
+     */
+    private final PopulationWriter writer;
+    /**
+     * The raw states, by position packed by {@link BlockAccess#pack(int, int, int)}.
+     */
+    private final Long2IntLinkedOpenHashMap rawStates = new Long2IntLinkedOpenHashMap();
+
+    /**
+     * Creates a delegate that keeps {@link BlockState}s.
+     */
+    public BlockStateDelegate() {
+        this(null);
+    }
+
+    /**
+     * Creates a delegate that keeps raw states and writes them through a writer.
+     *
+     * @param writer the writer, or null to keep {@link BlockState}s
+     */
+    public BlockStateDelegate(PopulationWriter writer) {
+        this.writer = writer;
+        rawStates.defaultReturnValue(-1);
+    }
 
     /**
      * Sets a block type and add it to the BlockState list.
@@ -30,6 +66,10 @@ public class BlockStateDelegate {
      * @param type the new type of this block
      */
     public void setType(World world, int x, int y, int z, Material type) {
+        if (writer != null) {
+            rawStates.put(BlockAccess.pack(x, y, z), type.getId() << 4);
+            return;
+        }
         GlowBlockState state = (GlowBlockState) world.getBlockAt(x, y, z).getState();
         state.setType(type);
         blockStateMap.put(world.getBlockAt(x, y, z).getLocation(), state);
@@ -46,6 +86,10 @@ public class BlockStateDelegate {
      * @param data the new MaterialData of this block
      */
     public void setTypeAndData(World world, int x, int y, int z, Material type, MaterialData data) {
+        if (writer != null) {
+            rawStates.put(BlockAccess.pack(x, y, z), type.getId() << 4 | data.getData() & 0xf);
+            return;
+        }
         GlowBlockState state = (GlowBlockState) world.getBlockAt(x, y, z).getState();
         state.setType(type);
         state.setData(data);
@@ -63,6 +107,10 @@ public class BlockStateDelegate {
      * @param data the new data value of this block
      */
     public void setTypeAndRawData(World world, int x, int y, int z, Material type, int data) {
+        if (writer != null) {
+            rawStates.put(BlockAccess.pack(x, y, z), type.getId() << 4 | data & 0xf);
+            return;
+        }
         GlowBlockState state = (GlowBlockState) world.getBlockAt(x, y, z).getState();
         state.setType(type);
         state.setRawData((byte) data);
@@ -75,6 +123,7 @@ public class BlockStateDelegate {
      * @param block the block which state should be backup
      */
     public void backupBlockState(Block block) {
+        rawStates.remove(BlockAccess.pack(block.getX(), block.getY(), block.getZ()));
         blockStateMap.remove(block.getLocation());
         blockStateBackupMap.put(block.getLocation(), new GlowBlockState((GlowBlock) block));
     }
@@ -95,13 +144,29 @@ public class BlockStateDelegate {
      * @return A list with all {@link BlockState}.
      */
     public Collection<BlockState> getBlockStates() {
-        return blockStateMap.values();
+        if (writer == null) {
+            return blockStateMap.values();
+        }
+        List<BlockState> states = new ArrayList<>(rawStates.size());
+        for (Long2IntMap.Entry entry : rawStates.long2IntEntrySet()) {
+            states.add(toBlockState(entry.getLongKey(), entry.getIntValue()));
+        }
+        return states;
     }
 
     /**
      * Updates all block states contained in the BlockState list.
      */
     public void updateBlockStates() {
+        if (writer != null) {
+            for (Long2IntMap.Entry entry : rawStates.long2IntEntrySet()) {
+                long position = entry.getLongKey();
+                writer.setState(BlockAccess.unpackX(position), BlockAccess.unpackY(position),
+                        BlockAccess.unpackZ(position), entry.getIntValue());
+            }
+            rawStates.clear();
+            return;
+        }
         for (BlockState state : blockStateMap.values()) {
             state.update(true);
         }
@@ -118,6 +183,12 @@ public class BlockStateDelegate {
      * @return The {@link BlockState} state.
      */
     public BlockState getBlockState(World world, int x, int y, int z) {
+        if (writer != null) {
+            long position = BlockAccess.pack(x, y, z);
+            int state = rawStates.get(position);
+            return state == -1 ? world.getBlockAt(x, y, z).getState()
+                    : toBlockState(position, state);
+        }
         Location loc = world.getBlockAt(x, y, z).getLocation();
         if (blockStateMap.containsKey(loc)) {
             return blockStateMap.get(loc);
@@ -133,10 +204,41 @@ public class BlockStateDelegate {
      * @return The {@link BlockState} state.
      */
     public BlockState getBlockState(Location loc) {
+        if (writer != null) {
+            return getBlockState(loc.getWorld(), loc.getBlockX(), loc.getBlockY(),
+                    loc.getBlockZ());
+        }
         if (blockStateMap.containsKey(loc)) {
             return blockStateMap.get(loc);
         } else {
             return loc.getBlock().getState();
         }
     }
+
+    /**
+     * Returns the type of a block at the given coordinates, including the changes made through
+     * this delegate.
+     *
+     * @param world the world which contains the block
+     * @param x the x-coordinate
+     * @param y the y-coordinate
+     * @param z the z-coordinate
+     * @return The type of the block.
+     */
+    public Material getType(World world, int x, int y, int z) {
+        if (writer == null) {
+            return getBlockState(world, x, y, z).getType();
+        }
+        int state = rawStates.get(BlockAccess.pack(x, y, z));
+        return Material.getMaterial((state == -1 ? writer.getState(x, y, z) : state) >> 4);
+    }
+
+    private BlockState toBlockState(long position, int rawState) {
+        GlowBlockState state = (GlowBlockState) writer.getWorld().getBlockAt(
+                BlockAccess.unpackX(position), BlockAccess.unpackY(position),
+                BlockAccess.unpackZ(position)).getState();
+        state.setTypeId(rawState >> 4);
+        state.setRawData((byte) (rawState & 0xf));
+        return state;
+    }
 }
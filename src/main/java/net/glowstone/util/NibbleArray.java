@@ -10,17 +10,27 @@ import lombok.Getter;
  *
  * <p>The even indices are stored in the least significant nibble and the odd indices in the most
  * significant bits. For example, [1 5 8 15] is stored as [0x51 0xf8].
+ *
+ * <p>A nibble array can be {@linkplain #shared(int, byte) shared}, in which case it can't be
+ * modified; owners of a shared array {@linkplain #copy() copy} it before their first write.
  */
 public final class NibbleArray {
 
     /**
      * Get the raw bytes of this nibble array. Modifying the returned array will modify the internal
-     * representation of this nibble array.
+     * representation of this nibble array, so the raw bytes of a shared array must not be modified.
      *
      * @return The raw bytes.
      */
     @Getter
     private final byte[] rawData;
+    /**
+     * Whether this nibble array is shared, and so can't be modified.
+     *
+     * @return true if this nibble array is shared
+     */
+    @Getter
+    private final boolean shared;
 
     /**
      * Construct a new NibbleArray with the given size in nibbles.
@@ -43,6 +53,7 @@ public final class NibbleArray {
     public NibbleArray(int size, byte value) {
         checkArgument(size > 0 && size % 2 == 0, "size must be positive even number, not " + size);
         rawData = new byte[size / 2];
+        shared = false;
         if (value != 0) {
             fill(value);
         }
@@ -54,7 +65,27 @@ public final class NibbleArray {
      * @param rawData The raw data to use.
      */
     public NibbleArray(byte... rawData) {
+        this(rawData, false);
+    }
+
+    private NibbleArray(byte[] rawData, boolean shared) {
         this.rawData = rawData;
+        this.shared = shared;
+    }
+
+    /**
+     * Construct a new shared NibbleArray with the given size in nibbles, filled with the specified
+     * nibble value. Shared nibble arrays can't be modified, so one instance can be used by any
+     * number of owners.
+     *
+     * @param size The number of nibbles in the array.
+     * @param value The value to fill the array with.
+     * @return The shared nibble array.
+     * @throws IllegalArgumentException If size is not positive and even.
+     */
+    public static NibbleArray shared(int size, byte value) {
+        NibbleArray filled = new NibbleArray(size, value);
+        return new NibbleArray(filled.rawData, true);
     }
 
     /**
@@ -97,6 +128,7 @@ public final class NibbleArray {
      * @param value The new value to store.
      */
     public void set(int index, byte value) {
+        checkModifiable();
         value &= 0xf;
         int half = index / 2;
         byte previous = rawData[half];
@@ -113,6 +145,7 @@ public final class NibbleArray {
      * @param value The value nibble to fill with.
      */
     public void fill(byte value) {
+        checkModifiable();
         value &= 0xf;
         Arrays.fill(rawData, (byte) (value << 4 | value));
     }
@@ -124,6 +157,7 @@ public final class NibbleArray {
      * @throws IllegalArgumentException If source is not the correct length.
      */
     public void setRawData(byte... source) {
+        checkModifiable();
         checkArgument(
                 source.length == rawData.length,
                 "expected byte array of length " + rawData.length + ", not " + source.length);
@@ -131,11 +165,45 @@ public final class NibbleArray {
     }
 
     /**
-     * Take a snapshot of this NibbleArray which will not reflect changes.
+     * Get the value of all nibbles, if they are all the same.
+     *
+     * @return The value of every nibble, or -1 if they aren't all the same.
+     */
+    public byte getUniformValue() {
+        byte first = rawData[0];
+        if ((first & 0xf) != (first >> 4 & 0xf)) {
+            return -1;
+        }
+        for (byte b : rawData) {
+            if (b != first) {
+                return -1;
+            }
+        }
+        return (byte) (first & 0xf);
+    }
+
+    /**
+     * Take a snapshot of this NibbleArray which will not reflect changes. A shared array is its
+     * own snapshot.
      *
      * @return The snapshot NibbleArray.
      */
     public NibbleArray snapshot() {
+        return shared ? this : copy();
+    }
+
+    /**
+     * Create a copy of this NibbleArray which can be modified, even if this one is shared.
+     *
+     * @return The copy.
+     */
+    public NibbleArray copy() {
         return new NibbleArray(rawData.clone());
     }
+
+    private void checkModifiable() {
+        if (shared) {
+            throw new IllegalStateException("A shared nibble array can't be modified");
+        }
+    }
 }
@@ -0,0 +1,332 @@
+package net.glowstone.util.collection;
+
+import it.unimi.dsi.fastutil.HashCommon;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+import java.util.function.LongFunction;
+
+/**
+ * A thread-safe map from primitive longs to objects.
+ *
+ * <p>Keys are spread over a fixed number of segments, each an open hash table whose writers are
+ * serialized by the segment's monitor, so threads writing different keys rarely contend and no key
+ * is ever boxed. Reads take no lock: a segment's table is published through a volatile field, its
+ * values are read and written with volatile semantics, and a slot never changes key once it has
+ * one, so a reader always sees a value together with its own key. Null values are not supported:
+ * {@link #get(long)} returns null for absent keys.
+ *
+ * @param <V> the type of the values
+ */
+public final class ConcurrentLong2ObjectMap<V> {
+
+    private static final int SEGMENT_BITS = 5;
+    private static final int MIN_CAPACITY = 16;
+    private static final float LOAD_FACTOR = 0.75f;
+    /**
+     * The value of a removed key, which keeps its slot until the table is rebuilt so that the
+     * probes of other keys aren't cut short.
+     */
+    private static final Object REMOVED = new Object();
+
+    private final Segment[] segments;
+
+    /**
+     * Creates an empty map.
+     */
+    public ConcurrentLong2ObjectMap() {
+        segments = new Segment[1 << SEGMENT_BITS];
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = new Segment();
+        }
+    }
+
+    private Segment segment(long hash) {
+        // the tables hash with the low bits of the same mix, so pick the segment by the high bits
+        return segments[(int) (hash >>> (Long.SIZE - SEGMENT_BITS))];
+    }
+
+    /**
+     * Gets the value of a key.
+     *
+     * @param key the key
+     * @return the value, or null if the key is absent
+     */
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        long hash = HashCommon.mix(key);
+        Object value = segment(hash).table.get(key, hash);
+        return value == REMOVED ? null : (V) value;
+    }
+
+    /**
+     * Returns whether a key is present.
+     *
+     * @param key the key
+     * @return true if the key has a value
+     */
+    public boolean containsKey(long key) {
+        return get(key) != null;
+    }
+
+    /**
+     * Sets the value of a key.
+     *
+     * @param key the key
+     * @param value the value
+     * @return the previous value, or null if the key was absent
+     */
+    public V put(long key, V value) {
+        long hash = HashCommon.mix(key);
+        Segment segment = segment(hash);
+        synchronized (segment) {
+            return segment.put(key, hash, value, false);
+        }
+    }
+
+    /**
+     * Sets the value of a key, unless it already has one.
+     *
+     * @param key the key
+     * @param value the value
+     * @return the current value, or null if the key was absent and has been set
+     */
+    public V putIfAbsent(long key, V value) {
+        long hash = HashCommon.mix(key);
+        Segment segment = segment(hash);
+        synchronized (segment) {
+            return segment.put(key, hash, value, true);
+        }
+    }
+
+    /**
+     * Gets the value of a key, computing and setting it first if the key is absent. The function
+     * is called while other threads are kept from writing the keys of the same segment, so it
+     * should be quick and must not use this map.
+     *
+     * @param key the key
+     * @param function computes the value from the key
+     * @return the current or computed value
+     */
+    public V computeIfAbsent(long key, LongFunction<? extends V> function) {
+        V value = get(key);
+        if (value != null) {
+            return value;
+        }
+        long hash = HashCommon.mix(key);
+        Segment segment = segment(hash);
+        synchronized (segment) {
+            value = segment.get(key, hash);
+            if (value == null) {
+                value = function.apply(key);
+                segment.put(key, hash, value, false);
+            }
+            return value;
+        }
+    }
+
+    /**
+     * Removes a key.
+     *
+     * @param key the key
+     * @return the removed value, or null if the key was absent
+     */
+    public V remove(long key) {
+        long hash = HashCommon.mix(key);
+        Segment segment = segment(hash);
+        synchronized (segment) {
+            return segment.remove(key, hash, null);
+        }
+    }
+
+    /**
+     * Removes a key if it has the given value.
+     *
+     * @param key the key
+     * @param value the expected value
+     * @return true if the key was removed
+     */
+    public boolean remove(long key, V value) {
+        long hash = HashCommon.mix(key);
+        Segment segment = segment(hash);
+        synchronized (segment) {
+            return segment.remove(key, hash, value) != null;
+        }
+    }
+
+    /**
+     * Returns the number of keys. The result may be stale if other threads are changing the map.
+     *
+     * @return the number of keys
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size;
+        }
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Removes all keys.
+     */
+    public void clear() {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+    }
+
+    /**
+     * Performs an action on each value, without copying or locking the map. The action may change
+     * the map, including removing the value it is given. Values put or removed while this runs,
+     * by the action or by other threads, may or may not be visited, but no value is visited twice.
+     *
+     * @param action the action to perform on each value
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(Consumer<? super V> action) {
+        for (Segment segment : segments) {
+            AtomicReferenceArray<Object> values = segment.table.values;
+            for (int i = 0; i < values.length(); i++) {
+                Object value = values.get(i);
+                if (value != null && value != REMOVED) {
+                    action.accept((V) value);
+                }
+            }
+        }
+    }
+
+    /**
+     * An open hash table with linear probing. Once a table is replaced by a rebuilt one, it is
+     * never written again.
+     */
+    private static final class Table {
+
+        private final long[] keys;
+        /**
+         * The value of each slot: null while the slot is free, then the value of its key or
+         * {@code REMOVED}. A slot's key is written before its first value, and readers read the
+         * value first, so a non-null value is always seen with its key.
+         */
+        private final AtomicReferenceArray<Object> values;
+        private final int mask;
+
+        Table(int capacity) {
+            keys = new long[capacity];
+            values = new AtomicReferenceArray<>(capacity);
+            mask = capacity - 1;
+        }
+
+        /**
+         * Finds the slot of a key, or the free slot that ends its probe. The table always has a
+         * free slot, so this ends.
+         */
+        int slot(long key, long hash) {
+            int slot = (int) hash & mask;
+            while (values.get(slot) != null && keys[slot] != key) {
+                slot = slot + 1 & mask;
+            }
+            return slot;
+        }
+
+        /**
+         * Gets the value of a key, {@code REMOVED} or null if the key is absent.
+         */
+        Object get(long key, long hash) {
+            return values.get(slot(key, hash));
+        }
+    }
+
+    /**
+     * The keys with the same high hash bits, whose writers synchronize on the segment.
+     */
+    private static final class Segment {
+
+        private volatile Table table = new Table(MIN_CAPACITY);
+        /**
+         * The number of keys present.
+         */
+        private volatile int size;
+        /**
+         * The number of slots with a key, including removed ones.
+         */
+        private int used;
+
+        @SuppressWarnings("unchecked")
+        <V> V get(long key, long hash) {
+            Object value = table.get(key, hash);
+            return value == REMOVED ? null : (V) value;
+        }
+
+        @SuppressWarnings("unchecked")
+        <V> V put(long key, long hash, V value, boolean ifAbsent) {
+            Table table = this.table;
+            int slot = table.slot(key, hash);
+            Object previous = table.values.get(slot);
+            if (previous != null && previous != REMOVED) {
+                if (!ifAbsent) {
+                    table.values.set(slot, value);
+                }
+                return (V) previous;
+            }
+            if (previous == null) {
+                if (used + 1 > table.keys.length * LOAD_FACTOR) {
+                    // twice the keys present, so that removed slots are only swept now and then
+                    table = rebuild((size + 1) * 2);
+                    slot = table.slot(key, hash);
+                }
+                table.keys[slot] = key;
+                used++;
+            }
+            table.values.set(slot, value);
+            size++;
+            return null;
+        }
+
+        @SuppressWarnings("unchecked")
+        <V> V remove(long key, long hash, V expected) {
+            Table table = this.table;
+            int slot = table.slot(key, hash);
+            Object value = table.values.get(slot);
+            if (value == null || value == REMOVED || expected != null && value != expected) {
+                return null;
+            }
+            table.values.set(slot, REMOVED);
+            size--;
+            return (V) value;
+        }
+
+        void clear() {
+            table = new Table(MIN_CAPACITY);
+            size = 0;
+            used = 0;
+        }
+
+        /**
+         * Copies the present keys into a new table with room for the given number of keys, and
+         * publishes it. Readers still probing the old table see it as it was.
+         */
+        private Table rebuild(int expected) {
+            Table old = table;
+            Table table = new Table(Math.max(MIN_CAPACITY,
+                    HashCommon.arraySize(expected, LOAD_FACTOR)));
+            for (int i = 0; i < old.keys.length; i++) {
+                Object value = old.values.get(i);
+                if (value != null && value != REMOVED) {
+                    long key = old.keys[i];
+                    int slot = table.slot(key, HashCommon.mix(key));
+                    table.keys[slot] = key;
+                    table.values.set(slot, value);
+                }
+            }
+            this.table = table;
+            used = size;
+            return table;
+        }
+    }
+}
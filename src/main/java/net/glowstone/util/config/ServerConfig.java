@@ -515,6 +515,14 @@ public class ServerConfig implements DynamicallyTypedMap<ServerConfig.Key> {
         SUGGEST_PLAYER_NAMES_WHEN_NULL_TAB_COMPLETIONS(
                 "advanced.suggest-player-name-when-null-tab-completions", true,
                 Boolean.class::isInstance),
+        WATCHDOG_STALL_THRESHOLD("advanced.watchdog.stall-threshold", 1000,
+                Validators.NON_NEGATIVE_INTEGER),
+        WATCHDOG_SAMPLE_INTERVAL("advanced.watchdog.sample-interval", 10,
+                Validators.POSITIVE_INTEGER),
+        WATCHDOG_RESTART_THRESHOLD("advanced.watchdog.restart-threshold", 0,
+                Validators.NON_NEGATIVE_INTEGER),
+        WATCHDOG_REPORT_FOLDER("advanced.watchdog.report-folder", "stall-reports",
+                Validators.PATH),
 
         // query rcon etc
         QUERY_ENABLED("extras.query-enabled", false, Migrate.PROPS, "enable-query",
@@ -2,6 +2,7 @@ package net.glowstone.util.nbt;
 
 import java.io.Closeable;
 import java.io.DataInputStream;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
@@ -12,6 +13,12 @@ import java.util.zip.GZIPInputStream;
  * This class reads NBT, or Named Binary Tag streams, and produces an object graph of subclasses of
  * the {@link Tag} object.
  *
+ * <p>Streams can also be read one entry at a time, for readers that only need some of the tags or
+ * want to decode large arrays straight into their own storage: after {@link #beginRoot()}, each
+ * call to {@link #nextEntry()} returns the type of the next entry of the current compound, whose
+ * payload must then be read with the matching {@code read} method, materialized with
+ * {@link #readPayload(TagType)} or skipped with {@link #skip(TagType)}.
+ *
  * <p>The NBT format was created by Markus Persson, and the specification may be found at <a href="http://www.minecraft.net/docs/NBT.txt"> http://www.minecraft.net/docs/NBT.txt</a>.
  */
 public final class NbtInputStream implements Closeable {
@@ -21,6 +28,16 @@ public final class NbtInputStream implements Closeable {
      */
     private final DataInputStream is;
 
+    /**
+     * The name of the entry last returned by {@link #nextEntry()}.
+     */
+    private String entryName;
+
+    /**
+     * The element type of the list last started with {@link #beginList()}.
+     */
+    private TagType listType;
+
     /**
      * Creates a new NBTInputStream, which will source its data from the specified input stream.
      *
@@ -190,6 +207,213 @@ public final class NbtInputStream implements Closeable {
         }
     }
 
+    /**
+     * Starts reading the root {@link CompoundTag} one entry at a time.
+     *
+     * @throws IOException if an I/O error occurs, or the root is not a compound.
+     */
+    public void beginRoot() throws IOException {
+        TagType type = TagType.byIdOrError(is.readUnsignedByte());
+        if (type != TagType.COMPOUND) {
+            throw new IOException("Root of NBTInputStream was " + type + ", not COMPOUND");
+        }
+        skipFully(is.readUnsignedShort());
+    }
+
+    /**
+     * Reads the type and name of the next entry of the current compound. Its payload must be
+     * read or skipped before the next call.
+     *
+     * @return The type of the entry, or {@link TagType#END} if the compound has no more entries.
+     * @throws IOException if an I/O error occurs.
+     */
+    public TagType nextEntry() throws IOException {
+        TagType type = TagType.byIdOrError(is.readUnsignedByte());
+        entryName = type == TagType.END ? null : is.readUTF();
+        return type;
+    }
+
+    /**
+     * Gets the name of the entry last returned by {@link #nextEntry()}.
+     *
+     * @return The name, or null if the last entry ended a compound.
+     */
+    public String getEntryName() {
+        return entryName;
+    }
+
+    /**
+     * Reads the element type and length of a list payload. The elements follow, and are read as
+     * the payloads of that type; compound elements with {@link #nextEntry()}.
+     *
+     * @return The number of elements.
+     * @throws IOException if an I/O error occurs.
+     */
+    public int beginList() throws IOException {
+        listType = TagType.byIdOrError(is.readUnsignedByte());
+        return is.readInt();
+    }
+
+    /**
+     * Gets the element type of the list last started with {@link #beginList()}.
+     *
+     * @return The element type.
+     */
+    public TagType getListType() {
+        return listType;
+    }
+
+    public byte readByte() throws IOException {
+        return is.readByte();
+    }
+
+    public short readShort() throws IOException {
+        return is.readShort();
+    }
+
+    public int readInt() throws IOException {
+        return is.readInt();
+    }
+
+    public long readLong() throws IOException {
+        return is.readLong();
+    }
+
+    public String readString() throws IOException {
+        return is.readUTF();
+    }
+
+    /**
+     * Reads a byte array payload.
+     *
+     * @param buffer An array to read into if it has the same length as the payload, or null.
+     * @return The buffer, or a new array if it didn't fit the payload.
+     * @throws IOException if an I/O error occurs.
+     */
+    public byte[] readByteArray(byte[] buffer) throws IOException {
+        int length = is.readInt();
+        if (buffer == null || buffer.length != length) {
+            buffer = new byte[length];
+        }
+        is.readFully(buffer);
+        return buffer;
+    }
+
+    /**
+     * Reads an int array payload.
+     *
+     * @return The array.
+     * @throws IOException if an I/O error occurs.
+     */
+    public int[] readIntArray() throws IOException {
+        int length = is.readInt();
+        int[] ints = new int[length];
+        for (int i = 0; i < length; ++i) {
+            ints[i] = is.readInt();
+        }
+        return ints;
+    }
+
+    /**
+     * Reads a payload into a {@link Tag}.
+     *
+     * @param type The type of the payload.
+     * @return The tag.
+     * @throws IOException if an I/O error occurs.
+     */
+    public Tag readPayload(TagType type) throws IOException {
+        return readTagPayload(type, 0, NbtReadLimiter.UNLIMITED);
+    }
+
+    /**
+     * Reads a compound payload into a {@link CompoundTag}.
+     *
+     * @return The tag.
+     * @throws IOException if an I/O error occurs.
+     */
+    public CompoundTag readCompoundPayload() throws IOException {
+        return readCompound(0, NbtReadLimiter.UNLIMITED);
+    }
+
+    /**
+     * Skips a payload without creating any tags.
+     *
+     * @param type The type of the payload.
+     * @throws IOException if an I/O error occurs.
+     */
+    public void skip(TagType type) throws IOException {
+        skip(type, 0);
+    }
+
+    private void skip(TagType type, int depth) throws IOException {
+        if (depth > 512) {
+            throw new IllegalStateException(
+                "Tried to read NBT tag with too high complexity, depth > 512");
+        }
+
+        switch (type) {
+            case BYTE:
+                skipFully(1);
+                break;
+            case SHORT:
+                skipFully(2);
+                break;
+            case INT:
+            case FLOAT:
+                skipFully(4);
+                break;
+            case LONG:
+            case DOUBLE:
+                skipFully(8);
+                break;
+            case BYTE_ARRAY:
+                skipFully(is.readInt());
+                break;
+            case STRING:
+                skipFully(is.readUnsignedShort());
+                break;
+            case LIST:
+                TagType childType = TagType.byIdOrError(is.readUnsignedByte());
+                int length = is.readInt();
+                for (int i = 0; i < length; i++) {
+                    skip(childType, depth + 1);
+                }
+                break;
+            case COMPOUND:
+                while (true) {
+                    TagType entryType = TagType.byIdOrError(is.readUnsignedByte());
+                    if (entryType == TagType.END) {
+                        break;
+                    }
+                    skipFully(is.readUnsignedShort());
+                    skip(entryType, depth + 1);
+                }
+                break;
+            case INT_ARRAY:
+                skipFully(4L * is.readInt());
+                break;
+            default:
+                throw new IOException("Invalid tag type: " + type + ".");
+        }
+    }
+
+    private void skipFully(long length) throws IOException {
+        if (length < 0) {
+            throw new IOException("Negative length: " + length);
+        }
+        while (length > 0) {
+            long skipped = is.skip(length);
+            if (skipped <= 0) {
+                // skip may give up early, so fall back to reading a byte
+                if (is.read() < 0) {
+                    throw new EOFException();
+                }
+                skipped = 1;
+            }
+            length -= skipped;
+        }
+    }
+
     @Override
     public void close() throws IOException {
         is.close();
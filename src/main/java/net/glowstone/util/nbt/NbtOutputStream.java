@@ -65,17 +65,103 @@ public final class NbtOutputStream implements Closeable {
      * @throws IOException if an I/O error occurs.
      */
     private void writeTag(String name, Tag tag) throws IOException {
-        TagType type = tag.getType();
-        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        beginEntry(tag.getType(), name);
+        writeTagPayload(tag);
+    }
+
+    /**
+     * Starts writing the root {@link CompoundTag} one entry at a time. It is ended with
+     * {@link #endCompound()}.
+     *
+     * @throws IOException if an I/O error occurs.
+     */
+    public void beginRoot() throws IOException {
+        beginEntry(TagType.COMPOUND, "");
+    }
 
+    /**
+     * Writes the type and name of an entry of the current compound. Its payload must be written
+     * next; a compound payload is ended with {@link #endCompound()}.
+     *
+     * @param type The type of the entry.
+     * @param name The name of the entry.
+     * @throws IOException if an I/O error occurs.
+     */
+    public void beginEntry(TagType type, String name) throws IOException {
         if (type == TagType.END) {
             throw new IOException("Named TAG_End not permitted.");
         }
-
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
         os.writeByte(type.getId());
         os.writeShort(nameBytes.length);
         os.write(nameBytes);
+    }
+
+    /**
+     * Ends the current compound.
+     *
+     * @throws IOException if an I/O error occurs.
+     */
+    public void endCompound() throws IOException {
+        os.writeByte(0);
+    }
+
+    /**
+     * Writes the element type and length of a list payload. The elements must follow, written as
+     * payloads of that type.
+     *
+     * @param elementType The type of the elements.
+     * @param length The number of elements.
+     * @throws IOException if an I/O error occurs.
+     */
+    public void beginList(TagType elementType, int length) throws IOException {
+        os.writeByte(elementType.getId());
+        os.writeInt(length);
+    }
+
+    public void writeByte(int value) throws IOException {
+        os.writeByte(value);
+    }
+
+    public void writeInt(int value) throws IOException {
+        os.writeInt(value);
+    }
+
+    public void writeLong(long value) throws IOException {
+        os.writeLong(value);
+    }
+
+    /**
+     * Writes a byte array payload.
+     *
+     * @param bytes The array.
+     * @throws IOException if an I/O error occurs.
+     */
+    public void writeByteArray(byte[] bytes) throws IOException {
+        os.writeInt(bytes.length);
+        os.write(bytes);
+    }
 
+    /**
+     * Writes an int array payload.
+     *
+     * @param ints The array.
+     * @throws IOException if an I/O error occurs.
+     */
+    public void writeIntArray(int[] ints) throws IOException {
+        os.writeInt(ints.length);
+        for (int value : ints) {
+            os.writeInt(value);
+        }
+    }
+
+    /**
+     * Writes the payload of a tag, such as an element of a list.
+     *
+     * @param tag The tag.
+     * @throws IOException if an I/O error occurs.
+     */
+    public void writePayload(Tag tag) throws IOException {
         writeTagPayload(tag);
     }
 
@@ -147,11 +233,7 @@ public final class NbtOutputStream implements Closeable {
                 break;
 
             case INT_ARRAY:
-                int[] ints = (int[]) tag.getValue();
-                os.writeInt(ints.length);
-                for (int value : ints) {
-                    os.writeInt(value);
-                }
+                writeIntArray((int[]) tag.getValue());
                 break;
 
             default:
@@ -0,0 +1,94 @@
+package net.glowstone.util.noise;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * A {@link SimplexOctaveGenerator} that generates exactly the same noise, with the coordinates
+ * along each axis computed once per octave instead of once per sample.
+ *
+ * <p>Like {@link BatchPerlinOctaveGenerator}, each thread keeps its own buffers, so the arrays that
+ * {@link #getFractalBrownianMotion(double, double, double, double, double)} returns are only
+ * reused by the thread that received them.
+ */
+public class BatchSimplexOctaveGenerator extends SimplexOctaveGenerator {
+
+    private final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+
+    public BatchSimplexOctaveGenerator(Random rand, int octaves, int sizeX, int sizeZ) {
+        this(rand, octaves, sizeX, 1, sizeZ);
+    }
+
+    public BatchSimplexOctaveGenerator(Random rand, int octaves, int sizeX, int sizeY,
+            int sizeZ) {
+        super(rand, octaves, sizeX, sizeY, sizeZ);
+    }
+
+    @Override
+    public double[] getFractalBrownianMotion(double x, double y, double z, double lacunarity,
+            double persistence) {
+        return getFractalBrownianMotion(scratch.get().noise, x, y, z, lacunarity, persistence);
+    }
+
+    @Override
+    public double[] getFractalBrownianMotion(double[] noise, double x, double y, double z,
+            double lacunarity, double persistence) {
+        Arrays.fill(noise, 0, sizeX * sizeY * sizeZ, 0);
+        Scratch scratch = this.scratch.get();
+
+        double freq = 1;
+        double amp = 1;
+
+        for (int i = 0; i < octaves.length; i++) {
+            SimplexNoise octave = (SimplexNoise) octaves[i];
+            double amplitude = 0.55D / amp;
+            fill(scratch.inX, octave.getOffsetX(), x, xScale * freq, sizeX);
+            if (sizeY == 1) {
+                // like SimplexNoise, the Z coordinate is offset by the Y offset
+                fill(scratch.inZ, octave.getOffsetY(), z, zScale * freq, sizeZ);
+                int index = 0;
+                for (int j = 0; j < sizeZ; j++) {
+                    double zin = scratch.inZ[j];
+                    for (int k = 0; k < sizeX; k++) {
+                        noise[index++] += octave.simplex2D(scratch.inX[k], zin) * amplitude;
+                    }
+                }
+            } else {
+                fill(scratch.inY, octave.getOffsetY(), y, yScale * freq, sizeY);
+                fill(scratch.inZ, octave.getOffsetZ(), z, zScale * freq, sizeZ);
+                int index = 0;
+                for (int j = 0; j < sizeZ; j++) {
+                    double zin = scratch.inZ[j];
+                    for (int k = 0; k < sizeX; k++) {
+                        double xin = scratch.inX[k];
+                        for (int l = 0; l < sizeY; l++) {
+                            noise[index++] += octave.simplex3D(xin, scratch.inY[l], zin)
+                                    * amplitude;
+                        }
+                    }
+                }
+            }
+            freq *= lacunarity;
+            amp *= persistence;
+        }
+
+        return noise;
+    }
+
+    private static void fill(double[] in, double offset, double start, double scale, int size) {
+        for (int i = 0; i < size; i++) {
+            in[i] = offset + (start + i) * scale;
+        }
+    }
+
+    /**
+     * The buffers that a thread uses.
+     */
+    private final class Scratch {
+
+        private final double[] noise = new double[sizeX * sizeY * sizeZ];
+        private final double[] inX = new double[sizeX];
+        private final double[] inY = new double[sizeY];
+        private final double[] inZ = new double[sizeZ];
+    }
+}
@@ -34,6 +34,22 @@ public class PerlinNoise extends PerlinNoiseGenerator {
         }
     }
 
+    int[] getPermutation() {
+        return perm;
+    }
+
+    double getOffsetX() {
+        return offsetX;
+    }
+
+    double getOffsetY() {
+        return offsetY;
+    }
+
+    double getOffsetZ() {
+        return offsetZ;
+    }
+
     public static int floor(double x) {
         int floored = (int) x;
         return x < floored ? floored - 1 : floored;
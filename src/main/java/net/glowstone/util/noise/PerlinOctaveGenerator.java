@@ -1,6 +1,8 @@
 package net.glowstone.util.noise;
 
+import java.util.Arrays;
 import java.util.Random;
+import java.util.stream.IntStream;
 import lombok.Getter;
 import org.bukkit.util.noise.NoiseGenerator;
 import org.bukkit.util.noise.OctaveGenerator;
@@ -81,9 +83,24 @@ public class PerlinOctaveGenerator extends OctaveGenerator {
      */
     public double[] getFractalBrownianMotion(double x, double y, double z, double lacunarity,
             double persistence) {
-        for (int i = 0; i < noise.length; i++) {
-            noise[i] = 0;
-        }
+        return getFractalBrownianMotion(noise, x, y, z, lacunarity, persistence);
+    }
+
+    /**
+     * Generates multiple layers of noise into the given array, instead of the one that this
+     * generator reuses between calls, so that it can be called from several threads at once.
+     *
+     * @param noise the array to fill, with room for at least sizeX * sizeY * sizeZ values
+     * @param x the starting X coordinate
+     * @param y the starting Y coordinate
+     * @param z the starting Z coordinate
+     * @param lacunarity layer n's frequency as a fraction of layer {@code n - 1}'s frequency
+     * @param persistence layer n's amplitude as a multiple of layer {@code n - 1}'s amplitude
+     * @return {@code noise}
+     */
+    public double[] getFractalBrownianMotion(double[] noise, double x, double y, double z,
+            double lacunarity, double persistence) {
+        Arrays.fill(noise, 0, sizeX * sizeY * sizeZ, 0);
 
         double freq = 1;
         double amp = 1;
@@ -113,7 +130,7 @@ public class PerlinOctaveGenerator extends OctaveGenerator {
             dz += lz;
 
             double dy = y * freq;
-            noise = ((PerlinNoise) octave)
+            ((PerlinNoise) octave)
                 .getNoise(noise, dx, dy, dz, sizeX, sizeY, sizeZ, xScale * freq, yScale * freq,
                     zScale * freq, amp);
             freq *= lacunarity;
@@ -122,4 +139,32 @@ public class PerlinOctaveGenerator extends OctaveGenerator {
 
         return noise;
     }
+
+    /**
+     * Generates multiple layers of noise for several areas of this generator's size, such as
+     * those of neighboring chunks. Each area gets exactly the same values as it would from {@link
+     * #getFractalBrownianMotion(double[], double, double, double, double, double)}.
+     *
+     * @param noise the arrays to fill, one for each area
+     * @param x the starting X coordinate of each area
+     * @param y the starting Y coordinate of every area
+     * @param z the starting Z coordinate of each area
+     * @param lacunarity layer n's frequency as a fraction of layer {@code n - 1}'s frequency
+     * @param persistence layer n's amplitude as a multiple of layer {@code n - 1}'s amplitude
+     * @param parallel whether to split the areas between the threads of the common fork-join
+     *     pool
+     * @throws IllegalArgumentException if there aren't as many coordinates as areas
+     */
+    public void getFractalBrownianMotion(double[][] noise, double[] x, double y, double[] z,
+            double lacunarity, double persistence, boolean parallel) {
+        if (x.length != noise.length || z.length != noise.length) {
+            throw new IllegalArgumentException("Expected " + noise.length + " coordinates");
+        }
+        IntStream areas = IntStream.range(0, noise.length);
+        if (parallel) {
+            areas = areas.parallel();
+        }
+        areas.forEach(i -> getFractalBrownianMotion(noise[i], x[i], y, z[i], lacunarity,
+                persistence));
+    }
 }
@@ -97,7 +97,7 @@ public class SimplexNoise extends PerlinNoise {
         return simplex3D(xin, yin, zin);
     }
 
-    private double simplex2D(double xin, double yin) {
+    double simplex2D(double xin, double yin) {
         // Skew the input space to determine which simplex cell we're in
         double s = (xin + yin) * F2; // Hairy factor for 2D
         int i = floor(xin + s);
@@ -170,7 +170,7 @@ public class SimplexNoise extends PerlinNoise {
         return 70.0 * (n0 + n1 + n2);
     }
 
-    private double simplex3D(double xin, double yin, double zin) {
+    double simplex3D(double xin, double yin, double zin) {
         // Skew the input space to determine which simplex cell we're in
         double s = (xin + yin + zin) * F3; // Very nice and simple skew factor for 3D
         int i = floor(xin + s);
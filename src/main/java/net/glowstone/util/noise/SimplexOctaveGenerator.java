@@ -1,5 +1,6 @@
 package net.glowstone.util.noise;
 
+import java.util.Arrays;
 import java.util.Random;
 import org.bukkit.util.noise.NoiseGenerator;
 
@@ -28,18 +29,16 @@ public class SimplexOctaveGenerator extends PerlinOctaveGenerator {
     }
 
     @Override
-    public double[] getFractalBrownianMotion(
-            double x, double y, double z, double lacunarity, double persistence) {
-        for (int i = 0; i < noise.length; i++) {
-            noise[i] = 0;
-        }
+    public double[] getFractalBrownianMotion(double[] noise, double x, double y, double z,
+            double lacunarity, double persistence) {
+        Arrays.fill(noise, 0, sizeX * sizeY * sizeZ, 0);
 
         double freq = 1;
         double amp = 1;
 
         // fBm
         for (NoiseGenerator octave : octaves) {
-            noise = ((SimplexNoise) octave)
+            ((SimplexNoise) octave)
                 .getNoise(noise, x, y, z, sizeX, sizeY, sizeZ, xScale * freq, yScale * freq,
                     zScale * freq, 0.55D / amp);
             freq *= lacunarity;
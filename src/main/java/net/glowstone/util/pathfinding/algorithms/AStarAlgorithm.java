@@ -76,10 +76,11 @@ public class AStarAlgorithm implements IAlgorithm {
         }
 
         List<Vector> path = new ArrayList<>();
-        Vector current = endVector;
+        Vector current = parents.get(endVector);
         while (current != null) {
-            current = parents.get(current);
             path.add(0, current);
+            // the start is its own parent
+            current = current.equals(startVector) ? null : parents.get(current);
         }
         path.add(path.size(), endVector);
         return path;
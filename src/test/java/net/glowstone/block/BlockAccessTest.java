@@ -0,0 +1,30 @@
+package net.glowstone.block;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+public class BlockAccessTest {
+
+    @Test
+    public void packRoundTrip() {
+        int[][] positions = {
+            {0, 0, 0}, {1, 2, 3}, {-1, 255, -1}, {-30_000_000, 17, 29_999_999},
+            {33_554_431, 0, -33_554_432}, {15, -1, -16}
+        };
+        for (int[] position : positions) {
+            long packed = BlockAccess.pack(position[0], position[1], position[2]);
+            assertThat(BlockAccess.unpackX(packed), is(position[0]));
+            assertThat(BlockAccess.unpackY(packed), is(position[1]));
+            assertThat(BlockAccess.unpackZ(packed), is(position[2]));
+        }
+    }
+
+    @Test
+    public void packDistinct() {
+        assertThat(BlockAccess.pack(1, 0, 0) == BlockAccess.pack(0, 0, 1), is(false));
+        assertThat(BlockAccess.pack(0, 1, 0) == BlockAccess.pack(0, 0, 1), is(false));
+        assertThat(BlockAccess.pack(-1, 0, 0) == BlockAccess.pack(0, -1, 0), is(false));
+    }
+}
@@ -0,0 +1,150 @@
+package net.glowstone.block;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.flowpowered.network.Message;
+import io.netty.buffer.Unpooled;
+import java.util.Arrays;
+import java.util.Collections;
+import net.glowstone.GlowWorld;
+import net.glowstone.chunk.ChunkSection;
+import net.glowstone.chunk.GlowChunk;
+import net.glowstone.entity.GlowPlayer;
+import net.glowstone.net.message.play.game.ChunkDataMessage;
+import net.glowstone.net.message.play.game.MultiBlockChangeMessage;
+import org.bukkit.World.Environment;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+public class BlockEditSessionTest {
+
+    private static final int STONE = 1;
+
+    private final int[] states = new int[GlowChunk.WIDTH * GlowChunk.HEIGHT * GlowChunk.DEPTH];
+    private final ChunkSection[] sections = new ChunkSection[GlowChunk.SEC_COUNT];
+    private GlowChunk chunk;
+    private GlowPlayer player;
+    private GlowWorld world;
+    private BlockEditSession session;
+
+    @BeforeEach
+    public void setUp() {
+        chunk = mock(GlowChunk.class);
+        when(chunk.getX()).thenReturn(0);
+        when(chunk.getZ()).thenReturn(0);
+        when(chunk.getSections()).thenReturn(sections);
+        when(chunk.setState(anyInt(), anyInt(), anyInt(), anyInt())).thenAnswer(invocation -> {
+            int index = index(invocation.getArgument(0), invocation.getArgument(1),
+                    invocation.getArgument(2));
+            int old = states[index];
+            states[index] = invocation.getArgument(3);
+            return old;
+        });
+        when(chunk.getType(anyInt(), anyInt(), anyInt())).thenAnswer(invocation -> states[index(
+                invocation.getArgument(0), invocation.getArgument(1), invocation.getArgument(2))]
+                >> 4);
+        when(chunk.getMetaData(anyInt(), anyInt(), anyInt())).thenAnswer(invocation -> states[
+                index(invocation.getArgument(0), invocation.getArgument(1),
+                        invocation.getArgument(2))] & 0xf);
+        when(chunk.toChangedSectionsMessage(anyBoolean(), anyInt())).thenAnswer(invocation ->
+                new ChunkDataMessage(0, 0, false, invocation.getArgument(1), Unpooled.buffer(),
+                        Collections.emptySet()));
+
+        player = mock(GlowPlayer.class);
+        when(player.canSeeChunk(0, 0)).thenReturn(true);
+        world = mock(GlowWorld.class);
+        when(world.getChunkAt(0, 0)).thenReturn(chunk);
+        when(world.getEnvironment()).thenReturn(Environment.NORMAL);
+        when(world.getRawPlayers()).thenReturn(Collections.singletonList(player));
+        session = new BlockEditSession(world, false);
+    }
+
+    @Test
+    public void testSmallEditIsOneMessage() {
+        session.setTypeIdAndData(1, 10, 2, STONE, 0);
+        session.setTypeIdAndData(1, 11, 2, STONE, 0);
+        session.setTypeIdAndData(3, 10, 4, STONE, 2);
+        assertThat(session.getChangeCount(), is(3));
+        session.flush();
+        assertThat(session.getChangeCount(), is(0));
+
+        // the height maps of each changed column are updated once
+        verify(chunk).updateHeightMaps(1, 2);
+        verify(chunk).updateHeightMaps(3, 4);
+        verify(chunk, times(2)).updateHeightMaps(anyInt(), anyInt());
+
+        ArgumentCaptor<Message> sent = ArgumentCaptor.forClass(Message.class);
+        verify(player).sendBlockChanges(sent.capture());
+        assertThat(sent.getValue(), instanceOf(MultiBlockChangeMessage.class));
+        MultiBlockChangeMessage message = (MultiBlockChangeMessage) sent.getValue();
+        assertThat(message.getRecords().size(), is(3));
+        assertThat(message.getRecords().get(2).getType(), is(STONE << 4 | 2));
+    }
+
+    @Test
+    public void testLargeEditResendsSections() {
+        sections[1] = new ChunkSection();
+        for (int x = 0; x < GlowChunk.WIDTH; x++) {
+            for (int y = 16; y < 26; y++) {
+                session.setTypeIdAndData(x, y, 0, STONE, 0);
+            }
+        }
+        session.flush();
+
+        ArgumentCaptor<Message> sent = ArgumentCaptor.forClass(Message.class);
+        verify(player).sendBlockChanges(sent.capture());
+        assertThat(sent.getValue(), instanceOf(ChunkDataMessage.class));
+        assertThat(((ChunkDataMessage) sent.getValue()).getPrimaryMask(), is(1 << 1));
+        ((ChunkDataMessage) sent.getValue()).getData().release();
+    }
+
+    @Test
+    public void testResentSectionsAreSharedByViewers() {
+        GlowPlayer other = mock(GlowPlayer.class);
+        when(other.canSeeChunk(0, 0)).thenReturn(true);
+        when(world.getRawPlayers()).thenReturn(Arrays.asList(player, other));
+        for (int x = 0; x < GlowChunk.WIDTH; x++) {
+            for (int y = 16; y < 26; y++) {
+                session.setTypeIdAndData(x, y, 0, STONE, 0);
+            }
+        }
+        session.flush();
+
+        // serialized once, and each viewer's copy releases its own reference
+        verify(chunk).toChangedSectionsMessage(anyBoolean(), anyInt());
+        ArgumentCaptor<Message> sent = ArgumentCaptor.forClass(Message.class);
+        verify(player).sendBlockChanges(sent.capture());
+        verify(other).sendBlockChanges(sent.capture());
+        ChunkDataMessage first = (ChunkDataMessage) sent.getAllValues().get(0);
+        ChunkDataMessage second = (ChunkDataMessage) sent.getAllValues().get(1);
+        assertThat(second.getPrimaryMask(), is(1 << 1));
+        first.getData().release();
+        assertThat(second.getData().refCnt(), is(1));
+        second.getData().release();
+        assertThat(first.getData().refCnt(), is(0));
+    }
+
+    @Test
+    public void testUnchangedBlocksAreNotSent() {
+        states[index(5, 5, 5)] = STONE << 4;
+        session.setTypeIdAndData(5, 5, 5, STONE, 0);
+        session.flush();
+        verify(chunk, never()).updateHeightMaps(anyInt(), anyInt());
+        verify(player, never()).sendBlockChanges(any());
+    }
+
+    private static int index(int x, int z, int y) {
+        return (y * GlowChunk.HEIGHT + z) * GlowChunk.WIDTH + x;
+    }
+}
@@ -23,6 +23,8 @@ public class BuiltinMaterialValueManagerTest {
         assertThat(bvm.getValues(Material.OBSIDIAN).getLightOpacity(), is(255));
         assertThat(bvm.getValues(Material.WATER).getLightOpacity(), is(3));
         assertThat(bvm.getValues(Material.AIR).getLightOpacity(), is(0));
+        assertThat(bvm.getValues(Material.TORCH).getLightEmission(), is(14));
+        assertThat(bvm.getValues(Material.STONE).getLightEmission(), is(0));
         assertThat(bvm.getValues(Material.STONE).getFlameResistance(), is(-1));
         assertThat(bvm.getValues(Material.COBBLESTONE).getFireResistance(), is(-1));
         assertThat(bvm.getValues(Material.WOOD).getFlameResistance(), is(5));
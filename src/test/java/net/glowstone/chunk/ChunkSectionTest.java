@@ -0,0 +1,344 @@
+package net.glowstone.chunk;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntList;
+import java.util.Arrays;
+import net.glowstone.util.NibbleArray;
+import net.glowstone.util.VariableValueArray;
+import net.glowstone.util.nbt.CompoundTag;
+import org.junit.jupiter.api.Test;
+
+public class ChunkSectionTest {
+
+    private static final char STONE = 1 << 4;
+    private static final char DIRT = 3 << 4;
+
+    @Test
+    public void testNewSectionsShareLight() {
+        ChunkSection first = new ChunkSection();
+        ChunkSection second = new ChunkSection();
+        assertThat(first.getSkyLight().isShared(), is(true));
+        assertThat(first.getSkyLight(), sameInstance(second.getSkyLight()));
+        assertThat(first.getBlockLight(), sameInstance(second.getBlockLight()));
+        assertThat(first.getSkyLight(3, 4, 5), is(ChunkSection.DEFAULT_SKYLIGHT));
+        assertThat(first.getBlockLight(3, 4, 5), is(ChunkSection.DEFAULT_BLOCK_LIGHT));
+    }
+
+    @Test
+    public void testCopyOnWrite() {
+        ChunkSection section = new ChunkSection();
+        ChunkSection other = new ChunkSection();
+        NibbleArray shared = section.getBlockLight();
+
+        // writing the uniform level doesn't copy
+        section.setBlockLight(1, 2, 3, ChunkSection.DEFAULT_BLOCK_LIGHT);
+        assertThat(section.getBlockLight(), sameInstance(shared));
+
+        section.setBlockLight(1, 2, 3, (byte) 12);
+        assertThat(section.getBlockLight(), not(sameInstance(shared)));
+        assertThat(section.getBlockLight(1, 2, 3), is((byte) 12));
+        assertThat(section.getBlockLight(1, 2, 4), is(ChunkSection.DEFAULT_BLOCK_LIGHT));
+        assertThat(other.getBlockLight(1, 2, 3), is(ChunkSection.DEFAULT_BLOCK_LIGHT));
+        assertThat(shared.get(section.index(1, 2, 3)), is(ChunkSection.DEFAULT_BLOCK_LIGHT));
+    }
+
+    @Test
+    public void testUniformArraysAreShared() {
+        char[] types = new char[ChunkSection.ARRAY_SIZE];
+        ChunkSection section = new ChunkSection(types,
+                new NibbleArray(ChunkSection.ARRAY_SIZE, (byte) 0),
+                new NibbleArray(ChunkSection.ARRAY_SIZE, (byte) 4));
+        assertThat(section.getSkyLight(), sameInstance(ChunkSection.uniformLight((byte) 0)));
+        assertThat(section.getBlockLight(), sameInstance(ChunkSection.uniformLight((byte) 4)));
+
+        NibbleArray varied = new NibbleArray(ChunkSection.ARRAY_SIZE);
+        varied.set(100, (byte) 9);
+        section.setSkyLight(varied);
+        assertThat(section.getSkyLight(), sameInstance(varied));
+    }
+
+    @Test
+    public void testSnapshotKeepsSharedLight() {
+        ChunkSection section = new ChunkSection();
+        section.setSkyLight(0, 0, 0, (byte) 2);
+        ChunkSection snapshot = section.snapshot();
+        assertThat(snapshot.getBlockLight(), sameInstance(section.getBlockLight()));
+        section.setSkyLight(0, 0, 0, (byte) 3);
+        assertThat(snapshot.getSkyLight(), not(sameInstance(section.getSkyLight())));
+        assertThat(snapshot.getSkyLight(0, 0, 0), is((byte) 2));
+    }
+
+    @Test
+    public void testSnapshotIsCopyOnWrite() {
+        char[] types = new char[ChunkSection.ARRAY_SIZE];
+        types[0] = STONE;
+        ChunkSection section = new ChunkSection(types);
+        section.setSkyLight(0, 0, 0, (byte) 2);
+        ChunkSection snapshot = section.snapshot();
+        int version = section.getVersion();
+        assertThat(snapshot.getVersion(), is(version));
+        assertThat(snapshot.getSkyLight(), sameInstance(section.getSkyLight()));
+        assertThat(section.snapshot(), sameInstance(snapshot));
+
+        // setting a block to its current type is not a change
+        section.setType(0, 0, 0, STONE);
+        assertThat(section.snapshot(), sameInstance(snapshot));
+
+        section.setType(1, 0, 0, DIRT);
+        assertThat(section.getVersion(), is(version + 1));
+        assertThat(snapshot.getType(1, 0, 0), is((char) 0));
+        assertThat(snapshot.getSkyLight(), sameInstance(section.getSkyLight()));
+        section.setSkyLight(1, 0, 0, (byte) 5);
+        assertThat(snapshot.getSkyLight(1, 0, 0), is(ChunkSection.DEFAULT_SKYLIGHT));
+
+        ChunkSection next = section.snapshot();
+        assertThat(next, not(sameInstance(snapshot)));
+        assertThat(next.getType(1, 0, 0), is(DIRT));
+        assertThat(next.getSkyLight(1, 0, 0), is((byte) 5));
+        assertThat(snapshot.getType(0, 0, 0), is(STONE));
+    }
+
+    @Test
+    public void testCopiesAreCopyOnWrite() {
+        ChunkSection template = new ChunkSection();
+        template.fill(0, 0, 0, 16, 1, 16, STONE);
+        template.setSkyLight(0, 1, 0, (byte) 3);
+        ChunkSection first = template.copy();
+        ChunkSection second = template.copy();
+        assertThat(first.getSkyLight(), sameInstance(template.getSkyLight()));
+
+        first.setType(2, 0, 2, DIRT);
+        first.setSkyLight(0, 1, 0, (byte) 4);
+        assertThat(first.getType(2, 0, 2), is(DIRT));
+        assertThat(first.getType(3, 0, 2), is(STONE));
+        assertThat(second.getType(2, 0, 2), is(STONE));
+        assertThat(template.getType(2, 0, 2), is(STONE));
+        assertThat(template.getSkyLight(0, 1, 0), is((byte) 3));
+        assertThat(second.getSkyLight(0, 1, 0), is((byte) 3));
+
+        // the template can change too, without changing its copies
+        template.setType(2, 0, 2, (char) 0);
+        assertThat(second.getType(2, 0, 2), is(STONE));
+        assertThat(second.isEmpty(), is(false));
+    }
+
+    @Test
+    public void testSingleTypeSection() {
+        char[] types = new char[ChunkSection.ARRAY_SIZE];
+        Arrays.fill(types, STONE);
+        ChunkSection section = new ChunkSection(types);
+        assertThat(section.getType(7, 8, 9), is(STONE));
+        assertThat(section.isEmpty(), is(false));
+        assertThat(section.snapshot().getType(7, 8, 9), is(STONE));
+
+        section.setType(7, 8, 9, DIRT);
+        assertThat(section.getType(7, 8, 9), is(DIRT));
+        assertThat(section.getType(7, 8, 10), is(STONE));
+        assertThat(section.getTypes(), is(withType(types, 8 << 8 | 9 << 4 | 7, DIRT)));
+    }
+
+    @Test
+    public void testPaletteGrowsToGlobal() {
+        ChunkSection section = new ChunkSection();
+        for (int i = 0; i < 300; i++) {
+            section.setType(i & 0xf, i >> 8, i >> 4 & 0xf, (char) ((i + 1) << 4));
+        }
+        for (int i = 0; i < 300; i++) {
+            assertThat(section.getType(i & 0xf, i >> 8, i >> 4 & 0xf), is((char) ((i + 1) << 4)));
+        }
+        section.optimize();
+        assertThat(section.getType(3, 1, 2), is((char) (0x124 << 4)));
+
+        // back to a section palette once few enough types are left
+        for (int i = 0; i < 200; i++) {
+            section.setType(i & 0xf, i >> 8, i >> 4 & 0xf, (char) 0);
+        }
+        char[] types = section.getTypes();
+        section.optimize();
+        assertThat(section.getTypes(), is(types));
+        section.setType(0, 0, 0, STONE);
+        assertThat(section.getType(0, 0, 0), is(STONE));
+        assertThat(section.getType(3, 1, 2), is((char) (0x124 << 4)));
+    }
+
+    @Test
+    public void testOptimize() {
+        ChunkSection section = new ChunkSection();
+        section.setType(1, 1, 1, STONE);
+        section.setType(2, 2, 2, DIRT);
+        section.setType(1, 1, 1, (char) 0);
+        char[] types = section.getTypes();
+
+        section.optimize();
+        assertThat(section.getTypes(), is(types));
+        assertThat(section.isEmpty(), is(false));
+        section.setType(2, 2, 2, (char) 0);
+        section.optimize();
+        assertThat(section.isEmpty(), is(true));
+        assertThat(section.getType(2, 2, 2), is((char) 0));
+    }
+
+    @Test
+    public void testFill() {
+        ChunkSection section = new ChunkSection();
+        ChunkSection snapshot = section.snapshot();
+        // a layer, and part of a column
+        section.fill(0, 3, 0, 16, 4, 16, STONE);
+        section.fill(5, 2, 6, 6, 9, 7, DIRT);
+        assertThat(section.getType(0, 3, 15), is(STONE));
+        assertThat(section.getType(5, 3, 6), is(DIRT));
+        assertThat(section.getType(5, 8, 6), is(DIRT));
+        assertThat(section.getType(5, 9, 6), is((char) 0));
+        assertThat(section.getType(4, 2, 6), is((char) 0));
+        assertThat(snapshot.getType(0, 3, 0), is((char) 0));
+
+        // the non-air blocks are counted as they are filled
+        section.fill(0, 3, 0, 16, 4, 16, (char) 0);
+        section.fill(5, 2, 6, 6, 9, 7, (char) 0);
+        assertThat(section.isEmpty(), is(true));
+
+        // the whole section drops its block data
+        section.fill(0, 0, 0, 16, 16, 16, DIRT);
+        assertThat(section.getType(15, 15, 15), is(DIRT));
+        assertThat(section.isEmpty(), is(false));
+        section.setType(1, 2, 3, STONE);
+        assertThat(section.getType(1, 2, 3), is(STONE));
+        assertThat(section.getType(1, 2, 4), is(DIRT));
+    }
+
+    @Test
+    public void testFillGrowsPalette() {
+        ChunkSection section = new ChunkSection();
+        for (int i = 0; i < 300; i++) {
+            section.fill(i & 0xf, i >> 8, i >> 4 & 0xf, (i & 0xf) + 1, (i >> 8) + 1,
+                    (i >> 4 & 0xf) + 1, (char) ((i + 1) << 4));
+        }
+        for (int i = 0; i < 300; i++) {
+            assertThat(section.getType(i & 0xf, i >> 8, i >> 4 & 0xf), is((char) ((i + 1) << 4)));
+        }
+    }
+
+    @Test
+    public void testWriteSingleTypeSection() {
+        char[] types = new char[ChunkSection.ARRAY_SIZE];
+        Arrays.fill(types, STONE);
+        // the same blocks, as a one-entry palette with every block set to it
+        IntList palette = new IntArrayList();
+        palette.add(STONE);
+        ChunkSection paletted = new ChunkSection(new VariableValueArray(4, ChunkSection.ARRAY_SIZE),
+                palette, new NibbleArray(ChunkSection.ARRAY_SIZE, ChunkSection.DEFAULT_SKYLIGHT),
+                new NibbleArray(ChunkSection.ARRAY_SIZE));
+        paletted.recount();
+
+        ByteBuf expected = Unpooled.buffer();
+        ByteBuf actual = Unpooled.buffer();
+        try {
+            paletted.writeToBuf(expected, true);
+            new ChunkSection(types).writeToBuf(actual, true);
+            assertThat(actual, is(expected));
+        } finally {
+            expected.release();
+            actual.release();
+        }
+    }
+
+    @Test
+    public void testOptimizeOrdersPaletteByFirstUse() {
+        // dirt comes first in the palette, but stone is used first
+        char[] dirt = new char[ChunkSection.ARRAY_SIZE];
+        Arrays.fill(dirt, DIRT);
+        ChunkSection section = new ChunkSection(dirt);
+        section.fill(0, 0, 0, 15, 7, 15, STONE);
+        section.optimize();
+        char[] types = section.getTypes();
+
+        ByteBuf expected = Unpooled.buffer();
+        ByteBuf actual = Unpooled.buffer();
+        try {
+            new ChunkSection(types).writeToBuf(expected, true);
+            section.writeToBuf(actual, true);
+            assertThat(actual, is(expected));
+        } finally {
+            expected.release();
+            actual.release();
+        }
+    }
+
+    private static char[] withType(char[] types, int index, char type) {
+        char[] copy = types.clone();
+        copy[index] = type;
+        return copy;
+    }
+
+    @Test
+    public void testNbtRoundTrip() {
+        char[] types = new char[ChunkSection.ARRAY_SIZE];
+        for (int i = 0; i < types.length; i++) {
+            // ids above 255 need the Add array
+            types[i] = (char) ((i % 300) << 4 | i % 16);
+        }
+        NibbleArray skyLight = new NibbleArray(ChunkSection.ARRAY_SIZE);
+        skyLight.set(17, (byte) 9);
+        ChunkSection section = new ChunkSection(types, skyLight,
+                new NibbleArray(ChunkSection.ARRAY_SIZE, (byte) 3));
+
+        CompoundTag tag = new CompoundTag();
+        section.writeToNbt(tag);
+        assertThat(tag.containsKey("Add"), is(true));
+        ChunkSection read = ChunkSection.fromNbt(tag);
+        assertThat(Arrays.equals(read.getTypes(), types), is(true));
+        assertThat(read.getSkyLight(1, 0, 1), is((byte) 9));
+        assertThat(read.getSkyLight().getRawData(),
+                not(sameInstance(tag.getByteArray("SkyLight"))));
+        assertThat(read.getBlockLight(), sameInstance(ChunkSection.uniformLight((byte) 3)));
+    }
+
+    @Test
+    public void testSingleTypeFromNbtArrays() {
+        byte[] blocks = new byte[ChunkSection.ARRAY_SIZE];
+        Arrays.fill(blocks, (byte) 1);
+        byte[] data = new byte[ChunkSection.ARRAY_SIZE / 2];
+        ChunkSection section = ChunkSection.fromNbtArrays(blocks, null, data, null, null);
+        assertThat(section.getType(7, 8, 9), is(STONE));
+        assertThat(section.isEmpty(), is(false));
+        assertThat(section.getSkyLight(), sameInstance(
+                ChunkSection.uniformLight(ChunkSection.DEFAULT_SKYLIGHT)));
+
+        // the arrays are not kept
+        blocks[0] = 3;
+        assertThat(section.getType(0, 0, 0), is(STONE));
+    }
+
+    @Test
+    public void testWriteNbtArraysOverwritesBuffers() {
+        byte[] blocks = new byte[ChunkSection.ARRAY_SIZE];
+        byte[] add = new byte[ChunkSection.ARRAY_SIZE / 2];
+        byte[] data = new byte[ChunkSection.ARRAY_SIZE / 2];
+        char[] types = new char[ChunkSection.ARRAY_SIZE];
+        Arrays.fill(types, (char) (300 << 4 | 5));
+        ChunkSection high = new ChunkSection(types);
+        high.optimize();
+        assertThat(high.writeNbtArrays(blocks, add, data), is(true));
+        assertThat(add[10], is((byte) 0x11));
+        assertThat(data[10], is((byte) 0x55));
+
+        // the same buffers for a section without high bits
+        Arrays.fill(types, STONE);
+        types[1] = DIRT;
+        ChunkSection low = new ChunkSection(types);
+        assertThat(low.writeNbtArrays(blocks, add, data), is(false));
+        assertThat(add[0], is((byte) 0));
+        assertThat(blocks[0], is((byte) 1));
+        assertThat(blocks[1], is((byte) 3));
+        assertThat(data[0], is((byte) 0));
+        assertThat(ChunkSection.fromNbtArrays(blocks, null, data, null, null).getTypes(),
+                is(types));
+    }
+}
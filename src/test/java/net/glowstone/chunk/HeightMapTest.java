@@ -0,0 +1,126 @@
+package net.glowstone.chunk;
+
+import static net.glowstone.chunk.HeightMap.Type.LIGHT_BLOCKING;
+import static net.glowstone.chunk.HeightMap.Type.MOTION_BLOCKING;
+import static net.glowstone.chunk.HeightMap.Type.WORLD_SURFACE;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import net.glowstone.GlowWorld;
+import org.bukkit.Material;
+import org.bukkit.World.Environment;
+import org.junit.jupiter.api.Test;
+
+public class HeightMapTest {
+
+    private static final int STONE = Material.STONE.getId();
+    private static final int GLASS = Material.GLASS.getId();
+    private static final int LEAVES = Material.LEAVES.getId();
+    private static final int TORCH = Material.TORCH.getId();
+    private static final int WATER = Material.WATER.getId();
+
+    @Test
+    public void testLoad() {
+        int[] heights = new int[GlowChunk.WIDTH * GlowChunk.HEIGHT];
+        for (int i = 0; i < heights.length; i++) {
+            heights[i] = i;
+        }
+        HeightMap heightMap = new HeightMap();
+        heightMap.load(heights);
+        assertThat(heightMap.get(3, 2), is(2 * GlowChunk.WIDTH + 3));
+        assertThat(heightMap.get(15, 15), is(GlowChunk.DEPTH - 1));
+        assertThat(Arrays.equals(heightMap.toArray(), heights), is(true));
+
+        heightMap.set(15, 15, GlowChunk.DEPTH);
+        assertThat(heightMap.get(15, 15), is(GlowChunk.DEPTH));
+        assertThat(heightMap.get(14, 15), is(GlowChunk.DEPTH - 2));
+    }
+
+    @Test
+    public void testLoadRejectsBadHeights() {
+        HeightMap heightMap = new HeightMap();
+        assertThrows(IllegalArgumentException.class, () -> heightMap.load(new int[10]));
+        int[] heights = new int[GlowChunk.WIDTH * GlowChunk.HEIGHT];
+        heights[7] = -1;
+        assertThrows(IllegalArgumentException.class, () -> heightMap.load(heights));
+    }
+
+    @Test
+    public void testSetTypeUpdatesEachType() {
+        GlowChunk chunk = newChunk();
+        chunk.setType(1, 1, 10, STONE);
+        assertHeights(chunk, 11, 11, 11);
+        // a torch is only counted by the world surface
+        chunk.setType(1, 1, 11, TORCH);
+        assertHeights(chunk, 12, 11, 11);
+        // water blocks motion and light
+        chunk.setType(1, 1, 40, WATER);
+        assertHeights(chunk, 41, 41, 41);
+        assertMatchesScan(chunk);
+
+        chunk.setType(1, 1, 40, 0);
+        assertHeights(chunk, 12, 11, 11);
+        chunk.setType(1, 1, 11, 0);
+        assertHeights(chunk, 11, 11, 11);
+        chunk.setType(1, 1, 10, 0);
+        assertHeights(chunk, 0, 0, 0);
+        assertMatchesScan(chunk);
+    }
+
+    @Test
+    public void testLightBlockingFollowsOpacity() {
+        GlowChunk chunk = newChunk();
+        // glass blocks motion but lets all light through, while leaves dim it
+        chunk.setType(1, 1, 100, GLASS);
+        assertHeights(chunk, 101, 101, 0);
+        assertThat(chunk.getSkyLight(1, 1, 40), is(LightEngine.MAX_LIGHT));
+        chunk.setType(1, 1, 90, LEAVES);
+        assertHeights(chunk, 101, 101, 91);
+        // the empty sections below are in the dark
+        assertThat(chunk.getSkyLight(1, 1, 40), is(ChunkSection.EMPTY_SKYLIGHT));
+        assertMatchesScan(chunk);
+    }
+
+    @Test
+    public void testTopOfWorld() {
+        GlowChunk chunk = newChunk();
+        chunk.setType(0, 0, GlowChunk.DEPTH - 1, STONE);
+        assertThat(chunk.getHeight(WORLD_SURFACE, 0, 0), is(GlowChunk.DEPTH));
+        assertThat(chunk.getHeight(0, 0), is(GlowChunk.DEPTH));
+        chunk.setType(0, 0, GlowChunk.DEPTH - 1, 0);
+        assertThat(chunk.getHeight(0, 0), is(0));
+    }
+
+    private static GlowChunk newChunk() {
+        GlowWorld world = mock(GlowWorld.class);
+        when(world.getEnvironment()).thenReturn(Environment.NORMAL);
+        GlowChunk chunk = new GlowChunk(world, 0, 0);
+        chunk.initializeSections(new ChunkSection[GlowChunk.SEC_COUNT]);
+        chunk.automaticHeightMap();
+        return chunk;
+    }
+
+    private static void assertHeights(GlowChunk chunk, int worldSurface, int motionBlocking,
+            int lightBlocking) {
+        assertThat(chunk.getHeight(WORLD_SURFACE, 1, 1), is(worldSurface));
+        assertThat(chunk.getHeight(MOTION_BLOCKING, 1, 1), is(motionBlocking));
+        assertThat(chunk.getHeight(LIGHT_BLOCKING, 1, 1), is(lightBlocking));
+    }
+
+    private static void assertMatchesScan(GlowChunk chunk) {
+        HeightMap.Type[] types = HeightMap.Type.values();
+        int[][] incremental = new int[types.length][];
+        for (HeightMap.Type type : types) {
+            incremental[type.ordinal()] = chunk.getHeightMap(type).toArray();
+        }
+        chunk.automaticHeightMap();
+        for (HeightMap.Type type : types) {
+            assertThat(type.name(), Arrays.equals(chunk.getHeightMap(type).toArray(),
+                    incremental[type.ordinal()]), is(true));
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package net.glowstone.chunk;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import net.glowstone.GlowWorld;
+import net.glowstone.block.BuiltinMaterialValueManager;
+import org.bukkit.Material;
+import org.bukkit.World.Environment;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.powermock.api.mockito.PowerMockito;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+@RunWith(PowerMockRunner.class)
+@PrepareForTest({ChunkManager.class})
+public class LightEngineTest {
+
+    private static final int STONE = Material.STONE.getId();
+    private static final int TORCH = Material.TORCH.getId();
+    private static final int GLASS = Material.GLASS.getId();
+    private static final int FLOOR = 64;
+
+    private final Map<Long, GlowChunk> chunks = new HashMap<>();
+    private GlowWorld world;
+    private LightEngine engine;
+
+    @Before
+    public void setUp() throws InterruptedException {
+        world = mock(GlowWorld.class);
+        ChunkManager chunkManager = PowerMockito.mock(ChunkManager.class);
+        when(chunkManager.isChunkLoaded(anyInt(), anyInt())).thenAnswer(invocation -> chunks
+                .containsKey(key(invocation.getArgument(0), invocation.getArgument(1))));
+        when(chunkManager.getChunk(anyInt(), anyInt())).thenAnswer(invocation -> chunks
+                .get(key(invocation.getArgument(0), invocation.getArgument(1))));
+        when(world.getEnvironment()).thenReturn(Environment.NORMAL);
+        when(world.getChunkManager()).thenReturn(chunkManager);
+        when(world.getRawPlayers()).thenReturn(Collections.emptyList());
+        engine = new LightEngine(world, new BuiltinMaterialValueManager());
+        when(world.getLightEngine()).thenReturn(engine);
+
+        // a 3x3 area of chunks, solid stone below the floor
+        for (int cx = -1; cx <= 1; cx++) {
+            for (int cz = -1; cz <= 1; cz++) {
+                GlowChunk chunk = new GlowChunk(world, cx, cz);
+                ChunkSection[] sections = new ChunkSection[GlowChunk.SEC_COUNT];
+                for (int i = 0; i < FLOOR >> 4; i++) {
+                    char[] types = new char[ChunkSection.ARRAY_SIZE];
+                    Arrays.fill(types, (char) (STONE << 4));
+                    sections[i] = new ChunkSection(types);
+                }
+                chunk.initializeSections(sections);
+                chunk.automaticHeightMap();
+                chunks.put(key(cx, cz), chunk);
+                engine.lightChunk(chunk);
+            }
+        }
+        // wait for the initial lighting to be merged
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (chunks.values().stream().anyMatch(chunk -> !chunk.isLightPopulated())) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("Initial lighting didn't finish");
+            }
+            engine.flush();
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    public void testInitialSkyLight() {
+        assertEquals(15, getSkyLight(5, FLOOR, 5));
+        assertEquals(15, getSkyLight(5, 200, 5));
+        assertEquals(0, getSkyLight(5, FLOOR - 1, 5));
+        assertEquals(0, getBlockLight(5, FLOOR, 5));
+        assertEquals(0, getSkyLight(0, 0, 0));
+        for (GlowChunk chunk : chunks.values()) {
+            assertTrue(chunk.isLightPopulated());
+        }
+    }
+
+    @Test
+    public void testShaft() {
+        for (int y = FLOOR - 3; y < FLOOR; y++) {
+            setType(5, y, 5, 0);
+        }
+        engine.flush();
+        assertEquals(15, getSkyLight(5, FLOOR - 3, 5));
+
+        setType(5, FLOOR - 1, 5, STONE);
+        engine.flush();
+        assertEquals(0, getSkyLight(5, FLOOR - 3, 5));
+
+        setType(5, FLOOR - 1, 5, GLASS);
+        engine.flush();
+        assertEquals(15, getSkyLight(5, FLOOR - 3, 5));
+    }
+
+    @Test
+    public void testTorchAcrossChunks() {
+        // a closed room around the corner of four chunks
+        for (int x = -3; x <= 3; x++) {
+            for (int z = -3; z <= 3; z++) {
+                for (int y = 40; y <= 42; y++) {
+                    setType(x, y, z, 0);
+                }
+            }
+        }
+        setType(0, 41, 0, TORCH);
+        engine.flush();
+        assertEquals(14, getBlockLight(0, 41, 0));
+        assertEquals(13, getBlockLight(-1, 41, 0));
+        assertEquals(13, getBlockLight(0, 42, 0));
+        assertEquals(8, getBlockLight(-3, 41, -3));
+        assertEquals(0, getBlockLight(-4, 41, 0));
+        assertEquals(0, getSkyLight(0, 41, 0));
+
+        setType(3, 40, 3, TORCH);
+        setType(0, 41, 0, 0);
+        engine.flush();
+        assertEquals(14, getBlockLight(3, 40, 3));
+        assertEquals(7, getBlockLight(0, 41, 0));
+        assertEquals(2, getBlockLight(-3, 40, -3));
+    }
+
+    private GlowChunk getChunk(int x, int z) {
+        return chunks.get(key(x >> 4, z >> 4));
+    }
+
+    private void setType(int x, int y, int z, int type) {
+        getChunk(x, z).setType(x & 0xf, z & 0xf, y, type);
+    }
+
+    private int getSkyLight(int x, int y, int z) {
+        return getChunk(x, z).getSkyLight(x & 0xf, z & 0xf, y);
+    }
+
+    private int getBlockLight(int x, int y, int z) {
+        return getChunk(x, z).getBlockLight(x & 0xf, z & 0xf, y);
+    }
+
+    private static long key(int cx, int cz) {
+        return (long) cx << 32 | cz & 0xffffffffL;
+    }
+}
@@ -0,0 +1,139 @@
+package net.glowstone.chunk;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongList;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import net.glowstone.GlowWorld;
+import net.glowstone.io.ChunkIoService;
+import org.bukkit.Chunk;
+import org.bukkit.World;
+import org.bukkit.World.Environment;
+import org.bukkit.WorldType;
+import org.bukkit.generator.BlockPopulator;
+import org.bukkit.generator.ChunkGenerator;
+import org.junit.jupiter.api.Test;
+
+public class PopulationSchedulerTest {
+
+    @Test
+    public void testPhasesKeepChunksApart() {
+        LongList keys = new LongArrayList();
+        // a square around a player, nearest first, as when streaming chunks
+        for (int radius = 0; radius <= 10; radius++) {
+            for (int x = -radius; x <= radius; x++) {
+                for (int z = -radius; z <= radius; z++) {
+                    if (Math.max(Math.abs(x), Math.abs(z)) == radius) {
+                        keys.add(GlowChunk.key(x + 100, z - 7));
+                    }
+                }
+            }
+        }
+
+        List<LongList> phases = PopulationScheduler.splitIntoPhases(keys);
+        LongSet seen = new LongOpenHashSet();
+        for (LongList phase : phases) {
+            int previous = -1;
+            for (int i = 0; i < phase.size(); i++) {
+                long key = phase.getLong(i);
+                assertThat(seen.add(key), is(true));
+                // the order of the chunks is kept within a phase
+                int index = keys.indexOf(key);
+                assertThat(index > previous, is(true));
+                previous = index;
+                for (int j = i + 1; j < phase.size(); j++) {
+                    long other = phase.getLong(j);
+                    int dx = Math.abs(GlowChunk.keyX(key) - GlowChunk.keyX(other));
+                    int dz = Math.abs(GlowChunk.keyZ(key) - GlowChunk.keyZ(other));
+                    assertThat(Math.max(dx, dz) >= PopulationScheduler.SPACING, is(true));
+                }
+            }
+        }
+        assertThat(seen.size(), is(keys.size()));
+    }
+
+    @Test
+    public void testRowNeedsFewPhases() {
+        LongList keys = new LongArrayList();
+        for (int x = -10; x <= 10; x++) {
+            keys.add(GlowChunk.key(x, 3));
+        }
+        List<LongList> phases = PopulationScheduler.splitIntoPhases(keys);
+        assertThat(phases.size(), is(PopulationScheduler.SPACING));
+        assertThat(phases.get(0).getLong(0), is(GlowChunk.key(-10, 3)));
+        assertThat(phases.get(0).getLong(1), is(GlowChunk.key(-6, 3)));
+    }
+
+    @Test
+    public void testRunOnWorldThreadRunsImmediatelyOutsidePopulation() {
+        AtomicBoolean ran = new AtomicBoolean();
+        PopulationScheduler.runOnWorldThread(() -> ran.set(true));
+        assertThat(ran.get(), is(true));
+    }
+
+    @Test
+    public void testFailedPopulatorKeepsDeferredActions() {
+        ChunkManager chunkManager = mock(ChunkManager.class);
+        GlowChunk chunk = mock(GlowChunk.class);
+        AtomicBoolean ran = new AtomicBoolean();
+        doAnswer(invocation -> {
+            PopulationScheduler.runOnWorldThread(() -> ran.set(true));
+            throw new IllegalStateException("populator failed");
+        }).when(chunkManager).runPopulators(chunk);
+
+        List<Runnable> actions = new PopulationScheduler(mock(GlowWorld.class), chunkManager)
+                .runPopulators(chunk);
+        // deferred until the phase is done, and without a populate event
+        assertThat(ran.get(), is(false));
+        assertThat(actions.size(), is(1));
+        actions.get(0).run();
+        assertThat(ran.get(), is(true));
+
+        // actions run immediately again once the chunk is done
+        AtomicBoolean after = new AtomicBoolean();
+        PopulationScheduler.runOnWorldThread(() -> after.set(true));
+        assertThat(after.get(), is(true));
+    }
+
+    @Test
+    public void testWorkerDoesNotLoadChunksOutsideItsArea() throws Exception {
+        GlowWorld world = mock(GlowWorld.class);
+        when(world.getEnvironment()).thenReturn(Environment.THE_END);
+        when(world.getWorldType()).thenReturn(WorldType.NORMAL);
+        ChunkIoService service = mock(ChunkIoService.class);
+        ChunkGenerator generator = mock(ChunkGenerator.class);
+        ChunkManager chunkManager = new ChunkManager(world, service, generator);
+        GlowChunk chunk = chunkManager.getChunk(0, 0);
+        // two chunks away, between the areas of chunks populated at the same time
+        GlowChunk gap = chunkManager.getChunk(2, 0);
+        AtomicBoolean loaded = new AtomicBoolean(true);
+        when(world.getPopulators()).thenReturn(Collections.singletonList(new BlockPopulator() {
+            @Override
+            public void populate(World world, Random random, Chunk source) {
+                loaded.set(gap.load());
+            }
+        }));
+
+        List<Runnable> actions = new PopulationScheduler(world, chunkManager).runPopulators(chunk);
+        assertThat(loaded.get(), is(false));
+        assertThat(gap.isLoaded(), is(false));
+        verify(service, never()).read(any(GlowChunk.class));
+        verifyZeroInteractions(generator);
+        // only the populate event, and no load event
+        assertThat(actions.size(), is(1));
+    }
+}
@@ -0,0 +1,84 @@
+package net.glowstone.chunk;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+import net.glowstone.GlowWorld;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class PopulationWriterTest {
+
+    private GlowWorld world;
+    private GlowChunk[][] chunks;
+
+    @BeforeEach
+    public void setUp() {
+        world = mock(GlowWorld.class);
+        when(world.getRawPlayers()).thenReturn(Collections.emptyList());
+        chunks = new GlowChunk[5][5];
+        for (int x = 0; x < 5; x++) {
+            for (int z = 0; z < 5; z++) {
+                GlowChunk chunk = mock(GlowChunk.class);
+                when(chunk.load()).thenReturn(true);
+                when(chunk.getSections()).thenReturn(new ChunkSection[GlowChunk.SEC_COUNT]);
+                when(world.getChunkAt(x + 8, z - 2)).thenReturn(chunk);
+                chunks[x][z] = chunk;
+            }
+        }
+    }
+
+    @Test
+    public void testWritesAreConfinedToPopulationArea() {
+        // populating chunk (10, 0), whose area spans chunks 9 to 11 and -1 to 1
+        PopulationWriter writer = PopulationWriter.begin(world, 10, 0);
+        try {
+            assertThat(PopulationWriter.of(world), sameInstance(writer));
+            writer.setState(9 << 4, 70, -16, 1 << 4);
+            writer.setState((12 << 4) - 1, 70, 31, 2 << 4);
+            writer.setState((9 << 4) - 1, 70, 0, 3 << 4);
+            writer.setState(12 << 4, 70, 0, 3 << 4);
+            writer.setState(160, 70, 32, 3 << 4);
+            writer.setState(160, -1, 0, 3 << 4);
+        } finally {
+            writer.finish();
+        }
+
+        verify(chunks[1][1]).setState(0, 0, 70, 1 << 4, true);
+        verify(chunks[3][3]).setState(15, 15, 70, 2 << 4, true);
+        verify(chunks[0][2], never()).setState(anyInt(), anyInt(), anyInt(), anyInt(),
+                anyBoolean());
+        verify(chunks[4][2], never()).setState(anyInt(), anyInt(), anyInt(), anyInt(),
+                anyBoolean());
+        verify(chunks[2][4], never()).setState(anyInt(), anyInt(), anyInt(), anyInt(),
+                anyBoolean());
+        verify(chunks[2][2], never()).setState(anyInt(), anyInt(), anyInt(), anyInt(),
+                anyBoolean());
+        assertThat(PopulationWriter.of(world), not(sameInstance(writer)));
+    }
+
+    @Test
+    public void testReadsSectionsOfPopulationArea() {
+        ChunkSection section = new ChunkSection();
+        section.setType(3, 4, 5, (char) (17 << 4 | 2));
+        chunks[2][2].getSections()[4] = section;
+
+        PopulationWriter writer = PopulationWriter.begin(world, 10, 0);
+        try {
+            assertThat(writer.getState(160 + 3, 68, 5), is(17 << 4 | 2));
+            assertThat(writer.isEmpty(160 + 3, 69, 5), is(true));
+            assertThat(writer.isEmpty(160 + 3, 256, 5), is(true));
+        } finally {
+            writer.finish();
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package net.glowstone.entity;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import it.unimi.dsi.fastutil.ints.IntSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.Before;
+import org.junit.Test;
+
+public class EntityIdManagerTest {
+
+    private EntityIdManager idManager;
+
+    @Before
+    public void setUp() {
+        idManager = new EntityIdManager();
+    }
+
+    @Test
+    public void testAllocateIsUnique() {
+        IntSet ids = new IntOpenHashSet();
+        for (int i = 0; i < 1000; i++) {
+            GlowEntity entity = mock(GlowEntity.class);
+            int id = idManager.allocate(entity);
+            assertNotEquals(0, id);
+            assertNotEquals(-1, id);
+            assertEquals(id, entity.entityId);
+            assertTrue(ids.add(id));
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testAllocateTwice() {
+        GlowEntity entity = mock(GlowEntity.class);
+        idManager.allocate(entity);
+        idManager.allocate(entity);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testDeallocateUnassigned() {
+        idManager.deallocate(mock(GlowEntity.class));
+    }
+
+    @Test
+    public void testFreedIdIsNotReusedImmediately() {
+        GlowEntity first = mock(GlowEntity.class);
+        int id = idManager.allocate(first);
+        idManager.deallocate(first);
+        for (int i = 0; i < 1000; i++) {
+            assertNotEquals(id, idManager.allocate(mock(GlowEntity.class)));
+        }
+    }
+
+    @Test
+    public void testConcurrentAllocateAndFree() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<IntSet>> futures = new ArrayList<>();
+            for (int thread = 0; thread < 8; thread++) {
+                futures.add(executor.submit(() -> {
+                    IntSet kept = new IntOpenHashSet();
+                    for (int i = 0; i < 2000; i++) {
+                        GlowEntity entity = mock(GlowEntity.class);
+                        idManager.allocate(entity);
+                        if (i % 2 == 0) {
+                            idManager.deallocate(entity);
+                        } else {
+                            kept.add(entity.entityId);
+                        }
+                    }
+                    return kept;
+                }));
+            }
+            IntSet all = new IntOpenHashSet();
+            for (Future<IntSet> future : futures) {
+                for (int id : future.get()) {
+                    assertTrue("id " + id + " was handed out twice", all.add(id));
+                }
+            }
+            assertEquals(8 * 1000, all.size());
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
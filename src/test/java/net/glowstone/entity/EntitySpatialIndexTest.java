@@ -0,0 +1,108 @@
+package net.glowstone.entity;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import net.glowstone.entity.physics.BoundingBox;
+import net.glowstone.entity.physics.EntityBoundingBox;
+import org.bukkit.util.Vector;
+import org.junit.Before;
+import org.junit.Test;
+
+public class EntitySpatialIndexTest {
+
+    private EntitySpatialIndex index;
+
+    @Before
+    public void setUp() {
+        index = new EntitySpatialIndex();
+    }
+
+    private GlowEntity spawn(double x, double y, double z, double size) {
+        GlowEntity entity = mock(GlowEntity.class);
+        when(entity.intersects(any(BoundingBox.class))).thenCallRealMethod();
+        EntityBoundingBox box = new EntityBoundingBox(size, size);
+        box.setCenter(x, y, z);
+        entity.boundingBox = box;
+        index.add(entity, x, y, z);
+        index.includeExtent(box);
+        return entity;
+    }
+
+    private void moveTo(GlowEntity entity, double x, double y, double z) {
+        entity.boundingBox.setCenter(x, y, z);
+        index.move(entity, x, y, z);
+    }
+
+    private List<GlowEntity> inside(double minX, double minY, double minZ, double maxX,
+            double maxY, double maxZ, GlowEntity except) {
+        List<GlowEntity> result = new ArrayList<>();
+        index.getEntitiesInside(BoundingBox.fromCorners(new Vector(minX, minY, minZ),
+                new Vector(maxX, maxY, maxZ)), except, result);
+        return result;
+    }
+
+    @Test
+    public void testBoxQuery() {
+        GlowEntity near = spawn(5, 64, 5, 0.5);
+        GlowEntity far = spawn(500, 64, -500, 0.5);
+        List<GlowEntity> result = inside(0, 60, 0, 10, 70, 10, null);
+        assertEquals(1, result.size());
+        assertTrue(result.contains(near));
+        assertTrue(inside(0, 60, 0, 10, 70, 10, near).isEmpty());
+        assertEquals(2, inside(-1000, 0, -1000, 1000, 256, 1000, null).size());
+        assertTrue(inside(499, 60, -501, 501, 70, -499, null).contains(far));
+    }
+
+    @Test
+    public void testBoxOverhangingCellBorder() {
+        // the entity is filed under the cell at x >= 16, but its box reaches back into x < 16
+        GlowEntity wide = spawn(16.5, 64, 8, 4);
+        assertTrue(inside(14, 64, 7, 15, 65, 9, null).contains(wide));
+    }
+
+    @Test
+    public void testMoveAndRemove() {
+        GlowEntity entity = spawn(0, 64, 0, 0.5);
+        moveTo(entity, 100, 10, -100);
+        assertTrue(inside(-5, 60, -5, 5, 70, 5, null).isEmpty());
+        assertTrue(inside(95, 5, -105, 105, 15, -95, null).contains(entity));
+        assertEquals(1, index.size());
+        index.remove(entity);
+        assertEquals(0, index.size());
+        assertTrue(inside(95, 5, -105, 105, 15, -95, null).isEmpty());
+    }
+
+    @Test
+    public void testRadiusQuery() {
+        GlowEntity inRange = spawn(3, 64, 0, 1);
+        GlowEntity outOfRange = spawn(6, 64, 6, 1);
+        List<GlowEntity> result = new ArrayList<>();
+        index.getEntitiesInRadius(0, 64, 0, 4, null, result);
+        assertEquals(1, result.size());
+        assertTrue(result.contains(inRange));
+        result.clear();
+        index.getEntitiesInRadius(0, 64, 0, 9, null, result);
+        assertTrue(result.contains(outOfRange));
+    }
+
+    @Test
+    public void testRayQuery() {
+        GlowEntity onRay = spawn(10, 64, 0, 1);
+        GlowEntity offRay = spawn(10, 64, 5, 1);
+        GlowEntity beyondRay = spawn(30, 64, 0, 1);
+        List<GlowEntity> result = new ArrayList<>();
+        index.getEntitiesOnRay(new Vector(0, 64.5, 0), new Vector(2, 0, 0), 20, null, result);
+        assertEquals(1, result.size());
+        assertTrue(result.contains(onRay));
+        result.clear();
+        index.getEntitiesOnRay(new Vector(0, 64.5, 0), new Vector(10, 0, 5), 20, null, result);
+        assertTrue(result.contains(offRay));
+        assertTrue(!result.contains(beyondRay));
+    }
+}
@@ -0,0 +1,81 @@
+package net.glowstone.generator;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import net.glowstone.chunk.ChunkSection;
+import net.glowstone.chunk.GlowChunk;
+import org.bukkit.World;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class GlowChunkDataTest {
+
+    private GlowChunkData chunkData;
+
+    @BeforeEach
+    public void setUp() {
+        World world = mock(World.class);
+        when(world.getMaxHeight()).thenReturn(GlowChunk.DEPTH);
+        chunkData = new GlowChunkData(world);
+    }
+
+    @Test
+    public void testSetBlocks() {
+        chunkData.setBlock(1, 100, 2, 35, (byte) 14);
+        assertThat(chunkData.getTypeId(1, 100, 2), is(35));
+        assertThat(chunkData.getData(1, 100, 2), is((byte) 14));
+        assertThat(chunkData.getState(1, 100, 2), is(35 << 4 | 14));
+        assertThat(chunkData.getTypeId(1, 101, 2), is(0));
+        // out of bounds
+        chunkData.setBlock(16, 0, 0, 1, (byte) 0);
+        assertThat(chunkData.getTypeId(16, 0, 0), is(0));
+        assertThat(chunkData.getSections()[0], nullValue());
+        assertThat(chunkData.getSections()[6], notNullValue());
+    }
+
+    @Test
+    public void testFillLayersAndColumns() {
+        chunkData.setLayers(0, 1, 7, 0);
+        chunkData.setLayers(1, 20, 3, 0);
+        chunkData.setColumn(4, 5, 18, 40, 1, 2);
+        chunkData.setRegion(-5, 30, -5, 100, 31, 100, 2);
+        assertThat(chunkData.getTypeId(3, 0, 3), is(7));
+        assertThat(chunkData.getTypeId(15, 19, 0), is(3));
+        assertThat(chunkData.getTypeId(3, 20, 3), is(0));
+        assertThat(chunkData.getState(4, 18, 5), is(1 << 4 | 2));
+        assertThat(chunkData.getState(4, 39, 5), is(1 << 4 | 2));
+        assertThat(chunkData.getTypeId(4, 40, 5), is(0));
+        assertThat(chunkData.getTypeId(0, 30, 15), is(2));
+
+        ChunkSection[] sections = chunkData.getSections();
+        assertThat(sections[2], notNullValue());
+        // filling with air doesn't create sections
+        chunkData.setLayers(48, 64, 0, 0);
+        assertThat(sections[3], nullValue());
+
+        chunkData.setRegion(0, 0, 0, 16, 256, 16, 0);
+        assertThat(chunkData.getTypeId(4, 18, 5), is(0));
+        assertThat(sections[1].isEmpty(), is(true));
+    }
+
+    @Test
+    public void testSetSection() {
+        ChunkSection template = new ChunkSection();
+        template.fill(0, 0, 0, 16, 4, 16, (char) (3 << 4));
+        chunkData.setSection(1, template.copy());
+        assertThat(chunkData.getTypeId(8, 19, 8), is(3));
+        assertThat(chunkData.getTypeId(8, 20, 8), is(0));
+
+        chunkData.setBlock(8, 19, 8, 1, (byte) 0);
+        chunkData.setLayers(32, 48, 1, 0);
+        ChunkSection[] sections = chunkData.optimizeSections();
+        assertThat(sections[1].getType(8, 3, 8), is((char) (1 << 4)));
+        assertThat(sections[2].getType(0, 0, 0), is((char) (1 << 4)));
+        assertThat(template.getType(8, 3, 8), is((char) (3 << 4)));
+    }
+}
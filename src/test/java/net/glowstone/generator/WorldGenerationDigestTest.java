@@ -0,0 +1,271 @@
+package net.glowstone.generator;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doCallRealMethod;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Field;
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.function.Supplier;
+import net.glowstone.GlowServer;
+import net.glowstone.GlowWorld;
+import net.glowstone.chunk.ChunkManager;
+import net.glowstone.chunk.ChunkSection;
+import net.glowstone.chunk.GlowChunk;
+import net.glowstone.constants.GameRules;
+import net.glowstone.testutils.ServerShim;
+import net.glowstone.util.GameRuleManager;
+import net.glowstone.util.config.WorldConfig;
+import org.bukkit.Chunk;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.World.Environment;
+import org.bukkit.WorldType;
+import org.bukkit.block.Block;
+import org.bukkit.generator.BlockPopulator;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Generates fixed chunks of each built-in generator and compares digests of their blocks and
+ * biomes with the ones checked in, so that optimizations can't silently change the terrain of
+ * existing seeds.
+ *
+ * <p>Some chunks are also populated, without structures or mobs, in a mock world whose block
+ * lookups go through the chunk manager. When digests are missing or differ, the generated ones are
+ * written to {@code target/worldgen-digests.properties}; after checking that a change to the
+ * terrain is intended, copy them to {@value #GOLDEN}.
+ */
+public class WorldGenerationDigestTest {
+
+    private static final String GOLDEN = "/worldgen/digests.properties";
+    private static final long[] SEEDS = {1234L, 8675309L};
+    private static final int[][] CHUNKS = {{0, 0}, {1, 0}, {-1, -1}, {7, -12}, {-31, 25},
+            {300, -200}};
+    /**
+     * The chunks to populate, far enough apart that populating one doesn't reach the chunks
+     * around another, and mostly on land for both seeds so that trees and plants are placed.
+     */
+    private static final int[][] POPULATED = {{0, 0}, {10, -90}, {64, -64}, {300, -200}};
+
+    @BeforeAll
+    public static void setUpServer() throws Exception {
+        ServerShim.install();
+        if (GlowServer.getWorldConfig() == null) {
+            Field worldConfig = GlowServer.class.getDeclaredField("worldConfig");
+            worldConfig.setAccessible(true);
+            worldConfig.set(null, new WorldConfig(new File("config"),
+                    new File("config", "worlds.yml")));
+        }
+    }
+
+    @Test
+    public void testGenerationIsDeterministic() throws Exception {
+        for (Kind kind : Kind.values()) {
+            for (long seed : SEEDS) {
+                Map<String, String> forward = generate(kind, seed, false);
+                // a fresh generator, visiting the chunks in the opposite order
+                Map<String, String> backward = generate(kind, seed, true);
+                assertThat(kind + " " + seed, backward, is(forward));
+                assertThat(kind + " " + seed + " populated", populate(kind, seed, true),
+                        is(populate(kind, seed, false)));
+            }
+        }
+    }
+
+    @Test
+    public void testGenerationMatchesGoldenDigests() throws Exception {
+        Properties golden = new Properties();
+        try (InputStream in = getClass().getResourceAsStream(GOLDEN)) {
+            golden.load(in);
+        }
+        Properties generated = new Properties();
+        List<String> missing = new ArrayList<>();
+        List<String> changed = new ArrayList<>();
+        for (Kind kind : Kind.values()) {
+            for (long seed : SEEDS) {
+                Map<String, String> digests = generate(kind, seed, false);
+                digests.putAll(populate(kind, seed, false));
+                for (Map.Entry<String, String> entry : digests.entrySet()) {
+                    generated.setProperty(entry.getKey(), entry.getValue());
+                    String expected = golden.getProperty(entry.getKey());
+                    if (expected == null) {
+                        missing.add(entry.getKey());
+                    } else if (!expected.equals(entry.getValue())) {
+                        changed.add(entry.getKey());
+                    }
+                }
+            }
+        }
+        if (!missing.isEmpty() || !changed.isEmpty()) {
+            File file = new File("target", "worldgen-digests.properties");
+            file.getParentFile().mkdirs();
+            try (OutputStream out = new FileOutputStream(file)) {
+                generated.store(out, "Generated by " + getClass().getSimpleName());
+            }
+        }
+        assertThat("Terrain changed for " + changed + ", see target/worldgen-digests.properties",
+                changed.isEmpty(), is(true));
+        assertThat("No golden digests for " + missing + ", see target/worldgen-digests.properties",
+                missing.isEmpty(), is(true));
+    }
+
+    /**
+     * Generates the chunks of a seed with a new generator.
+     *
+     * @return the digest of each chunk, by its key in the golden digests
+     */
+    private static Map<String, String> generate(Kind kind, long seed, boolean reverse)
+            throws NoSuchAlgorithmException {
+        GlowChunkGenerator generator = kind.generator.get();
+        GlowWorld world = mockWorld(kind, seed, reverse, generator);
+        ChunkManager chunkManager = world.getChunkManager();
+
+        Map<String, String> digests = new LinkedHashMap<>();
+        for (int i = 0; i < CHUNKS.length; i++) {
+            int[] coords = CHUNKS[reverse ? CHUNKS.length - 1 - i : i];
+            GlowChunk chunk = chunkManager.getChunk(coords[0], coords[1]);
+            chunkManager.initializeChunk(chunk);
+            digests.put(kind.name().toLowerCase() + "." + seed + "." + coords[0] + "."
+                    + coords[1], digest(chunk));
+        }
+        return digests;
+    }
+
+    /**
+     * Populates chunks of a seed with a new generator, after generating the chunks around them.
+     *
+     * @return the digest of each populated chunk, by its key in the golden digests
+     */
+    private static Map<String, String> populate(Kind kind, long seed, boolean reverse)
+            throws NoSuchAlgorithmException {
+        GlowChunkGenerator generator = kind.generator.get();
+        GlowWorld world = mockWorld(kind, seed, reverse, generator);
+        ChunkManager chunkManager = world.getChunkManager();
+        // populators reach blocks through the world, which looks them up in the chunk manager
+        when(world.getChunkAt(anyInt(), anyInt())).thenAnswer(invocation -> chunkManager
+                .getChunk(invocation.<Integer>getArgument(0), invocation.getArgument(1)));
+        doCallRealMethod().when(world).getChunkAt(any(Block.class));
+        doCallRealMethod().when(world).getBlockAt(anyInt(), anyInt(), anyInt());
+        doCallRealMethod().when(world).getBlockAt(any(Location.class));
+        doCallRealMethod().when(world).getBlockTypeIdAt(anyInt(), anyInt(), anyInt());
+        doCallRealMethod().when(world).getHighestBlockYAt(anyInt(), anyInt());
+        doCallRealMethod().when(world).getHighestBlockAt(anyInt(), anyInt());
+        doCallRealMethod().when(world).getBiome(anyInt(), anyInt());
+        // spawning mobs needs a server, and isn't part of the terrain
+        GameRuleManager gameRules = new GameRuleManager();
+        gameRules.setValue(GameRules.DO_MOB_SPAWNING, false);
+        when(world.getGameRuleMap()).thenReturn(gameRules);
+        // the chunk manager only logs what populators throw
+        List<Throwable> failures = new ArrayList<>();
+        List<BlockPopulator> populators = new ArrayList<>();
+        for (BlockPopulator populator : generator.getDefaultPopulators(world)) {
+            populators.add(new BlockPopulator() {
+                @Override
+                public void populate(World target, Random random, Chunk source) {
+                    try {
+                        populator.populate(target, random, source);
+                    } catch (RuntimeException | Error e) {
+                        failures.add(e);
+                        throw e;
+                    }
+                }
+            });
+        }
+        when(world.getPopulators()).thenReturn(populators);
+
+        Map<String, String> digests = new LinkedHashMap<>();
+        for (int i = 0; i < POPULATED.length; i++) {
+            int[] coords = POPULATED[reverse ? POPULATED.length - 1 - i : i];
+            // the chunks populating writes into, and the ones around them that it may look at
+            for (int x = coords[0] - 2; x <= coords[0] + 2; x++) {
+                for (int z = coords[1] - 2; z <= coords[1] + 2; z++) {
+                    chunkManager.initializeChunk(chunkManager.getChunk(x, z));
+                }
+            }
+            chunkManager.forcePopulation(coords[0], coords[1]);
+            String key = "populated." + kind.name().toLowerCase() + "." + seed + "." + coords[0]
+                    + "." + coords[1];
+            if (!failures.isEmpty()) {
+                throw new AssertionError("Populating " + key + " failed", failures.get(0));
+            }
+            GlowChunk chunk = chunkManager.getChunk(coords[0], coords[1]);
+            assertThat(key, chunk.isPopulated(), is(true));
+            digests.put(key, digest(chunk));
+        }
+        return digests;
+    }
+
+    /**
+     * Creates a mock world of a generator, with a chunk manager without storage.
+     */
+    private static GlowWorld mockWorld(Kind kind, long seed, boolean reverse,
+            GlowChunkGenerator generator) {
+        GlowWorld world = mock(GlowWorld.class);
+        when(world.getName()).thenReturn(kind + "-" + seed + (reverse ? "-reverse" : ""));
+        when(world.getSeed()).thenReturn(seed);
+        when(world.getEnvironment()).thenReturn(kind.environment);
+        when(world.getWorldType()).thenReturn(kind.type);
+        when(world.getMaxHeight()).thenReturn(GlowChunk.DEPTH);
+        when(world.getSeaLevel())
+                .thenReturn(GlowServer.getWorldConfig().getInt(WorldConfig.Key.SEA_LEVEL));
+        ChunkManager chunkManager = new ChunkManager(world, null, generator);
+        when(world.getChunkManager()).thenReturn(chunkManager);
+        return world;
+    }
+
+    /**
+     * Hashes the block states and biomes of a chunk. Missing sections count as air, so that how
+     * sections are stored doesn't matter.
+     */
+    private static String digest(GlowChunk chunk) throws NoSuchAlgorithmException {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        for (ChunkSection section : chunk.getSections()) {
+            for (int i = 0; i < ChunkSection.ARRAY_SIZE; i++) {
+                char type = section == null ? 0 : section.getType(i & 0xf, i >> 8, i >> 4 & 0xf);
+                digest.update((byte) (type >> 8));
+                digest.update((byte) type);
+            }
+        }
+        for (int z = 0; z < GlowChunk.HEIGHT; z++) {
+            for (int x = 0; x < GlowChunk.WIDTH; x++) {
+                digest.update((byte) chunk.getBiome(x, z));
+            }
+        }
+        return String.format("%064x", new BigInteger(1, digest.digest()));
+    }
+
+    private enum Kind {
+        OVERWORLD(Environment.NORMAL, WorldType.NORMAL, OverworldGenerator::new),
+        AMPLIFIED(Environment.NORMAL, WorldType.AMPLIFIED, OverworldGenerator::new),
+        NETHER(Environment.NETHER, WorldType.NORMAL, NetherGenerator::new),
+        THE_END(Environment.THE_END, WorldType.NORMAL, TheEndGenerator::new),
+        SUPERFLAT(Environment.NORMAL, WorldType.FLAT, SuperflatGenerator::new);
+
+        private final Environment environment;
+        private final WorldType type;
+        private final Supplier<GlowChunkGenerator> generator;
+
+        Kind(Environment environment, WorldType type, Supplier<GlowChunkGenerator> generator) {
+            this.environment = environment;
+            this.type = type;
+            this.generator = generator;
+        }
+    }
+}
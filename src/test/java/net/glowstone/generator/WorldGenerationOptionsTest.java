@@ -0,0 +1,52 @@
+package net.glowstone.generator;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Arrays;
+import org.bukkit.World.Environment;
+import org.junit.jupiter.api.Test;
+
+public class WorldGenerationOptionsTest {
+
+    @Test
+    public void testParsesAreaAndPassesServerOptionsOn() {
+        WorldGenerationOptions options = WorldGenerationOptions.parse("--from", "10,-4",
+                "--worlds-dir", "out", "--to", "-2, 7", "--environment", "nether", "--band", "4");
+        assertThat(options.getMinX(), is(-2));
+        assertThat(options.getMinZ(), is(-4));
+        assertThat(options.getMaxX(), is(10));
+        assertThat(options.getMaxZ(), is(7));
+        assertThat(options.getChunkCount(), is(13L * 12));
+        assertThat(options.getEnvironment(), is(Environment.NETHER));
+        assertThat(options.getBand(), is(4));
+        assertThat(options.getSeed(), nullValue());
+        assertThat(options.getServerArgs(), is(Arrays.asList("--worlds-dir", "out")));
+    }
+
+    @Test
+    public void testPassesServerOptionsWithoutValueOn() {
+        WorldGenerationOptions options = WorldGenerationOptions.parse("--generate-config",
+                "--from", "0,0", "--worlds-dir", "out", "--to", "1,1", "--seed", "42");
+        assertThat(options.getServerArgs(),
+                is(Arrays.asList("--generate-config", "--worlds-dir", "out")));
+        assertThat(options.getMaxX(), is(1));
+        assertThat(options.getSeed(), is("42"));
+    }
+
+    @Test
+    public void testRejectsInvalidOptions() {
+        assertThrows(IllegalArgumentException.class,
+                () -> WorldGenerationOptions.parse("--from", "0,0"));
+        assertThrows(IllegalArgumentException.class,
+                () -> WorldGenerationOptions.parse("--from", "0,0", "--to", "1"));
+        assertThrows(IllegalArgumentException.class,
+                () -> WorldGenerationOptions.parse("--from", "0,0", "--to", "1,1", "--threads"));
+        assertThrows(IllegalArgumentException.class,
+                () -> WorldGenerationOptions.parse("--from", "0,0", "--to", "1,1", "--band", "0"));
+        assertThrows(IllegalArgumentException.class, () -> WorldGenerationOptions.parse(
+                "--from", "0,0", "--to", "1,1", "--environment", "moon"));
+    }
+}
@@ -0,0 +1,54 @@
+package net.glowstone.generator.biomegrid;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+
+public class CachedMapLayerTest {
+
+    private final MapLayer baseLayer = new MapLayer(1234L) {
+        @Override
+        public int[] generateValues(int x, int z, int sizeX, int sizeZ) {
+            int[] values = new int[sizeX * sizeZ];
+            for (int i = 0; i < sizeZ; i++) {
+                for (int j = 0; j < sizeX; j++) {
+                    setCoordsSeed(x + j, z + i);
+                    values[j + i * sizeX] = nextInt(100);
+                }
+            }
+            return values;
+        }
+    };
+
+    @Test
+    public void testMatchesUncachedValues() {
+        MapLayer layer = new ZoomMapLayer(1234L, baseLayer);
+        MapLayer cached = new CachedMapLayer(layer, 2, new Object());
+        // areas inside one tile, across tile borders, and at negative coordinates
+        int[][] areas = {{3, 5, 16, 16}, {250, 250, 10, 12}, {-7, -300, 20, 400},
+                {-257, 511, 1, 3}};
+        for (int[] area : areas) {
+            assertThat(Arrays.toString(area), Arrays.equals(
+                    cached.generateValues(area[0], area[1], area[2], area[3]),
+                    layer.generateValues(area[0], area[1], area[2], area[3])), is(true));
+        }
+    }
+
+    @Test
+    public void testZoomAtOddOffsets() {
+        MapLayer layer = new ZoomMapLayer(1234L, baseLayer);
+        int[] values = layer.generateValues(-4, -4, 12, 12);
+        for (int x = -3; x < 3; x++) {
+            for (int z = -3; z < 3; z++) {
+                int[] part = layer.generateValues(x, z, 5, 3);
+                for (int i = 0; i < 3; i++) {
+                    for (int j = 0; j < 5; j++) {
+                        assertThat(part[j + i * 5], is(values[x + 4 + j + (z + 4 + i) * 12]));
+                    }
+                }
+            }
+        }
+    }
+}
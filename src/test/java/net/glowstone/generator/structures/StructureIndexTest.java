@@ -0,0 +1,89 @@
+package net.glowstone.generator.structures;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Random;
+import net.glowstone.generator.structures.util.StructureBoundingBox;
+import org.bukkit.util.Vector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class StructureIndexTest {
+
+    private StructureIndex index;
+
+    @BeforeEach
+    public void setUp() {
+        index = new StructureIndex();
+    }
+
+    @Test
+    public void testGetByStartChunk() {
+        GlowStructure structure = structure(0, 31, 0, 496, 20, 511);
+        // these chunks' old integer keys were the same
+        GlowStructure other = structure(1, 0, 16, 0, 31, 15);
+        index.put(structure);
+        index.put(other);
+        assertThat(index.get(0, 31), is(structure));
+        assertThat(index.get(1, 0), is(other));
+        assertThat(index.contains(0, 0), is(false));
+        assertThat(index.size(), is(2));
+    }
+
+    @Test
+    public void testIntersectingAcrossRegions() {
+        // covers four regions around the origin
+        GlowStructure large = structure(-1, -1, -40, -40, 40, 40);
+        GlowStructure far = structure(-100, 62, -1600, 992, -1580, 1010);
+        index.put(large);
+        index.put(far);
+
+        assertThat(index.getIntersecting(0, 0, 15, 15), is(Collections.singletonList(large)));
+        assertThat(index.getIntersecting(-16, -16, -1, -1), is(Collections.singletonList(large)));
+        assertThat(index.getIntersecting(48, 48, 63, 63).isEmpty(), is(true));
+        assertThat(index.getIntersecting(-1600, 1008, -1585, 1023),
+                is(Collections.singletonList(far)));
+        // listed once, although it is in every region of the area
+        assertThat(index.getIntersecting(-1024, -1024, 1023, 1023),
+                is(Collections.singletonList(large)));
+        assertThat(new HashSet<>(index.getIntersecting(-2048, -2048, 2047, 2047)),
+                is(new HashSet<>(Arrays.asList(large, far))));
+    }
+
+    @Test
+    public void testRemoveAndReplace() {
+        GlowStructure structure = structure(2, 2, 32, 32, 47, 47);
+        index.put(structure);
+        GlowStructure replacement = structure(2, 2, 600, 600, 610, 610);
+        assertThat(index.putIfAbsent(replacement), is(structure));
+        assertThat(index.get(2, 2), is(structure));
+
+        index.put(replacement);
+        assertThat(index.get(2, 2), is(replacement));
+        assertThat(index.getIntersecting(32, 32, 47, 47).isEmpty(), is(true));
+        assertThat(index.remove(structure), is(false));
+
+        assertThat(index.remove(replacement), is(true));
+        assertThat(index.get(2, 2), is(nullValue()));
+        assertThat(index.getIntersecting(592, 592, 607, 607).isEmpty(), is(true));
+        assertThat(index.getStructures().isEmpty(), is(true));
+    }
+
+    private static GlowStructure structure(int chunkX, int chunkZ, int minX, int minZ, int maxX,
+            int maxZ) {
+        GlowStructure structure = new GlowStructure(null, chunkX, chunkZ) {
+            @Override
+            public boolean shouldGenerate(Random random) {
+                return true;
+            }
+        };
+        structure.setBoundingBox(new StructureBoundingBox(new Vector(minX, 0, minZ),
+                new Vector(maxX, 255, maxZ)));
+        return structure;
+    }
+}
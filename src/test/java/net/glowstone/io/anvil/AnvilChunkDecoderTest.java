@@ -0,0 +1,92 @@
+package net.glowstone.io.anvil;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import net.glowstone.chunk.ChunkSection;
+import net.glowstone.util.nbt.CompoundTag;
+import net.glowstone.util.nbt.NbtInputStream;
+import net.glowstone.util.nbt.NbtOutputStream;
+import org.junit.jupiter.api.Test;
+
+public class AnvilChunkDecoderTest {
+
+    private static final char STONE = 1 << 4;
+
+    @Test
+    public void decodeLevel() throws IOException {
+        char[] types = new char[ChunkSection.ARRAY_SIZE];
+        for (int i = 0; i < types.length; i++) {
+            types[i] = (char) ((i & 0xff) << 4 | i >> 8);
+        }
+        CompoundTag varied = new CompoundTag();
+        varied.putByte("Y", 3);
+        new ChunkSection(types).writeToNbt(varied);
+        varied.putString("Unknown", "skipped");
+        CompoundTag stone = new CompoundTag();
+        char[] stoneTypes = new char[ChunkSection.ARRAY_SIZE];
+        Arrays.fill(stoneTypes, STONE);
+        new ChunkSection(stoneTypes).writeToNbt(stone);
+        stone.putByte("Y", 0);
+
+        CompoundTag entity = new CompoundTag();
+        entity.putString("id", "minecraft:pig");
+        CompoundTag level = new CompoundTag();
+        level.putInt("xPos", 1);
+        level.putBool("TerrainPopulated", true);
+        level.putLong("InhabitedTime", 1234);
+        level.putCompoundList("Sections", Arrays.asList(varied, stone));
+        level.putByteArray("Biomes", new byte[256]);
+        level.putCompoundList("Entities", Collections.singletonList(entity));
+        level.putCompoundList("TileTicks", Collections.emptyList());
+        CompoundTag root = new CompoundTag();
+        root.putInt("DataVersion", 1343);
+        root.putCompound("Level", level);
+
+        AnvilChunkDecoder decoder = new AnvilChunkDecoder();
+        AnvilChunkDecoder.Level decoded = decoder.decode(stream(root), null);
+        ChunkSection[] sections = decoded.getSections();
+        assertThat(Arrays.equals(sections[3].getTypes(), types), is(true));
+        assertThat(sections[0].getType(4, 5, 6), is(STONE));
+        assertThat(sections[1], nullValue());
+        assertThat(decoded.isPopulated(), is(true));
+        assertThat(decoded.getInhabitedTime(), is(1234L));
+        assertThat(decoded.getBiomes().length, is(256));
+        assertThat(decoded.getHeightMap(), nullValue());
+        assertThat(decoded.getSlimeChunk(), is(-1));
+        assertThat(decoded.getEntities().size(), is(1));
+        assertThat(decoded.getEntities().get(0).getString("id"), is("minecraft:pig"));
+        assertThat(decoded.getBlockEntities().isEmpty(), is(true));
+        assertThat(decoded.getTileTicks().isEmpty(), is(true));
+        // chunks saved without the light status are taken to be lit
+        assertThat(decoded.isLightPopulated(), is(true));
+
+        // the same decoder reuses its buffers for the next chunk
+        AnvilChunkDecoder.Level again = decoder.decode(stream(root), null);
+        assertThat(Arrays.equals(again.getSections()[3].getTypes(), types), is(true));
+        assertThat(sections[0].getType(4, 5, 6), is(STONE));
+    }
+
+    @Test
+    public void missingLevel() throws IOException {
+        CompoundTag root = new CompoundTag();
+        root.putInt("DataVersion", 1343);
+        NbtInputStream in = stream(root);
+        assertThrows(IOException.class, () -> new AnvilChunkDecoder().decode(in, null));
+    }
+
+    private static NbtInputStream stream(CompoundTag root) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (NbtOutputStream out = new NbtOutputStream(bytes, false)) {
+            out.writeTag(root);
+        }
+        return new NbtInputStream(new ByteArrayInputStream(bytes.toByteArray()), false);
+    }
+}
@@ -0,0 +1,133 @@
+package net.glowstone.io.anvil;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.zip.Deflater;
+import java.util.zip.InflaterInputStream;
+import net.glowstone.chunk.ChunkSection;
+import net.glowstone.chunk.GlowChunk;
+import net.glowstone.chunk.HeightMap;
+import net.glowstone.chunk.ProtoChunk;
+import net.glowstone.util.nbt.CompoundTag;
+import net.glowstone.util.nbt.NbtInputStream;
+import org.junit.jupiter.api.Test;
+
+public class AnvilChunkEncoderTest {
+
+    private static final char STONE = 1 << 4;
+
+    @Test
+    public void encodeLevel() throws IOException {
+        char[] types = new char[ChunkSection.ARRAY_SIZE];
+        for (int i = 0; i < types.length; i++) {
+            // ids above 255 need the Add array
+            types[i] = (char) ((i % 300) << 4 | i % 16);
+        }
+        char[] stoneTypes = new char[ChunkSection.ARRAY_SIZE];
+        Arrays.fill(stoneTypes, STONE);
+        ChunkSection[] sections = new ChunkSection[GlowChunk.SEC_COUNT];
+        sections[0] = new ChunkSection(stoneTypes);
+        sections[0].optimize();
+        sections[3] = new ChunkSection(types);
+        sections[3].setBlockLight(1, 2, 3, (byte) 7);
+        GlowChunk chunk = chunk(sections);
+
+        CompoundTag entity = new CompoundTag();
+        entity.putString("id", "minecraft:pig");
+        AnvilChunkEncoder encoder = new AnvilChunkEncoder(new Deflater());
+        AnvilChunkDecoder.Level decoded = decode(encoder,
+                encoder.encode(chunk, sections, true, Collections.singletonList(entity),
+                        Collections.emptyList(), Collections.emptyList()));
+
+        ChunkSection[] read = decoded.getSections();
+        assertThat(Arrays.equals(read[3].getTypes(), types), is(true));
+        assertThat(read[3].getBlockLight(1, 2, 3), is((byte) 7));
+        assertThat(read[0].getType(4, 5, 6), is(STONE));
+        assertThat(read[1], nullValue());
+        assertThat(decoded.isPopulated(), is(true));
+        assertThat(decoded.getInhabitedTime(), is(1234L));
+        assertThat(decoded.getSlimeChunk(), is(1));
+        assertThat(decoded.getHeightMap()[2 * GlowChunk.WIDTH + 1], is(201));
+        assertThat(decoded.getHeightMaps().containsKey(HeightMap.Type.WORLD_SURFACE), is(false));
+        assertThat(decoded.getHeightMaps().get(HeightMap.Type.MOTION_BLOCKING)[
+                2 * GlowChunk.WIDTH + 1], is(202));
+        assertThat(decoded.getHeightMaps().get(HeightMap.Type.LIGHT_BLOCKING)[
+                2 * GlowChunk.WIDTH + 1], is(203));
+        assertThat(decoded.getBiomes()[2 * GlowChunk.WIDTH + 1], is((byte) 3));
+        assertThat(decoded.getEntities().size(), is(1));
+        assertThat(decoded.getEntities().get(0).getString("id"), is("minecraft:pig"));
+        assertThat(decoded.getBlockEntities().isEmpty(), is(true));
+        assertThat(decoded.isLightPopulated(), is(true));
+        assertThat(decoded.isProtoChunk(), is(false));
+
+        // the same encoder reuses its buffers for the next chunk
+        sections[3] = null;
+        AnvilChunkDecoder.Level again = decode(encoder, encoder.encode(chunk, sections,
+                false, Collections.emptyList(), Collections.emptyList(), Collections.emptyList()));
+        assertThat(again.getSections()[3], nullValue());
+        assertThat(again.getSections()[0].getType(4, 5, 6), is(STONE));
+        assertThat(again.getEntities().isEmpty(), is(true));
+        // not lit yet, so it is lit again when it is read
+        assertThat(again.isLightPopulated(), is(false));
+    }
+
+    @Test
+    public void encodeProtoChunk() throws IOException {
+        char[] stoneTypes = new char[ChunkSection.ARRAY_SIZE];
+        Arrays.fill(stoneTypes, STONE);
+        ChunkSection[] sections = new ChunkSection[GlowChunk.SEC_COUNT];
+        sections[2] = new ChunkSection(stoneTypes);
+        byte[] biomes = new byte[GlowChunk.WIDTH * GlowChunk.HEIGHT];
+        biomes[17] = 4;
+
+        AnvilChunkEncoder encoder = new AnvilChunkEncoder(new Deflater());
+        AnvilChunkDecoder.Level decoded = decode(encoder,
+                encoder.encode(new ProtoChunk(5, -7, sections, biomes)));
+
+        assertThat(decoded.isProtoChunk(), is(true));
+        assertThat(decoded.isPopulated(), is(false));
+        assertThat(decoded.isLightPopulated(), is(false));
+        assertThat(decoded.getSections()[2].getType(4, 5, 6), is(STONE));
+        assertThat(decoded.getSections()[2].getSkyLight(4, 5, 6),
+                is(ChunkSection.DEFAULT_SKYLIGHT));
+        assertThat(decoded.getSections()[1], nullValue());
+        assertThat(decoded.getBiomes()[17], is((byte) 4));
+        // height maps are computed when the chunk is loaded
+        assertThat(decoded.getHeightMap(), nullValue());
+        assertThat(decoded.getHeightMaps().isEmpty(), is(true));
+    }
+
+    private static GlowChunk chunk(ChunkSection[] sections) {
+        GlowChunk chunk = mock(GlowChunk.class);
+        when(chunk.getX()).thenReturn(3);
+        when(chunk.getZ()).thenReturn(-2);
+        when(chunk.getSections()).thenReturn(sections);
+        when(chunk.getHeight(any(HeightMap.Type.class), anyInt(), anyInt())).thenAnswer(
+                invocation -> ((HeightMap.Type) invocation.getArgument(0)).ordinal()
+                        + (int) invocation.getArgument(1) + 100 * (int) invocation.getArgument(2));
+        when(chunk.getBiome(anyInt(), anyInt())).thenAnswer(invocation ->
+                (int) invocation.getArgument(0) + (int) invocation.getArgument(1));
+        when(chunk.isSlimeChunk()).thenReturn(true);
+        when(chunk.isPopulated()).thenReturn(true);
+        when(chunk.getInhabitedTime()).thenReturn(1234L);
+        return chunk;
+    }
+
+    private static AnvilChunkDecoder.Level decode(AnvilChunkEncoder encoder, int length)
+            throws IOException {
+        ByteArrayInputStream bytes = new ByteArrayInputStream(encoder.getBuffer(),
+                RegionFile.CHUNK_HEADER_SIZE, length - RegionFile.CHUNK_HEADER_SIZE);
+        return new AnvilChunkDecoder().decode(
+                new NbtInputStream(new InflaterInputStream(bytes), false), null);
+    }
+}
@@ -0,0 +1,116 @@
+package net.glowstone.scheduler;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TickWatchdogTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private TickWatchdog watchdog;
+    private File reports;
+
+    @Before
+    public void setUp() {
+        watchdog = new TickWatchdog();
+        reports = new File(folder.getRoot(), "reports");
+        watchdog.start(50, 1, 0, reports, () -> {
+            throw new AssertionError("restart should be disabled");
+        });
+    }
+
+    @After
+    public void tearDown() {
+        watchdog.stop();
+    }
+
+    @Test
+    public void testReportsStalledFrames() throws Exception {
+        TickWatchdog.Tracker tracker = watchdog.track("test world");
+        runTick(tracker, () -> spin(400));
+
+        String report = awaitReport();
+        assertThat(report, containsString("Tick stall in test world"));
+        assertThat(report, containsString("TickWatchdogTest.spin"));
+    }
+
+    @Test
+    public void testShortTicksAreNotReported() throws Exception {
+        TickWatchdog.Tracker tracker = watchdog.track("test world");
+        for (int i = 0; i < 10; i++) {
+            runTick(tracker, () -> spin(5));
+        }
+        Thread.sleep(200);
+        assertEquals(0, reportFiles().length);
+    }
+
+    @Test
+    public void testWaitingIsNotCountedAsFrames() throws Exception {
+        TickWatchdog.Tracker tracker = watchdog.track("server");
+        runTick(tracker, () -> {
+            tracker.setWaiting(true);
+            try {
+                Thread.sleep(300);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        String report = awaitReport();
+        assertThat(report, containsString("waiting for the world threads"));
+    }
+
+    private void runTick(TickWatchdog.Tracker tracker, Runnable tick) throws InterruptedException {
+        Thread thread = new Thread(() -> {
+            tracker.begin();
+            try {
+                tick.run();
+            } finally {
+                tracker.end();
+            }
+        });
+        thread.start();
+        thread.join();
+    }
+
+    private String awaitReport() throws InterruptedException, IOException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (System.nanoTime() < deadline) {
+            File[] files = reportFiles();
+            if (files.length > 0) {
+                // let the watchdog finish writing it
+                Thread.sleep(100);
+                return new String(Files.readAllBytes(files[0].toPath()), StandardCharsets.UTF_8);
+            }
+            Thread.sleep(10);
+        }
+        throw new AssertionError("no stall report written");
+    }
+
+    private File[] reportFiles() {
+        File[] files = reports.listFiles();
+        return files == null ? new File[0] : files;
+    }
+
+    private static long spin(long millis) {
+        long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+        long count = 0;
+        while (System.nanoTime() < end) {
+            count++;
+        }
+        return count;
+    }
+}
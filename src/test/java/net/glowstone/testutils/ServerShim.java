@@ -14,6 +14,7 @@ import java.util.logging.Logger;
 import javax.annotation.Nullable;
 import lombok.Getter;
 import net.glowstone.ServerProvider;
+import net.glowstone.generator.GlowChunkData;
 import net.glowstone.inventory.GlowItemFactory;
 import net.glowstone.net.SessionRegistry;
 import net.glowstone.scheduler.GlowScheduler;
@@ -564,7 +565,7 @@ public class ServerShim implements Server {
 
     @Override
     public ChunkGenerator.ChunkData createChunkData(World world) {
-        return null;
+        return new GlowChunkData(world);
     }
 
     @Override
@@ -0,0 +1,56 @@
+package net.glowstone.util;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+public class NibbleArrayTest {
+
+    @Test
+    public void testGetAndSet() {
+        NibbleArray array = new NibbleArray(4);
+        array.set(0, (byte) 1);
+        array.set(1, (byte) 5);
+        array.set(2, (byte) 8);
+        array.set(3, (byte) 15);
+        assertThat(array.getRawData(), is(new byte[] {0x51, (byte) 0xf8}));
+        assertThat(array.get(3), is((byte) 15));
+    }
+
+    @Test
+    public void testUniformValue() {
+        NibbleArray array = new NibbleArray(16, (byte) 7);
+        assertThat(array.getUniformValue(), is((byte) 7));
+        array.set(15, (byte) 6);
+        assertThat(array.getUniformValue(), is((byte) -1));
+        array.fill((byte) 6);
+        array.set(0, (byte) 0);
+        assertThat(array.getUniformValue(), is((byte) -1));
+    }
+
+    @Test
+    public void testSharedIsReadOnly() {
+        NibbleArray shared = NibbleArray.shared(16, (byte) 15);
+        assertThat(shared.isShared(), is(true));
+        assertThat(shared.get(9), is((byte) 15));
+        assertThat(shared.snapshot(), sameInstance(shared));
+        assertThrows(IllegalStateException.class, () -> shared.set(0, (byte) 0));
+        assertThrows(IllegalStateException.class, () -> shared.fill((byte) 0));
+        assertThrows(IllegalStateException.class, () -> shared.setRawData(new byte[8]));
+    }
+
+    @Test
+    public void testCopyOfShared() {
+        NibbleArray shared = NibbleArray.shared(16, (byte) 15);
+        NibbleArray copy = shared.copy();
+        assertThat(copy.isShared(), is(false));
+        assertThat(copy.getRawData(), not(sameInstance(shared.getRawData())));
+        copy.set(0, (byte) 3);
+        assertThat(copy.get(0), is((byte) 3));
+        assertThat(shared.get(0), is((byte) 15));
+    }
+}
@@ -0,0 +1,154 @@
+package net.glowstone.util.collection;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link ConcurrentLong2ObjectMap}.
+ */
+public class ConcurrentLong2ObjectMapTest {
+
+    private static final int THREADS = 4;
+    private static final int KEYS = 10_000;
+
+    @Test
+    public void putGetRemove() {
+        ConcurrentLong2ObjectMap<String> map = new ConcurrentLong2ObjectMap<>();
+        assertThat(map.isEmpty(), is(true));
+        assertThat(map.put(Long.MIN_VALUE, "a"), nullValue());
+        assertThat(map.put(-1, "b"), nullValue());
+        assertThat(map.put(-1, "c"), is("b"));
+        assertThat(map.putIfAbsent(-1, "d"), is("c"));
+        assertThat(map.get(-1), is("c"));
+        assertThat(map.get(0), nullValue());
+        assertThat(map.containsKey(Long.MIN_VALUE), is(true));
+        assertThat(map.size(), is(2));
+
+        assertThat(map.remove(-1, "b"), is(false));
+        assertThat(map.remove(-1, "c"), is(true));
+        assertThat(map.remove(Long.MIN_VALUE), is("a"));
+        assertThat(map.isEmpty(), is(true));
+    }
+
+    @Test
+    public void computeIfAbsent() {
+        ConcurrentLong2ObjectMap<String> map = new ConcurrentLong2ObjectMap<>();
+        assertThat(map.computeIfAbsent(42, Long::toString), is("42"));
+        assertThat(map.computeIfAbsent(42, key -> "other"), is("42"));
+        List<String> values = new ArrayList<>();
+        map.forEach(values::add);
+        assertThat(values, is(Collections.singletonList("42")));
+        map.clear();
+        assertThat(map.get(42), nullValue());
+    }
+
+    @Test
+    public void removedKeysAreReplaced() {
+        ConcurrentLong2ObjectMap<String> map = new ConcurrentLong2ObjectMap<>();
+        // enough turnover for every segment to rebuild its table many times
+        for (int i = 0; i < KEYS; i++) {
+            map.put(i, Integer.toString(i));
+            if (i >= 100) {
+                assertThat(map.remove(i - 100), is(Integer.toString(i - 100)));
+            }
+        }
+        assertThat(map.size(), is(100));
+        for (int i = 0; i < KEYS; i++) {
+            assertThat(map.get(i), i < KEYS - 100 ? nullValue() : is(Integer.toString(i)));
+        }
+    }
+
+    @Test
+    public void forEachAllowsRemoval() {
+        ConcurrentLong2ObjectMap<Long> map = new ConcurrentLong2ObjectMap<>();
+        for (long i = 0; i < KEYS; i++) {
+            map.put(i, i);
+        }
+        List<Long> visited = new ArrayList<>();
+        map.forEach(value -> {
+            visited.add(value);
+            if ((value & 1) == 0) {
+                map.remove(value, value);
+            }
+        });
+        assertThat(visited.size(), is(KEYS));
+        assertThat(map.size(), is(KEYS / 2));
+        assertThat(map.containsKey(2), is(false));
+        assertThat(map.get(3), is(3L));
+    }
+
+    @Test
+    public void concurrentGetDuringWrites() throws Exception {
+        ConcurrentLong2ObjectMap<Long> map = new ConcurrentLong2ObjectMap<>();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            Future<?> writer = executor.submit(() -> {
+                for (int round = 0; round < 10; round++) {
+                    for (long i = 0; i < KEYS; i++) {
+                        map.put(i, i);
+                    }
+                    for (long i = 0; i < KEYS; i++) {
+                        map.remove(i);
+                    }
+                }
+            });
+            List<Future<?>> readers = new ArrayList<>();
+            for (int t = 1; t < THREADS; t++) {
+                readers.add(executor.submit(() -> {
+                    while (!writer.isDone()) {
+                        for (long i = 0; i < KEYS; i++) {
+                            // a key is either absent or has its own value
+                            Long value = map.get(i);
+                            assertThat(value == null || value == i, is(true));
+                        }
+                    }
+                }));
+            }
+            writer.get();
+            for (Future<?> reader : readers) {
+                reader.get();
+            }
+            assertThat(map.isEmpty(), is(true));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void concurrentComputeIfAbsent() throws Exception {
+        ConcurrentLong2ObjectMap<Object> map = new ConcurrentLong2ObjectMap<>();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<Object[]>> results = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                results.add(executor.submit(() -> {
+                    Object[] values = new Object[KEYS];
+                    for (int i = 0; i < KEYS; i++) {
+                        values[i] = map.computeIfAbsent((long) i << 32 | i, key -> new Object());
+                    }
+                    return values;
+                }));
+            }
+            // every thread must have seen the same value for each key
+            Object[] first = results.get(0).get();
+            for (Future<Object[]> result : results) {
+                Object[] values = result.get();
+                for (int i = 0; i < KEYS; i++) {
+                    assertThat(values[i] == first[i], is(true));
+                }
+            }
+            assertThat(map.size(), is(KEYS));
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -1,8 +1,12 @@
 package net.glowstone.util.nbt;
 
+import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
 import static org.junit.Assert.assertThat;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import org.junit.jupiter.api.Test;
@@ -30,4 +34,52 @@ public class NbtInputTest {
         }
     }
 
+    @Test
+    public void streamBigTest() throws IOException {
+        InputStream raw = getClass().getResourceAsStream("/nbt/bigtest.nbt");
+        assertThat("Failed to get test resource /nbt/bigtest.nbt", raw, notNullValue());
+        try (NbtInputStream in = new NbtInputStream(raw)) {
+            CompoundTag compound = new CompoundTag();
+            in.beginRoot();
+            for (TagType type = in.nextEntry(); type != TagType.END; type = in.nextEntry()) {
+                compound.put(in.getEntryName(), in.readPayload(type));
+            }
+            Checks.checkBigTest(compound);
+        }
+    }
+
+    @Test
+    public void streamSkip() throws IOException {
+        CompoundTag nested = new CompoundTag();
+        nested.putString("name", "skipped");
+        nested.putIntArray("ints", new int[] {1, 2, 3});
+        CompoundTag root = new CompoundTag();
+        root.putCompound("nested", nested);
+        root.putByteArray("bytes", new byte[] {4, 5});
+        root.putInt("last", 42);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (NbtOutputStream out = new NbtOutputStream(bytes, false)) {
+            out.writeTag(root);
+        }
+
+        try (NbtInputStream in = new NbtInputStream(
+                new ByteArrayInputStream(bytes.toByteArray()), false)) {
+            in.beginRoot();
+            int last = 0;
+            byte[] read = null;
+            for (TagType type = in.nextEntry(); type != TagType.END; type = in.nextEntry()) {
+                if ("last".equals(in.getEntryName())) {
+                    last = in.readInt();
+                } else if ("bytes".equals(in.getEntryName())) {
+                    read = in.readByteArray(new byte[2]);
+                } else {
+                    in.skip(type);
+                }
+            }
+            assertThat(last, is(42));
+            assertThat(read[1], is((byte) 5));
+            assertThat(in.getEntryName(), nullValue());
+        }
+    }
+
 }
@@ -0,0 +1,87 @@
+package net.glowstone.util.noise;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+public class BatchOctaveGeneratorTest {
+
+    // the sizes that the overworld, nether and end generators use
+    private static final int[][] SIZES = {{5, 1, 5}, {5, 33, 5}, {5, 17, 5}, {3, 33, 3},
+            {16, 16, 1}, {16, 1, 16}, {16, 16, 16}};
+    private static final double[] SCALES = {0.0625, 1, 200, 684.412, 8.555150000000001};
+    private static final double[] COORDINATES = {0, 1, -1, 4, -20, 12345, -1048576, 3.0E7};
+
+    @Test
+    public void testPerlinMatchesReference() {
+        for (int[] size : SIZES) {
+            for (double scale : SCALES) {
+                Random random = new Random(size[1] * 31L + Double.hashCode(scale));
+                long seed = random.nextLong();
+                PerlinOctaveGenerator reference = new PerlinOctaveGenerator(new Random(seed), 8,
+                        size[0], size[1], size[2]);
+                PerlinOctaveGenerator batch = new BatchPerlinOctaveGenerator(new Random(seed), 8,
+                        size[0], size[1], size[2]);
+                reference.setScale(scale);
+                batch.setScale(scale);
+                assertSameNoise(reference, batch, 0.5, 2.0);
+            }
+        }
+    }
+
+    @Test
+    public void testSimplexMatchesReference() {
+        for (int[] size : SIZES) {
+            for (double scale : SCALES) {
+                Random random = new Random(size[1] * 31L + Double.hashCode(scale));
+                long seed = random.nextLong();
+                SimplexOctaveGenerator reference = new SimplexOctaveGenerator(new Random(seed), 4,
+                        size[0], size[1], size[2]);
+                SimplexOctaveGenerator batch = new BatchSimplexOctaveGenerator(new Random(seed),
+                        4, size[0], size[1], size[2]);
+                reference.setScale(scale);
+                batch.setScale(scale);
+                assertSameNoise(reference, batch, 0.5, 0.5);
+            }
+        }
+    }
+
+    @Test
+    public void testParallelAreasMatchSingleAreas() {
+        PerlinOctaveGenerator reference = new PerlinOctaveGenerator(new Random(42), 16, 5, 33, 5);
+        PerlinOctaveGenerator batch = new BatchPerlinOctaveGenerator(new Random(42), 16, 5, 33,
+                5);
+        reference.setScale(684.412);
+        batch.setScale(684.412);
+        double[][] noise = new double[64][5 * 33 * 5];
+        double[] x = new double[noise.length];
+        double[] z = new double[noise.length];
+        for (int i = 0; i < noise.length; i++) {
+            x[i] = (i % 8 - 4) << 2;
+            z[i] = (i / 8 - 4) << 2;
+        }
+        batch.getFractalBrownianMotion(noise, x, 0, z, 0.5, 2.0, true);
+        for (int i = 0; i < noise.length; i++) {
+            assertThat(Arrays.equals(noise[i],
+                    reference.getFractalBrownianMotion(x[i], 0, z[i], 0.5, 2.0)), is(true));
+        }
+    }
+
+    private static void assertSameNoise(PerlinOctaveGenerator reference,
+            PerlinOctaveGenerator batch, double lacunarity, double persistence) {
+        for (double x : COORDINATES) {
+            for (double z : COORDINATES) {
+                double y = z / 3;
+                double[] expected = reference.getFractalBrownianMotion(x, y, z, lacunarity,
+                        persistence);
+                double[] actual = batch.getFractalBrownianMotion(x, y, z, lacunarity,
+                        persistence);
+                // compared bit for bit, so that the terrain of existing seeds doesn't change
+                assertThat(x + ", " + y + ", " + z, Arrays.equals(actual, expected), is(true));
+            }
+        }
+    }
+}